@@ -1,16 +1,56 @@
 package ru.georgdeveloper.assistantai.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import ru.georgdeveloper.assistantcommon.feedback.FeedbackJournal;
+import ru.georgdeveloper.assistantcommon.feedback.FeedbackJournalProperties;
+import ru.georgdeveloper.assistantcommon.http.HttpClientProperties;
+import ru.georgdeveloper.assistantcommon.http.PooledHttpClientFactory;
+
 @Configuration
 public class AssistantAiConfig {
 
+    private static final Logger logger = LoggerFactory.getLogger(AssistantAiConfig.class);
+
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    @ConfigurationProperties(prefix = "http.client")
+    public HttpClientProperties httpClientProperties() {
+        return new HttpClientProperties();
+    }
+
+    @Bean
+    public RestTemplate restTemplate(HttpClientProperties httpClientProperties,
+                                     ObjectProvider<MeterRegistry> meterRegistry) {
+        return PooledHttpClientFactory.createRestTemplate("ai-ollama", httpClientProperties,
+                meterRegistry.getIfAvailable());
     }
-}
 
+    @Bean
+    @ConfigurationProperties(prefix = "feedback.journal")
+    public FeedbackJournalProperties feedbackJournalProperties() {
+        return new FeedbackJournalProperties();
+    }
 
+    // Подтверждения (/api/feedback) и примеры (/api/training/add-example); null - журнал выключен или недоступен
+    @Bean(destroyMethod = "close")
+    public FeedbackJournal feedbackJournal(FeedbackJournalProperties feedbackJournalProperties,
+                                           ObjectProvider<MeterRegistry> meterRegistry) {
+        if (!feedbackJournalProperties.isEnabled()) {
+            return null;
+        }
+        try {
+            return FeedbackJournal.open(feedbackJournalProperties, "ai", meterRegistry.getIfAvailable());
+        } catch (IOException e) {
+            logger.error("Журнал обратной связи недоступен: {}", e.getMessage(), e);
+            return null;
+        }
+    }
+}
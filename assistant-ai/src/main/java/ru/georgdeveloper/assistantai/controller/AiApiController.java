@@ -3,15 +3,9 @@ package ru.georgdeveloper.assistantai.controller;
 import org.springframework.web.bind.annotation.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import ru.georgdeveloper.assistantai.service.ModelTrainingService;
 import ru.georgdeveloper.assistantai.service.OllamaService;
-import ru.georgdeveloper.assistantai.config.TrainingPaths;
-
-import java.io.File;
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.util.*;
+import ru.georgdeveloper.assistantcommon.feedback.FeedbackJournal;
 
 @RestController
 @RequestMapping("/api")
@@ -20,9 +14,11 @@ public class AiApiController {
     private static final Logger logger = LoggerFactory.getLogger(AiApiController.class);
 
     private final OllamaService ollamaService;
+    private final ModelTrainingService modelTrainingService;
 
-    public AiApiController(OllamaService ollamaService) {
+    public AiApiController(OllamaService ollamaService, ModelTrainingService modelTrainingService) {
         this.ollamaService = ollamaService;
+        this.modelTrainingService = modelTrainingService;
     }
 
     @PostMapping(value = "/analyze", consumes = "application/json;charset=UTF-8", produces = "application/json;charset=UTF-8")
@@ -43,61 +39,19 @@ public class AiApiController {
         return response;
     }
 
+    /**
+     * Подтверждённая пользователем пара от внешних клиентов assistant-ai
+     * (telegram и web подтверждают через /api/feedback assistant-core):
+     * пишется в журнал обратной связи, ответ не ждёт диска
+     */
     @PostMapping("/feedback")
     public String saveFeedback(@RequestBody FeedbackDto feedback) {
-        try {
-            saveToQueryTrainingData(feedback);
-            if (feedback.response != null && (feedback.response.contains("SIMPLE_ANSWER") || feedback.response.toLowerCase().contains("инструкция"))) {
-                saveToRepairInstructions(feedback);
-            }
-            return "OK";
-        } catch (Exception e) {
-            logger.error("Ошибка сохранения обратной связи", e);
-            return "ERROR: " + e.getMessage();
-        }
-    }
-
-    private void saveToRepairInstructions(FeedbackDto feedback) throws IOException {
-        String problem = feedback.request;
-        String solution = feedback.response.trim();
-        Map<String, String> entry = new LinkedHashMap<>();
-        entry.put("Участок", "-");
-        entry.put("Группа оборудования", "-");
-        entry.put("Узел", "-");
-        entry.put("Проблема", problem);
-        entry.put("Решение", solution);
-
-        com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
-        File file = new File(TrainingPaths.REPAIR_INSTRUCTIONS_JSON);
-        File parent = file.getParentFile();
-        if (parent != null && !parent.exists()) {
-            parent.mkdirs();
-        }
-        java.util.List<java.util.Map<String, String>> all;
-        if (file.exists()) {
-            java.util.List<java.util.Map<String, String>> tempList = mapper.readValue(file, new com.fasterxml.jackson.core.type.TypeReference<java.util.List<java.util.Map<String, String>>>() {});
-            all = new java.util.ArrayList<>();
-            for (java.util.Map<String, String> rawMap : tempList) {
-                all.add(new java.util.LinkedHashMap<>(rawMap));
-            }
-        } else {
-            all = new java.util.ArrayList<>();
-        }
-        all.add(entry);
-        mapper.writerWithDefaultPrettyPrinter().writeValue(file, all);
-    }
-
-    private void saveToQueryTrainingData(FeedbackDto feedback) throws IOException {
-        String line = String.format("{\"input\": \"%s\", \"output\": \"%s\"}\n",
-                feedback.request.replace("\"", "\\\""),
-                feedback.response.replace("\"", "\\\""));
-        java.nio.file.Path target = Paths.get(TrainingPaths.QUERY_TRAINING_DATA_JSONL);
-        if (target.getParent() != null && !Files.exists(target.getParent())) {
-            Files.createDirectories(target.getParent());
+        if (feedback.request == null || feedback.request.isBlank()
+                || feedback.response == null || feedback.response.isBlank()) {
+            return "ERROR: пустой запрос или ответ";
         }
-        Files.write(target,
-                line.getBytes(StandardCharsets.UTF_8),
-                Files.exists(target) ? java.nio.file.StandardOpenOption.APPEND : java.nio.file.StandardOpenOption.CREATE);
+        modelTrainingService.recordFeedback(FeedbackJournal.CONFIRMED, feedback.request, feedback.response);
+        return "OK";
     }
 
     public static class FeedbackDto {
@@ -0,0 +1,170 @@
+package ru.georgdeveloper.assistantai.service;
+
+import ru.georgdeveloper.assistantcommon.text.RussianStemmer;
+import ru.georgdeveloper.assistantcommon.text.TextTokenizer;
+import ru.georgdeveloper.assistantcommon.text.TokenEstimator;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Неизменяемый TF-IDF индекс по запросам (input) примеров обучения для
+ * выбора few-shot примеров в промпт.
+ *
+ * Раньше примеры отбирались проходом по всем с contains по словам запроса,
+ * и в промпт попадали первые совпавшие, а не самые похожие. Теперь вектор
+ * каждого примера (вес слова (1 + ln tf) * idf, нормирован) считается при
+ * построении, а для запроса оценка - косинусная близость по спискам
+ * примеров с общими словами. Отбираются лучшие примеры с разными запросами,
+ * пока хватает бюджета токенов.
+ *
+ * Слова разбираются тем же TextTokenizer и сводятся к основе тем же
+ * RussianStemmer, что и поисковые индексы assistant-core ("утечка",
+ * "утечку" -> "утечк"); латиница и коды оборудования не меняются.
+ */
+final class ExampleIndex {
+
+    static final ExampleIndex EMPTY = build(List.of());
+
+    // Кандидатов на лимит: запас на пропуск повторов и слишком длинных примеров
+    private static final int CANDIDATES_PER_EXAMPLE = 4;
+
+    private final List<ModelTrainingService.TrainingExample> examples;
+    private final Map<String, Posting> postings;
+    private final int[] costs;
+
+    /**
+     * Примеры со словом и нормированные веса слова в них
+     */
+    private record Posting(float idf, int[] examples, float[] weights) {}
+
+    private ExampleIndex(List<ModelTrainingService.TrainingExample> examples, Map<String, Posting> postings, int[] costs) {
+        this.examples = examples;
+        this.postings = postings;
+        this.costs = costs;
+    }
+
+    static ExampleIndex build(List<ModelTrainingService.TrainingExample> source) {
+        List<ModelTrainingService.TrainingExample> examples = List.copyOf(source);
+        List<Map<String, Integer>> termCounts = new ArrayList<>(examples.size());
+        Map<String, Integer> documentFrequency = new HashMap<>();
+        int[] costs = new int[examples.size()];
+        for (int i = 0; i < examples.size(); i++) {
+            ModelTrainingService.TrainingExample example = examples.get(i);
+            Map<String, Integer> counts = termCounts(example.getInput());
+            counts.keySet().forEach(term -> documentFrequency.merge(term, 1, Integer::sum));
+            termCounts.add(counts);
+            costs[i] = cost(example);
+        }
+
+        // Списки заполняются в порядке примеров, их размер - документная частота слова
+        Map<String, Posting> postings = new HashMap<>(documentFrequency.size() * 4 / 3 + 1);
+        documentFrequency.forEach((term, df) -> postings.put(term,
+                new Posting((float) (Math.log((1.0 + examples.size()) / (1 + df)) + 1), new int[df], new float[df])));
+        Map<String, int[]> filled = new HashMap<>(postings.size() * 4 / 3 + 1);
+        for (int i = 0; i < examples.size(); i++) {
+            Map<String, Integer> counts = termCounts.get(i);
+            Map<String, Float> vector = new HashMap<>();
+            double norm = 0;
+            for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+                float weight = (float) ((1 + Math.log(entry.getValue())) * postings.get(entry.getKey()).idf());
+                vector.put(entry.getKey(), weight);
+                norm += weight * weight;
+            }
+            float length = (float) Math.sqrt(norm);
+            for (Map.Entry<String, Float> entry : vector.entrySet()) {
+                Posting posting = postings.get(entry.getKey());
+                int j = filled.computeIfAbsent(entry.getKey(), t -> new int[1])[0]++;
+                posting.examples()[j] = i;
+                posting.weights()[j] = entry.getValue() / length;
+            }
+        }
+        return new ExampleIndex(examples, postings, costs);
+    }
+
+    int size() {
+        return examples.size();
+    }
+
+    /**
+     * Не более limit самых похожих на запрос примеров с разными input,
+     * суммарно не дороже budgetTokens (пример дороже остатка бюджета
+     * пропускается). Примеры без общих с запросом слов не возвращаются;
+     * при равной близости выше пример, добавленный раньше.
+     */
+    List<ModelTrainingService.TrainingExample> select(String request, int limit, int budgetTokens) {
+        Map<String, Integer> query = termCounts(request);
+        if (query.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        // Веса запроса: нормировка не меняет порядок, поэтому не нужна
+        float[] scores = new float[examples.size()];
+        BitSet touched = new BitSet(examples.size());
+        for (Map.Entry<String, Integer> entry : query.entrySet()) {
+            Posting posting = postings.get(entry.getKey());
+            if (posting == null) {
+                continue;
+            }
+            float queryWeight = (float) ((1 + Math.log(entry.getValue())) * posting.idf());
+            int[] ids = posting.examples();
+            float[] weights = posting.weights();
+            for (int j = 0; j < ids.length; j++) {
+                scores[ids[j]] += queryWeight * weights[j];
+                touched.set(ids[j]);
+            }
+        }
+
+        // Лучшие кандидаты кучей: в вершине - худший из отобранных
+        int candidates = limit * CANDIDATES_PER_EXAMPLE;
+        Comparator<Integer> worstFirst = (x, y) -> {
+            int byScore = Float.compare(scores[x], scores[y]);
+            return byScore != 0 ? byScore : Integer.compare(y, x);
+        };
+        PriorityQueue<Integer> heap = new PriorityQueue<>(candidates + 1, worstFirst);
+        for (int i = touched.nextSetBit(0); i >= 0; i = touched.nextSetBit(i + 1)) {
+            if (heap.size() < candidates) {
+                heap.add(i);
+            } else if (worstFirst.compare(i, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(i);
+            }
+        }
+        List<Integer> ranked = new ArrayList<>(heap);
+        ranked.sort(worstFirst.reversed());
+
+        List<ModelTrainingService.TrainingExample> result = new ArrayList<>(limit);
+        Set<String> inputs = new HashSet<>();
+        int remaining = budgetTokens;
+        for (int i : ranked) {
+            if (costs[i] > remaining || !inputs.add(examples.get(i).getInput())) {
+                continue;
+            }
+            result.add(examples.get(i));
+            remaining -= costs[i];
+            if (result.size() == limit) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Токены примера в промпте ("Запрос: ...\nОтвет: ...\n\n")
+     */
+    static int cost(ModelTrainingService.TrainingExample example) {
+        return TokenEstimator.estimate(example.getInput()) + TokenEstimator.estimate(example.getOutput()) + 6;
+    }
+
+    private static Map<String, Integer> termCounts(String text) {
+        Map<String, Integer> counts = new HashMap<>();
+        TextTokenizer.tokenize(text, word -> counts.merge(RussianStemmer.stem(word), 1, Integer::sum));
+        return counts;
+    }
+}
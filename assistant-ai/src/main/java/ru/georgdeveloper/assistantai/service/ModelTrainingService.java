@@ -1,11 +1,20 @@
 package ru.georgdeveloper.assistantai.service;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.scheduling.annotation.Scheduled;
 import ru.georgdeveloper.assistantai.config.TrainingPaths;
+import ru.georgdeveloper.assistantcommon.feedback.FeedbackJournal;
+import ru.georgdeveloper.assistantcommon.feedback.FeedbackJournalProperties;
+import ru.georgdeveloper.assistantcommon.feedback.FeedbackRecord;
+import ru.georgdeveloper.assistantcommon.instructions.RepairInstructionsJson;
+import ru.georgdeveloper.assistantcommon.instructions.RepairInstructionsStore;
+import ru.georgdeveloper.assistantcommon.io.FileChangeWatcher;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,11 +22,23 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.JsonNode;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 @Service
 public class ModelTrainingService {
@@ -31,16 +52,85 @@ public class ModelTrainingService {
     @Value("${ai.training.batch-size:200}")
     private int batchSize;
 
+    // Few-shot примеров в промпте analyzeWithTraining и их суммарный бюджет токенов
+    @Value("${ai.training.few-shot.limit:10}")
+    private int fewShotLimit;
+
+    @Value("${ai.training.few-shot.budget-tokens:800}")
+    private int fewShotBudgetTokens;
+
+    // Пар обратной связи в примерах: сверх этого вытесняются самые давние
+    @Value("${ai.training.feedback-max-examples:2000}")
+    private int feedbackMaxExamples;
+
+    // Внешний файл инструкций (общий с assistant-core); пусто - из classpath
+    @Value("${ai.instructions.file:}")
+    private String instructionsFile;
+
+    // Двоичное хранилище инструкций, общее с assistant-core; пусто - только JSON
+    @Value("${ai.instructions.store:}")
+    private String instructionsStore;
+
+    @Value("${ai.instructions.watch:true}")
+    private boolean watchInstructions;
+
+    @Autowired
+    private FeedbackJournalProperties feedbackJournalProperties;
+
+    // Журнал обратной связи assistant-ai; нет, если выключен или недоступен
+    @Autowired
+    private ObjectProvider<FeedbackJournal> feedbackJournal;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
     private List<TrainingExample> trainingData;
+    // Примеры из repair_instructions.json: собираются заново и подменяются целиком при перезагрузке
+    private volatile List<TrainingExample> instructionExamples = List.of();
+    // Подтверждённые пары и примеры из журналов обратной связи всех модулей: повтор пары
+    // (запрос, ответ) хранится один раз, порядок - по последнему добавлению; под своим монитором
+    private final LinkedHashMap<List<String>, TrainingExample> feedbackExamples = new LinkedHashMap<>();
+    // Пары добавлены, а индекс ещё не пересобран
+    private volatile boolean feedbackChanged;
+    // Номер последней прочитанной записи журнала по модулю; меняется только в потоке загрузчика
+    private final Map<String, Long> replayedFeedback = new HashMap<>();
+    // Индекс по trainingData, feedbackExamples и instructionExamples; новые пары обратной
+    // связи попадают в него пачкой при периодическом чтении журналов, а не по одной
+    private volatile ExampleIndex exampleIndex = ExampleIndex.EMPTY;
+
+    // Загрузка инструкций и чтение журналов обратной связи - в одном фоновом потоке
+    private final ScheduledExecutorService trainingLoader = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "training-data-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private FileChangeWatcher instructionsWatcher;
 
     @PostConstruct
     public void init() {
         loadTrainingData();
-        loadRepairInstructionsData();
+        // Разбор инструкций не задерживает запуск
+        reloadRepairInstructions();
+        if (!instructionsFile.isBlank() && watchInstructions) {
+            try {
+                instructionsWatcher = FileChangeWatcher.start(Paths.get(instructionsFile), Duration.ofSeconds(2),
+                        this::reloadRepairInstructions);
+            } catch (IOException e) {
+                logger.warn("Не удалось отслеживать изменения {}: {}", instructionsFile, e.getMessage());
+            }
+        }
+        // Журналы обратной связи: сразу и затем каждые replay-interval (планировщик Spring в модуле не включён)
+        trainingLoader.scheduleWithFixedDelay(this::replayFeedbackScheduled, 0,
+                feedbackJournalProperties.getReplayInterval().toMillis(), TimeUnit.MILLISECONDS);
         trainOnHistoricalData();
     }
 
+    @PreDestroy
+    public void shutdown() throws IOException {
+        if (instructionsWatcher != null) {
+            instructionsWatcher.close();
+        }
+        trainingLoader.shutdownNow();
+    }
+
     public void loadTrainingData() {
         trainingData = new ArrayList<>();
         try {
@@ -81,41 +171,151 @@ public class ModelTrainingService {
             logger.error("Ошибка загрузки обучающих данных: {}", e.getMessage(), e);
             trainingData = new ArrayList<>();
         }
+        rebuildExampleIndex();
     }
 
-    public void loadRepairInstructionsData() {
+    /**
+     * Перечитывает repair_instructions.json в фоновом потоке
+     *
+     * @return число примеров из инструкций; при ошибке остаются прежние примеры
+     */
+    public CompletableFuture<Integer> reloadRepairInstructions() {
+        return CompletableFuture.supplyAsync(this::loadRepairInstructionsData, trainingLoader);
+    }
+
+    /**
+     * Дочитывает новые записи журналов обратной связи всех модулей в фоновом потоке
+     * и пересобирает индекс примеров, если пары добавились
+     *
+     * @return число прочитанных пар
+     */
+    public CompletableFuture<Integer> replayFeedback() {
+        return CompletableFuture.supplyAsync(this::replayFeedbackAndRebuild, trainingLoader);
+    }
+
+    private void replayFeedbackScheduled() {
         try {
-            java.util.List<com.fasterxml.jackson.databind.JsonNode> instructions = new java.util.ArrayList<>();
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ClassPathResource(TrainingPaths.REPAIR_INSTRUCTIONS_JSON).getInputStream(), StandardCharsets.UTF_8))) {
-                com.fasterxml.jackson.databind.JsonNode arr = objectMapper.readTree(reader);
-                if (arr.isArray()) {
-                    for (com.fasterxml.jackson.databind.JsonNode n : arr) instructions.add(n);
-                }
-            }
+            replayFeedbackAndRebuild();
+        } catch (RuntimeException e) {
+            // Исключение остановило бы периодическое чтение
+            logger.error("Ошибка чтения журналов обратной связи: {}", e.getMessage(), e);
+        }
+    }
 
-            if (trainingData == null) trainingData = new ArrayList<>();
+    private int replayFeedbackAndRebuild() {
+        int added = replayFeedbackJournals();
+        if (feedbackChanged) {
+            rebuildExampleIndex();
+        }
+        return added;
+    }
 
-            for (com.fasterxml.jackson.databind.JsonNode instruction : instructions) {
-                String input = "Как устранить: " + instruction.path("Проблема").asText("");
-                String output = "SIMPLE_ANSWER: " + instruction.path("Решение").asText("");
-                trainingData.add(new TrainingExample(input, output));
+    /**
+     * Читает из подкаталога каждого модуля только записи после уже прочитанных
+     * и добавляет пары для обучения (подтверждённые и примеры) к feedbackExamples
+     */
+    private int replayFeedbackJournals() {
+        Path root = Paths.get(feedbackJournalProperties.getDir());
+        if (!Files.isDirectory(root)) {
+            return 0;
+        }
+        List<TrainingExample> added = new ArrayList<>();
+        try (Stream<Path> dirs = Files.list(root)) {
+            for (Path dir : dirs.filter(Files::isDirectory).sorted().toList()) {
+                String source = dir.getFileName().toString();
+                long last = FeedbackJournal.replay(dir, replayedFeedback.getOrDefault(source, 0L), record -> {
+                    if (isTrainingPair(record)) {
+                        added.add(new TrainingExample(record.request(), record.response()));
+                    }
+                });
+                replayedFeedback.put(source, last);
+            }
+        } catch (IOException e) {
+            logger.warn("Не удалось прочитать журналы обратной связи {}: {}", root, e.getMessage());
+        }
+        if (!added.isEmpty()) {
+            addFeedbackExamples(added);
+            logger.info("Из журналов обратной связи прочитано {} примеров, всего {}", added.size(), feedbackExampleCount());
+        }
+        return added.size();
+    }
 
-                if (instruction.path("Проблема").asText("").toLowerCase(Locale.ROOT).contains("утечка")) {
-                    String leakInput = "Утечка на " + instruction.path("Группа оборудования").asText("");
-                    trainingData.add(new TrainingExample(leakInput, output));
-                }
+    private static boolean isTrainingPair(FeedbackRecord record) {
+        return record.isTrainingExample() && record.request() != null && !record.request().isBlank()
+                && record.response() != null && !record.response().isBlank();
+    }
 
-                if (instruction.path("Проблема").asText("").toLowerCase(Locale.ROOT).contains("не работает")) {
-                    String notWorkingInput = "Не работает " + instruction.path("Узел").asText("");
-                    trainingData.add(new TrainingExample(notWorkingInput, output));
-                }
+    /**
+     * Добавляет пары без пересборки индекса: её делает следующее чтение журналов
+     */
+    private void addFeedbackExamples(List<TrainingExample> added) {
+        synchronized (feedbackExamples) {
+            for (TrainingExample example : added) {
+                List<String> key = List.of(example.getInput(), example.getOutput());
+                // Повтор переносится в конец и вытесняется последним
+                feedbackExamples.remove(key);
+                feedbackExamples.put(key, example);
             }
+            Iterator<List<String>> oldest = feedbackExamples.keySet().iterator();
+            while (feedbackExamples.size() > feedbackMaxExamples) {
+                oldest.next();
+                oldest.remove();
+            }
+        }
+        feedbackChanged = true;
+    }
 
-            logger.info("Добавлено {} примеров из repair_instructions.json", 
-                       instructions.size() * 2);
+    /**
+     * Количество пар обратной связи среди примеров
+     */
+    public int feedbackExampleCount() {
+        synchronized (feedbackExamples) {
+            return feedbackExamples.size();
+        }
+    }
 
-        } catch (Exception e) {
+    /**
+     * Разбор инструкций (из хранилища или потоково из JSON) в новый список
+     * примеров и его подмена целиком (повторная загрузка не дублирует примеры)
+     */
+    private int loadRepairInstructionsData() {
+        List<TrainingExample> examples = new ArrayList<>();
+        // Одинаковые решения дают один ответ на все свои примеры
+        Map<String, String> outputs = new HashMap<>();
+        RepairInstructionsJson.Handler handler = (area, equipmentGroup, component, problem, solution) -> {
+            String problemText = problem != null ? problem : "";
+            String output = outputs.computeIfAbsent(solution != null ? solution : "", s -> "SIMPLE_ANSWER: " + s);
+            examples.add(new TrainingExample("Как устранить: " + problemText, output));
+
+            String lowerProblem = problemText.toLowerCase(Locale.ROOT);
+            if (lowerProblem.contains("утечка")) {
+                examples.add(new TrainingExample("Утечка на " + (equipmentGroup != null ? equipmentGroup : ""), output));
+            }
+            if (lowerProblem.contains("не работает")) {
+                examples.add(new TrainingExample("Не работает " + (component != null ? component : ""), output));
+            }
+        };
+        try {
+            int instructions = readRepairInstructions(handler);
+            instructionExamples = List.copyOf(examples);
+            rebuildExampleIndex();
+            logger.info("Добавлено {} примеров из {} инструкций repair_instructions.json", examples.size(), instructions);
+            return examples.size();
+        } catch (IOException e) {
             logger.error("Ошибка загрузки данных из repair_instructions.json: {}", e.getMessage(), e);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int readRepairInstructions(RepairInstructionsJson.Handler handler) throws IOException {
+        Resource source = instructionsFile.isBlank()
+                ? new ClassPathResource(TrainingPaths.REPAIR_INSTRUCTIONS_JSON)
+                : new FileSystemResource(instructionsFile);
+        if (!instructionsStore.isBlank()) {
+            return RepairInstructionsStore.load(source, Paths.get(instructionsStore), handler);
+        }
+        try (InputStream in = source.getInputStream()) {
+            return RepairInstructionsJson.read(in, handler);
         }
     }
 
@@ -125,7 +325,7 @@ public class ModelTrainingService {
             trainOnHistoricalData();
         }
 
-        List<TrainingExample> relevantExamples = getRelevantExamples(request, 10);
+        List<TrainingExample> relevantExamples = getRelevantExamples(request, fewShotLimit);
 
         StringBuilder prompt = new StringBuilder();
         prompt.append("Ты - анализатор запросов для системы ремонта оборудования.\n");
@@ -143,23 +343,29 @@ public class ModelTrainingService {
         return ollamaService.generateResponse(prompt.toString());
     }
 
+    /**
+     * Самые похожие на запрос примеры (TF-IDF по их запросам) в пределах бюджета токенов
+     */
     private List<TrainingExample> getRelevantExamples(String request, int limit) {
-        if (trainingData.size() <= limit) {
-            return trainingData;
-        }
-        String[] keywords = request.toLowerCase(Locale.ROOT).split("\\s+");
-        return trainingData.stream()
-            .filter(example -> {
-                String input = example.getInput().toLowerCase(Locale.ROOT);
-                for (String keyword : keywords) {
-                    if (input.contains(keyword)) {
-                        return true;
-                    }
-                }
-                return false;
-            })
-            .limit(limit)
-            .collect(Collectors.toList());
+        return exampleIndex.select(request, limit, fewShotBudgetTokens);
+    }
+
+    /**
+     * Пересобирает индекс примеров по текущим trainingData, feedbackExamples и instructionExamples
+     */
+    private synchronized void rebuildExampleIndex() {
+        List<TrainingExample> training = trainingData != null ? trainingData : List.of();
+        feedbackChanged = false;
+        List<TrainingExample> feedback;
+        synchronized (feedbackExamples) {
+            feedback = new ArrayList<>(feedbackExamples.values());
+        }
+        List<TrainingExample> all = new ArrayList<>(training.size() + feedback.size() + instructionExamples.size());
+        all.addAll(training);
+        all.addAll(feedback);
+        all.addAll(instructionExamples);
+        exampleIndex = ExampleIndex.build(all);
+        logger.debug("Индекс примеров обучения пересобран: {} примеров", exampleIndex.size());
     }
 
     public void trainOnHistoricalData() { /* no-op without DB */ }
@@ -170,19 +376,42 @@ public class ModelTrainingService {
     public void retrainModel() {
         logger.info("Начинаем переобучение модели...");
         trainOnHistoricalData();
-        loadRepairInstructionsData();
+        reloadRepairInstructions();
     }
 
     public void addTrainingExample(String input, String output) {
-        if (trainingData == null) {
-            loadTrainingData();
-        }
-        trainingData.add(new TrainingExample(input, output));
+        recordFeedback(FeedbackJournal.EXAMPLE, input, output);
         if (input != null && !input.trim().isEmpty()) {
             logger.info("Добавлен новый пример обучения: {}", input.length() > 100 ? input.substring(0, 100) + "..." : input);
         }
     }
 
+    /**
+     * Сохраняет пару в журнал обратной связи, не дожидаясь диска; в примеры
+     * она попадает при следующем периодическом чтении журналов (replay-interval).
+     * Если журнала нет или запись не удалась, пара добавляется только в память
+     * до перезапуска, а в индекс - тоже при следующем чтении журналов.
+     *
+     * @param kind FeedbackJournal.CONFIRMED или FeedbackJournal.EXAMPLE
+     */
+    public void recordFeedback(String kind, String input, String output) {
+        if (input == null || input.isBlank() || output == null || output.isBlank()) {
+            return;
+        }
+        TrainingExample example = new TrainingExample(input, output);
+        FeedbackJournal journal = feedbackJournal.getIfAvailable();
+        if (journal == null) {
+            trainingLoader.execute(() -> addFeedbackExamples(List.of(example)));
+            return;
+        }
+        journal.append(kind, input, output).whenComplete((seq, error) -> {
+            if (error != null) {
+                logger.warn("Пара не записана в журнал обратной связи, добавлена только в память: {}", error.getMessage());
+                trainingLoader.execute(() -> addFeedbackExamples(List.of(example)));
+            }
+        });
+    }
+
     public static class TrainingExample {
         private final String input;
         private final String output;
@@ -0,0 +1,61 @@
+package ru.georgdeveloper.assistantai.service;
+
+import org.junit.jupiter.api.Test;
+import ru.georgdeveloper.assistantai.service.ModelTrainingService.TrainingExample;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты отбора few-shot примеров: порядок по близости, повторы запросов, бюджет токенов
+ */
+class ExampleIndexTest {
+
+    private static final TrainingExample NITROGEN = new TrainingExample("утечка азота на VMI", "проверить уплотнения");
+    private static final TrainingExample OIL = new TrainingExample("утечки масла на прессе", "заменить манжету");
+    private static final TrainingExample DOWNTIME = new TrainingExample("топ простоев за неделю", "NEED_DATABASE");
+
+    private static List<String> outputs(List<TrainingExample> examples) {
+        return examples.stream().map(TrainingExample::getOutput).toList();
+    }
+
+    @Test
+    void testRanksBySimilarityAcrossWordForms() {
+        ExampleIndex index = ExampleIndex.build(List.of(OIL, DOWNTIME, NITROGEN));
+
+        // "утечку", "азотом" сводятся к тем же основам, что и в примерах
+        List<TrainingExample> selected = index.select("утечку азотом на vmi", 3, 1000);
+        assertEquals(List.of("проверить уплотнения", "заменить манжету"), outputs(selected));
+
+        assertEquals(List.of("NEED_DATABASE"), outputs(index.select("простои за неделю", 3, 1000)));
+        assertTrue(index.select("замена фильтра", 3, 1000).isEmpty());
+    }
+
+    @Test
+    void testRepeatedInputIsSelectedOnce() {
+        TrainingExample repeated = new TrainingExample("утечка азота на VMI", "подтянуть фитинг");
+        ExampleIndex index = ExampleIndex.build(List.of(NITROGEN, repeated, OIL));
+
+        // При равной близости остаётся пример, добавленный раньше
+        List<TrainingExample> selected = index.select("утечка азота на VMI", 2, 1000);
+        assertEquals(List.of("проверить уплотнения", "заменить манжету"), outputs(selected));
+    }
+
+    @Test
+    void testTokenBudgetSkipsExpensiveExamples() {
+        TrainingExample verbose = new TrainingExample("утечка азота на VMI после ремонта",
+                "проверить уплотнения, ".repeat(40));
+        ExampleIndex index = ExampleIndex.build(List.of(verbose, NITROGEN, OIL));
+
+        int budget = ExampleIndex.cost(NITROGEN) + ExampleIndex.cost(OIL);
+        assertTrue(ExampleIndex.cost(verbose) > budget);
+
+        List<TrainingExample> selected = index.select("утечка азота на VMI после ремонта", 3, budget);
+        assertEquals(List.of("проверить уплотнения", "заменить манжету"), outputs(selected));
+
+        // Бюджет меньше любого примера
+        int cheapest = Math.min(ExampleIndex.cost(NITROGEN), ExampleIndex.cost(OIL));
+        assertTrue(index.select("утечка азота", 3, cheapest - 1).isEmpty());
+    }
+}
@@ -0,0 +1,87 @@
+package ru.georgdeveloper.assistantai.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.georgdeveloper.assistantcommon.feedback.FeedbackJournal;
+import ru.georgdeveloper.assistantcommon.feedback.FeedbackJournalProperties;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Тесты примеров обратной связи: повторы, предел количества, пересборка индекса пачкой
+ */
+class ModelTrainingServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private ModelTrainingService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        FeedbackJournalProperties properties = new FeedbackJournalProperties();
+        properties.setDir(dir.toString());
+        service = new ModelTrainingService();
+        ReflectionTestUtils.setField(service, "feedbackJournalProperties", properties);
+        // Журнала нет - пары добавляются только в память
+        ReflectionTestUtils.setField(service, "feedbackJournal", mock(ObjectProvider.class));
+        ReflectionTestUtils.setField(service, "feedbackMaxExamples", 2);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        service.shutdown();
+    }
+
+    private ExampleIndex index() {
+        return (ExampleIndex) ReflectionTestUtils.getField(service, "exampleIndex");
+    }
+
+    private void waitForFeedbackCount(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (service.feedbackExampleCount() != count) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Ожидалось " + count + " пар обратной связи, есть " + service.feedbackExampleCount());
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void testRepeatedPairsAreStoredOnceAndIndexedOnReplay() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            service.recordFeedback(FeedbackJournal.CONFIRMED, "утечка азота на VMI", "проверить уплотнения");
+        }
+        service.recordFeedback(FeedbackJournal.CONFIRMED, "нет давления", "проверить клапан");
+        waitForFeedbackCount(2);
+        // Индекс не пересобирается на каждую пару
+        assertEquals(0, index().size());
+
+        service.replayFeedback().get(5, TimeUnit.SECONDS);
+        assertEquals(2, index().size());
+    }
+
+    @Test
+    void testOldestPairsAreEvictedOverLimit() throws Exception {
+        service.recordFeedback(FeedbackJournal.EXAMPLE, "утечка азота на VMI", "проверить уплотнения");
+        service.recordFeedback(FeedbackJournal.EXAMPLE, "нет давления", "проверить клапан");
+        // Повтор делает пару самой свежей
+        service.recordFeedback(FeedbackJournal.EXAMPLE, "утечка азота на VMI", "проверить уплотнения");
+        service.recordFeedback(FeedbackJournal.EXAMPLE, "утечки масла на прессе", "заменить манжету");
+        service.replayFeedback().get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, service.feedbackExampleCount());
+        assertEquals(2, index().size());
+        assertTrue(index().select("нет давления", 3, 1000).isEmpty());
+        assertEquals(1, index().select("утечка азота на VMI", 1, 1000).size());
+    }
+}
@@ -0,0 +1,486 @@
+package ru.georgdeveloper.assistantcommon.feedback;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.SerializedString;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Журнал обратной связи: пары запрос-ответ дописываются в сегменты JSONL
+ * (одна запись - одна строка) и переживают перезапуск модуля.
+ *
+ * - append не ждёт диска: запись ставится в очередь, фоновый поток пишет
+ *   накопившиеся записи одной пачкой и делает один fsync на пачку
+ *   (групповая фиксация); future завершается номером записи после fsync;
+ * - сегмент feedback-{номер первой записи}.jsonl закрывается по размеру
+ *   segment-size; когда закрытых сегментов набирается compact-segments,
+ *   они сжимаются в один: из повторов пары (вид, запрос, ответ) остаётся
+ *   последняя, показанные ответы старше offered-retention удаляются;
+ * - при открытии недописанная при сбое последняя строка отрезается;
+ * - replay отдаёт записи с номером больше заданного, поэтому читатель
+ *   (загрузчик примеров обучения assistant-ai) подхватывает только новые.
+ *
+ * В один каталог пишет один процесс, поэтому у каждого модуля свой подкаталог.
+ */
+public final class FeedbackJournal implements Closeable {
+
+    // Ответ подтверждён пользователем
+    public static final String CONFIRMED = "confirmed";
+    // Пример обучения, добавленный через API
+    public static final String EXAMPLE = "example";
+    // Ответ показан пользователю с кнопками оценки (telegram)
+    public static final String OFFERED = "offered";
+
+    private static final Logger logger = LoggerFactory.getLogger(FeedbackJournal.class);
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final Pattern SEGMENT_NAME = Pattern.compile("feedback-(\\d{20})\\.jsonl");
+
+    private record Pending(long timestamp, String kind, String request, String response, CompletableFuture<Long> done) {}
+
+    private record Key(String kind, String request, String response) {}
+
+    private final Path dir;
+    private final String source;
+    private final FeedbackJournalProperties properties;
+    private final BlockingQueue<Pending> queue;
+    private final Thread writer;
+    private final Timer commitTimer;
+    private final DistributionSummary batchSize;
+    private volatile boolean closed;
+
+    // Состояние потока записи
+    private FileChannel segment;
+    private long nextSeq;
+    // В конце сегмента осталась недописанная строка: следующая пачка начинается с '\n'
+    private boolean torn;
+
+    private FeedbackJournal(Path dir, String source, FeedbackJournalProperties properties, MeterRegistry meterRegistry) {
+        this.dir = dir;
+        this.source = source;
+        this.properties = properties;
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        this.writer = new Thread(this::writeLoop, "feedback-journal-" + source);
+        this.writer.setDaemon(true);
+        if (meterRegistry != null) {
+            commitTimer = Timer.builder("feedback.journal.commit")
+                    .description("Запись и fsync пачки журнала обратной связи")
+                    .tag("source", source)
+                    .register(meterRegistry);
+            batchSize = DistributionSummary.builder("feedback.journal.batch")
+                    .description("Записей в одной фиксации журнала обратной связи")
+                    .tag("source", source)
+                    .register(meterRegistry);
+        } else {
+            commitTimer = null;
+            batchSize = null;
+        }
+    }
+
+    /**
+     * Открывает журнал модуля source в каталоге dir (создаётся при отсутствии)
+     * и запускает поток записи
+     *
+     * @param meterRegistry метрики фиксаций; null - без метрик
+     */
+    public static FeedbackJournal open(Path dir, String source, FeedbackJournalProperties properties,
+                                       MeterRegistry meterRegistry) throws IOException {
+        Files.createDirectories(dir);
+        FeedbackJournal journal = new FeedbackJournal(dir, source, properties, meterRegistry);
+        journal.recover();
+        journal.writer.start();
+        logger.info("Журнал обратной связи {}: {}, следующая запись {}", source, dir, journal.nextSeq);
+        return journal;
+    }
+
+    /**
+     * Открывает журнал модуля source в его подкаталоге общего каталога journal.dir
+     */
+    public static FeedbackJournal open(FeedbackJournalProperties properties, String source,
+                                       MeterRegistry meterRegistry) throws IOException {
+        return open(Paths.get(properties.getDir(), source), source, properties, meterRegistry);
+    }
+
+    /**
+     * Каталог сегментов журнала
+     */
+    public Path directory() {
+        return dir;
+    }
+
+    /**
+     * Ставит пару в очередь на запись, не дожидаясь диска
+     *
+     * @return номер записи после fsync; при переполненной очереди, закрытом
+     *         журнале или ошибке записи - исключение
+     */
+    public CompletableFuture<Long> append(String kind, String request, String response) {
+        CompletableFuture<Long> done = new CompletableFuture<>();
+        if (closed) {
+            done.completeExceptionally(new IllegalStateException("Журнал обратной связи закрыт"));
+        } else if (!queue.offer(new Pending(System.currentTimeMillis(), kind, request, response, done))) {
+            logger.warn("Очередь журнала обратной связи {} переполнена, запись отклонена", source);
+            done.completeExceptionally(new RejectedExecutionException("Очередь журнала обратной связи переполнена"));
+        }
+        return done;
+    }
+
+    /**
+     * Читает записи журнала каталога dir с номером больше afterSeq в порядке номеров.
+     * Недописанная последняя строка (запись идёт сейчас) и повреждённые строки пропускаются.
+     *
+     * @return номер последней прочитанной записи (afterSeq, если новых нет)
+     */
+    public static long replay(Path dir, long afterSeq, Consumer<FeedbackRecord> consumer) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return afterSeq;
+        }
+        List<Path> segments = segments(dir);
+        long[] last = {afterSeq};
+        for (int i = 0; i < segments.size(); i++) {
+            if (i + 1 < segments.size() && firstSeq(segments.get(i + 1)) <= afterSeq + 1) {
+                // Все записи сегмента уже прочитаны
+                continue;
+            }
+            try {
+                readSegment(segments.get(i), record -> {
+                    if (record.seq() > last[0]) {
+                        last[0] = record.seq();
+                        consumer.accept(record);
+                    }
+                });
+            } catch (NoSuchFileException e) {
+                // Сегменты сжаты во время чтения: остальное - при следующем чтении по новому списку
+                break;
+            }
+        }
+        return last[0];
+    }
+
+    /**
+     * Дописывает очередь на диск и закрывает журнал
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            writer.interrupt();
+        }
+    }
+
+    private void recover() throws IOException {
+        List<Path> segments = segments(dir);
+        if (segments.isEmpty()) {
+            nextSeq = 1;
+            openSegment(1);
+            return;
+        }
+        Path last = segments.get(segments.size() - 1);
+        long[] lastSeq = {firstSeq(last) - 1};
+        long valid = readSegment(last, record -> lastSeq[0] = Math.max(lastSeq[0], record.seq()));
+        long size = Files.size(last);
+        if (valid < size) {
+            logger.warn("Журнал обратной связи {}: отрезана недописанная запись ({} байт) в {}",
+                    source, size - valid, last.getFileName());
+        }
+        nextSeq = lastSeq[0] + 1;
+        segment = FileChannel.open(last, StandardOpenOption.WRITE);
+        segment.truncate(valid);
+        segment.position(valid);
+    }
+
+    private void openSegment(long firstSeq) throws IOException {
+        segment = FileChannel.open(dir.resolve(segmentName(firstSeq)),
+                StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW);
+    }
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>(properties.getMaxBatch());
+        try {
+            while (!closed || !queue.isEmpty()) {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                if (!closed && !properties.getCommitDelay().isZero() && queue.size() < properties.getMaxBatch() - 1) {
+                    // Попутные записи успевают в ту же пачку и тот же fsync
+                    Thread.sleep(properties.getCommitDelay().toMillis());
+                }
+                queue.drainTo(batch, properties.getMaxBatch() - 1);
+                commit(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            Pending pending;
+            while ((pending = queue.poll()) != null) {
+                batch.add(pending);
+            }
+            batch.forEach(p -> p.done().completeExceptionally(new IllegalStateException("Журнал обратной связи закрыт")));
+            try {
+                segment.close();
+            } catch (IOException e) {
+                logger.warn("Ошибка закрытия журнала обратной связи {}: {}", source, e.getMessage());
+            }
+        }
+    }
+
+    private void commit(List<Pending> batch) {
+        long start = System.nanoTime();
+        long position;
+        byte[] bytes;
+        try {
+            position = segment.position();
+            bytes = encode(batch, torn);
+        } catch (IOException e) {
+            fail(batch, e);
+            return;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                segment.write(buffer);
+            }
+            segment.force(false);
+        } catch (IOException e) {
+            // Частично записанная пачка отрезается, чтобы следующая начиналась с новой строки
+            try {
+                segment.truncate(position);
+                segment.position(position);
+            } catch (IOException truncateError) {
+                // Недописанную строку закроет '\n' перед следующей пачкой, чтение её пропустит
+                torn = true;
+                logger.warn("Не удалось отрезать недописанную пачку журнала обратной связи {}: {}",
+                        source, truncateError.getMessage());
+            }
+            fail(batch, e);
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).done().complete(nextSeq + i);
+        }
+        nextSeq += batch.size();
+        torn = false;
+        if (commitTimer != null) {
+            commitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            batchSize.record(batch.size());
+        }
+        try {
+            if (segment.position() >= properties.getSegmentSize().toBytes()) {
+                rotate();
+            }
+        } catch (IOException e) {
+            logger.error("Ошибка смены сегмента журнала обратной связи {}: {}", source, e.getMessage(), e);
+        }
+    }
+
+    private void fail(List<Pending> batch, IOException e) {
+        logger.error("Ошибка записи журнала обратной связи {}: {}", source, e.getMessage(), e);
+        batch.forEach(p -> p.done().completeExceptionally(e));
+    }
+
+    private byte[] encode(List<Pending> batch, boolean afterTornLine) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256 * batch.size() + 1);
+        if (afterTornLine) {
+            out.write('\n');
+        }
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+            generator.setRootValueSeparator(new SerializedString("\n"));
+            long seq = nextSeq;
+            for (Pending pending : batch) {
+                write(generator, new FeedbackRecord(seq++, pending.timestamp(), source, pending.kind(),
+                        pending.request(), pending.response()));
+            }
+        }
+        out.write('\n');
+        return out.toByteArray();
+    }
+
+    private void rotate() throws IOException {
+        segment.close();
+        openSegment(nextSeq);
+        List<Path> closedSegments = segments(dir);
+        closedSegments.remove(closedSegments.size() - 1);
+        if (closedSegments.size() >= Math.max(2, properties.getCompactSegments())) {
+            compact(closedSegments);
+        }
+    }
+
+    /**
+     * Сжимает закрытые сегменты в первый из них: из повторов пары остаётся последняя,
+     * устаревшие показанные ответы удаляются
+     */
+    private void compact(List<Path> closedSegments) {
+        Map<Key, FeedbackRecord> latest = new LinkedHashMap<>();
+        long offeredSince = System.currentTimeMillis() - properties.getOfferedRetention().toMillis();
+        int[] total = {0};
+        try {
+            for (Path file : closedSegments) {
+                readSegment(file, record -> {
+                    total[0]++;
+                    if (OFFERED.equals(record.kind()) && record.timestamp() < offeredSince) {
+                        return;
+                    }
+                    Key key = new Key(record.kind(), record.request(), record.response());
+                    // Повторно вставленная пара переходит в конец: порядок по номеру последнего повтора
+                    latest.remove(key);
+                    latest.put(key, record);
+                });
+            }
+            Path target = closedSegments.get(0);
+            Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+                    generator.setRootValueSeparator(new SerializedString("\n"));
+                    for (FeedbackRecord record : latest.values()) {
+                        write(generator, record);
+                    }
+                }
+                out.write('\n');
+                ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            for (Path file : closedSegments.subList(1, closedSegments.size())) {
+                Files.deleteIfExists(file);
+            }
+            logger.info("Журнал обратной связи {}: сжато сегментов {}, записей {} -> {}",
+                    source, closedSegments.size(), total[0], latest.size());
+        } catch (IOException e) {
+            logger.warn("Не удалось сжать журнал обратной связи {}: {}", source, e.getMessage());
+        }
+    }
+
+    private static void write(JsonGenerator generator, FeedbackRecord record) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("seq", record.seq());
+        generator.writeNumberField("ts", record.timestamp());
+        generator.writeStringField("source", record.source());
+        generator.writeStringField("kind", record.kind());
+        generator.writeStringField("request", record.request());
+        generator.writeStringField("response", record.response());
+        generator.writeEndObject();
+    }
+
+    /**
+     * Передаёт записи сегмента в consumer
+     *
+     * @return длина файла до конца последней целой записи
+     */
+    private static long readSegment(Path file, Consumer<FeedbackRecord> consumer) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        long valid = 0;
+        int start = 0;
+        for (int end = 0; end < bytes.length; end++) {
+            if (bytes[end] != '\n') {
+                continue;
+            }
+            if (end > start) {
+                FeedbackRecord record = parse(bytes, start, end - start);
+                if (record == null) {
+                    logger.warn("Пропущена повреждённая запись журнала обратной связи {} (смещение {})", file, start);
+                } else {
+                    consumer.accept(record);
+                }
+            }
+            start = end + 1;
+            valid = start;
+        }
+        return valid;
+    }
+
+    private static FeedbackRecord parse(byte[] bytes, int offset, int length) {
+        try (JsonParser parser = JSON_FACTORY.createParser(bytes, offset, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            long seq = -1, timestamp = 0;
+            String source = null, kind = null, request = null, response = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (value.isStructStart()) {
+                    parser.skipChildren();
+                    continue;
+                }
+                String text = value == JsonToken.VALUE_NULL ? null : parser.getText();
+                switch (field) {
+                    case "seq" -> seq = parser.getLongValue();
+                    case "ts" -> timestamp = parser.getLongValue();
+                    case "source" -> source = text;
+                    case "kind" -> kind = text;
+                    case "request" -> request = text;
+                    case "response" -> response = text;
+                    default -> {
+                        // Поле более новой версии журнала
+                    }
+                }
+            }
+            return seq < 0 ? null : new FeedbackRecord(seq, timestamp, source, kind, request, response);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static List<Path> segments(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> SEGMENT_NAME.matcher(file.getFileName().toString()).matches())
+                    .sorted()
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    private static long firstSeq(Path segment) {
+        Matcher matcher = SEGMENT_NAME.matcher(segment.getFileName().toString());
+        return matcher.matches() ? Long.parseLong(matcher.group(1)) : 0;
+    }
+
+    private static String segmentName(long firstSeq) {
+        return String.format("feedback-%020d.jsonl", firstSeq);
+    }
+}
@@ -0,0 +1,60 @@
+package ru.georgdeveloper.assistantcommon.feedback;
+
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Настройки журнала обратной связи (секция feedback.journal).
+ *
+ * Каждый модуль пишет в свой подкаталог dir (core, ai, telegram),
+ * assistant-ai читает подкаталоги всех модулей.
+ */
+public class FeedbackJournalProperties {
+
+    /** Записывать обратную связь в журнал */
+    private boolean enabled = true;
+    /** Общий каталог журналов модулей */
+    private String dir = "../data/feedback";
+    /** Ожидание попутных записей перед fsync: одна синхронизация на пачку */
+    private Duration commitDelay = Duration.ofMillis(5);
+    /** Максимум записей в одной пачке */
+    private int maxBatch = 256;
+    /** Записей в очереди на запись, сверх этого - отказ без ожидания */
+    private int queueCapacity = 10_000;
+    /** Размер сегмента, после которого начинается новый */
+    private DataSize segmentSize = DataSize.ofMegabytes(4);
+    /** Закрытых сегментов, после которого они сжимаются в один */
+    private int compactSegments = 8;
+    /** Как часто assistant-ai подхватывает новые записи журналов */
+    private Duration replayInterval = Duration.ofSeconds(30);
+    /** Сколько хранятся показанные ответы (offered): после этого при сжатии они удаляются */
+    private Duration offeredRetention = Duration.ofDays(7);
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public String getDir() { return dir; }
+    public void setDir(String dir) { this.dir = dir; }
+
+    public Duration getCommitDelay() { return commitDelay; }
+    public void setCommitDelay(Duration commitDelay) { this.commitDelay = commitDelay; }
+
+    public int getMaxBatch() { return maxBatch; }
+    public void setMaxBatch(int maxBatch) { this.maxBatch = maxBatch; }
+
+    public int getQueueCapacity() { return queueCapacity; }
+    public void setQueueCapacity(int queueCapacity) { this.queueCapacity = queueCapacity; }
+
+    public DataSize getSegmentSize() { return segmentSize; }
+    public void setSegmentSize(DataSize segmentSize) { this.segmentSize = segmentSize; }
+
+    public int getCompactSegments() { return compactSegments; }
+    public void setCompactSegments(int compactSegments) { this.compactSegments = compactSegments; }
+
+    public Duration getReplayInterval() { return replayInterval; }
+    public void setReplayInterval(Duration replayInterval) { this.replayInterval = replayInterval; }
+
+    public Duration getOfferedRetention() { return offeredRetention; }
+    public void setOfferedRetention(Duration offeredRetention) { this.offeredRetention = offeredRetention; }
+}
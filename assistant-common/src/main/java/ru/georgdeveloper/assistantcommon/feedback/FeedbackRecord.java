@@ -0,0 +1,19 @@
+package ru.georgdeveloper.assistantcommon.feedback;
+
+/**
+ * Запись журнала обратной связи: пара запрос-ответ и её вид.
+ *
+ * @param seq       номер записи в журнале модуля, возрастает без повторов
+ * @param timestamp время записи, мс с эпохи
+ * @param source    модуль-источник (core, ai, telegram)
+ * @param kind      FeedbackJournal.CONFIRMED, EXAMPLE или OFFERED
+ */
+public record FeedbackRecord(long seq, long timestamp, String source, String kind, String request, String response) {
+
+    /**
+     * Пара пригодна для обучения: подтверждена пользователем или добавлена как пример
+     */
+    public boolean isTrainingExample() {
+        return FeedbackJournal.CONFIRMED.equals(kind) || FeedbackJournal.EXAMPLE.equals(kind);
+    }
+}
@@ -0,0 +1,58 @@
+package ru.georgdeveloper.assistantcommon.http;
+
+import java.time.Duration;
+
+/**
+ * Настройки HTTP клиента для межмодульных вызовов (web -> core, core -> Ollama и т.д.).
+ *
+ * Класс не привязан к конкретному префиксу: каждый модуль связывает его
+ * со своей секцией конфигурации (по умолчанию http.client).
+ */
+public class HttpClientProperties {
+
+    /** Максимум соединений в пуле на все хосты */
+    private int maxTotal = 50;
+    /** Максимум соединений к одному хосту (маршруту) */
+    private int maxPerRoute = 20;
+    /** Таймаут установки TCP соединения */
+    private Duration connectTimeout = Duration.ofSeconds(5);
+    /** Сколько ждать свободное соединение из пула, прежде чем отказать */
+    private Duration connectionRequestTimeout = Duration.ofSeconds(10);
+    /** Таймаут чтения ответа (генерация без стриминга может идти минутами) */
+    private Duration readTimeout = Duration.ofMinutes(5);
+    /** Простаивающие дольше этого соединения закрываются фоновым потоком */
+    private Duration idleEvictTimeout = Duration.ofSeconds(30);
+    /** Проверять соединение перед повторным использованием после такого простоя */
+    private Duration validateAfterInactivity = Duration.ofSeconds(2);
+    /** Максимальное время жизни соединения в пуле */
+    private Duration timeToLive = Duration.ofMinutes(10);
+    /** Использовать HTTP/2 (JDK HttpClient) вместо пула HTTP/1.1 keep-alive */
+    private boolean http2 = false;
+
+    public int getMaxTotal() { return maxTotal; }
+    public void setMaxTotal(int maxTotal) { this.maxTotal = maxTotal; }
+
+    public int getMaxPerRoute() { return maxPerRoute; }
+    public void setMaxPerRoute(int maxPerRoute) { this.maxPerRoute = maxPerRoute; }
+
+    public Duration getConnectTimeout() { return connectTimeout; }
+    public void setConnectTimeout(Duration connectTimeout) { this.connectTimeout = connectTimeout; }
+
+    public Duration getConnectionRequestTimeout() { return connectionRequestTimeout; }
+    public void setConnectionRequestTimeout(Duration connectionRequestTimeout) { this.connectionRequestTimeout = connectionRequestTimeout; }
+
+    public Duration getReadTimeout() { return readTimeout; }
+    public void setReadTimeout(Duration readTimeout) { this.readTimeout = readTimeout; }
+
+    public Duration getIdleEvictTimeout() { return idleEvictTimeout; }
+    public void setIdleEvictTimeout(Duration idleEvictTimeout) { this.idleEvictTimeout = idleEvictTimeout; }
+
+    public Duration getValidateAfterInactivity() { return validateAfterInactivity; }
+    public void setValidateAfterInactivity(Duration validateAfterInactivity) { this.validateAfterInactivity = validateAfterInactivity; }
+
+    public Duration getTimeToLive() { return timeToLive; }
+    public void setTimeToLive(Duration timeToLive) { this.timeToLive = timeToLive; }
+
+    public boolean isHttp2() { return http2; }
+    public void setHttp2(boolean http2) { this.http2 = http2; }
+}
@@ -0,0 +1,107 @@
+package ru.georgdeveloper.assistantcommon.http;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+
+/**
+ * Фабрика HTTP клиентов с пулом keep-alive соединений для всех модулей.
+ *
+ * По умолчанию RestTemplate работает через HttpURLConnection без таймаутов
+ * и без управляемого пула: под нагрузкой дашбордов web открывал новое
+ * TCP соединение к core на каждый проксируемый вызов. Здесь используется
+ * Apache HttpClient 5 с пулом на маршрут, таймаутами и фоновым закрытием
+ * простаивающих соединений. При http2=true вместо него создаётся JDK HttpClient
+ * (HTTP/2 с откатом на HTTP/1.1 keep-alive у серверов без h2c).
+ *
+ * Метрики пула (если передан MeterRegistry) публикуются под именами
+ * httpcomponents.httpclient.pool.* с тегом httpclient=&lt;name&gt;:
+ * рост pool.total.pending означает насыщение пула.
+ */
+public final class PooledHttpClientFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(PooledHttpClientFactory.class);
+
+    private PooledHttpClientFactory() {
+        // Утилитный класс
+    }
+
+    /**
+     * Создаёт RestTemplate поверх пула соединений
+     *
+     * @param name имя клиента для метрик и логов (например, "web-core")
+     * @param properties настройки пула и таймаутов
+     * @param meterRegistry реестр метрик, может быть null
+     */
+    public static RestTemplate createRestTemplate(String name, HttpClientProperties properties, MeterRegistry meterRegistry) {
+        return new RestTemplate(createRequestFactory(name, properties, meterRegistry));
+    }
+
+    /**
+     * Создаёт фабрику запросов Spring поверх пула соединений
+     */
+    public static ClientHttpRequestFactory createRequestFactory(String name, HttpClientProperties properties, MeterRegistry meterRegistry) {
+        if (properties.isHttp2()) {
+            return createHttp2RequestFactory(name, properties);
+        }
+
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(properties.getMaxTotal())
+                .setMaxConnPerRoute(properties.getMaxPerRoute())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(properties.getConnectTimeout()))
+                        .setSocketTimeout(Timeout.of(properties.getReadTimeout()))
+                        .setValidateAfterInactivity(TimeValue.of(properties.getValidateAfterInactivity()))
+                        .setTimeToLive(TimeValue.of(properties.getTimeToLive()))
+                        .build())
+                .build();
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.of(properties.getConnectionRequestTimeout()))
+                .setResponseTimeout(Timeout.of(properties.getReadTimeout()))
+                .build();
+
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(properties.getIdleEvictTimeout()))
+                .build();
+
+        if (meterRegistry != null) {
+            new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, name).bindTo(meterRegistry);
+        }
+
+        logger.info("HTTP клиент '{}': пул {} соединений ({} на маршрут), connect={}, read={}",
+                name, properties.getMaxTotal(), properties.getMaxPerRoute(),
+                properties.getConnectTimeout(), properties.getReadTimeout());
+        return new HttpComponentsClientHttpRequestFactory(httpClient);
+    }
+
+    private static ClientHttpRequestFactory createHttp2RequestFactory(String name, HttpClientProperties properties) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(properties.getConnectTimeout())
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(properties.getReadTimeout());
+        logger.info("HTTP клиент '{}': HTTP/2 (JDK HttpClient), connect={}, read={}",
+                name, properties.getConnectTimeout(), properties.getReadTimeout());
+        return requestFactory;
+    }
+}
@@ -0,0 +1,90 @@
+package ru.georgdeveloper.assistantcommon.instructions;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Потоковое чтение repair_instructions.json (массив объектов с полями
+ * "Участок", "Группа оборудования", "Узел", "Проблема", "Решение").
+ *
+ * Файл разбирается парсером Jackson по токенам, без дерева JsonNode на
+ * весь файл: в памяти одновременно только поля текущей инструкции, поэтому
+ * пиковое потребление при загрузке и перезагрузке определяется самим
+ * списком инструкций, а не DOM на несколько его размеров.
+ */
+public final class RepairInstructionsJson {
+
+    public static final String AREA = "Участок";
+    public static final String EQUIPMENT_GROUP = "Группа оборудования";
+    public static final String COMPONENT = "Узел";
+    public static final String PROBLEM = "Проблема";
+    public static final String SOLUTION = "Решение";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private RepairInstructionsJson() {
+        // Утилитный класс
+    }
+
+    /**
+     * Получатель инструкций. Значения без пробелов по краям;
+     * отсутствующее поле или null в файле - null
+     */
+    @FunctionalInterface
+    public interface Handler {
+        void instruction(String area, String equipmentGroup, String component, String problem, String solution);
+    }
+
+    /**
+     * Читает массив инструкций, передавая каждую в handler по мере разбора.
+     * Неизвестные поля, в том числе вложенные объекты и массивы, пропускаются.
+     *
+     * @return число прочитанных инструкций
+     * @throws IOException при ошибке чтения или если корень файла не массив
+     */
+    public static int read(InputStream in, Handler handler) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Ожидается JSON массив инструкций");
+            }
+            int count = 0;
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token != JsonToken.START_OBJECT) {
+                    if (token == null) {
+                        throw new IOException("Неожиданный конец JSON массива инструкций");
+                    }
+                    parser.skipChildren();
+                    continue;
+                }
+                String area = null, equipmentGroup = null, component = null, problem = null, solution = null;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    JsonToken value = parser.nextToken();
+                    if (value.isStructStart()) {
+                        parser.skipChildren();
+                        continue;
+                    }
+                    String text = value == JsonToken.VALUE_NULL ? null : parser.getText().trim();
+                    switch (field) {
+                        case AREA -> area = text;
+                        case EQUIPMENT_GROUP -> equipmentGroup = text;
+                        case COMPONENT -> component = text;
+                        case PROBLEM -> problem = text;
+                        case SOLUTION -> solution = text;
+                        default -> {
+                            // Поле не используется
+                        }
+                    }
+                }
+                handler.instruction(area, equipmentGroup, component, problem, solution);
+                count++;
+            }
+            return count;
+        }
+    }
+}
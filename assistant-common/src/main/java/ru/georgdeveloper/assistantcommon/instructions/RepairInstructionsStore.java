@@ -0,0 +1,249 @@
+package ru.georgdeveloper.assistantcommon.instructions;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Двоичное хранилище инструкций по ремонту, общее для assistant-core и assistant-ai.
+ *
+ * Формируется один раз из repair_instructions.json и пересобирается, только
+ * когда меняется исходный файл (размер или время изменения в заголовке).
+ * Строки хранятся словарями: участки, группы оборудования и узлы - несколько
+ * сотен значений на тысячи инструкций, тексты проблем и решений тоже без
+ * повторов; инструкция - номера в словарях. При чтении каждое значение
+ * создаётся одной строкой, которую разделяют все инструкции, и разбор JSON
+ * не нужен.
+ *
+ * Формат: FILE_MAGIC, FILE_VERSION, размер и время изменения исходного JSON,
+ * число инструкций, словари участков, групп, узлов и текстов, затем по пять
+ * номеров на инструкцию (0 - значения нет).
+ */
+public final class RepairInstructionsStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(RepairInstructionsStore.class);
+
+    private static final int FILE_MAGIC = 0x52495331; // "RIS1"
+    private static final int FILE_VERSION = 1;
+
+    private RepairInstructionsStore() {
+        // Утилитный класс
+    }
+
+    /**
+     * Инструкции из хранилища store, при необходимости пересобранного из source.
+     *
+     * Если source есть и хранилище устарело, оно пересобирается; если записать
+     * хранилище не удалось, source читается напрямую. Если source нет
+     * (в assistant-core JSON не входит в classpath), читается готовое хранилище.
+     *
+     * @return число прочитанных инструкций
+     * @throws FileNotFoundException если нет ни source, ни хранилища
+     */
+    public static int load(Resource source, Path store, RepairInstructionsJson.Handler handler) throws IOException {
+        if (source.exists()) {
+            long sourceLength = source.contentLength();
+            long sourceModified = lastModified(source);
+            if (!isCurrent(store, sourceLength, sourceModified)) {
+                try (InputStream in = source.getInputStream()) {
+                    int written = write(in, store, sourceLength, sourceModified);
+                    logger.info("Хранилище инструкций {} собрано из {}: {} инструкций", store, source, written);
+                } catch (StoreWriteException e) {
+                    logger.warn("Не удалось записать хранилище инструкций {}: {}, читается {}",
+                            store, e.getMessage(), source);
+                    try (InputStream in = source.getInputStream()) {
+                        return RepairInstructionsJson.read(in, handler);
+                    }
+                }
+            }
+        } else if (!Files.exists(store)) {
+            throw new FileNotFoundException("Нет ни " + source + ", ни хранилища инструкций " + store);
+        }
+        return read(store, handler);
+    }
+
+    /**
+     * Собрано ли хранилище текущей версией формата из исходного файла с такими размером и временем изменения
+     */
+    public static boolean isCurrent(Path store, long sourceLength, long sourceModified) {
+        if (!Files.isRegularFile(store)) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(store), 64))) {
+            return in.readInt() == FILE_MAGIC && in.readInt() == FILE_VERSION
+                    && in.readLong() == sourceLength && in.readLong() == sourceModified;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Собирает хранилище из JSON: запись во временный файл и атомарная замена целевого
+     *
+     * @return число записанных инструкций
+     */
+    public static int write(InputStream json, Path store, long sourceLength, long sourceModified) throws IOException {
+        Dictionary areas = new Dictionary();
+        Dictionary equipmentGroups = new Dictionary();
+        Dictionary components = new Dictionary();
+        Dictionary texts = new Dictionary();
+        List<int[]> records = new ArrayList<>();
+        RepairInstructionsJson.read(json, (area, equipmentGroup, component, problem, solution) ->
+                records.add(new int[] {areas.id(area), equipmentGroups.id(equipmentGroup), components.id(component),
+                        texts.id(problem), texts.id(solution)}));
+
+        Path dir = store.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        // Свой временный файл у каждого писателя: core и ai могут собирать хранилище одновременно
+        Path tmp = null;
+        try {
+            tmp = Files.createTempFile(dir, store.getFileName() + ".", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(FILE_VERSION);
+                out.writeLong(sourceLength);
+                out.writeLong(sourceModified);
+                out.writeInt(records.size());
+                areas.write(out);
+                equipmentGroups.write(out);
+                components.write(out);
+                texts.write(out);
+                for (int[] record : records) {
+                    for (int id : record) {
+                        out.writeInt(id);
+                    }
+                }
+            }
+            Files.move(tmp, store, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            if (tmp != null) {
+                Files.deleteIfExists(tmp);
+            }
+            throw new StoreWriteException(e);
+        }
+        return records.size();
+    }
+
+    /**
+     * Читает хранилище, передавая инструкции в handler в порядке исходного файла.
+     * Одинаковые значения передаются одним и тем же экземпляром String.
+     *
+     * @return число прочитанных инструкций
+     * @throws IOException при ошибке чтения или неизвестном формате файла
+     */
+    public static int read(Path store, RepairInstructionsJson.Handler handler) throws IOException {
+        // Файл читается целиком: строки декодируются прямо из буфера, без промежуточных массивов
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(store));
+        try {
+            if (in.getInt() != FILE_MAGIC || in.getInt() != FILE_VERSION) {
+                throw new IOException("Неизвестный формат хранилища инструкций: " + store);
+            }
+            in.getLong();
+            in.getLong();
+            int count = in.getInt();
+            String[] areas = readDictionary(in);
+            String[] equipmentGroups = readDictionary(in);
+            String[] components = readDictionary(in);
+            String[] texts = readDictionary(in);
+            for (int i = 0; i < count; i++) {
+                handler.instruction(areas[in.getInt()], equipmentGroups[in.getInt()], components[in.getInt()],
+                        texts[in.getInt()], texts[in.getInt()]);
+            }
+            return count;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Хранилище инструкций повреждено: " + store, e);
+        }
+    }
+
+    /**
+     * Сборка хранилища из командной строки: RepairInstructionsStore repair_instructions.json repair_instructions.bin
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Использование: RepairInstructionsStore <repair_instructions.json> <хранилище.bin>");
+            System.exit(2);
+        }
+        Path json = Paths.get(args[0]);
+        try (InputStream in = Files.newInputStream(json)) {
+            int written = write(in, Paths.get(args[1]), Files.size(json), Files.getLastModifiedTime(json).toMillis());
+            System.out.println("Записано инструкций: " + written);
+        }
+    }
+
+    private static long lastModified(Resource source) {
+        try {
+            return source.lastModified();
+        } catch (IOException e) {
+            // Время неизвестно (ресурс не в файле): хранилище сверяется только по размеру
+            return 0;
+        }
+    }
+
+    private static String[] readDictionary(ByteBuffer in) {
+        // Номер 0 - отсутствующее значение
+        String[] values = new String[in.getInt() + 1];
+        for (int i = 1; i < values.length; i++) {
+            int length = in.getInt();
+            values[i] = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+        }
+        return values;
+    }
+
+    /**
+     * Словарь строк: номер значения по порядку первого появления, начиная с 1
+     */
+    private static final class Dictionary {
+
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int id(String value) {
+            if (value == null) {
+                return 0;
+            }
+            return ids.computeIfAbsent(value, v -> {
+                values.add(v);
+                return values.size();
+            });
+        }
+
+        // writeUTF ограничен 64 КБ, решения могут быть длиннее
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(values.size());
+            for (String value : values) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * Ошибка записи файла хранилища (не разбора JSON)
+     */
+    private static final class StoreWriteException extends IOException {
+        StoreWriteException(IOException cause) {
+            super(cause.getMessage(), cause);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package ru.georgdeveloper.assistantcommon.io;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Отслеживание изменений одного файла (WatchService на его каталоге)
+ * в фоновом daemon потоке.
+ *
+ * Редактор или скрипт выгрузки обычно пишет файл несколькими операциями,
+ * поэтому onChange вызывается один раз после того, как события по файлу
+ * не приходили в течение debounce. Замена файла переименованием (запись во
+ * временный файл и move) тоже отслеживается - как создание файла.
+ */
+public final class FileChangeWatcher implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileChangeWatcher.class);
+
+    private final Path file;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    private FileChangeWatcher(Path file, WatchService watchService, Duration debounce, Runnable onChange) {
+        this.file = file;
+        this.watchService = watchService;
+        this.thread = new Thread(() -> watch(debounce, onChange), "file-watch-" + file.getFileName());
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Запускает отслеживание. Каталог файла должен существовать, сам файл - нет.
+     *
+     * @param onChange вызывается в потоке наблюдателя; исключения логируются
+     */
+    public static FileChangeWatcher start(Path file, Duration debounce, Runnable onChange) throws IOException {
+        Path absolute = file.toAbsolutePath().normalize();
+        WatchService watchService = FileSystems.getDefault().newWatchService();
+        try {
+            absolute.getParent().register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException | RuntimeException e) {
+            watchService.close();
+            throw e;
+        }
+        FileChangeWatcher watcher = new FileChangeWatcher(absolute, watchService, debounce, onChange);
+        watcher.thread.start();
+        logger.info("Отслеживаются изменения {}", absolute);
+        return watcher;
+    }
+
+    private void watch(Duration debounce, Runnable onChange) {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = drain(key);
+                // Ждём, пока запись файла закончится
+                while ((key = watchService.poll(debounce.toMillis(), TimeUnit.MILLISECONDS)) != null) {
+                    changed |= drain(key);
+                }
+                if (changed) {
+                    try {
+                        onChange.run();
+                    } catch (RuntimeException e) {
+                        logger.error("Ошибка обработки изменения {}: {}", file, e.getMessage(), e);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Остановлен через close()
+        }
+    }
+
+    private boolean drain(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(event.context())) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        thread.interrupt();
+        watchService.close();
+    }
+}
@@ -0,0 +1,145 @@
+package ru.georgdeveloper.assistantcommon.text;
+
+/**
+ * Стеммер русского языка по алгоритму Snowball (Портер для русского).
+ *
+ * Отсекает окончания и суффиксы, чтобы разные формы слова давали одну основу:
+ * "утечка", "утечки", "утечку" -> "утечк". Работает с нижним регистром и "е"
+ * вместо "ё" (так нормализует TextTokenizer). Слова без русских гласных
+ * (латиница, номера оборудования) возвращаются без изменений.
+ *
+ * Алгоритм: https://snowballstem.org/algorithms/russian/stemmer.html
+ */
+public final class RussianStemmer {
+
+    private static final String VOWELS = "аеиоуыэюя";
+
+    private static final String[] PERFECTIVE_GERUND_1 = {"в", "вши", "вшись"};
+    private static final String[] PERFECTIVE_GERUND_2 = {"ив", "ивши", "ившись", "ыв", "ывши", "ывшись"};
+    private static final String[] ADJECTIVE = {
+            "ее", "ие", "ые", "ое", "ими", "ыми", "ей", "ий", "ый", "ой", "ем", "им", "ым", "ом",
+            "его", "ого", "ему", "ому", "их", "ых", "ую", "юю", "ая", "яя", "ою", "ею"
+    };
+    private static final String[] PARTICIPLE_1 = {"ем", "нн", "вш", "ющ", "щ"};
+    private static final String[] PARTICIPLE_2 = {"ивш", "ывш", "ующ"};
+    private static final String[] REFLEXIVE = {"ся", "сь"};
+    private static final String[] VERB_1 = {
+            "ла", "на", "ете", "йте", "ли", "й", "л", "ем", "н", "ло", "но", "ет", "ют", "ны", "ть", "ешь", "нно"
+    };
+    private static final String[] VERB_2 = {
+            "ила", "ыла", "ена", "ейте", "уйте", "ите", "или", "ыли", "ей", "уй", "ил", "ыл", "им", "ым", "ен",
+            "ило", "ыло", "ено", "ят", "ует", "уют", "ит", "ыт", "ены", "ить", "ыть", "ишь", "ую", "ю"
+    };
+    private static final String[] NOUN = {
+            "а", "ев", "ов", "ие", "ье", "е", "иями", "ями", "ами", "еи", "ии", "и", "ией", "ей", "ой", "ий", "й",
+            "иям", "ям", "ием", "ем", "ам", "ом", "о", "у", "ах", "иях", "ях", "ы", "ь", "ию", "ью", "ю", "ия", "ья", "я"
+    };
+    private static final String[] SUPERLATIVE = {"ейш", "ейше"};
+    private static final String[] DERIVATIONAL = {"ост", "ость"};
+    private static final String[] NONE = {};
+
+    private RussianStemmer() {
+    }
+
+    public static String stem(String word) {
+        int rv = regionAfterFirstVowel(word, 0);
+        if (rv >= word.length()) {
+            return word;
+        }
+        int r1 = regionAfterVowelConsonant(word, 0);
+        int r2 = regionAfterVowelConsonant(word, r1);
+
+        StringBuilder w = new StringBuilder(word);
+
+        // Шаг 1: деепричастие; иначе возвратность, затем прилагательное, глагол или существительное
+        if (!removeEnding(w, rv, PERFECTIVE_GERUND_1, PERFECTIVE_GERUND_2)) {
+            removeEnding(w, rv, NONE, REFLEXIVE);
+            if (removeEnding(w, rv, NONE, ADJECTIVE)) {
+                removeEnding(w, rv, PARTICIPLE_1, PARTICIPLE_2);
+            } else if (!removeEnding(w, rv, VERB_1, VERB_2)) {
+                removeEnding(w, rv, NONE, NOUN);
+            }
+        }
+
+        // Шаг 2: конечная "и"
+        if (endsWith(w, rv, "и")) {
+            w.setLength(w.length() - 1);
+        }
+
+        // Шаг 3: словообразовательный суффикс в R2
+        removeEnding(w, r2, NONE, DERIVATIONAL);
+
+        // Шаг 4: "нн" -> "н", превосходная степень, мягкий знак
+        if (endsWith(w, rv, "нн")) {
+            w.setLength(w.length() - 1);
+        } else if (removeEnding(w, rv, NONE, SUPERLATIVE)) {
+            if (endsWith(w, rv, "нн")) {
+                w.setLength(w.length() - 1);
+            }
+        } else if (endsWith(w, rv, "ь")) {
+            w.setLength(w.length() - 1);
+        }
+        return w.toString();
+    }
+
+    /**
+     * Удаляет самое длинное окончание из групп, целиком лежащее в регионе [region, length).
+     * Окончания первой группы допустимы только после "а" или "я" (которые остаются).
+     */
+    private static boolean removeEnding(StringBuilder w, int region, String[] afterAYa, String[] plain) {
+        int longest = 0;
+        for (String ending : afterAYa) {
+            if (ending.length() > longest && endsWith(w, region + 1, ending)) {
+                char preceding = w.charAt(w.length() - ending.length() - 1);
+                if (preceding == 'а' || preceding == 'я') {
+                    longest = ending.length();
+                }
+            }
+        }
+        for (String ending : plain) {
+            if (ending.length() > longest && endsWith(w, region, ending)) {
+                longest = ending.length();
+            }
+        }
+        if (longest == 0) {
+            return false;
+        }
+        w.setLength(w.length() - longest);
+        return true;
+    }
+
+    private static boolean endsWith(StringBuilder w, int region, String ending) {
+        int start = w.length() - ending.length();
+        if (start < region || start < 0) {
+            return false;
+        }
+        for (int i = 0; i < ending.length(); i++) {
+            if (w.charAt(start + i) != ending.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int regionAfterFirstVowel(String word, int from) {
+        for (int i = from; i < word.length(); i++) {
+            if (isVowel(word.charAt(i))) {
+                return i + 1;
+            }
+        }
+        return word.length();
+    }
+
+    private static int regionAfterVowelConsonant(String word, int from) {
+        for (int i = from + 1; i < word.length(); i++) {
+            if (!isVowel(word.charAt(i)) && isVowel(word.charAt(i - 1))) {
+                return i + 1;
+            }
+        }
+        return word.length();
+    }
+
+    private static boolean isVowel(char c) {
+        return VOWELS.indexOf(c) >= 0;
+    }
+}
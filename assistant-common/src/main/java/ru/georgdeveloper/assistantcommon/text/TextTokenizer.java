@@ -0,0 +1,60 @@
+package ru.georgdeveloper.assistantcommon.text;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Токенизатор текста для поисковых индексов и извлечения ключевых слов
+ * в assistant-core и для отбора примеров обучения в assistant-ai.
+ *
+ * Разбивает текст на слова по любым символам, кроме букв и цифр, приводит
+ * к нижнему регистру и заменяет "ё" на "е", чтобы "щётка" и "щетка"
+ * совпадали. Однобуквенные токены отбрасываются.
+ */
+public final class TextTokenizer {
+
+    static final int MIN_TOKEN_LENGTH = 2;
+
+    private TextTokenizer() {
+    }
+
+    /**
+     * Передаёт токены текста в sink в порядке появления (с повторами)
+     */
+    public static void tokenize(String text, Consumer<String> sink) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        StringBuilder token = new StringBuilder(16);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                token.append(normalize(c));
+            } else if (token.length() > 0) {
+                emit(token, sink);
+            }
+        }
+        if (token.length() > 0) {
+            emit(token, sink);
+        }
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        tokenize(text, tokens::add);
+        return tokens;
+    }
+
+    private static void emit(StringBuilder token, Consumer<String> sink) {
+        if (token.length() >= MIN_TOKEN_LENGTH) {
+            sink.accept(token.toString());
+        }
+        token.setLength(0);
+    }
+
+    private static char normalize(char c) {
+        char lower = Character.toLowerCase(c);
+        return lower == 'ё' ? 'е' : lower;
+    }
+}
@@ -0,0 +1,44 @@
+package ru.georgdeveloper.assistantcommon.text;
+
+/**
+ * Оценка числа токенов текста без словаря модели - для бюджетов промпта
+ * в assistant-core и assistant-ai.
+ */
+public final class TokenEstimator {
+
+    private TokenEstimator() {
+        // Утилитный класс
+    }
+
+    /**
+     * Оценка числа токенов: BPE словари моделей кодируют латиницу и цифры
+     * примерно по 4 символа на токен, кириллицу - по 2-3, знаки препинания -
+     * отдельными токенами; пробелы обычно входят в соседний токен
+     */
+    public static int estimate(CharSequence text) {
+        if (text == null) {
+            return 0;
+        }
+        double tokens = 0;
+        for (int i = 0; i < text.length(); i++) {
+            tokens += weight(text.charAt(i));
+        }
+        return (int) Math.ceil(tokens);
+    }
+
+    /**
+     * Доля токена, приходящаяся на символ (для обрезки текста по бюджету)
+     */
+    public static double weight(char c) {
+        if (c < 128) {
+            if (Character.isLetterOrDigit(c)) {
+                return 0.25;
+            }
+            return Character.isWhitespace(c) ? 0 : 1;
+        }
+        if (c >= 'Ѐ' && c <= 'ӿ') {
+            return 0.4;
+        }
+        return 1;
+    }
+}
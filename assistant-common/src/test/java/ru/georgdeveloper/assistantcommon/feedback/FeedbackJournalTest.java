@@ -0,0 +1,146 @@
+package ru.georgdeveloper.assistantcommon.feedback;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты журнала обратной связи на реальных файлах: запись, закрытие, повторное открытие
+ */
+class FeedbackJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private FeedbackJournalProperties properties(DataSize segmentSize, int compactSegments) {
+        FeedbackJournalProperties properties = new FeedbackJournalProperties();
+        properties.setCommitDelay(Duration.ZERO);
+        properties.setSegmentSize(segmentSize);
+        properties.setCompactSegments(compactSegments);
+        return properties;
+    }
+
+    private static long append(FeedbackJournal journal, String kind, String request, String response) throws Exception {
+        return journal.append(kind, request, response).get(5, TimeUnit.SECONDS);
+    }
+
+    private List<FeedbackRecord> replay(long afterSeq) throws IOException {
+        List<FeedbackRecord> records = new ArrayList<>();
+        FeedbackJournal.replay(dir, afterSeq, records::add);
+        return records;
+    }
+
+    private static List<Long> seqs(List<FeedbackRecord> records) {
+        return records.stream().map(FeedbackRecord::seq).toList();
+    }
+
+    private List<String> segmentNames() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(file -> file.getFileName().toString()).sorted().toList();
+        }
+    }
+
+    @Test
+    void testTornLineIsCutOnReopen() throws Exception {
+        FeedbackJournalProperties properties = properties(DataSize.ofMegabytes(1), 8);
+        try (FeedbackJournal journal = FeedbackJournal.open(dir, "core", properties, null)) {
+            assertEquals(1, append(journal, FeedbackJournal.CONFIRMED, "утечка азота", "проверить уплотнения"));
+            assertEquals(2, append(journal, FeedbackJournal.EXAMPLE, "простои VMI", "NEED_DATABASE"));
+        }
+        Path segment = dir.resolve("feedback-00000000000000000001.jsonl");
+        long committed = Files.size(segment);
+        // Сбой посреди записи третьей строки
+        Files.write(segment, "{\"seq\":3,\"ts\":1,\"sou".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        // Недописанная строка не читается
+        assertEquals(List.of(1L, 2L), seqs(replay(0)));
+
+        try (FeedbackJournal journal = FeedbackJournal.open(dir, "core", properties, null)) {
+            assertEquals(committed, Files.size(segment));
+            assertEquals(3, append(journal, FeedbackJournal.CONFIRMED, "нет давления", "проверить клапан"));
+        }
+        List<FeedbackRecord> records = replay(0);
+        assertEquals(List.of(1L, 2L, 3L), seqs(records));
+        assertEquals("нет давления", records.get(2).request());
+        assertEquals("core", records.get(2).source());
+    }
+
+    @Test
+    void testRotationStartsSegmentAtNextSeq() throws Exception {
+        // Каждая пачка больше сегмента - после каждой фиксации новый сегмент
+        FeedbackJournalProperties properties = properties(DataSize.ofBytes(1), 100);
+        try (FeedbackJournal journal = FeedbackJournal.open(dir, "telegram", properties, null)) {
+            for (int i = 1; i <= 3; i++) {
+                assertEquals(i, append(journal, FeedbackJournal.OFFERED, "запрос " + i, "ответ " + i));
+            }
+        }
+        assertEquals(List.of(
+                "feedback-00000000000000000001.jsonl",
+                "feedback-00000000000000000002.jsonl",
+                "feedback-00000000000000000003.jsonl",
+                "feedback-00000000000000000004.jsonl"), segmentNames());
+        assertEquals(List.of(1L, 2L, 3L), seqs(replay(0)));
+        assertEquals(List.of(3L), seqs(replay(2)));
+
+        // После перезапуска нумерация продолжается
+        try (FeedbackJournal journal = FeedbackJournal.open(dir, "telegram", properties, null)) {
+            assertEquals(4, append(journal, FeedbackJournal.OFFERED, "запрос 4", "ответ 4"));
+        }
+        assertEquals(List.of(4L), seqs(replay(3)));
+    }
+
+    @Test
+    void testCompactionDedupsRetainsOfferedAndKeepsReplayPosition() throws Exception {
+        long now = System.currentTimeMillis();
+        // Сегмент прошлого запуска: устаревший и свежий показанные ответы, подтверждённая пара
+        Files.writeString(dir.resolve("feedback-00000000000000000001.jsonl"),
+                "{\"seq\":1,\"ts\":1000,\"source\":\"ai\",\"kind\":\"offered\",\"request\":\"старый\",\"response\":\"ответ\"}\n"
+                        + "{\"seq\":2,\"ts\":" + now + ",\"source\":\"ai\",\"kind\":\"offered\",\"request\":\"свежий\",\"response\":\"ответ\"}\n"
+                        + "{\"seq\":3,\"ts\":" + now + ",\"source\":\"ai\",\"kind\":\"confirmed\",\"request\":\"а\",\"response\":\"б\"}\n");
+
+        FeedbackJournalProperties properties = properties(DataSize.ofBytes(1), 3);
+        long readUpTo;
+        try (FeedbackJournal journal = FeedbackJournal.open(dir, "ai", properties, null)) {
+            assertEquals(4, append(journal, FeedbackJournal.CONFIRMED, "а", "б"));
+
+            // Читатель дошёл до 4 до сжатия
+            readUpTo = FeedbackJournal.replay(dir, 0, record -> { });
+            assertEquals(4, readUpTo);
+
+            assertEquals(5, append(journal, FeedbackJournal.EXAMPLE, "в", "г"));
+            // Третий закрытый сегмент запускает сжатие
+            assertEquals(6, append(journal, FeedbackJournal.CONFIRMED, "а", "б"));
+        }
+
+        assertEquals(List.of(
+                "feedback-00000000000000000001.jsonl",
+                "feedback-00000000000000000007.jsonl"), segmentNames());
+        // Повторы пары сведены к последнему, устаревший показанный ответ удалён
+        List<FeedbackRecord> all = replay(0);
+        assertEquals(List.of(2L, 5L, 6L), seqs(all));
+        assertEquals("свежий", all.get(0).request());
+        assertEquals(FeedbackJournal.CONFIRMED, all.get(2).kind());
+
+        // Читатель продолжает с прежнего номера и получает только новые записи
+        assertEquals(List.of(5L, 6L), seqs(replay(readUpTo)));
+
+        // Сжатый журнал открывается и продолжает нумерацию
+        try (FeedbackJournal journal = FeedbackJournal.open(dir, "ai", properties, null)) {
+            assertEquals(7, append(journal, FeedbackJournal.EXAMPLE, "д", "е"));
+        }
+        assertEquals(List.of(7L), seqs(replay(6)));
+    }
+}
@@ -0,0 +1,132 @@
+package ru.georgdeveloper.assistantcommon.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hc.core5.http.ConnectionRequestTimeoutException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты пула соединений на локальном HTTP сервере: настройки из HttpClientProperties,
+ * повторное использование keep-alive соединений, таймауты
+ */
+class PooledHttpClientFactoryTest {
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private String baseUrl;
+    // Порты клиента, с которых пришли запросы: одно соединение - один порт
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final CountDownLatch slowStarted = new CountDownLatch(1);
+    private final CountDownLatch releaseSlow = new CountDownLatch(1);
+
+    @BeforeEach
+    void startServer() throws IOException {
+        executor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/fast", exchange -> respond(exchange, "ok"));
+        server.createContext("/slow", exchange -> {
+            slowStarted.countDown();
+            try {
+                releaseSlow.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, "slow");
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void stopServer() {
+        releaseSlow.countDown();
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void respond(HttpExchange exchange, String body) throws IOException {
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Test
+    void testPoolLimitsComeFromProperties() {
+        HttpClientProperties properties = new HttpClientProperties();
+        properties.setMaxTotal(7);
+        properties.setMaxPerRoute(3);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+        RestTemplate restTemplate = PooledHttpClientFactory.createRestTemplate("test", properties, registry);
+        assertEquals("ok", restTemplate.getForObject(baseUrl + "/fast", String.class));
+
+        assertEquals(7.0, registry.get("httpcomponents.httpclient.pool.total.max").tag("httpclient", "test").gauge().value());
+        assertEquals(3.0, registry.get("httpcomponents.httpclient.pool.route.max.default").tag("httpclient", "test").gauge().value());
+    }
+
+    @Test
+    void testSequentialRequestsReuseConnection() {
+        RestTemplate restTemplate = PooledHttpClientFactory.createRestTemplate("test", new HttpClientProperties(), null);
+        for (int i = 0; i < 5; i++) {
+            assertEquals("ok", restTemplate.getForObject(baseUrl + "/fast", String.class));
+        }
+        assertEquals(1, clientPorts.size());
+    }
+
+    @Test
+    void testReadTimeout() {
+        HttpClientProperties properties = new HttpClientProperties();
+        properties.setReadTimeout(Duration.ofMillis(200));
+        RestTemplate restTemplate = PooledHttpClientFactory.createRestTemplate("test", properties, null);
+
+        ResourceAccessException error = assertThrows(ResourceAccessException.class,
+                () -> restTemplate.getForObject(baseUrl + "/slow", String.class));
+        assertInstanceOf(SocketTimeoutException.class, error.getCause());
+    }
+
+    @Test
+    void testExhaustedPoolWaitsConnectionRequestTimeout() throws Exception {
+        HttpClientProperties properties = new HttpClientProperties();
+        properties.setMaxTotal(1);
+        properties.setMaxPerRoute(1);
+        properties.setConnectionRequestTimeout(Duration.ofMillis(200));
+        RestTemplate restTemplate = PooledHttpClientFactory.createRestTemplate("test", properties, null);
+
+        // Единственное соединение занято медленным запросом
+        Future<String> slow = executor.submit(() -> restTemplate.getForObject(baseUrl + "/slow", String.class));
+        assertTrue(slowStarted.await(5, TimeUnit.SECONDS));
+
+        long started = System.nanoTime();
+        ResourceAccessException error = assertThrows(ResourceAccessException.class,
+                () -> restTemplate.getForObject(baseUrl + "/fast", String.class));
+        assertInstanceOf(ConnectionRequestTimeoutException.class, error.getCause());
+        assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(5));
+
+        releaseSlow.countDown();
+        assertEquals("slow", slow.get(5, TimeUnit.SECONDS));
+        // Освободившееся соединение снова выдаётся из пула
+        assertEquals("ok", restTemplate.getForObject(baseUrl + "/fast", String.class));
+        assertEquals(1, clientPorts.size());
+    }
+}
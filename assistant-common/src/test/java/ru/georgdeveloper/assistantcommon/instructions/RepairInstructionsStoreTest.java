@@ -0,0 +1,61 @@
+package ru.georgdeveloper.assistantcommon.instructions;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты записи двоичного хранилища инструкций
+ */
+class RepairInstructionsStoreTest {
+
+    private static final byte[] JSON = """
+            [
+              {"Участок": "Сборка", "Группа оборудования": "VMI", "Узел": "Барабан",
+               "Проблема": "Утечка азота", "Решение": "Проверить уплотнения"},
+              {"Участок": "Сборка", "Группа оборудования": "VMI", "Узел": "Привод",
+               "Проблема": "Нет давления", "Решение": "Проверить клапан"}
+            ]
+            """.getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testConcurrentWritersDoNotShareTempFile() throws Exception {
+        Path store = dir.resolve("repair_instructions.bin");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> writes = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                writes.add(executor.submit(() ->
+                        RepairInstructionsStore.write(new ByteArrayInputStream(JSON), store, JSON.length, 1)));
+            }
+            for (Future<Integer> write : writes) {
+                assertEquals(2, write.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertTrue(RepairInstructionsStore.isCurrent(store, JSON.length, 1));
+        List<String> problems = new ArrayList<>();
+        RepairInstructionsStore.read(store, (area, equipmentGroup, component, problem, solution) -> problems.add(problem));
+        assertEquals(List.of("Утечка азота", "Нет давления"), problems);
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(List.of(store), files.toList());
+        }
+    }
+}
@@ -2,25 +2,34 @@ package ru.georgdeveloper.assistantcore.client;
 
 import org.springframework.beans.factory.annotation.Autowired;
 
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 import ru.georgdeveloper.assistantcore.config.AssistantProperties;
+import ru.georgdeveloper.assistantcore.llm.LlmBackendException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
 /**
  * Клиент для взаимодействия с Ollama AI API.
  * 
  * Отвечает за:
  * - Отправку HTTP запросов к Ollama серверу (localhost:11434)
- * - Форматирование JSON запросов для deepseek-r1:latest модели
- * - Парсинг JSON ответов и фильтрацию технических размышлений
+ * - Потоковую запись JSON запросов и разбор ответов (OllamaJson, /api/chat и /api/generate)
+ * - Фильтрацию технических размышлений
  * - Обработку ошибок подключения
  * 
  * Особенности работы с deepseek-r1:latest:
  * - Модель может включать размышления в тегах <think>
  * - Необходима фильтрация этих тегов для получения чистого ответа
- * - Поддержка различных форматов экранирования Unicode
  */
 @Component
 public class OllamaClient {
@@ -34,128 +43,209 @@ public class OllamaClient {
     // Конфигурация приложения (адрес Ollama, модель AI)
     @Autowired
     private AssistantProperties properties;
-    
+
+    // Разбор ответов эмбеддингов и списка загруженных моделей
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
     /**
      * Отправляет запрос к Ollama AI и обрабатывает ответ.
      * 
      * Последовательность обработки:
-     * 1. Экранирование спецсимволов для JSON
-     * 2. Формирование JSON запроса с параметрами
-     * 3. Отправка HTTP POST запроса
-     * 4. Парсинг JSON ответа
-     * 5. Фильтрация технических размышлений deepseek-r1:latest
-     * 6. Обратное экранирование спецсимволов
+     * 1. Запись JSON запроса прямо в поток HTTP запроса (OllamaJson)
+     * 2. Отправка HTTP POST запроса на /api/chat или /api/generate (ai.ollama.api)
+     * 3. Потоковый разбор JSON ответа: берётся только текст ответа
+     * 4. Фильтрация технических размышлений deepseek-r1:latest
+     * 
+     * Ошибки подключения и ответа Ollama (в том числе пустой ответ) пробрасываются
+     * вызывающему коду: по ним автомат защиты (LlmCircuitBreaker) определяет, что
+     * модель недоступна, а текст ошибки не попадает в ответ пользователю и в кэши.
      * 
      * @param prompt Промпт для AI с контекстом и инструкциями
      * @return Очищенный ответ AI без технических размышлений
      */
     public String generateResponse(String prompt) {
         try {
-            // Получаем конфигурацию Ollama сервера и модели с fallback значениями
-            String baseUrl = "http://localhost:11434/api";
-            String model = "mistral:latest";
-            
-            if (properties != null && properties.getOllama() != null) {
-                if (properties.getOllama().getUrl() != null && !properties.getOllama().getUrl().trim().isEmpty()) {
-                    baseUrl = properties.getOllama().getUrl();
-                }
-                if (properties.getOllama().getModel() != null && !properties.getOllama().getModel().trim().isEmpty()) {
-                    model = properties.getOllama().getModel();
-                }
-            }
-            
-            String url = baseUrl + "/generate";
-            
-            /*
-             * Экранирование спецсимволов для корректного JSON
-             * Особенно важно для кириллицы и многострочных текстов
-             */
-            String escapedPrompt = prompt.replace("\\", "\\\\")
-                                        .replace("\"", "\\\"")
-                                        .replace("\n", "\\n")
-                                        .replace("\r", "\\r")
-                                        .replace("\t", "\\t");
-            
             /*
-             * Формирование JSON запроса для Ollama API
-             * Параметры:
-             * - model: имя модели (deepseek-r1:latest)
-             * - prompt: обрабатываемый текст
-             * - stream: false - получаем полный ответ сразу
-             * - temperature: 0.7 - баланс между точностью и креативностью
+             * stream: false - получаем полный ответ сразу
+             * Фильтрация технических размышлений deepseek-r1:latest:
+             * модель может включать свои рассуждения в теги <think>
              */
-            String requestBody = "{" +
-                "\"model\": \"" + model + "\"," +
-                "\"prompt\": \"" + escapedPrompt + "\"," +
-                "\"stream\": false," +
-                "\"options\": {\"temperature\": 0.7}" +
-                "}";
-            
-            logger.debug("Ollama request: {}", requestBody); // Отладочный вывод
-            
-            // Настройка HTTP заголовков для JSON API
-            org.springframework.http.HttpHeaders headers = new org.springframework.http.HttpHeaders();
-            headers.setContentType(org.springframework.http.MediaType.APPLICATION_JSON);
-            headers.set("Accept", "application/json");
-            
-            org.springframework.http.HttpEntity<String> entity = new org.springframework.http.HttpEntity<>(requestBody, headers);
-            
-            // Отправка запроса к Ollama серверу
-            String response = restTemplate.postForObject(url, entity, String.class);
-            logger.debug("Ollama response: {}", response); // Отладочный вывод
-            
-            /*
-             * Парсинг JSON ответа от Ollama
-             * Ожидаемый формат: {"response": "текст ответа", ...}
-             */
-            if (response != null && response.contains("\"response\":")) {
-                // Находим поле "response" в JSON
-                int responseStart = response.indexOf("\"response\":");
-                if (responseStart != -1) {
-                    responseStart += 11; // Пропускаем '"response":'
-                    // Пропускаем пробелы и открывающую кавычку
-                    while (responseStart < response.length() && 
-                           (response.charAt(responseStart) == ' ' || response.charAt(responseStart) == '"')) {
-                        responseStart++;
-                    }
-                    
-                    // Находим закрывающую кавычку перед следующим полем
-                    int responseEnd = response.indexOf("\",\"", responseStart);
-                    if (responseEnd == -1) {
-                        responseEnd = response.lastIndexOf('"');
-                    }
-                    
-                    if (responseEnd > responseStart) {
-                        // Извлекаем текст ответа и обратно экранируем
-                        String result = response.substring(responseStart, responseEnd)
-                                              .replace("\\\"", "\"")
-                                              .replace("\\n", "\n")
-                                              .replace("\\r", "\r")
-                                              .replace("\\t", "\t")
-                                              .replace("\\\\", "\\");
-                        
-                        /*
-                         * Фильтрация технических размышлений deepseek-r1:latest
-                         * Модель может включать свои рассуждения в теги <think>
-                         * Нужно удалять их для получения чистого ответа
-                         */
-                        result = result.replaceAll("<think>.*?</think>", "") // Обычные теги
-                                      .replaceAll("u003cthink\\u003e.*?u003c/think\\u003e", "") // Экранированные теги
-                                      .replaceAll("\\u003cthink\\u003e.*?\\u003c/think\\u003e", "") // Unicode экранирование
-                                      .trim(); // Удаляем лишние пробелы
-                        
-                        return result;
-                    }
-                }
+            ThinkTagFilter thinkFilter = new ThinkTagFilter();
+            StringBuilder answer = new StringBuilder();
+            execute(prompt, false, text -> answer.append(thinkFilter.accept(text)));
+            answer.append(thinkFilter.flush());
+            if (answer.length() == 0) {
+                throw new LlmBackendException("Ollama: пустой ответ");
             }
-            
-            // Если не удалось распарсить ответ
-            return "Ошибка обработки ответа от AI: " + response;
-            
-        } catch (Exception e) {
+            return answer.toString().trim();
+        } catch (RuntimeException e) {
             // Логирование ошибок для отладки
             logger.error("Ollama API error: {}", e.getMessage(), e);
-            return "Ошибка подключения к Ollama: " + e.getMessage();
+            throw e;
+        }
+    }
+
+    /**
+     * Потоковая генерация ответа.
+     *
+     * Ollama при "stream": true отдаёт NDJSON - по одному JSON объекту на строку
+     * вида {"response": "токен", "done": false} (у /api/chat - {"message": {"content": "токен"}}).
+     * Объекты разбираются по мере поступления, блоки &lt;think&gt; вырезаются на лету,
+     * видимые фрагменты сразу передаются в onToken - пользователь видит начало
+     * ответа через секунды, а не после окончания всей генерации.
+     *
+     * В отличие от generateResponse ошибки не превращаются в текст ответа,
+     * а пробрасываются вызывающему коду: часть токенов к этому моменту
+     * уже могла уйти клиенту.
+     *
+     * @param prompt Промпт для AI
+     * @param onToken Получатель видимых фрагментов ответа
+     * @return Полный очищенный ответ
+     */
+    public String generateResponseStream(String prompt, Consumer<String> onToken) {
+        ThinkTagFilter thinkFilter = new ThinkTagFilter();
+        StringBuilder answer = new StringBuilder();
+        execute(prompt, true, text -> emitToken(thinkFilter.accept(text), answer, onToken));
+        emitToken(thinkFilter.flush(), answer, onToken);
+        return answer.toString().trim();
+    }
+
+    /**
+     * Выполняет запрос генерации и передаёт текстовые фрагменты ответа в onText
+     */
+    private void execute(String prompt, boolean stream, Consumer<String> onText) {
+        boolean chat = !"generate".equalsIgnoreCase(resolveApi());
+        String url = resolveBaseUrl() + (chat ? "/chat" : "/generate");
+        String model = resolveModel();
+        OllamaJson.Options options = resolveOptions();
+        logger.debug("Ollama request: {} model={} prompt={} символов", url, model, prompt.length());
+
+        restTemplate.execute(url, HttpMethod.POST, request -> {
+            request.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            request.getHeaders().setAccept(List.of(MediaType.APPLICATION_NDJSON, MediaType.APPLICATION_JSON));
+            if (chat) {
+                OllamaJson.writeChat(request.getBody(), model, prompt, stream, options);
+            } else {
+                OllamaJson.writeGenerate(request.getBody(), model, prompt, stream, options);
+            }
+        }, response -> {
+            OllamaJson.readText(response.getBody(), onText);
+            return null;
+        });
+    }
+
+    /**
+     * Получение эмбеддинга текста через /api/embeddings.
+     *
+     * @param text Текст для векторизации
+     * @param model Модель эмбеддингов (например, nomic-embed-text)
+     * @return Вектор эмбеддинга
+     * @throws IllegalStateException если Ollama вернула ошибку или пустой вектор
+     */
+    public float[] generateEmbedding(String text, String model) {
+        String url = resolveBaseUrl() + "/embeddings";
+        Map<String, String> body = Map.of("model", model, "prompt", text);
+        String response = restTemplate.postForObject(url, body, String.class);
+        try {
+            JsonNode embedding = objectMapper.readTree(response).path("embedding");
+            if (!embedding.isArray() || embedding.isEmpty()) {
+                throw new IllegalStateException("Ollama не вернула эмбеддинг: " + response);
+            }
+            float[] vector = new float[embedding.size()];
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] = (float) embedding.get(i).asDouble();
+            }
+            return vector;
+        } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
+            throw new IllegalStateException("Некорректный ответ Ollama embeddings: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Загружает модель в память Ollama без генерации (прогрев).
+     * Модель остаётся загруженной на ai.ollama.keep-alive
+     *
+     * @throws RuntimeException если Ollama недоступна или модели нет
+     */
+    public void loadModel(String model) {
+        String url = resolveBaseUrl() + "/generate";
+        String keepAlive = properties != null && properties.getOllama() != null ? properties.getOllama().getKeepAlive() : null;
+        restTemplate.execute(url, HttpMethod.POST, request -> {
+            request.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            OllamaJson.writeLoad(request.getBody(), model, keepAlive);
+        }, response -> {
+            OllamaJson.readText(response.getBody(), text -> { });
+            return null;
+        });
+    }
+
+    /**
+     * Модели, загруженные сейчас в память Ollama (/api/ps)
+     *
+     * @throws RuntimeException если Ollama недоступна
+     */
+    public List<String> listLoadedModels() {
+        String response = restTemplate.getForObject(resolveBaseUrl() + "/ps", String.class);
+        try {
+            List<String> models = new ArrayList<>();
+            for (JsonNode model : objectMapper.readTree(response).path("models")) {
+                models.add(model.path("name").asText(model.path("model").asText()));
+            }
+            return models;
+        } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
+            throw new IllegalStateException("Некорректный ответ Ollama /api/ps: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Имя модели для генерации из конфигурации
+     */
+    public String getModel() {
+        return resolveModel();
+    }
+
+    private void emitToken(String token, StringBuilder answer, Consumer<String> onToken) {
+        if (token.isEmpty()) {
+            return;
+        }
+        answer.append(token);
+        onToken.accept(token);
+    }
+
+    /**
+     * Адрес Ollama API из конфигурации с fallback значением
+     */
+    private String resolveBaseUrl() {
+        if (properties != null && properties.getOllama() != null
+                && properties.getOllama().getUrl() != null && !properties.getOllama().getUrl().trim().isEmpty()) {
+            return properties.getOllama().getUrl();
+        }
+        return "http://localhost:11434/api";
+    }
+
+    /**
+     * Имя модели из конфигурации с fallback значением
+     */
+    private String resolveModel() {
+        if (properties != null && properties.getOllama() != null
+                && properties.getOllama().getModel() != null && !properties.getOllama().getModel().trim().isEmpty()) {
+            return properties.getOllama().getModel();
+        }
+        return "mistral:latest";
+    }
+
+    private String resolveApi() {
+        return properties != null && properties.getOllama() != null ? properties.getOllama().getApi() : null;
+    }
+
+    /**
+     * Параметры генерации: temperature, num_ctx и keep_alive из ai.ollama
+     */
+    private OllamaJson.Options resolveOptions() {
+        if (properties == null || properties.getOllama() == null) {
+            return new OllamaJson.Options(0.7, null, null);
         }
+        AssistantProperties.Ollama ollama = properties.getOllama();
+        return new OllamaJson.Options(ollama.getTemperature(), ollama.getNumCtx(), ollama.getKeepAlive());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,172 @@
+package ru.georgdeveloper.assistantcore.client;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadFeature;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import ru.georgdeveloper.assistantcore.llm.LlmBackendException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.function.Consumer;
+
+/**
+ * Потоковая запись запросов и чтение ответов Ollama (/api/generate и /api/chat).
+ *
+ * Запрос пишется JsonGenerator прямо в поток HTTP запроса: промпт
+ * экранируется по ходу записи, без промежуточных копий строки. Ответ
+ * читается JsonParser из потока ответа: наружу отдаются только текстовые
+ * фрагменты (response или message.content), остальные поля, включая
+ * большой массив context у /api/generate, пропускаются без разбора.
+ * Один и тот же разбор обслуживает и разовый ответ (один объект), и
+ * потоковый (NDJSON - объекты подряд).
+ */
+final class OllamaJson {
+
+    private static final JsonFactory FACTORY = JsonFactory.builder()
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+            .disable(StreamReadFeature.AUTO_CLOSE_SOURCE)
+            .build();
+
+    private OllamaJson() {
+    }
+
+    /**
+     * Параметры генерации
+     *
+     * @param numCtx размер контекста модели в токенах (null - по умолчанию модели)
+     * @param keepAlive сколько держать модель в памяти после запроса, например "30m" (null - по умолчанию Ollama)
+     */
+    record Options(double temperature, Integer numCtx, String keepAlive) {}
+
+    /**
+     * Запрос /api/generate
+     */
+    static void writeGenerate(OutputStream out, String model, String prompt, boolean stream, Options options)
+            throws IOException {
+        try (JsonGenerator generator = FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            generator.writeStringField("model", model);
+            generator.writeStringField("prompt", prompt);
+            writeCommon(generator, stream, options);
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * Запрос /api/chat с одним сообщением пользователя
+     */
+    static void writeChat(OutputStream out, String model, String prompt, boolean stream, Options options)
+            throws IOException {
+        try (JsonGenerator generator = FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            generator.writeStringField("model", model);
+            generator.writeArrayFieldStart("messages");
+            generator.writeStartObject();
+            generator.writeStringField("role", "user");
+            generator.writeStringField("content", prompt);
+            generator.writeEndObject();
+            generator.writeEndArray();
+            writeCommon(generator, stream, options);
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * Запрос /api/generate без промпта: Ollama только загружает модель в память
+     */
+    static void writeLoad(OutputStream out, String model, String keepAlive) throws IOException {
+        try (JsonGenerator generator = FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            generator.writeStringField("model", model);
+            generator.writeBooleanField("stream", false);
+            if (keepAlive != null && !keepAlive.isBlank()) {
+                generator.writeStringField("keep_alive", keepAlive);
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    private static void writeCommon(JsonGenerator generator, boolean stream, Options options) throws IOException {
+        generator.writeBooleanField("stream", stream);
+        if (options.keepAlive() != null && !options.keepAlive().isBlank()) {
+            generator.writeStringField("keep_alive", options.keepAlive());
+        }
+        generator.writeObjectFieldStart("options");
+        generator.writeNumberField("temperature", options.temperature());
+        if (options.numCtx() != null && options.numCtx() > 0) {
+            generator.writeNumberField("num_ctx", options.numCtx());
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * Читает ответ до объекта с "done": true или конца потока и передаёт
+     * текстовые фрагменты в onText
+     *
+     * @throws LlmBackendException если Ollama вернула поле error
+     */
+    static void readText(InputStream in, Consumer<String> onText) throws IOException {
+        try (JsonParser parser = FACTORY.createParser(in)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token != JsonToken.START_OBJECT) {
+                    throw new IOException("Неожиданный ответ Ollama: " + token);
+                }
+                if (readChunk(parser, onText)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Разбирает один объект ответа
+     *
+     * @return true, если генерация завершена (done)
+     */
+    private static boolean readChunk(JsonParser parser, Consumer<String> onText) throws IOException {
+        boolean done = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "response" -> emit(parser, value, onText);
+                case "message" -> readMessage(parser, value, onText);
+                case "done" -> done = value == JsonToken.VALUE_TRUE;
+                case "error" -> throw new LlmBackendException("Ollama: " + parser.getValueAsString());
+                default -> parser.skipChildren();
+            }
+        }
+        return done;
+    }
+
+    private static void readMessage(JsonParser parser, JsonToken value, Consumer<String> onText) throws IOException {
+        if (value != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken fieldValue = parser.nextToken();
+            if ("content".equals(field)) {
+                emit(parser, fieldValue, onText);
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private static void emit(JsonParser parser, JsonToken value, Consumer<String> onText) throws IOException {
+        if (value == JsonToken.VALUE_STRING) {
+            String text = parser.getText();
+            if (!text.isEmpty()) {
+                onText.accept(text);
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package ru.georgdeveloper.assistantcore.client;
+
+/**
+ * Потоковый фильтр технических размышлений модели.
+ *
+ * deepseek-r1 и похожие модели выводят рассуждения в тегах &lt;think&gt;...&lt;/think&gt;.
+ * При потоковой генерации тег может прийти разорванным между чанками
+ * ("&lt;thi" + "nk&gt;"), поэтому фильтр хранит хвост, который может оказаться
+ * началом тега, и выдаёт его только когда станет ясно, что это обычный текст.
+ *
+ * Экземпляр не потокобезопасен: один фильтр на одну генерацию.
+ */
+public class ThinkTagFilter {
+
+    private static final String OPEN_TAG = "<think>";
+    private static final String CLOSE_TAG = "</think>";
+
+    // Ещё не выданный текст (возможное начало тега)
+    private final StringBuilder pending = new StringBuilder();
+    private boolean insideThink = false;
+    // Пропускаем пробелы в начале ответа, как и trim() в непотоковом режиме
+    private boolean leadingWhitespace = true;
+
+    /**
+     * Принимает очередной чанк ответа модели.
+     *
+     * @param chunk фрагмент текста из потока Ollama
+     * @return видимая пользователю часть (может быть пустой строкой)
+     */
+    public String accept(String chunk) {
+        if (chunk == null || chunk.isEmpty()) {
+            return "";
+        }
+        pending.append(chunk);
+        StringBuilder visible = new StringBuilder();
+
+        while (true) {
+            String tag = insideThink ? CLOSE_TAG : OPEN_TAG;
+            int tagStart = pending.indexOf(tag);
+            if (tagStart >= 0) {
+                if (!insideThink) {
+                    visible.append(pending, 0, tagStart);
+                }
+                pending.delete(0, tagStart + tag.length());
+                insideThink = !insideThink;
+                continue;
+            }
+            // Оставляем в буфере хвост, совпадающий с началом тега
+            int emitEnd = pending.length() - partialTagLength(tag);
+            if (!insideThink) {
+                visible.append(pending, 0, emitEnd);
+            }
+            pending.delete(0, emitEnd);
+            break;
+        }
+        return stripLeadingWhitespace(visible);
+    }
+
+    /**
+     * Завершает генерацию и возвращает остаток буфера.
+     * Незакрытый блок размышлений отбрасывается.
+     */
+    public String flush() {
+        String rest = insideThink ? "" : pending.toString();
+        pending.setLength(0);
+        insideThink = false;
+        return stripLeadingWhitespace(new StringBuilder(rest));
+    }
+
+    private int partialTagLength(String tag) {
+        int max = Math.min(tag.length() - 1, pending.length());
+        for (int len = max; len > 0; len--) {
+            if (endsWithPrefix(tag, len)) {
+                return len;
+            }
+        }
+        return 0;
+    }
+
+    private boolean endsWithPrefix(String tag, int len) {
+        int offset = pending.length() - len;
+        for (int i = 0; i < len; i++) {
+            if (pending.charAt(offset + i) != tag.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String stripLeadingWhitespace(StringBuilder text) {
+        if (!leadingWhitespace) {
+            return text.toString();
+        }
+        int start = 0;
+        while (start < text.length() && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        if (start < text.length()) {
+            leadingWhitespace = false;
+        }
+        return text.substring(start);
+    }
+}
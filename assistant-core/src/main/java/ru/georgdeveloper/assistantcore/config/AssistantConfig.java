@@ -1,9 +1,23 @@
 package ru.georgdeveloper.assistantcore.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadPoolExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.georgdeveloper.assistantcommon.feedback.FeedbackJournal;
+import ru.georgdeveloper.assistantcommon.feedback.FeedbackJournalProperties;
+import ru.georgdeveloper.assistantcommon.http.HttpClientProperties;
+import ru.georgdeveloper.assistantcommon.http.PooledHttpClientFactory;
 
 /**
  * Конфигурация основных компонентов AI ассистента
@@ -11,12 +25,93 @@ import org.springframework.boot.context.properties.EnableConfigurationProperties
 @Configuration
 @EnableConfigurationProperties(AssistantProperties.class)
 public class AssistantConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(AssistantConfig.class);
     
     /**
-     * HTTP клиент для внешних API запросов
+     * Настройки пула HTTP соединений (секция http.client)
+     */
+    @Bean
+    @ConfigurationProperties(prefix = "http.client")
+    public HttpClientProperties httpClientProperties() {
+        return new HttpClientProperties();
+    }
+
+    /**
+     * HTTP клиент для внешних API запросов (Ollama).
+     * Соединения переиспользуются из пула, а не открываются на каждый запрос.
+     */
+    @Bean
+    public RestTemplate restTemplate(HttpClientProperties httpClientProperties,
+                                     ObjectProvider<MeterRegistry> meterRegistry) {
+        return PooledHttpClientFactory.createRestTemplate("core-ollama", httpClientProperties,
+                meterRegistry.getIfAvailable());
+    }
+
+    /**
+     * Пул потоков для потоковых ответов чата (SSE).
+     * Генерация идёт вне потока Tomcat, чтобы запрос не держал поток сервлета
+     * всё время, пока модель печатает ответ.
+     *
+     * Очереди у пула нет: каждый поток сразу берёт свой запрос, ответы из кэша
+     * не ждут чужих генераций, а очередь к модели (с событиями queue) ведёт
+     * LlmDispatcher. Когда заняты все потоки, задача отклоняется и
+     * ApiController отвечает 503 с Retry-After.
+     */
+    @Bean(name = "chatStreamExecutor")
+    public ThreadPoolTaskExecutor chatStreamExecutor(@Value("${ai.dispatcher.stream-threads:32}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(0);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix("chat-stream-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Пул для параллельного поиска по ключевым словам в БД (DatabaseSearchService).
+     * Размер ограничен, чтобы пачка поисков не заняла весь пул соединений Hikari.
+     * Переполненный пул отклоняет задачу: поиск считает её не успевшей к сроку,
+     * а не выполняет запрос в потоке Tomcat без срока.
+     */
+    @Bean(name = "searchExecutor")
+    public ThreadPoolTaskExecutor searchExecutor(@Value("${search.threads:8}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(200);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setThreadNamePrefix("db-search-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Настройки журнала обратной связи (секция feedback.journal)
      */
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    @ConfigurationProperties(prefix = "feedback.journal")
+    public FeedbackJournalProperties feedbackJournalProperties() {
+        return new FeedbackJournalProperties();
+    }
+
+    /**
+     * Журнал подтверждённых ответов (/api/feedback), подкаталог core.
+     * Если журнал выключен или каталог недоступен, бина нет и отзывы только логируются.
+     */
+    @Bean(destroyMethod = "close")
+    public FeedbackJournal feedbackJournal(FeedbackJournalProperties feedbackJournalProperties,
+                                           ObjectProvider<MeterRegistry> meterRegistry) {
+        if (!feedbackJournalProperties.isEnabled()) {
+            return null;
+        }
+        try {
+            return FeedbackJournal.open(feedbackJournalProperties, "core", meterRegistry.getIfAvailable());
+        } catch (IOException e) {
+            logger.error("Журнал обратной связи недоступен: {}", e.getMessage(), e);
+            return null;
+        }
     }
-}
\ No newline at end of file
+}
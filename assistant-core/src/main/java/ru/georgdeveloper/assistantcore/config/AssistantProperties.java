@@ -4,6 +4,9 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 
 import lombok.Data;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Конфигурационные свойства AI ассистента
  */
@@ -21,6 +24,8 @@ public class AssistantProperties {
     private Telegram telegram = new Telegram();
     /** Настройки веб-интерфейса */
     private Web web = new Web();
+    /** Бюджет контекста из БД в промпте */
+    private Context context = new Context();
     
     /**
      * Настройки подключения к Ollama
@@ -31,6 +36,30 @@ public class AssistantProperties {
         private String url;
         /** Модель для использования */
         private String model;
+        /** Модель для эмбеддингов (семантический кэш); пусто - локальный векторизатор */
+        private String embeddingModel;
+        /** Эндпоинт генерации: chat (/api/chat) или generate (/api/generate) */
+        private String api = "chat";
+        /** Температура генерации */
+        private double temperature = 0.7;
+        /** Размер контекста модели в токенах (num_ctx); пусто - по умолчанию модели */
+        private Integer numCtx;
+        /** Сколько держать модель в памяти после запроса (keep_alive), например 30m; пусто - по умолчанию Ollama */
+        private String keepAlive;
+    }
+    
+    /**
+     * Бюджет контекста из БД: время генерации растёт с длиной промпта,
+     * поэтому строки из БД укладываются в заданное число токенов
+     */
+    @Data
+    public static class Context {
+        /** Токенов на контекст из БД по умолчанию */
+        private int budgetTokens = 1500;
+        /** Бюджет для отдельных моделей (имя модели Ollama -> токенов) */
+        private Map<String, Integer> modelBudgets = new HashMap<>();
+        /** Длинные поля (комментарии) обрезаются до этого числа токенов */
+        private int maxFieldTokens = 120;
     }
     
     /**
@@ -14,6 +14,7 @@ public final class ResourcePaths {
     // Для чтения (через classpath)
     public static final String REPAIR_INSTRUCTIONS_JSON = "training/repair_instructions.json";
     public static final String QUERY_TRAINING_DATA_JSONL = "training/query_training_data.jsonl";
+    public static final String INTENT_RULES_JSON = "routing/intent_rules.json";
 
     // Для записи (абсолютный путь)
     public static final String REPAIR_INSTRUCTIONS_JSON_ABS = "training/repair_instructions.json";
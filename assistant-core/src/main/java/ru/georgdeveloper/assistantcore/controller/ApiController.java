@@ -1,7 +1,18 @@
 package ru.georgdeveloper.assistantcore.controller;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.concurrent.Executor;
+import ru.georgdeveloper.assistantcommon.feedback.FeedbackJournal;
+import ru.georgdeveloper.assistantcore.llm.LlmDispatcher;
+import ru.georgdeveloper.assistantcore.llm.LlmOverloadedException;
 import ru.georgdeveloper.assistantcore.repository.MonitoringRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,6 +24,8 @@ import org.slf4j.LoggerFactory;
  * assistant-web -> HTTP запрос -> assistant-core -> БД + AI -> ответ
  * Основные эндпоинты:
  * POST /api/analyze - анализ запросов пользователей через AI
+ * POST /api/analyze/stream - то же, но ответ отдаётся потоком Server-Sent Events
+ * POST /api/feedback - подтверждённые пользователем ответы (в журнал обратной связи)
  * Особенности:
  * - Поддержка UTF-8 кодировки для корректной работы с кириллицей
  * - Логирование входящих запросов и исходящих ответов
@@ -28,15 +41,30 @@ public class ApiController {
     // Используем MonitoringRepository вместо прямых SQL-запросов
     private final MonitoringRepository monitoringRepository;
     private final ru.georgdeveloper.assistantcore.service.RepairAssistantService repairAssistantService;
+    private final Executor chatStreamExecutor;
+    private final LlmDispatcher llmDispatcher;
+    private final ObjectProvider<FeedbackJournal> feedbackJournal;
+
+    // Максимальное время жизни SSE соединения (генерация на CPU бывает долгой)
+    private static final long STREAM_TIMEOUT_MS = 5 * 60 * 1000L;
 
     /**
      * Конструктор контроллера
      * @param monitoringRepository репозиторий для справочных данных
+     * @param chatStreamExecutor пул потоков для потоковой генерации
+     * @param llmDispatcher очередь к модели (оценка Retry-After при отказе)
+     * @param feedbackJournal журнал обратной связи (нет, если выключен)
      */
     public ApiController(MonitoringRepository monitoringRepository,
-                         ru.georgdeveloper.assistantcore.service.RepairAssistantService repairAssistantService) {
+                         ru.georgdeveloper.assistantcore.service.RepairAssistantService repairAssistantService,
+                         @Qualifier("chatStreamExecutor") Executor chatStreamExecutor,
+                         LlmDispatcher llmDispatcher,
+                         ObjectProvider<FeedbackJournal> feedbackJournal) {
         this.monitoringRepository = monitoringRepository;
         this.repairAssistantService = repairAssistantService;
+        this.chatStreamExecutor = chatStreamExecutor;
+        this.llmDispatcher = llmDispatcher;
+        this.feedbackJournal = feedbackJournal;
     }
 
     /**
@@ -46,6 +74,74 @@ public class ApiController {
     @PostMapping(value = "/analyze", consumes = "application/json;charset=UTF-8", produces = "text/plain;charset=UTF-8")
     public String analyze(@RequestBody String request) {
         logger.info("[analyze] incoming: {}", request);
+        String normalized = unwrapJsonString(request);
+        String response = repairAssistantService.processRepairRequest(normalized);
+        logger.info("[analyze] response: {}", response);
+        return response;
+    }
+
+    /**
+     * Потоковый анализ запроса через AI (Server-Sent Events).
+     * События:
+     * - queue: {"position": N} - запрос ждёт в очереди к модели, N - позиция
+     * - token: {"t": "фрагмент"} - очередной фрагмент ответа
+     * - done: {"response": "полный ответ"} - генерация завершена
+     * - error: {"message": "текст ошибки"} - генерация прервана
+     * Если заняты все потоки потоковых ответов, поток не открывается: 503 с Retry-After.
+     */
+    @PostMapping(value = "/analyze/stream", consumes = "application/json;charset=UTF-8", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter analyzeStream(@RequestBody String request) {
+        logger.info("[analyze/stream] incoming: {}", request);
+        String normalized = unwrapJsonString(request);
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MS);
+        try {
+            chatStreamExecutor.execute(() -> stream(normalized, emitter));
+        } catch (TaskRejectedException e) {
+            // Ответ 503 с Retry-After - в LlmExceptionHandler
+            throw new LlmOverloadedException("Сервер AI перегружен: все потоки ответов заняты, повторите позже",
+                    llmDispatcher.getQueueDepth(), llmDispatcher.getRetryAfterSeconds());
+        }
+        return emitter;
+    }
+
+    /**
+     * Потоковая генерация в потоке chatStreamExecutor
+     */
+    private void stream(String normalized, SseEmitter emitter) {
+        try {
+            String response = repairAssistantService.processRepairRequestStream(normalized,
+                    token -> sendEvent(emitter, "token", Map.of("t", token)),
+                    position -> sendEvent(emitter, "queue", Map.of("position", position)));
+            logger.info("[analyze/stream] response: {}", response);
+            sendEvent(emitter, "done", Map.of("response", response));
+            emitter.complete();
+        } catch (UncheckedIOException e) {
+            // Клиент закрыл соединение - прекращаем генерацию
+            logger.info("[analyze/stream] client disconnected: {}", e.getMessage());
+            emitter.completeWithError(e);
+        } catch (Exception e) {
+            logger.error("[analyze/stream] error: {}", e.getMessage(), e);
+            try {
+                sendEvent(emitter, "error", Map.of("message", "Ошибка генерации ответа: " + e.getMessage()));
+                emitter.complete();
+            } catch (UncheckedIOException ignored) {
+                emitter.completeWithError(e);
+            }
+        }
+    }
+
+    private void sendEvent(SseEmitter emitter, String name, Map<String, ?> data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Тело запроса приходит как JSON-строка ("текст") - снимаем кавычки и экранирование
+     */
+    private String unwrapJsonString(String request) {
         String normalized = request;
         if (normalized != null && normalized.length() >= 2 && normalized.startsWith("\"") && normalized.endsWith("\"")) {
             normalized = normalized.substring(1, normalized.length() - 1)
@@ -55,17 +151,27 @@ public class ApiController {
                     .replace("\\t", "\t")
                     .replace("\\\\", "\\");
         }
-        String response = repairAssistantService.processRepairRequest(normalized);
-        logger.info("[analyze] response: {}", response);
-        return response;
+        return normalized;
     }
 
     /**
-     * Приём фидбэка из веб-интерфейса; сохранять пока некуда — просто логируем.
+     * Приём фидбэка из веб-интерфейса: подтверждённая пара {request, response}
+     * ставится в журнал обратной связи, откуда её подхватывает обучение assistant-ai.
+     * Ответ не ждёт записи на диск.
      */
     @PostMapping(value = "/feedback", consumes = "application/json;charset=UTF-8", produces = "text/plain;charset=UTF-8")
     public String feedback(@RequestBody Map<String, Object> body) {
         logger.info("[feedback] {}", body);
+        Object request = body.get("request");
+        Object response = body.get("response");
+        FeedbackJournal journal = feedbackJournal.getIfAvailable();
+        if (journal != null && request != null && response != null) {
+            journal.append(FeedbackJournal.CONFIRMED, request.toString(), response.toString())
+                    .exceptionally(e -> {
+                        logger.warn("[feedback] не записан в журнал: {}", e.getMessage());
+                        return null;
+                    });
+        }
         return "ok";
     }
     
@@ -0,0 +1,51 @@
+package ru.georgdeveloper.assistantcore.controller;
+
+import org.springframework.web.bind.annotation.*;
+import ru.georgdeveloper.assistantcore.service.ResponseCacheService;
+import ru.georgdeveloper.assistantcore.service.SemanticAnswerCache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Административный API кэшей ответов ассистента (точного и семантического).
+ *
+ * GET    /api/admin/cache - статистика (размер, попадания, промахи, версия данных)
+ * DELETE /api/admin/cache - принудительная очистка обоих кэшей (например, после ручной правки данных)
+ */
+@RestController
+@RequestMapping("/api/admin/cache")
+public class CacheAdminController {
+
+    private final ResponseCacheService responseCacheService;
+    private final SemanticAnswerCache semanticAnswerCache;
+
+    /**
+     * Конструктор контроллера
+     * @param responseCacheService кэш ответов
+     * @param semanticAnswerCache семантический кэш ответов
+     */
+    public CacheAdminController(ResponseCacheService responseCacheService, SemanticAnswerCache semanticAnswerCache) {
+        this.responseCacheService = responseCacheService;
+        this.semanticAnswerCache = semanticAnswerCache;
+    }
+
+    /**
+     * Статистика кэша ответов
+     */
+    @GetMapping
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>(responseCacheService.stats());
+        stats.put("semanticSize", semanticAnswerCache.size());
+        return stats;
+    }
+
+    /**
+     * Очистка кэша ответов
+     */
+    @DeleteMapping
+    public Map<String, Object> purge() {
+        return Map.of("purged", responseCacheService.purge(),
+                "semanticPurged", semanticAnswerCache.purge());
+    }
+}
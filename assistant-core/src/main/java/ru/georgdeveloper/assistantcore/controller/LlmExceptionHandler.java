@@ -0,0 +1,43 @@
+package ru.georgdeveloper.assistantcore.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import ru.georgdeveloper.assistantcore.llm.LlmOverloadedException;
+import ru.georgdeveloper.assistantcore.llm.LlmUnavailableException;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Перевод отказа диспетчера LLM и разомкнутого автомата защиты в ответ 503
+ * с понятным текстом. Retry-After подсказывает клиентам (web, telegram),
+ * когда повторить запрос: при перегрузке - оценка диспетчера по очереди и
+ * среднему времени генерации, при разомкнутом автомате - время до пробного запроса.
+ */
+@RestControllerAdvice
+public class LlmExceptionHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmExceptionHandler.class);
+
+    @ExceptionHandler(LlmOverloadedException.class)
+    public ResponseEntity<String> handleOverloaded(LlmOverloadedException e) {
+        logger.warn("Запрос отклонён диспетчером LLM: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header("Retry-After", String.valueOf(e.getRetryAfterSeconds()))
+                .contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8))
+                .body(e.getMessage());
+    }
+
+    @ExceptionHandler(LlmUnavailableException.class)
+    public ResponseEntity<String> handleUnavailable(LlmUnavailableException e) {
+        logger.warn("Запрос отклонён автоматом защиты LLM: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header("Retry-After", String.valueOf(e.getRetryAfterSeconds()))
+                .contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8))
+                .body(e.getMessage());
+    }
+}
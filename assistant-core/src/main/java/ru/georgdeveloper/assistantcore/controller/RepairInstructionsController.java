@@ -5,6 +5,7 @@ import ru.georgdeveloper.assistantcore.service.RepairInstructionsService;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionException;
 
 /**
  * Контроллер для работы с инструкциями по ремонту.
@@ -59,12 +60,17 @@ public class RepairInstructionsController {
     }
 
     /**
-     * Перезагрузить инструкции из файла
+     * Перезагрузить инструкции из файла: новый список заменяет прежний целиком,
+     * при ошибке чтения остаются прежние инструкции
      */
     @PostMapping("/reload")
     public String reloadInstructions() {
-        repairInstructionsService.loadRepairInstructions();
-        return "Инструкции перезагружены из repair_instructions.json";
+        try {
+            int count = repairInstructionsService.reload().join();
+            return "Инструкции перезагружены из repair_instructions.json: " + count;
+        } catch (CompletionException e) {
+            return "Не удалось перезагрузить инструкции, используются прежние: " + e.getCause().getMessage();
+        }
     }
 
     /**
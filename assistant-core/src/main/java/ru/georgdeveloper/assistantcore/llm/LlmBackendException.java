@@ -0,0 +1,13 @@
+package ru.georgdeveloper.assistantcore.llm;
+
+/**
+ * Ошибка, которую вернула сама модель (поле error в ответе Ollama):
+ * модель не загрузилась, не хватило памяти и т.п. Считается отказом
+ * модели в автомате защиты, в отличие от ошибок получателя ответа.
+ */
+public class LlmBackendException extends IllegalStateException {
+
+    public LlmBackendException(String message) {
+        super(message);
+    }
+}
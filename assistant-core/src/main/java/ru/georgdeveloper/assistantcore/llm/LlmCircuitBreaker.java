@@ -0,0 +1,264 @@
+package ru.georgdeveloper.assistantcore.llm;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Автомат защиты (circuit breaker) для вызовов Ollama.
+ *
+ * Пока Ollama недоступна, каждый запрос ждал таймаутов сокета, потоки Tomcat
+ * копились в OllamaClient, и вместе с чатом переставали отвечать дашборды
+ * (они работают в том же процессе). Автомат считает исходы последних
+ * ai.circuit-breaker.window-size вызовов:
+ * - CLOSED: вызовы идут к модели; когда среди не менее minimum-calls последних
+ *   вызовов доля ошибок достигает failure-rate-threshold процентов, автомат размыкается;
+ * - OPEN: вызовы сразу отклоняются (LlmUnavailableException) в течение open-duration;
+ * - HALF_OPEN: пропускается не более half-open-probes пробных вызовов; если все
+ *   успешны - автомат замыкается, при первой ошибке снова размыкается. Вызовы
+ *   сверх пробных отклоняются с Retry-After 1 с, а не open-duration.
+ *
+ * Ошибкой считается только отказ модели (isBackendFailure): нет соединения,
+ * таймаут, HTTP 5xx, поле error в ответе. Исключения получателя ответа
+ * (браузер закрыл вкладку посреди потоковой генерации) не учитываются,
+ * пробный вызов с таким исключением просто освобождает место для следующего.
+ *
+ * Метрики: assistant.llm.circuit.state (0 - CLOSED, 1 - HALF_OPEN, 2 - OPEN),
+ * assistant.llm.circuit.transitions (теги from, to), assistant.llm.circuit.rejected.
+ */
+@Component
+public class LlmCircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmCircuitBreaker.class);
+
+    public enum State { CLOSED, HALF_OPEN, OPEN }
+
+    // Retry-After для вызовов, отклонённых, пока идёт пробный
+    private static final long HALF_OPEN_RETRY_AFTER_SECONDS = 1;
+
+    private final boolean enabled;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openNanos;
+    private final int halfOpenProbes;
+    private final LongSupplier clock;
+
+    // Кольцевой буфер исходов последних вызовов: true - ошибка
+    private final boolean[] outcomes;
+    private int recorded = 0;
+    private int nextSlot = 0;
+    private int failures = 0;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int probesInFlight = 0;
+    private int probeSuccesses = 0;
+
+    private final MeterRegistry registry;
+    private final Counter rejectedCounter;
+
+    @Autowired
+    public LlmCircuitBreaker(ObjectProvider<MeterRegistry> meterRegistry,
+                             @Value("${ai.circuit-breaker.enabled:true}") boolean enabled,
+                             @Value("${ai.circuit-breaker.window-size:10}") int windowSize,
+                             @Value("${ai.circuit-breaker.minimum-calls:4}") int minimumCalls,
+                             @Value("${ai.circuit-breaker.failure-rate-threshold:50}") double failureRateThreshold,
+                             @Value("${ai.circuit-breaker.open-duration:30s}") Duration openDuration,
+                             @Value("${ai.circuit-breaker.half-open-probes:1}") int halfOpenProbes) {
+        this(meterRegistry.getIfAvailable(), enabled, windowSize, minimumCalls, failureRateThreshold,
+                openDuration, halfOpenProbes, System::nanoTime);
+    }
+
+    LlmCircuitBreaker(MeterRegistry registry, boolean enabled, int windowSize, int minimumCalls,
+                      double failureRateThreshold, Duration openDuration, int halfOpenProbes, LongSupplier clock) {
+        this.enabled = enabled;
+        this.outcomes = new boolean[Math.max(1, windowSize)];
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, outcomes.length));
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.halfOpenProbes = Math.max(1, halfOpenProbes);
+        this.clock = clock;
+        this.registry = registry;
+
+        if (registry != null) {
+            Gauge.builder("assistant.llm.circuit.state", this, breaker -> breaker.getState().ordinal())
+                    .description("Состояние автомата защиты LLM: 0 - CLOSED, 1 - HALF_OPEN, 2 - OPEN")
+                    .register(registry);
+            this.rejectedCounter = Counter.builder("assistant.llm.circuit.rejected")
+                    .description("Вызовы LLM, отклонённые разомкнутым автоматом").register(registry);
+        } else {
+            this.rejectedCounter = null;
+        }
+    }
+
+    /**
+     * Выполняет вызов модели, учитывая его исход
+     *
+     * @throws LlmUnavailableException если автомат разомкнут
+     */
+    public <T> T execute(Supplier<T> call) {
+        boolean probe = acquirePermission();
+        try {
+            T result = call.get();
+            onSuccess(probe);
+            return result;
+        } catch (RuntimeException | Error e) {
+            if (isBackendFailure(e)) {
+                onFailure(probe, e);
+            } else {
+                onIgnored(probe);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Отказ самой модели: ошибка HTTP клиента (соединение, таймаут, 5xx, разбор ответа)
+     * или поле error в ответе. Ответы 4xx - ошибка запроса, а не недоступность модели.
+     */
+    static boolean isBackendFailure(Throwable error) {
+        if (error instanceof HttpClientErrorException) {
+            return false;
+        }
+        return error instanceof RestClientException || error instanceof LlmBackendException;
+    }
+
+    /**
+     * Быстрая проверка перед постановкой в очередь к модели: при разомкнутом
+     * автомате запрос отклоняется сразу, не занимая место в очереди.
+     * Пробный вызов не резервируется - это делает execute.
+     *
+     * @throws LlmUnavailableException если автомат разомкнут
+     */
+    public synchronized void ensureCallPermitted() {
+        if (enabled && state == State.OPEN && clock.getAsLong() - openedAt < openNanos) {
+            throw reject();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private synchronized boolean acquirePermission() {
+        if (!enabled) {
+            return false;
+        }
+        if (state == State.OPEN) {
+            if (clock.getAsLong() - openedAt < openNanos) {
+                throw reject();
+            }
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesInFlight >= halfOpenProbes) {
+                throw reject();
+            }
+            probesInFlight++;
+            return true;
+        }
+        return false;
+    }
+
+    private synchronized void onSuccess(boolean probe) {
+        if (probe) {
+            if (state == State.HALF_OPEN) {
+                probesInFlight--;
+                if (++probeSuccesses >= halfOpenProbes) {
+                    transition(State.CLOSED);
+                }
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    /**
+     * Вызов прерван не по вине модели: исход не учитывается
+     */
+    private synchronized void onIgnored(boolean probe) {
+        if (probe && state == State.HALF_OPEN) {
+            probesInFlight--;
+        }
+    }
+
+    private synchronized void onFailure(boolean probe, Throwable error) {
+        if (probe) {
+            if (state == State.HALF_OPEN) {
+                logger.warn("Пробный вызов Ollama неудачен: {}", error.getMessage());
+                transition(State.OPEN);
+            }
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (recorded >= minimumCalls && failures * 100.0 / recorded >= failureRateThreshold) {
+                logger.warn("Ошибок Ollama {} из {} последних вызовов, последняя: {}",
+                        failures, recorded, error.getMessage());
+                transition(State.OPEN);
+            }
+        }
+    }
+
+    private void record(boolean failure) {
+        if (recorded == outcomes.length) {
+            if (outcomes[nextSlot]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[nextSlot] = failure;
+        if (failure) {
+            failures++;
+        }
+        nextSlot = (nextSlot + 1) % outcomes.length;
+    }
+
+    private void transition(State target) {
+        State from = state;
+        state = target;
+        switch (target) {
+            case OPEN -> openedAt = clock.getAsLong();
+            case HALF_OPEN -> {
+                probesInFlight = 0;
+                probeSuccesses = 0;
+            }
+            case CLOSED -> {
+                recorded = 0;
+                nextSlot = 0;
+                failures = 0;
+            }
+        }
+        if (registry != null) {
+            Counter.builder("assistant.llm.circuit.transitions")
+                    .tag("from", from.name().toLowerCase())
+                    .tag("to", target.name().toLowerCase())
+                    .register(registry).increment();
+        }
+        logger.info("Автомат защиты LLM: {} -> {}", from, target);
+    }
+
+    private LlmUnavailableException reject() {
+        if (rejectedCounter != null) {
+            rejectedCounter.increment();
+        }
+        // В HALF_OPEN пробный вызов уже идёт: исход станет известен скоро, а не через open-duration
+        long retryAfter = state == State.OPEN
+                ? Math.max(1, TimeUnit.NANOSECONDS.toSeconds(openNanos - (clock.getAsLong() - openedAt)))
+                : HALF_OPEN_RETRY_AFTER_SECONDS;
+        return new LlmUnavailableException("AI-модель временно недоступна, повторите через " + retryAfter + " с",
+                retryAfter);
+    }
+}
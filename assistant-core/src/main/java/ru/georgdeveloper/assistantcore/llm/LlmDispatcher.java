@@ -0,0 +1,278 @@
+package ru.georgdeveloper.assistantcore.llm;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Диспетчер генераций LLM: ограничение параллелизма и очередь с приоритетами.
+ *
+ * Ollama на нашем железе обслуживает одну генерацию за раз, а потоки Tomcat
+ * без ограничений отправляли параллельные запросы, которые под нагрузкой
+ * вместе упирались в таймауты. Диспетчер пропускает к модели не более
+ * ai.dispatcher.max-concurrent генераций, остальные ждут в очереди:
+ * - INTERACTIVE обслуживаются раньше BACKGROUND, внутри класса - по порядку прихода;
+ * - при переполнении очереди (ai.dispatcher.queue-capacity) запрос сразу отклоняется;
+ * - если слот не освободился за ai.dispatcher.max-wait, запрос тоже отклоняется;
+ * - ожидающий получает свою позицию в очереди через колбэк при каждом её изменении;
+ * - отказ содержит оценку, когда повторить запрос (Retry-After): очередь перед
+ *   ним, делённая на число слотов, умноженная на среднее время генерации
+ *   (пока генераций не было - max-wait), не больше max-wait.
+ *
+ * Метрики: assistant.llm.queue.depth, assistant.llm.active,
+ * assistant.llm.queue.wait и assistant.llm.execution (гистограммы, тег priority),
+ * assistant.llm.rejected.
+ */
+@Component
+public class LlmDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmDispatcher.class);
+
+    private final int maxConcurrent;
+    private final int queueCapacity;
+    private final long maxWaitNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final TreeSet<Ticket> waiting = new TreeSet<>(
+            Comparator.comparing((Ticket t) -> t.priority).thenComparingLong(t -> t.sequence));
+    private final AtomicLong sequence = new AtomicLong();
+    private int active = 0;
+    // Скользящее среднее времени генерации (0 - генераций ещё не было)
+    private long averageExecutionNanos = 0;
+
+    private final Map<LlmPriority, Timer> waitTimers = new EnumMap<>(LlmPriority.class);
+    private final Map<LlmPriority, Timer> executionTimers = new EnumMap<>(LlmPriority.class);
+    private final Map<LlmPriority, Counter> rejectedCounters = new EnumMap<>(LlmPriority.class);
+
+    private final class Ticket {
+        final LlmPriority priority;
+        final long sequence;
+        final Condition granted = lock.newCondition();
+        boolean admitted = false;
+
+        Ticket(LlmPriority priority, long sequence) {
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+    }
+
+    public LlmDispatcher(ObjectProvider<MeterRegistry> meterRegistry,
+                         @Value("${ai.dispatcher.max-concurrent:1}") int maxConcurrent,
+                         @Value("${ai.dispatcher.queue-capacity:20}") int queueCapacity,
+                         @Value("${ai.dispatcher.max-wait:180s}") Duration maxWait) {
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.queueCapacity = Math.max(0, queueCapacity);
+        this.maxWaitNanos = maxWait.toNanos();
+
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            Gauge.builder("assistant.llm.queue.depth", this, LlmDispatcher::getQueueDepth)
+                    .description("Запросы, ожидающие слот генерации").register(registry);
+            Gauge.builder("assistant.llm.active", this, LlmDispatcher::getActiveCount)
+                    .description("Генерации, выполняющиеся сейчас").register(registry);
+            for (LlmPriority priority : LlmPriority.values()) {
+                String tag = priority.name().toLowerCase();
+                waitTimers.put(priority, Timer.builder("assistant.llm.queue.wait").tag("priority", tag)
+                        .publishPercentileHistogram().register(registry));
+                executionTimers.put(priority, Timer.builder("assistant.llm.execution").tag("priority", tag)
+                        .publishPercentileHistogram().register(registry));
+                rejectedCounters.put(priority, Counter.builder("assistant.llm.rejected").tag("priority", tag)
+                        .register(registry));
+            }
+        }
+        logger.info("Диспетчер LLM: max-concurrent={}, queue-capacity={}, max-wait={}",
+                this.maxConcurrent, this.queueCapacity, maxWait);
+    }
+
+    /**
+     * Выполняет генерацию, дождавшись свободного слота
+     */
+    public <T> T submit(LlmPriority priority, Supplier<T> task) {
+        return submit(priority, task, null);
+    }
+
+    /**
+     * Выполняет генерацию, дождавшись свободного слота.
+     *
+     * @param priority класс приоритета
+     * @param task вызов модели
+     * @param onQueuePosition получает позицию в очереди (1 - следующий), может быть null
+     * @throws LlmOverloadedException если очередь заполнена или ожидание превысило max-wait
+     */
+    public <T> T submit(LlmPriority priority, Supplier<T> task, IntConsumer onQueuePosition) {
+        long waitStart = System.nanoTime();
+        acquire(priority, onQueuePosition);
+        record(waitTimers.get(priority), System.nanoTime() - waitStart);
+
+        long execStart = System.nanoTime();
+        try {
+            return task.get();
+        } finally {
+            long execNanos = System.nanoTime() - execStart;
+            record(executionTimers.get(priority), execNanos);
+            release(execNanos);
+        }
+    }
+
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return waiting.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getActiveCount() {
+        lock.lock();
+        try {
+            return active;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void acquire(LlmPriority priority, IntConsumer onQueuePosition) {
+        Ticket ticket;
+        int position;
+        lock.lock();
+        try {
+            if (active < maxConcurrent && waiting.isEmpty()) {
+                active++;
+                return;
+            }
+            if (waiting.size() >= queueCapacity) {
+                reject(priority);
+                throw new LlmOverloadedException(
+                        "Сервер AI перегружен: в очереди " + waiting.size() + " запросов, повторите позже",
+                        waiting.size(), retryAfterSeconds());
+            }
+            ticket = new Ticket(priority, sequence.incrementAndGet());
+            waiting.add(ticket);
+            position = positionOf(ticket);
+        } finally {
+            lock.unlock();
+        }
+
+        long deadline = System.nanoTime() + maxWaitNanos;
+        int reported = -1;
+        while (true) {
+            // Колбэк (например, SSE событие) вызывается вне блокировки
+            if (onQueuePosition != null && position != reported) {
+                onQueuePosition.accept(position);
+                reported = position;
+            }
+            lock.lock();
+            try {
+                if (!ticket.admitted) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        waiting.remove(ticket);
+                        reject(priority);
+                        throw new LlmOverloadedException(
+                                "Сервер AI перегружен: ожидание в очереди превысило "
+                                        + TimeUnit.NANOSECONDS.toSeconds(maxWaitNanos) + " с",
+                                waiting.size(), retryAfterSeconds());
+                    }
+                    ticket.granted.awaitNanos(remaining);
+                }
+                if (ticket.admitted) {
+                    return;
+                }
+                position = positionOf(ticket);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (!ticket.admitted) {
+                    waiting.remove(ticket);
+                    throw new LlmOverloadedException("Ожидание в очереди AI прервано",
+                            waiting.size(), retryAfterSeconds());
+                }
+                return;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void release(long execNanos) {
+        lock.lock();
+        try {
+            averageExecutionNanos = averageExecutionNanos == 0 ? execNanos
+                    : averageExecutionNanos + (execNanos - averageExecutionNanos) / 5;
+            active--;
+            if (!waiting.isEmpty() && active < maxConcurrent) {
+                Ticket next = waiting.pollFirst();
+                next.admitted = true;
+                active++;
+                next.granted.signal();
+            }
+            // Остальные ожидающие пересчитывают свою позицию
+            for (Ticket ticket : waiting) {
+                ticket.granted.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Через сколько секунд повторить отклонённый запрос при текущей очереди
+     */
+    public long getRetryAfterSeconds() {
+        lock.lock();
+        try {
+            return retryAfterSeconds();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Оценка в секундах, когда новый запрос дождётся слота; вызывается под блокировкой
+     */
+    private long retryAfterSeconds() {
+        long maxWaitSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(maxWaitNanos));
+        if (averageExecutionNanos == 0) {
+            return maxWaitSeconds;
+        }
+        long rounds = waiting.size() / maxConcurrent + 1;
+        long seconds = (long) Math.ceil(rounds * averageExecutionNanos / 1e9);
+        return Math.max(1, Math.min(seconds, maxWaitSeconds));
+    }
+
+    private int positionOf(Ticket ticket) {
+        return waiting.headSet(ticket).size() + 1;
+    }
+
+    private void reject(LlmPriority priority) {
+        Counter counter = rejectedCounters.get(priority);
+        if (counter != null) {
+            counter.increment();
+        }
+        logger.warn("Запрос к LLM ({}) отклонён: очередь {} из {}", priority, waiting.size(), queueCapacity);
+    }
+
+    private void record(Timer timer, long nanos) {
+        if (timer != null) {
+            timer.record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
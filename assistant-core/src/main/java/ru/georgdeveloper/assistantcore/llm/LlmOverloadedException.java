@@ -0,0 +1,31 @@
+package ru.georgdeveloper.assistantcore.llm;
+
+/**
+ * Запрос к LLM отклонён: очередь ожидания заполнена
+ * или слот генерации не освободился за допустимое время.
+ */
+public class LlmOverloadedException extends RuntimeException {
+
+    private final int queueDepth;
+    private final long retryAfterSeconds;
+
+    public LlmOverloadedException(String message, int queueDepth, long retryAfterSeconds) {
+        super(message);
+        this.queueDepth = queueDepth;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Длина очереди в момент отказа
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * Через сколько секунд, по оценке диспетчера, освободится место в очереди
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,12 @@
+package ru.georgdeveloper.assistantcore.llm;
+
+/**
+ * Класс приоритета запроса к LLM.
+ * При освобождении слота генерации первым обслуживается более приоритетный запрос.
+ */
+public enum LlmPriority {
+    /** Пользователь ждёт ответа в чате или боте */
+    INTERACTIVE,
+    /** Фоновые задачи: обучение, классификация запросов */
+    BACKGROUND
+}
@@ -0,0 +1,22 @@
+package ru.georgdeveloper.assistantcore.llm;
+
+/**
+ * Модель недоступна: автомат защиты (LlmCircuitBreaker) разомкнут после
+ * серии ошибок Ollama, запрос отклонён без обращения к модели.
+ */
+public class LlmUnavailableException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public LlmUnavailableException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Через сколько секунд автомат пропустит пробный запрос
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,103 @@
+package ru.georgdeveloper.assistantcore.llm;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Объединение одновременных одинаковых вычислений (single-flight).
+ *
+ * Когда линия встаёт, несколько человек в Telegram и веб-чате задают один
+ * и тот же вопрос в течение секунд. Без объединения каждый запрос отдельно
+ * встаёт в очередь к единственному серверу Ollama. Здесь первый вызов
+ * с данным ключом выполняет вычисление, а остальные, пришедшие пока оно
+ * идёт, ждут и получают тот же результат (или то же исключение).
+ *
+ * Результат не запоминается: после завершения следующий вызов выполнит
+ * вычисление заново (для повторного использования есть кэши ответов).
+ *
+ * @param <K> тип ключа (например, нормализованный текст запроса)
+ * @param <V> тип результата
+ */
+public class SingleFlight<K, V> implements MeterBinder {
+
+    private final String name;
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * @param name имя для метрик (тег name)
+     */
+    public SingleFlight(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Выполняет supplier или присоединяется к уже идущему вычислению с тем же ключом
+     */
+    public V execute(K key, Supplier<V> supplier) {
+        CompletableFuture<V> own = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, own);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return await(existing);
+        }
+        try {
+            V value = supplier.get();
+            own.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    /**
+     * Количество вызовов, присоединившихся к чужому вычислению
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    /**
+     * Количество вычислений, выполняющихся прямо сейчас
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("assistant.singleflight.coalesced", this, SingleFlight::getCoalescedCount)
+                .tag("name", name)
+                .description("Запросы, получившие результат чужого вычисления")
+                .register(registry);
+        Gauge.builder("assistant.singleflight.inflight", this, SingleFlight::getInFlightCount)
+                .tag("name", name)
+                .register(registry);
+    }
+
+    private V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package ru.georgdeveloper.assistantcore.llm;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Объединение одновременных одинаковых потоковых генераций.
+ *
+ * То же, что SingleFlight, но для ответов, которые печатаются по частям
+ * (SSE чат): первый вызов с данным ключом (ведущий) выполняет генерацию,
+ * а присоединившиеся получают уже напечатанные фрагменты, затем новые по
+ * мере появления, и тот же итоговый ответ (или то же исключение). Пока
+ * генерация ждёт слот модели, присоединившимся передаётся её позиция в очереди.
+ *
+ * Фрагменты присоединившимся передаются в их собственных потоках, поэтому
+ * медленный или отключившийся клиент не задерживает остальных. Если
+ * отключился клиент ведущего, генерация продолжается для присоединившихся,
+ * а ведущий получает ошибку своего клиента после её завершения; если
+ * присоединившихся нет, генерация прерывается сразу.
+ *
+ * @param <K> тип ключа (например, нормализованный текст запроса)
+ */
+public class StreamingSingleFlight<K> implements MeterBinder {
+
+    /**
+     * Потоковое вычисление: фрагменты передаются в onToken, позиция в очереди - в onQueuePosition
+     */
+    @FunctionalInterface
+    public interface StreamingCall {
+        String run(Consumer<String> onToken, IntConsumer onQueuePosition);
+    }
+
+    private final String name;
+    private final ConcurrentHashMap<K, Flight> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * Состояние генерации; поля, кроме leaderFailure, - под монитором объекта
+     */
+    private static final class Flight {
+        final List<String> tokens = new ArrayList<>();
+        int queuePosition;
+        int followers;
+        boolean done;
+        String result;
+        Throwable failure;
+        // Ошибка клиента ведущего (читается только потоком ведущего)
+        RuntimeException leaderFailure;
+    }
+
+    /**
+     * @param name имя для метрик (тег name)
+     */
+    public StreamingSingleFlight(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Выполняет call или присоединяется к уже идущей генерации с тем же ключом
+     *
+     * @param onQueuePosition получает позицию в очереди к модели, может быть null
+     */
+    public String execute(K key, Consumer<String> onToken, IntConsumer onQueuePosition, StreamingCall call) {
+        Flight own = new Flight();
+        Flight existing = inFlight.putIfAbsent(key, own);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return follow(existing, onToken, onQueuePosition);
+        }
+        try {
+            return lead(own, onToken, onQueuePosition, call);
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    /**
+     * Количество вызовов, присоединившихся к чужой генерации
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    /**
+     * Количество генераций, выполняющихся прямо сейчас
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("assistant.singleflight.coalesced", this, StreamingSingleFlight::getCoalescedCount)
+                .tag("name", name)
+                .description("Запросы, получившие результат чужого вычисления")
+                .register(registry);
+        Gauge.builder("assistant.singleflight.inflight", this, StreamingSingleFlight::getInFlightCount)
+                .tag("name", name)
+                .register(registry);
+    }
+
+    private String lead(Flight flight, Consumer<String> onToken, IntConsumer onQueuePosition, StreamingCall call) {
+        Consumer<String> fanOutTokens = token -> {
+            synchronized (flight) {
+                flight.tokens.add(token);
+                flight.notifyAll();
+            }
+            deliver(flight, () -> onToken.accept(token));
+        };
+        IntConsumer fanOutPositions = position -> {
+            synchronized (flight) {
+                flight.queuePosition = position;
+                flight.notifyAll();
+            }
+            if (onQueuePosition != null) {
+                deliver(flight, () -> onQueuePosition.accept(position));
+            }
+        };
+        String result;
+        try {
+            result = call.run(fanOutTokens, fanOutPositions);
+        } catch (RuntimeException | Error e) {
+            synchronized (flight) {
+                // Отключение клиента ведущего - не ошибка генерации для присоединившихся
+                flight.failure = e == flight.leaderFailure
+                        ? new IllegalStateException("Генерация прервана: клиент, начавший её, отключился") : e;
+                flight.done = true;
+                flight.notifyAll();
+            }
+            throw e;
+        }
+        synchronized (flight) {
+            flight.result = result;
+            flight.done = true;
+            flight.notifyAll();
+        }
+        if (flight.leaderFailure != null) {
+            throw flight.leaderFailure;
+        }
+        return result;
+    }
+
+    /**
+     * Передаёт событие клиенту ведущего; его ошибка прерывает генерацию,
+     * только если её никто больше не ждёт
+     */
+    private static void deliver(Flight flight, Runnable send) {
+        if (flight.leaderFailure == null) {
+            try {
+                send.run();
+            } catch (RuntimeException e) {
+                flight.leaderFailure = e;
+            }
+        }
+        if (flight.leaderFailure != null) {
+            synchronized (flight) {
+                if (flight.followers == 0) {
+                    throw flight.leaderFailure;
+                }
+            }
+        }
+    }
+
+    private static String follow(Flight flight, Consumer<String> onToken, IntConsumer onQueuePosition) {
+        synchronized (flight) {
+            flight.followers++;
+        }
+        try {
+            int delivered = 0;
+            int reportedPosition = 0;
+            while (true) {
+                List<String> pending;
+                int position;
+                boolean finished;
+                synchronized (flight) {
+                    while (!flight.done && delivered == flight.tokens.size()
+                            && flight.queuePosition == reportedPosition) {
+                        flight.wait();
+                    }
+                    pending = new ArrayList<>(flight.tokens.subList(delivered, flight.tokens.size()));
+                    position = flight.queuePosition;
+                    finished = flight.done;
+                }
+                // Позиция в очереди нужна, только пока ответ не начал печататься
+                if (position != reportedPosition && delivered == 0 && pending.isEmpty() && onQueuePosition != null) {
+                    onQueuePosition.accept(position);
+                }
+                reportedPosition = position;
+                for (String token : pending) {
+                    onToken.accept(token);
+                }
+                delivered += pending.size();
+                if (finished) {
+                    return resultOf(flight);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ожидание общей генерации прервано", e);
+        } finally {
+            synchronized (flight) {
+                flight.followers--;
+            }
+        }
+    }
+
+    private static String resultOf(Flight flight) {
+        synchronized (flight) {
+            if (flight.failure instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (flight.failure instanceof Error error) {
+                throw error;
+            }
+            return flight.result;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package ru.georgdeveloper.assistantcore.nlp;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+
+/**
+ * Автомат Ахо-Корасик: находит все вхождения набора фраз за один проход
+ * по тексту, время не зависит от числа фраз.
+ *
+ * Сравнение без учёта регистра: фразы приводятся к нижнему регистру при
+ * построении, символы текста - при просмотре, поэтому вызывающему не нужно
+ * копировать запрос через toLowerCase. Автомат неизменяемый и
+ * потокобезопасный.
+ */
+public final class AhoCorasick {
+
+    /**
+     * Получатель найденных вхождений
+     */
+    @FunctionalInterface
+    public interface MatchListener {
+        /**
+         * @param phrase номер фразы в списке, переданном build
+         * @param start начало вхождения в тексте (включительно)
+         * @param end конец вхождения (не включительно)
+         */
+        void onMatch(int phrase, int start, int end);
+    }
+
+    private static final int[] NO_OUTPUT = new int[0];
+
+    // Переходы узла i: символы edgeChars[edgeStart[i]..edgeStart[i+1]) по возрастанию
+    private final int[] edgeStart;
+    private final char[] edgeChars;
+    private final int[] edgeTargets;
+    // Суффиксная ссылка: узел самого длинного собственного суффикса, который есть в боре
+    private final int[] fail;
+    // Фразы, заканчивающиеся в узле, включая найденные по суффиксным ссылкам
+    private final int[][] outputs;
+    private final int[] phraseLengths;
+
+    private AhoCorasick(int[] edgeStart, char[] edgeChars, int[] edgeTargets, int[] fail,
+                        int[][] outputs, int[] phraseLengths) {
+        this.edgeStart = edgeStart;
+        this.edgeChars = edgeChars;
+        this.edgeTargets = edgeTargets;
+        this.fail = fail;
+        this.outputs = outputs;
+        this.phraseLengths = phraseLengths;
+    }
+
+    /**
+     * Строит автомат. Пустые фразы не находятся никогда, повторяющиеся
+     * сообщаются под каждым своим номером.
+     */
+    public static AhoCorasick build(List<String> phrases) {
+        List<Map<Character, Integer>> children = new ArrayList<>();
+        List<List<Integer>> nodeOutputs = new ArrayList<>();
+        children.add(new TreeMap<>());
+        nodeOutputs.add(new ArrayList<>());
+
+        int[] phraseLengths = new int[phrases.size()];
+        for (int p = 0; p < phrases.size(); p++) {
+            String phrase = phrases.get(p);
+            phraseLengths[p] = phrase.length();
+            if (phrase.isEmpty()) {
+                continue;
+            }
+            int node = 0;
+            for (int i = 0; i < phrase.length(); i++) {
+                char c = Character.toLowerCase(phrase.charAt(i));
+                Integer next = children.get(node).get(c);
+                if (next == null) {
+                    next = children.size();
+                    children.add(new TreeMap<>());
+                    nodeOutputs.add(new ArrayList<>());
+                    children.get(node).put(c, next);
+                }
+                node = next;
+            }
+            nodeOutputs.get(node).add(p);
+        }
+
+        int size = children.size();
+        int[] edgeStart = new int[size + 1];
+        for (int i = 0; i < size; i++) {
+            edgeStart[i + 1] = edgeStart[i] + children.get(i).size();
+        }
+        char[] edgeChars = new char[edgeStart[size]];
+        int[] edgeTargets = new int[edgeStart[size]];
+        for (int i = 0; i < size; i++) {
+            int e = edgeStart[i];
+            for (Map.Entry<Character, Integer> edge : children.get(i).entrySet()) {
+                edgeChars[e] = edge.getKey();
+                edgeTargets[e++] = edge.getValue();
+            }
+        }
+
+        // Суффиксные ссылки обходом в ширину: ссылка узла вычисляется по ссылке родителя
+        int[] fail = new int[size];
+        int[][] outputs = new int[size][];
+        outputs[0] = NO_OUTPUT;
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int e = edgeStart[0]; e < edgeStart[1]; e++) {
+            queue.add(edgeTargets[e]);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            List<Integer> own = nodeOutputs.get(node);
+            int[] inherited = outputs[fail[node]];
+            int[] merged = Arrays.copyOf(inherited, own.size() + inherited.length);
+            for (int i = 0; i < own.size(); i++) {
+                merged[inherited.length + i] = own.get(i);
+            }
+            outputs[node] = merged.length == 0 ? NO_OUTPUT : merged;
+
+            for (int e = edgeStart[node]; e < edgeStart[node + 1]; e++) {
+                int child = edgeTargets[e];
+                int state = fail[node];
+                int target;
+                while ((target = step(edgeStart, edgeChars, edgeTargets, state, edgeChars[e])) < 0 && state != 0) {
+                    state = fail[state];
+                }
+                fail[child] = target < 0 ? 0 : target;
+                queue.add(child);
+            }
+        }
+        return new AhoCorasick(edgeStart, edgeChars, edgeTargets, fail, outputs, phraseLengths);
+    }
+
+    /**
+     * Сообщает все вхождения фраз в порядке их окончания в тексте
+     */
+    public void scan(CharSequence text, MatchListener listener) {
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            int next;
+            while ((next = step(edgeStart, edgeChars, edgeTargets, state, c)) < 0 && state != 0) {
+                state = fail[state];
+            }
+            state = next < 0 ? 0 : next;
+            for (int phrase : outputs[state]) {
+                listener.onMatch(phrase, i + 1 - phraseLengths[phrase], i + 1);
+            }
+        }
+    }
+
+    /**
+     * Число фраз, переданных build
+     */
+    public int size() {
+        return phraseLengths.length;
+    }
+
+    private static int step(int[] edgeStart, char[] edgeChars, int[] edgeTargets, int node, char c) {
+        int index = Arrays.binarySearch(edgeChars, edgeStart[node], edgeStart[node + 1], c);
+        return index < 0 ? -1 : edgeTargets[index];
+    }
+}
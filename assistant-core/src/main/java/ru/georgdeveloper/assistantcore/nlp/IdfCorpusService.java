@@ -0,0 +1,135 @@
+package ru.georgdeveloper.assistantcore.nlp;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.georgdeveloper.assistantcore.repository.BreakdownReportRepository;
+import ru.georgdeveloper.assistantcore.repository.EquipmentMaintenanceRepository;
+import ru.georgdeveloper.assistantcore.repository.SummaryOfSolutionsRepository;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Построение IDF модели для TfidfKeywordExtractorService по корпусу ремонтных
+ * записей: equipment_maintenance_records, Summary_of_solutions и REP_BreakdownReport
+ * (каждая строка - документ из её текстовых колонок).
+ *
+ * Модель сохраняется в nlp.idf.file и загружается при старте, поэтому после
+ * перезапуска IDF доступен сразу. Корпус пересчитывается, если файла нет или он
+ * старше nlp.idf.rebuild-interval (проверка - раз в nlp.idf.check-interval).
+ */
+@Component
+public class IdfCorpusService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdfCorpusService.class);
+
+    private final TfidfKeywordExtractorService keywordExtractor;
+    private final EquipmentMaintenanceRepository equipmentRepo;
+    private final SummaryOfSolutionsRepository summaryRepo;
+    private final BreakdownReportRepository breakdownRepo;
+    private final boolean enabled;
+    private final Path file;
+    private final long rebuildIntervalMs;
+    private final int pageSize;
+
+    public IdfCorpusService(TfidfKeywordExtractorService keywordExtractor,
+                            EquipmentMaintenanceRepository equipmentRepo,
+                            SummaryOfSolutionsRepository summaryRepo,
+                            BreakdownReportRepository breakdownRepo,
+                            @Value("${nlp.idf.enabled:true}") boolean enabled,
+                            @Value("${nlp.idf.file:./data/idf.bin}") String file,
+                            @Value("${nlp.idf.rebuild-interval:24h}") Duration rebuildInterval,
+                            @Value("${search.index.page-size:5000}") int pageSize) {
+        this.keywordExtractor = keywordExtractor;
+        this.equipmentRepo = equipmentRepo;
+        this.summaryRepo = summaryRepo;
+        this.breakdownRepo = breakdownRepo;
+        this.enabled = enabled;
+        this.file = Paths.get(file);
+        this.rebuildIntervalMs = rebuildInterval.toMillis();
+        this.pageSize = Math.max(100, pageSize);
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!enabled || !Files.exists(file)) {
+            return;
+        }
+        try {
+            IdfModel model = IdfModel.load(file);
+            keywordExtractor.setIdfModel(model);
+            logger.info("IDF модель загружена из {}: {} документов, {} основ",
+                    file, model.getDocumentCount(), model.getTermCount());
+        } catch (Exception e) {
+            logger.warn("Не удалось загрузить IDF модель из {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Пересчитывает модель, если её нет или она устарела
+     */
+    @Scheduled(fixedDelayString = "${nlp.idf.check-interval:3600000}", initialDelayString = "${nlp.idf.initial-delay:60000}")
+    public void rebuildIfStale() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (keywordExtractor.getIdfModel() == null || !Files.exists(file)
+                    || System.currentTimeMillis() - Files.getLastModifiedTime(file).toMillis() >= rebuildIntervalMs) {
+                rebuild();
+            }
+        } catch (Exception e) {
+            logger.warn("Не удалось пересчитать IDF модель: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Проходит по всем трём таблицам постранично и сохраняет новую модель
+     */
+    public synchronized IdfModel rebuild() throws Exception {
+        long start = System.currentTimeMillis();
+        IdfModel.Builder builder = new IdfModel.Builder();
+        // Колонки соответствуют запросам findIndexRowsAfterId: ключ, затем служебные поля, затем текст
+        scan(builder, afterId -> equipmentRepo.findIndexRowsAfterId(afterId == null ? 0L : (Long) afterId,
+                PageRequest.of(0, pageSize)), 3);
+        scan(builder, afterId -> summaryRepo.findIndexRowsAfterId(afterId == null ? 0L : (Long) afterId,
+                PageRequest.of(0, pageSize)), 1);
+        scan(builder, afterId -> breakdownRepo.findIndexRowsAfterId(afterId == null ? "" : (String) afterId,
+                PageRequest.of(0, pageSize)), 2);
+
+        IdfModel model = builder.build();
+        model.save(file);
+        keywordExtractor.setIdfModel(model);
+        logger.info("IDF модель пересчитана: {} документов, {} основ за {} мс",
+                model.getDocumentCount(), model.getTermCount(), System.currentTimeMillis() - start);
+        return model;
+    }
+
+    private void scan(IdfModel.Builder builder, Function<Object, List<Object[]>> loadPage, int firstTextColumn) {
+        Object afterId = null;
+        List<Object[]> page;
+        do {
+            page = loadPage.apply(afterId);
+            for (Object[] row : page) {
+                List<String> terms = new ArrayList<>();
+                for (int i = firstTextColumn; i < row.length; i++) {
+                    if (row[i] instanceof String text) {
+                        terms.addAll(keywordExtractor.analyze(text));
+                    }
+                }
+                builder.addDocument(terms);
+                afterId = row[0];
+            }
+        } while (page.size() == pageSize);
+    }
+}
@@ -0,0 +1,106 @@
+package ru.georgdeveloper.assistantcore.nlp;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+/**
+ * Обратная документная частота (IDF) основ слов по корпусу ремонтных записей.
+ *
+ * idf = ln((1 + N) / (1 + df)) + 1, где N - число документов, df - число
+ * документов с основой. Основы, которых нет в корпусе, считаются редкими
+ * (df = 0). Модель неизменяема и сохраняется в двоичный файл.
+ */
+public final class IdfModel {
+
+    private static final int FILE_MAGIC = 0x49444631; // "IDF1"
+    private static final int FILE_VERSION = 1;
+
+    private final Map<String, Integer> documentFrequency;
+    private final int documentCount;
+
+    private IdfModel(Map<String, Integer> documentFrequency, int documentCount) {
+        this.documentFrequency = documentFrequency;
+        this.documentCount = documentCount;
+    }
+
+    public double idf(String term) {
+        int df = documentFrequency.getOrDefault(term, 0);
+        return Math.log((1.0 + documentCount) / (1.0 + df)) + 1.0;
+    }
+
+    public int getDocumentCount() {
+        return documentCount;
+    }
+
+    public int getTermCount() {
+        return documentFrequency.size();
+    }
+
+    /**
+     * Сохраняет модель во временный файл и атомарно заменяет им целевой
+     */
+    public void save(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeInt(documentCount);
+            out.writeInt(documentFrequency.size());
+            for (Map.Entry<String, Integer> entry : documentFrequency.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue());
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static IdfModel load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+                throw new IOException("Неизвестный формат файла IDF: " + file);
+            }
+            int documentCount = in.readInt();
+            int size = in.readInt();
+            Map<String, Integer> documentFrequency = new HashMap<>(size * 4 / 3 + 1);
+            for (int i = 0; i < size; i++) {
+                documentFrequency.put(in.readUTF(), in.readInt());
+            }
+            return new IdfModel(documentFrequency, documentCount);
+        }
+    }
+
+    /**
+     * Накопление статистики по документам корпуса
+     */
+    public static final class Builder {
+        private final Map<String, Integer> documentFrequency = new HashMap<>();
+        private int documentCount = 0;
+
+        /**
+         * Учитывает документ; повторы основ внутри документа не важны
+         */
+        public Builder addDocument(Collection<String> terms) {
+            if (terms.isEmpty()) {
+                return this;
+            }
+            documentCount++;
+            for (String term : new HashSet<>(terms)) {
+                documentFrequency.merge(term, 1, Integer::sum);
+            }
+            return this;
+        }
+
+        public IdfModel build() {
+            return new IdfModel(new HashMap<>(documentFrequency), documentCount);
+        }
+    }
+}
@@ -1,15 +1,22 @@
-
 package ru.georgdeveloper.assistantcore.nlp;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import ru.georgdeveloper.assistantcommon.text.RussianStemmer;
+import ru.georgdeveloper.assistantcommon.text.TextTokenizer;
 
 import java.util.*;
-import java.util.regex.Pattern;
-import java.util.regex.Matcher;
-import java.util.stream.Collectors;
 
 /**
  * Сервис для извлечения ключевых слов и фраз из текста на основе TF-IDF.
- * Для MVP: простая реализация без внешних зависимостей.
+ *
+ * Слова приводятся к основе стеммером RussianStemmer, поэтому "утечки",
+ * "утечка" и "утечку" дают одно ключевое слово "утечк" (и один запрос к БД,
+ * который по подстроке находит все формы). Вес основы - частота в запросе,
+ * умноженная на IDF из корпуса ремонтных записей (IdfModel, строится
+ * IdfCorpusService). Пока модели нет, IDF считается равным 1.
+ *
+ * При nlp.keywords.bigrams=true добавляются фразы из двух соседних значимых
+ * слов ("утечк азот") с весом суммы весов слов.
  */
 @Service
 public class TfidfKeywordExtractorService {
@@ -17,25 +24,86 @@ public class TfidfKeywordExtractorService {
         // Русские стоп-слова (можно расширить)
         "и", "в", "во", "не", "что", "он", "на", "я", "с", "со", "как", "а", "то", "все", "она", "так", "его", "но", "да", "ты", "к", "у", "же", "вы", "за", "бы", "по", "только", "ее", "мне", "было", "вот", "от", "меня", "еще", "нет", "о", "из", "ему", "теперь", "когда", "даже", "ну", "вдруг", "ли", "если", "уже", "или", "ни", "быть", "был", "него", "до", "вас", "нибудь", "опять", "уж", "вам", "ведь", "там", "потом", "себя", "ничего", "ей", "может", "они", "тут", "где", "есть", "надо", "ней", "для", "мы", "тебя", "их", "чем", "была", "сам", "чтоб", "без", "будто", "чего", "раз", "тоже", "себе", "под", "будет", "ж", "тогда", "кто", "этот", "того", "потому", "этого", "какой", "совсем", "ним", "здесь", "этом", "один", "почти", "мой", "тем", "чтобы", "нее", "сейчас", "были", "куда", "зачем", "всех", "никогда", "можно", "при", "наконец", "два", "об", "другой", "хоть", "после", "над", "больше", "тот", "через", "эти", "нас", "про", "всего", "них", "какая", "много", "разве", "три", "эту", "моя", "впрочем", "хорошо", "свою", "этой", "перед", "иногда", "лучше", "чуть", "том", "нельзя", "такой", "им", "более", "всегда", "конечно", "всю", "между"
     ));
-    private static final Pattern WORD_PATTERN = Pattern.compile("[а-яА-Яa-zA-Z0-9-]+", Pattern.UNICODE_CHARACTER_CLASS);
+    private static final int MIN_WORD_LENGTH = 3;
+
+    private final boolean bigrams;
+    private volatile IdfModel idfModel;
+
+    public TfidfKeywordExtractorService(@Value("${nlp.keywords.bigrams:false}") boolean bigrams) {
+        this.bigrams = bigrams;
+    }
+
+    public void setIdfModel(IdfModel idfModel) {
+        this.idfModel = idfModel;
+    }
+
+    public IdfModel getIdfModel() {
+        return idfModel;
+    }
+
+    /**
+     * Основы значимых слов текста (без стоп-слов и коротких слов) в порядке появления
+     */
+    public List<String> analyze(String text) {
+        List<String> terms = new ArrayList<>();
+        TextTokenizer.tokenize(text, word -> {
+            if (isSignificant(word)) {
+                terms.add(term(word));
+            }
+        });
+        return terms;
+    }
 
     /**
-     * Извлекает топ-N ключевых слов из текста на основе частоты (TF).
-     * Для MVP: без IDF, только TF и фильтрация стоп-слов.
+     * Извлекает топ-N ключевых слов (основ) и, если включено, фраз из двух слов по весу TF-IDF
      */
     public List<String> extractKeywords(String text, int topN) {
         if (text == null || text.isBlank()) return Collections.emptyList();
-        Map<String, Integer> freq = new HashMap<>();
-        Matcher matcher = WORD_PATTERN.matcher(text.toLowerCase());
-        while (matcher.find()) {
-            String word = matcher.group();
-            if (word.length() < 3 || STOPWORDS.contains(word)) continue;
-            freq.put(word, freq.getOrDefault(word, 0) + 1);
+        // Порядок вставки сохраняется, чтобы при равном весе раньше шли слова из начала запроса
+        Map<String, Integer> termFreq = new LinkedHashMap<>();
+        Map<String, Integer> phraseFreq = new LinkedHashMap<>();
+        String[] previous = {null};
+        TextTokenizer.tokenize(text, word -> {
+            if (!isSignificant(word)) {
+                previous[0] = null;
+                return;
+            }
+            String term = term(word);
+            termFreq.merge(term, 1, Integer::sum);
+            if (bigrams && previous[0] != null && !previous[0].equals(term)) {
+                phraseFreq.merge(previous[0] + " " + term, 1, Integer::sum);
+            }
+            previous[0] = term;
+        });
+
+        IdfModel idf = idfModel;
+        Map<String, Double> weights = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> entry : termFreq.entrySet()) {
+            weights.put(entry.getKey(), entry.getValue() * (idf != null ? idf.idf(entry.getKey()) : 1.0));
+        }
+        for (Map.Entry<String, Integer> entry : phraseFreq.entrySet()) {
+            String[] parts = entry.getKey().split(" ");
+            weights.put(entry.getKey(), entry.getValue() * (weights.get(parts[0]) + weights.get(parts[1])));
         }
-        return freq.entrySet().stream()
-                .sorted((a, b) -> b.getValue() - a.getValue())
-                .limit(topN)
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
+
+        List<Map.Entry<String, Double>> ranked = new ArrayList<>(weights.entrySet());
+        ranked.sort((a, b) -> Double.compare(b.getValue(), a.getValue()));
+        List<String> keywords = new ArrayList<>(Math.min(topN, ranked.size()));
+        for (int i = 0; i < ranked.size() && i < topN; i++) {
+            keywords.add(ranked.get(i).getKey());
+        }
+        return keywords;
+    }
+
+    private static boolean isSignificant(String word) {
+        return word.length() >= MIN_WORD_LENGTH && !STOPWORDS.contains(word);
+    }
+
+    /**
+     * Основа слова; слишком короткая основа заменяется самим словом, чтобы поиск по подстроке оставался точным
+     */
+    private static String term(String word) {
+        String stem = RussianStemmer.stem(word);
+        return stem.length() >= MIN_WORD_LENGTH ? stem : word;
     }
 }
@@ -1,7 +1,9 @@
 package ru.georgdeveloper.assistantcore.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.georgdeveloper.assistantcore.model.BreakdownReport;
@@ -11,6 +13,7 @@ import java.util.List;
 @Repository
 public interface BreakdownReportRepository extends JpaRepository<BreakdownReport, String> {
     /** Универсальный поиск по ключевому слову */
+    @QueryHints(@QueryHint(name = SearchQueryHints.TIMEOUT, value = SearchQueryHints.TIMEOUT_MS))
     @Query("SELECT b FROM BreakdownReport b WHERE " +
         "LOWER(b.machineName) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
         "LOWER(b.assembly) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
@@ -19,6 +22,11 @@ public interface BreakdownReportRepository extends JpaRepository<BreakdownReport
         "ORDER BY b.duration DESC")
     List<BreakdownReport> findByKeyword(@Param("keyword") String keyword, Pageable pageable);
     
+    /** Поля для индекса ключевых слов: постраничная загрузка по возрастанию IDCode */
+    @Query("SELECT b.idCode, b.duration, b.machineName, b.assembly, b.comment, b.woStatusLocalDescr " +
+        "FROM BreakdownReport b WHERE b.idCode > :afterId ORDER BY b.idCode")
+    List<Object[]> findIndexRowsAfterId(@Param("afterId") String afterId, Pageable pageable);
+    
     List<BreakdownReport> findByWoStatusLocalDescr(String status);
     
     @Query("SELECT b FROM BreakdownReport b ORDER BY b.duration DESC")
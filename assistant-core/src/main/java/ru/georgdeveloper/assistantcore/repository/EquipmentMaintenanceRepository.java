@@ -1,7 +1,9 @@
 package ru.georgdeveloper.assistantcore.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.georgdeveloper.assistantcore.model.EquipmentMaintenanceRecord;
@@ -71,15 +73,31 @@ public interface EquipmentMaintenanceRepository extends JpaRepository<EquipmentM
     @Query("SELECT e FROM EquipmentMaintenanceRecord e WHERE e.date BETWEEN :startDate AND :endDate ORDER BY e.startBdT1 DESC")
     List<EquipmentMaintenanceRecord> findByDateRange(@Param("startDate") String startDate, @Param("endDate") String endDate, Pageable pageable);
     
+    /** Версия данных: количество записей, максимальный id и время последней вставки */
+    @Query("SELECT COUNT(e), MAX(e.id), MAX(e.createdAt) FROM EquipmentMaintenanceRecord e")
+    List<Object[]> getDataVersionStamp();
+    
     /** Получение новых записей для переобучения */
     @Query("SELECT e FROM EquipmentMaintenanceRecord e WHERE e.createdAt > :since ORDER BY e.createdAt DESC")
     List<EquipmentMaintenanceRecord> findNewRecordsSince(@Param("since") java.time.LocalDateTime since, Pageable pageable);
     
+    /** Поля для индекса ключевых слов: постраничная загрузка по возрастанию id */
+    @Query("SELECT e.id, e.createdAt, e.startBdT1, e.description, e.comments, e.machineName, e.cause " +
+           "FROM EquipmentMaintenanceRecord e WHERE e.id > :afterId ORDER BY e.id")
+    List<Object[]> findIndexRowsAfterId(@Param("afterId") Long afterId, Pageable pageable);
+    
+    /** Поля для индекса ключевых слов: записи, созданные после отметки (createdAt, id) */
+    @Query("SELECT e.id, e.createdAt, e.startBdT1, e.description, e.comments, e.machineName, e.cause " +
+           "FROM EquipmentMaintenanceRecord e WHERE e.createdAt > :since OR (e.createdAt = :since AND e.id > :afterId) " +
+           "ORDER BY e.createdAt, e.id")
+    List<Object[]> findIndexRowsCreatedAfter(@Param("since") java.time.LocalDateTime since, @Param("afterId") Long afterId, Pageable pageable);
+    
     /** Поиск по типу неисправности */
     @Query("SELECT e FROM EquipmentMaintenanceRecord e WHERE e.failureType = :failureType ORDER BY e.startBdT1 DESC")
     List<EquipmentMaintenanceRecord> findByFailureType(@Param("failureType") String failureType, Pageable pageable);
     
     /** Универсальный поиск по ключевому слову */
+    @QueryHints(@QueryHint(name = SearchQueryHints.TIMEOUT, value = SearchQueryHints.TIMEOUT_MS))
     @Query("SELECT e FROM EquipmentMaintenanceRecord e WHERE " +
            "LOWER(e.description) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
            "LOWER(e.comments) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
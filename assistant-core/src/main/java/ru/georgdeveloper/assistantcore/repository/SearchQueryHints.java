@@ -0,0 +1,39 @@
+package ru.georgdeveloper.assistantcore.repository;
+
+import java.time.Duration;
+
+/**
+ * Подсказки JPA для запросов поиска по ключевым словам (DatabaseSearchService).
+ *
+ * Таймаут выполнения передаётся драйверу (Statement.setQueryTimeout), и запрос,
+ * не успевший к сроку поиска, прерывается на стороне MySQL - поток пула поиска
+ * и соединение Hikari освобождаются, а не ждут конца LIKE по всей таблице.
+ *
+ * Значение аннотации может быть только константой, поэтому search.deadline
+ * не может задать его сам: при старте DatabaseSearchService сверяет их
+ * (requireMatchingDeadline), и расхождение останавливает запуск, а не
+ * оставляет таймаут SQL молча отличаться от срока поиска.
+ */
+public final class SearchQueryHints {
+
+    public static final String TIMEOUT = "jakarta.persistence.query.timeout";
+    // Миллисекунды; должно совпадать с search.deadline
+    public static final String TIMEOUT_MS = "3000";
+
+    private SearchQueryHints() {
+    }
+
+    /**
+     * Проверяет, что таймаут SQL поиска равен сроку поиска
+     *
+     * @throws IllegalStateException если search.deadline изменён без TIMEOUT_MS
+     */
+    public static void requireMatchingDeadline(Duration deadline) {
+        long timeoutMs = Long.parseLong(TIMEOUT_MS);
+        if (deadline.toMillis() != timeoutMs) {
+            throw new IllegalStateException("search.deadline = " + deadline.toMillis()
+                    + " мс не совпадает с таймаутом SQL поиска SearchQueryHints.TIMEOUT_MS = " + timeoutMs
+                    + " мс: измените оба значения");
+        }
+    }
+}
@@ -1,21 +1,30 @@
 package ru.georgdeveloper.assistantcore.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import org.springframework.data.jpa.repository.Modifying;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 import ru.georgdeveloper.assistantcore.model.SummaryOfSolutions;
 
 public interface SummaryOfSolutionsRepository extends JpaRepository<SummaryOfSolutions, Long> {
+    @QueryHints(@QueryHint(name = SearchQueryHints.TIMEOUT, value = SearchQueryHints.TIMEOUT_MS))
     @Query("SELECT s FROM SummaryOfSolutions s WHERE " +
 	    "LOWER(s.notes_on_the_operation_of_the_equipment) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
 	    "LOWER(s.measures_taken) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
 	    "LOWER(s.comments) LIKE LOWER(CONCAT('%', :keyword, '%'))")
     List<SummaryOfSolutions> searchByKeyword(@Param("keyword") String keyword);
 
+    /** Поля для индекса ключевых слов: постраничная загрузка по возрастанию id */
+    @Query("SELECT s.id, s.equipment, s.node, s.notes_on_the_operation_of_the_equipment, s.measures_taken, s.comments " +
+	    "FROM SummaryOfSolutions s WHERE s.id > :afterId ORDER BY s.id")
+    List<Object[]> findIndexRowsAfterId(@Param("afterId") Long afterId, Pageable pageable);
+
     @Modifying
     @Transactional
     @Query("UPDATE SummaryOfSolutions SET date = :date, executor = :executor, region = :region, equipment = :equipment, node = :node, notes_on_the_operation_of_the_equipment = :notes_on_the_operation_of_the_equipment, measures_taken = :measures_taken, comments = :comments WHERE id = :id")
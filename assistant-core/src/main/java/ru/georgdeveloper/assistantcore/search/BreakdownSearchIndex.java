@@ -0,0 +1,53 @@
+package ru.georgdeveloper.assistantcore.search;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import ru.georgdeveloper.assistantcore.repository.BreakdownReportRepository;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Индекс ключевых слов по REP_BreakdownReport: машина, узел, комментарий и статус.
+ * Новые строки догружаются по возрастанию IDCode; при равной оценке выше
+ * более продолжительные простои (как ORDER BY Duration DESC в findByKeyword).
+ */
+@Component
+public class BreakdownSearchIndex extends TableSearchIndex<String> {
+
+    private final BreakdownReportRepository repository;
+
+    public BreakdownSearchIndex(BreakdownReportRepository repository,
+                                ObjectProvider<MeterRegistry> meterRegistry,
+                                @Value("${search.index.enabled:true}") boolean enabled,
+                                @Value("${search.index.page-size:5000}") int pageSize,
+                                @Value("${search.index.rebuild-interval:24h}") Duration rebuildInterval,
+                                @Value("${search.index.dir:./data/index}") String snapshotDir,
+                                @Value("${search.index.snapshot-interval:1h}") Duration snapshotInterval) {
+        super("breakdown_report", meterRegistry, enabled, pageSize, rebuildInterval,
+                snapshotDir, snapshotInterval);
+        this.repository = repository;
+    }
+
+    @Override
+    protected InvertedIndex.KeyCodec<String> keyCodec() {
+        return InvertedIndex.KeyCodec.STRING;
+    }
+
+    @Override
+    protected List<Object[]> loadPage(String afterKey, int pageSize) {
+        return repository.findIndexRowsAfterId(afterKey == null ? "" : afterKey, PageRequest.of(0, pageSize));
+    }
+
+    @Override
+    protected String addRow(InvertedIndex<String> target, Object[] row) {
+        String idCode = (String) row[0];
+        Integer duration = (Integer) row[1];
+        target.add(idCode, duration != null ? duration : Long.MIN_VALUE,
+                (String) row[2], (String) row[3], (String) row[4], (String) row[5]);
+        return idCode;
+    }
+}
@@ -0,0 +1,120 @@
+package ru.georgdeveloper.assistantcore.search;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import ru.georgdeveloper.assistantcore.repository.EquipmentMaintenanceRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Индекс ключевых слов по equipment_maintenance_records.
+ *
+ * Запрос findByKeyword с LOWER(col) LIKE '%kw%' по четырём колонкам - полный
+ * просмотр таблицы, время которого растёт вместе с историей ремонтов. Индекс
+ * держит в памяти токены description, comments, machine_name и cause; строки
+ * затем читаются из БД по первичному ключу.
+ *
+ * Новые записи догружаются по created_at (отметка created_at + id последней
+ * проиндексированной записи); отметка хранится в снимке, поэтому после
+ * перезапуска догружаются записи, созданные после снимка. При равной оценке выше более поздние по start_bd_t1.
+ */
+@Component
+public class EquipmentSearchIndex extends TableSearchIndex<Long> {
+
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final EquipmentMaintenanceRepository repository;
+
+    // Отметка последней проиндексированной записи для инкрементального обновления
+    private LocalDateTime lastCreatedAt = EPOCH;
+    private long lastCreatedId;
+
+    public EquipmentSearchIndex(EquipmentMaintenanceRepository repository,
+                                ObjectProvider<MeterRegistry> meterRegistry,
+                                @Value("${search.index.enabled:true}") boolean enabled,
+                                @Value("${search.index.page-size:5000}") int pageSize,
+                                @Value("${search.index.rebuild-interval:24h}") Duration rebuildInterval,
+                                @Value("${search.index.dir:./data/index}") String snapshotDir,
+                                @Value("${search.index.snapshot-interval:1h}") Duration snapshotInterval) {
+        super("equipment_maintenance_records", meterRegistry, enabled, pageSize, rebuildInterval,
+                snapshotDir, snapshotInterval);
+        this.repository = repository;
+    }
+
+    @Override
+    protected InvertedIndex.KeyCodec<Long> keyCodec() {
+        return InvertedIndex.KeyCodec.LONG;
+    }
+
+    @Override
+    protected List<Object[]> loadPage(Long afterKey, int pageSize) {
+        return repository.findIndexRowsAfterId(afterKey == null ? 0L : afterKey, PageRequest.of(0, pageSize));
+    }
+
+    @Override
+    protected Long addRow(InvertedIndex<Long> target, Object[] row) {
+        long id = ((Number) row[0]).longValue();
+        LocalDateTime startBdT1 = (LocalDateTime) row[2];
+        // Записи без времени начала - в конце, как NULL при ORDER BY ... DESC в MySQL
+        long sortKey = startBdT1 != null ? startBdT1.toEpochSecond(ZoneOffset.UTC) : Long.MIN_VALUE;
+        target.add(id, sortKey, (String) row[3], (String) row[4], (String) row[5], (String) row[6]);
+        return id;
+    }
+
+    @Override
+    protected void beforeRebuild() {
+        lastCreatedAt = EPOCH;
+        lastCreatedId = 0;
+    }
+
+    @Override
+    protected long[] snapshotState() {
+        return new long[] {lastCreatedAt.toEpochSecond(ZoneOffset.UTC), lastCreatedAt.getNano(), lastCreatedId};
+    }
+
+    @Override
+    protected void restoreState(long[] state) {
+        lastCreatedAt = LocalDateTime.ofEpochSecond(state[0], (int) state[1], ZoneOffset.UTC);
+        lastCreatedId = state[2];
+    }
+
+    @Override
+    protected void onRowLoaded(Object[] row) {
+        LocalDateTime createdAt = (LocalDateTime) row[1];
+        long id = ((Number) row[0]).longValue();
+        if (createdAt != null && (createdAt.isAfter(lastCreatedAt)
+                || (createdAt.isEqual(lastCreatedAt) && id > lastCreatedId))) {
+            lastCreatedAt = createdAt;
+            lastCreatedId = id;
+        }
+    }
+
+    /**
+     * Догружает записи, созданные после последней проиндексированной
+     */
+    @Override
+    protected int appendNewRows(InvertedIndex<Long> current) {
+        int added = 0;
+        List<Object[]> page;
+        do {
+            page = repository.findIndexRowsCreatedAfter(lastCreatedAt, lastCreatedId, PageRequest.of(0, pageSize));
+            for (Object[] row : page) {
+                long id = ((Number) row[0]).longValue();
+                // Запись могла попасть в индекс при полной сборке, если вставлялась во время неё
+                if (!current.contains(id)) {
+                    addRow(current, row);
+                    added++;
+                }
+                lastCreatedAt = (LocalDateTime) row[1];
+                lastCreatedId = id;
+            }
+        } while (page.size() == pageSize);
+        return added;
+    }
+}
@@ -0,0 +1,385 @@
+package ru.georgdeveloper.assistantcore.search;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Индекс приближённого поиска ближайших векторов HNSW
+ * (Hierarchical Navigable Small World, Malkov &amp; Yashunin).
+ *
+ * Векторы должны быть нормированы по L2: сходство - скалярное произведение
+ * (косинус). Узлы образуют многоуровневый граф: верхние уровни разрежены и
+ * позволяют быстро добраться до нужной области, на нулевом уровне идёт
+ * поиск с очередью размера efSearch. Время поиска растёт логарифмически
+ * от числа векторов, поэтому на сотнях тысяч записей остаётся в пределах
+ * единиц миллисекунд.
+ *
+ * Поддерживается добавление по одному вектору (без пересборки) и сохранение
+ * в двоичный файл вместе с именем модели эмбеддингов. Один писатель и много
+ * читателей: добавление под write lock, поиск под read lock.
+ */
+public class HnswIndex {
+
+    private static final int FILE_MAGIC = 0x484e5357; // "HNSW"
+    private static final int FILE_VERSION = 1;
+
+    private final String model;
+    private final int dimensions;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Random random;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private long[] ids = new long[256];
+    private float[][] vectors = new float[256][];
+    // links[node][level] - соседи узла на уровне
+    private int[][][] links = new int[256][][];
+    private int size = 0;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+    private long maxId = Long.MIN_VALUE;
+
+    /**
+     * Найденный сосед и его косинусное сходство с запросом
+     */
+    public record Neighbor(long id, double similarity) {}
+
+    /**
+     * @param model имя модели эмбеддингов (векторы разных моделей несравнимы)
+     * @param dimensions размерность векторов
+     * @param m число связей узла на уровнях выше нулевого (на нулевом - 2m)
+     * @param efConstruction размер очереди кандидатов при вставке
+     */
+    public HnswIndex(String model, int dimensions, int m, int efConstruction) {
+        this.model = model;
+        this.dimensions = dimensions;
+        this.m = Math.max(2, m);
+        this.maxM0 = this.m * 2;
+        this.efConstruction = Math.max(this.m, efConstruction);
+        this.levelMultiplier = 1.0 / Math.log(this.m);
+        this.random = new Random(42);
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Наибольший добавленный id (Long.MIN_VALUE для пустого индекса)
+     */
+    public long getMaxId() {
+        lock.readLock().lock();
+        try {
+            return maxId;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Добавляет нормированный вектор
+     */
+    public void add(long id, float[] vector) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("Размерность вектора " + vector.length + ", ожидается " + dimensions);
+        }
+        lock.writeLock().lock();
+        try {
+            int level = (int) (-Math.log(1.0 - random.nextDouble()) * levelMultiplier);
+            int node = allocate(id, vector, level);
+            if (entryPoint < 0) {
+                entryPoint = node;
+                maxLevel = level;
+                return;
+            }
+
+            int current = entryPoint;
+            for (int lc = maxLevel; lc > level; lc--) {
+                current = greedyClosest(vector, current, lc);
+            }
+            List<Integer> entryPoints = List.of(current);
+            for (int lc = Math.min(level, maxLevel); lc >= 0; lc--) {
+                PriorityQueue<Candidate> found = searchLayer(vector, entryPoints, efConstruction, lc);
+                List<Candidate> sorted = descending(found);
+                int[] neighbors = selectNeighbors(sorted, m);
+                links[node][lc] = neighbors;
+                for (int neighbor : neighbors) {
+                    connect(neighbor, node, lc);
+                }
+                entryPoints = new ArrayList<>(sorted.size());
+                for (Candidate candidate : sorted) {
+                    entryPoints.add(candidate.node);
+                }
+            }
+            if (level > maxLevel) {
+                maxLevel = level;
+                entryPoint = node;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * k ближайших векторов по убыванию сходства
+     *
+     * @param efSearch размер очереди кандидатов (больше - точнее и медленнее), не меньше k
+     */
+    public List<Neighbor> search(float[] query, int k, int efSearch) {
+        if (query.length != dimensions || k <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0) {
+                return List.of();
+            }
+            int current = entryPoint;
+            for (int lc = maxLevel; lc > 0; lc--) {
+                current = greedyClosest(query, current, lc);
+            }
+            List<Candidate> sorted = descending(searchLayer(query, List.of(current), Math.max(k, efSearch), 0));
+            List<Neighbor> result = new ArrayList<>(Math.min(k, sorted.size()));
+            for (int i = 0; i < sorted.size() && i < k; i++) {
+                result.add(new Neighbor(ids[sorted.get(i).node], sorted.get(i).similarity));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private record Candidate(int node, double similarity) {}
+
+    private int allocate(long id, float[] vector, int level) {
+        if (size == ids.length) {
+            int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            vectors = Arrays.copyOf(vectors, capacity);
+            links = Arrays.copyOf(links, capacity);
+        }
+        int node = size++;
+        ids[node] = id;
+        vectors[node] = vector;
+        links[node] = new int[level + 1][];
+        for (int lc = 0; lc <= level; lc++) {
+            links[node][lc] = new int[0];
+        }
+        maxId = Math.max(maxId, id);
+        return node;
+    }
+
+    private int greedyClosest(float[] query, int start, int level) {
+        int current = start;
+        double best = similarity(query, vectors[current]);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int neighbor : links[current][level]) {
+                double s = similarity(query, vectors[neighbor]);
+                if (s > best) {
+                    best = s;
+                    current = neighbor;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Поиск на уровне: возвращает до ef лучших узлов (в вершине кучи - худший из них)
+     */
+    private PriorityQueue<Candidate> searchLayer(float[] query, List<Integer> entryPoints, int ef, int level) {
+        BitSet visited = new BitSet(size);
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(
+                Comparator.comparingDouble(Candidate::similarity).reversed());
+        PriorityQueue<Candidate> found = new PriorityQueue<>(Comparator.comparingDouble(Candidate::similarity));
+        for (int ep : entryPoints) {
+            if (!visited.get(ep)) {
+                visited.set(ep);
+                Candidate c = new Candidate(ep, similarity(query, vectors[ep]));
+                candidates.add(c);
+                found.add(c);
+            }
+        }
+        while (found.size() > ef) {
+            found.poll();
+        }
+        while (!candidates.isEmpty()) {
+            Candidate closest = candidates.poll();
+            if (found.size() >= ef && closest.similarity < found.peek().similarity) {
+                break;
+            }
+            int[][] nodeLinks = links[closest.node];
+            if (level >= nodeLinks.length) {
+                continue;
+            }
+            for (int neighbor : nodeLinks[level]) {
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visited.set(neighbor);
+                double s = similarity(query, vectors[neighbor]);
+                if (found.size() < ef || s > found.peek().similarity) {
+                    Candidate c = new Candidate(neighbor, s);
+                    candidates.add(c);
+                    found.add(c);
+                    if (found.size() > ef) {
+                        found.poll();
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Эвристика выбора соседей: кандидат берётся, только если он ближе к
+     * вставляемому узлу, чем к уже выбранным соседям. Так связи расходятся
+     * в разные стороны и граф остаётся связным на кластеризованных данных.
+     */
+    private int[] selectNeighbors(List<Candidate> sortedDescending, int limit) {
+        List<Integer> selected = new ArrayList<>(limit);
+        List<Integer> skipped = new ArrayList<>();
+        for (Candidate candidate : sortedDescending) {
+            if (selected.size() >= limit) {
+                break;
+            }
+            boolean diverse = true;
+            for (int chosen : selected) {
+                if (similarity(vectors[candidate.node], vectors[chosen]) > candidate.similarity) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected.add(candidate.node);
+            } else {
+                skipped.add(candidate.node);
+            }
+        }
+        // Оставшиеся места добираются отброшенными кандидатами
+        for (int i = 0; i < skipped.size() && selected.size() < limit; i++) {
+            selected.add(skipped.get(i));
+        }
+        int[] result = new int[selected.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = selected.get(i);
+        }
+        return result;
+    }
+
+    private void connect(int node, int newNeighbor, int level) {
+        int[] current = links[node][level];
+        int limit = level == 0 ? maxM0 : m;
+        int[] extended = Arrays.copyOf(current, current.length + 1);
+        extended[current.length] = newNeighbor;
+        if (extended.length <= limit) {
+            links[node][level] = extended;
+            return;
+        }
+        // Переполнение: заново выбираем лучших соседей узла
+        List<Candidate> candidates = new ArrayList<>(extended.length);
+        for (int neighbor : extended) {
+            candidates.add(new Candidate(neighbor, similarity(vectors[node], vectors[neighbor])));
+        }
+        candidates.sort(Comparator.comparingDouble(Candidate::similarity).reversed());
+        links[node][level] = selectNeighbors(candidates, limit);
+    }
+
+    private static List<Candidate> descending(PriorityQueue<Candidate> heap) {
+        List<Candidate> sorted = new ArrayList<>(heap);
+        sorted.sort(Comparator.comparingDouble(Candidate::similarity).reversed());
+        return sorted;
+    }
+
+    private static double similarity(float[] a, float[] b) {
+        double dot = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+        }
+        return dot;
+    }
+
+    /**
+     * Сохраняет индекс во временный файл и атомарно заменяет им целевой
+     */
+    public void save(Path file) throws IOException {
+        lock.readLock().lock();
+        try {
+            Snapshots.write(file, out -> {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(FILE_VERSION);
+                out.writeUTF(model);
+                out.writeInt(dimensions);
+                out.writeInt(m);
+                out.writeInt(efConstruction);
+                out.writeInt(size);
+                out.writeInt(entryPoint);
+                out.writeInt(maxLevel);
+                for (int node = 0; node < size; node++) {
+                    out.writeLong(ids[node]);
+                    for (float v : vectors[node]) {
+                        out.writeFloat(v);
+                    }
+                    out.writeInt(links[node].length);
+                    for (int[] levelLinks : links[node]) {
+                        out.writeInt(levelLinks.length);
+                        Snapshots.writeInts(out, levelLinks, levelLinks.length);
+                    }
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Загружает индекс через отображение файла в память (векторы и связи читаются блоками)
+     */
+    public static HnswIndex load(Path file) throws IOException {
+        return Snapshots.read(file, in -> {
+            if (in.getInt() != FILE_MAGIC || in.getInt() != FILE_VERSION) {
+                throw new IOException("Неизвестный формат файла HNSW: " + file);
+            }
+            HnswIndex index = new HnswIndex(Snapshots.readUtf(in), in.getInt(), in.getInt(), in.getInt());
+            int size = in.getInt();
+            int capacity = Math.max(256, size);
+            index.ids = new long[capacity];
+            index.vectors = new float[capacity][];
+            index.links = new int[capacity][][];
+            index.entryPoint = in.getInt();
+            index.maxLevel = in.getInt();
+            for (int node = 0; node < size; node++) {
+                index.ids[node] = in.getLong();
+                index.maxId = Math.max(index.maxId, index.ids[node]);
+                index.vectors[node] = Snapshots.readFloats(in, index.dimensions);
+                int levels = in.getInt();
+                index.links[node] = new int[levels][];
+                for (int lc = 0; lc < levels; lc++) {
+                    index.links[node][lc] = Snapshots.readInts(in, in.getInt());
+                }
+            }
+            index.size = size;
+            return index;
+        });
+    }
+}
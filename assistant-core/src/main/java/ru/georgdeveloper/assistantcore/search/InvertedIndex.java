@@ -0,0 +1,419 @@
+package ru.georgdeveloper.assistantcore.search;
+
+import ru.georgdeveloper.assistantcommon.text.TextTokenizer;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Инвертированный индекс: токен -> список документов, в которых он встречается,
+ * с частотой токена в документе и длиной документа для ранжирования BM25.
+ *
+ * Документы получают внутренние порядковые номера (ordinal) в порядке
+ * добавления, поэтому списки документов отсортированы и хранятся как int[].
+ * Для каждого документа хранится внешний ключ (первичный ключ строки) и ключ
+ * сортировки (например, время начала простоя), которым разрешаются равные оценки.
+ *
+ * Словарь отсортирован, поэтому ключевое слово ищется по префиксу токена:
+ * "подшипник" находит "подшипника" и "подшипников". Ключевое слово из
+ * нескольких токенов ("vmi-apex") требует совпадения всех токенов.
+ *
+ * Один писатель и много читателей: добавление под write lock, поиск под read lock.
+ * Индекс записывается в снимок (writeTo) и восстанавливается из него (readFrom)
+ * без повторной токенизации строк.
+ */
+public class InvertedIndex<K extends Comparable<? super K>> {
+
+    // Короткие ключевые слова ищутся только точно, иначе префикс "на" захватит пол словаря
+    static final int MIN_PREFIX_LENGTH = 3;
+
+    // Стандартные параметры BM25: насыщение частоты и нормализация по длине
+    static final double K1 = 1.2;
+    static final double B = 0.75;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private Object[] keys = new Object[1024];
+    private long[] sortKeys = new long[1024];
+    private int[] lengths = new int[1024];
+    private int size = 0;
+    private long totalLength = 0;
+    private boolean keysAscending = true;
+
+    /**
+     * Документ с оценкой релевантности
+     */
+    public record Scored<K>(K key, double score) {}
+
+    /**
+     * Запись и чтение внешних ключей в снимке
+     */
+    public interface KeyCodec<K> {
+        void write(DataOutputStream out, K key) throws IOException;
+
+        K read(ByteBuffer in);
+
+        KeyCodec<Long> LONG = new KeyCodec<>() {
+            @Override
+            public void write(DataOutputStream out, Long key) throws IOException {
+                out.writeLong(key);
+            }
+
+            @Override
+            public Long read(ByteBuffer in) {
+                return in.getLong();
+            }
+        };
+
+        KeyCodec<String> STRING = new KeyCodec<>() {
+            @Override
+            public void write(DataOutputStream out, String key) throws IOException {
+                out.writeUTF(key);
+            }
+
+            @Override
+            public String read(ByteBuffer in) {
+                return Snapshots.readUtf(in);
+            }
+        };
+    }
+
+    /**
+     * Список документов одного токена с частотами
+     */
+    private static final class Postings {
+        int[] docs = new int[4];
+        int[] freqs = new int[4];
+        int size = 0;
+
+        Postings() {
+        }
+
+        Postings(int[] docs, int[] freqs) {
+            this.docs = docs;
+            this.freqs = freqs;
+            this.size = docs.length;
+        }
+
+        void add(int doc) {
+            if (size > 0 && docs[size - 1] == doc) {
+                freqs[size - 1]++;
+                return;
+            }
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = doc;
+            freqs[size] = 1;
+            size++;
+        }
+    }
+
+    /**
+     * Добавляет документ.
+     *
+     * @param key внешний ключ (первичный ключ строки)
+     * @param sortKey ключ сортировки при равной оценке, больше - выше в выдаче
+     * @param fields индексируемые текстовые поля (null пропускаются)
+     */
+    @SuppressWarnings("unchecked")
+    public void add(K key, long sortKey, String... fields) {
+        lock.writeLock().lock();
+        try {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                sortKeys = Arrays.copyOf(sortKeys, size * 2);
+                lengths = Arrays.copyOf(lengths, size * 2);
+            }
+            if (size > 0 && key.compareTo((K) keys[size - 1]) <= 0) {
+                keysAscending = false;
+            }
+            int doc = size++;
+            keys[doc] = key;
+            sortKeys[doc] = sortKey;
+            int[] length = {0};
+            for (String field : fields) {
+                TextTokenizer.tokenize(field, token -> {
+                    terms.computeIfAbsent(token, t -> new Postings()).add(doc);
+                    length[0]++;
+                });
+            }
+            lengths[doc] = length[0];
+            totalLength += length[0];
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean contains(K key) {
+        lock.readLock().lock();
+        try {
+            if (keysAscending) {
+                return Arrays.binarySearch(keys, 0, size, key) >= 0;
+            }
+            for (int i = 0; i < size; i++) {
+                if (keys[i].equals(key)) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Записывает индекс в снимок: документы (ключи, ключи сортировки, длины)
+     * и словарь в порядке токенов со списками документов и частот
+     */
+    @SuppressWarnings("unchecked")
+    public void writeTo(DataOutputStream out, KeyCodec<K> codec) throws IOException {
+        lock.readLock().lock();
+        try {
+            out.writeInt(size);
+            out.writeLong(totalLength);
+            out.writeBoolean(keysAscending);
+            for (int doc = 0; doc < size; doc++) {
+                codec.write(out, (K) keys[doc]);
+            }
+            for (int doc = 0; doc < size; doc++) {
+                out.writeLong(sortKeys[doc]);
+            }
+            Snapshots.writeInts(out, lengths, size);
+            out.writeInt(terms.size());
+            for (Map.Entry<String, Postings> entry : terms.entrySet()) {
+                Postings postings = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeInt(postings.size);
+                Snapshots.writeInts(out, postings.docs, postings.size);
+                Snapshots.writeInts(out, postings.freqs, postings.size);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Восстанавливает индекс из снимка, записанного writeTo
+     */
+    public static <K extends Comparable<? super K>> InvertedIndex<K> readFrom(ByteBuffer in, KeyCodec<K> codec) {
+        InvertedIndex<K> index = new InvertedIndex<>();
+        int size = in.getInt();
+        index.totalLength = in.getLong();
+        index.keysAscending = in.get() != 0;
+        int capacity = Math.max(1024, size);
+        index.keys = new Object[capacity];
+        for (int doc = 0; doc < size; doc++) {
+            index.keys[doc] = codec.read(in);
+        }
+        index.sortKeys = Arrays.copyOf(Snapshots.readLongs(in, size), capacity);
+        index.lengths = Arrays.copyOf(Snapshots.readInts(in, size), capacity);
+        index.size = size;
+        int termCount = in.getInt();
+        for (int i = 0; i < termCount; i++) {
+            String term = Snapshots.readUtf(in);
+            int count = in.getInt();
+            index.terms.put(term, new Postings(Snapshots.readInts(in, count), Snapshots.readInts(in, count)));
+        }
+        return index;
+    }
+
+    /**
+     * Ранжирует документы по BM25 относительно набора ключевых слов.
+     *
+     * Каждое ключевое слово - отдельный терм запроса: его частота в документе -
+     * сумма частот всех совпавших по префиксу токенов, df - число документов
+     * хотя бы с одним из них. Документы, где совпало больше ключевых слов и
+     * реже встречающиеся слова, получают более высокую оценку.
+     *
+     * Все операции - слияния отсортированных списков документов, поэтому время
+     * зависит от числа совпадений, а не от размера индекса.
+     *
+     * @return не более limit документов по убыванию оценки
+     */
+    public List<Scored<K>> rank(Collection<String> keywords, int limit) {
+        if (keywords.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            if (size == 0) {
+                return List.of();
+            }
+            double avgLength = Math.max(1.0, (double) totalLength / size);
+            int[] scoredDocs = new int[0];
+            double[] scores = new double[0];
+            for (String keyword : new LinkedHashSet<>(keywords)) {
+                Sparse tf = keywordFrequencies(keyword);
+                if (tf == null || tf.size == 0) {
+                    continue;
+                }
+                double idf = Math.log(1 + (size - tf.size + 0.5) / (tf.size + 0.5));
+                double[] contribution = new double[tf.size];
+                for (int i = 0; i < tf.size; i++) {
+                    int doc = tf.docs[i];
+                    double norm = K1 * (1 - B + B * lengths[doc] / avgLength);
+                    contribution[i] = idf * tf.values[i] * (K1 + 1) / (tf.values[i] + norm);
+                }
+                // Слияние накопленных оценок с вкладом ключевого слова
+                int[] mergedDocs = new int[scoredDocs.length + tf.size];
+                double[] mergedScores = new double[mergedDocs.length];
+                int i = 0, j = 0, n = 0;
+                while (i < scoredDocs.length || j < tf.size) {
+                    if (j == tf.size || (i < scoredDocs.length && scoredDocs[i] < tf.docs[j])) {
+                        mergedDocs[n] = scoredDocs[i];
+                        mergedScores[n++] = scores[i++];
+                    } else if (i == scoredDocs.length || tf.docs[j] < scoredDocs[i]) {
+                        mergedDocs[n] = tf.docs[j];
+                        mergedScores[n++] = contribution[j++];
+                    } else {
+                        mergedDocs[n] = scoredDocs[i];
+                        mergedScores[n++] = scores[i++] + contribution[j++];
+                    }
+                }
+                scoredDocs = Arrays.copyOf(mergedDocs, n);
+                scores = Arrays.copyOf(mergedScores, n);
+            }
+            return topByScore(scoredDocs, scores, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Отсортированный по документам разреженный вектор частот
+     */
+    private record Sparse(int[] docs, int[] values, int size) {}
+
+    /**
+     * Частоты ключевого слова по документам (null, если не найдено).
+     * Для ключевого слова из нескольких токенов частота - минимум по токенам.
+     */
+    private Sparse keywordFrequencies(String keyword) {
+        Sparse result = null;
+        for (String token : new LinkedHashSet<>(TextTokenizer.tokenize(keyword))) {
+            Sparse tf = tokenFrequencies(token);
+            if (tf.size == 0) {
+                return null;
+            }
+            result = result == null ? tf : intersectMin(result, tf);
+        }
+        return result;
+    }
+
+    /**
+     * Сумма частот всех токенов словаря с данным префиксом
+     */
+    private Sparse tokenFrequencies(String token) {
+        Collection<Postings> matches = matchingTerms(token).values();
+        if (matches.size() == 1) {
+            Postings postings = matches.iterator().next();
+            return new Sparse(postings.docs, postings.freqs, postings.size);
+        }
+        int total = 0;
+        for (Postings postings : matches) {
+            total += postings.size;
+        }
+        // Пары (документ, частота) упаковываются в long и сортируются по документу
+        long[] packed = new long[total];
+        int n = 0;
+        for (Postings postings : matches) {
+            for (int i = 0; i < postings.size; i++) {
+                packed[n++] = ((long) postings.docs[i] << 32) | postings.freqs[i];
+            }
+        }
+        Arrays.sort(packed);
+        int[] docs = new int[total];
+        int[] freqs = new int[total];
+        int unique = 0;
+        for (long pair : packed) {
+            int doc = (int) (pair >>> 32);
+            int freq = (int) pair;
+            if (unique > 0 && docs[unique - 1] == doc) {
+                freqs[unique - 1] += freq;
+            } else {
+                docs[unique] = doc;
+                freqs[unique++] = freq;
+            }
+        }
+        return new Sparse(docs, freqs, unique);
+    }
+
+    private static Sparse intersectMin(Sparse a, Sparse b) {
+        int[] docs = new int[Math.min(a.size, b.size)];
+        int[] values = new int[docs.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.size && j < b.size) {
+            if (a.docs[i] < b.docs[j]) {
+                i++;
+            } else if (a.docs[i] > b.docs[j]) {
+                j++;
+            } else {
+                docs[n] = a.docs[i];
+                values[n++] = Math.min(a.values[i++], b.values[j++]);
+            }
+        }
+        return new Sparse(docs, values, n);
+    }
+
+    private Map<String, Postings> matchingTerms(String token) {
+        if (token.length() < MIN_PREFIX_LENGTH) {
+            Postings postings = terms.get(token);
+            return postings == null ? Map.of() : Map.of(token, postings);
+        }
+        return terms.subMap(token, true, token + Character.MAX_VALUE, false);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Scored<K>> topByScore(int[] docs, double[] scores, int limit) {
+        // Мин-куча размера limit по позициям в docs: в вершине худший из лучших
+        PriorityQueue<Integer> heap = new PriorityQueue<>(limit + 1, (a, b) -> {
+            int byScore = Double.compare(scores[a], scores[b]);
+            if (byScore != 0) {
+                return byScore;
+            }
+            int byKey = Long.compare(sortKeys[docs[a]], sortKeys[docs[b]]);
+            return byKey != 0 ? byKey : Integer.compare(docs[a], docs[b]);
+        });
+        for (int i = 0; i < docs.length; i++) {
+            heap.offer(i);
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+        }
+        Scored<K>[] result = new Scored[heap.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            int position = heap.poll();
+            result[i] = new Scored<>((K) keys[docs[position]], scores[position]);
+        }
+        return Arrays.asList(result);
+    }
+}
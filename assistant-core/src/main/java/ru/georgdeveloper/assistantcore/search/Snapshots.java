@@ -0,0 +1,131 @@
+package ru.georgdeveloper.assistantcore.search;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Чтение и запись снимков индексов поиска.
+ *
+ * Снимок пишется через DataOutputStream во временный файл и атомарно
+ * подменяет прежний. Читается через отображение файла в память
+ * (FileChannel.map): массивы списков документов и векторов копируются
+ * блоками, без разбора по одному значению через поток. Порядок байт у
+ * DataOutputStream и ByteBuffer одинаковый (big-endian).
+ *
+ * После чтения отображение сразу освобождается: данные уже скопированы в
+ * кучу, а в Windows отображённый файл нельзя заменить новым снимком.
+ */
+final class Snapshots {
+
+    private Snapshots() {
+    }
+
+    /**
+     * Запись содержимого снимка
+     */
+    @FunctionalInterface
+    interface Writer {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Чтение содержимого снимка из отображённого файла
+     */
+    @FunctionalInterface
+    interface Reader<T> {
+        T read(ByteBuffer in) throws IOException;
+    }
+
+    static void write(Path file, Writer writer) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            writer.write(out);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static <T> T read(Path file, Reader<T> reader) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Снимок больше 2 ГБ: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            return reader.read(buffer);
+        } catch (RuntimeException e) {
+            // Обрезанный или повреждённый файл
+            throw new IOException("Повреждённый снимок " + file + ": " + e, e);
+        } finally {
+            unmap(buffer);
+        }
+    }
+
+    /**
+     * Строка, записанная DataOutputStream.writeUTF (для строк без символа \0
+     * и суррогатных пар модифицированный UTF-8 совпадает с обычным)
+     */
+    static String readUtf(ByteBuffer in) {
+        byte[] bytes = new byte[Short.toUnsignedInt(in.getShort())];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static int[] readInts(ByteBuffer in, int count) {
+        int[] values = new int[count];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + count * Integer.BYTES);
+        return values;
+    }
+
+    static long[] readLongs(ByteBuffer in, int count) {
+        long[] values = new long[count];
+        in.asLongBuffer().get(values);
+        in.position(in.position() + count * Long.BYTES);
+        return values;
+    }
+
+    static float[] readFloats(ByteBuffer in, int count) {
+        float[] values = new float[count];
+        in.asFloatBuffer().get(values);
+        in.position(in.position() + count * Float.BYTES);
+        return values;
+    }
+
+    static void writeInts(DataOutputStream out, int[] values, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            out.writeInt(values[i]);
+        }
+    }
+
+    /**
+     * Освобождает отображение, не дожидаясь сборки мусора (Unsafe.invokeCleaner);
+     * если это недоступно, отображение освободится при сборке мусора
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            invokeCleaner.invoke(field.get(null), buffer);
+        } catch (Exception ignored) {
+            // Освободится при сборке мусора
+        }
+    }
+}
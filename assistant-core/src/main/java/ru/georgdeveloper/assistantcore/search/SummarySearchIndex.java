@@ -0,0 +1,51 @@
+package ru.georgdeveloper.assistantcore.search;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import ru.georgdeveloper.assistantcore.repository.SummaryOfSolutionsRepository;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Индекс ключевых слов по Summary_of_solutions: оборудование, узел,
+ * замечания по работе, принятые меры и комментарии.
+ * Новые строки догружаются по возрастанию id; при равной оценке выше более новые.
+ */
+@Component
+public class SummarySearchIndex extends TableSearchIndex<Long> {
+
+    private final SummaryOfSolutionsRepository repository;
+
+    public SummarySearchIndex(SummaryOfSolutionsRepository repository,
+                              ObjectProvider<MeterRegistry> meterRegistry,
+                              @Value("${search.index.enabled:true}") boolean enabled,
+                              @Value("${search.index.page-size:5000}") int pageSize,
+                              @Value("${search.index.rebuild-interval:24h}") Duration rebuildInterval,
+                              @Value("${search.index.dir:./data/index}") String snapshotDir,
+                              @Value("${search.index.snapshot-interval:1h}") Duration snapshotInterval) {
+        super("summary_of_solutions", meterRegistry, enabled, pageSize, rebuildInterval,
+                snapshotDir, snapshotInterval);
+        this.repository = repository;
+    }
+
+    @Override
+    protected InvertedIndex.KeyCodec<Long> keyCodec() {
+        return InvertedIndex.KeyCodec.LONG;
+    }
+
+    @Override
+    protected List<Object[]> loadPage(Long afterKey, int pageSize) {
+        return repository.findIndexRowsAfterId(afterKey == null ? 0L : afterKey, PageRequest.of(0, pageSize));
+    }
+
+    @Override
+    protected Long addRow(InvertedIndex<Long> target, Object[] row) {
+        long id = ((Number) row[0]).longValue();
+        target.add(id, id, (String) row[1], (String) row[2], (String) row[3], (String) row[4], (String) row[5]);
+        return id;
+    }
+}
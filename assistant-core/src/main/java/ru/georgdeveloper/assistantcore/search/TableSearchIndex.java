@@ -0,0 +1,270 @@
+package ru.georgdeveloper.assistantcore.search;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Индекс ключевых слов одной таблицы в памяти с ранжированием BM25.
+ *
+ * Загрузка:
+ * - при первом обновлении - полная, постранично по первичному ключу (только нужные колонки);
+ * - далее при каждом refresh() - только новые строки (по умолчанию с ключом
+ *   больше последнего проиндексированного, подклассы могут переопределить);
+ * - раз в search.index.rebuild-interval индекс строится заново и подменяется
+ *   целиком, чтобы учесть изменённые и удалённые строки.
+ *
+ * Пока индекс не построен, isReady() возвращает false и поиск идёт через БД.
+ *
+ * Снимок индекса (словарь, списки документов, отметка последней загруженной
+ * строки) сохраняется в search.index.dir после полной сборки и не чаще
+ * search.index.snapshot-interval после догрузки. При старте снимок читается
+ * через отображение файла в память, индекс сразу готов к поиску, а первое
+ * обновление догружает только строки, появившиеся после снимка. Полная
+ * сборка из БД при перезапуске не нужна, пока снимок не старше rebuild-interval.
+ *
+ * @param <K> тип первичного ключа таблицы
+ */
+public abstract class TableSearchIndex<K extends Comparable<? super K>> {
+
+    private static final Logger logger = LoggerFactory.getLogger(TableSearchIndex.class);
+
+    private static final int SNAPSHOT_MAGIC = 0x54534931; // "TSI1"
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private final String table;
+    private final boolean enabled;
+    private final long rebuildIntervalMs;
+    protected final int pageSize;
+    // Файл снимка (null - без снимков)
+    private final Path snapshotFile;
+    private final long snapshotIntervalMs;
+
+    private volatile InvertedIndex<K> index;
+    private long builtAt;
+    private long savedAt;
+    private K lastKey;
+
+    protected TableSearchIndex(String table, ObjectProvider<MeterRegistry> meterRegistry,
+                               boolean enabled, int pageSize, Duration rebuildInterval,
+                               String snapshotDir, Duration snapshotInterval) {
+        this.table = table;
+        this.enabled = enabled;
+        this.pageSize = Math.max(100, pageSize);
+        this.rebuildIntervalMs = rebuildInterval.toMillis();
+        this.snapshotFile = snapshotDir == null || snapshotDir.isBlank() ? null
+                : Paths.get(snapshotDir).resolve(table + ".idx");
+        this.snapshotIntervalMs = snapshotInterval.toMillis();
+
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            Gauge.builder("assistant.search.index.documents", this, TableSearchIndex::size)
+                    .tag("table", table)
+                    .description("Строки в индексе ключевых слов").register(registry);
+        }
+    }
+
+    /**
+     * Страница строк с ключом больше afterKey (null - с начала), по возрастанию ключа
+     */
+    protected abstract List<Object[]> loadPage(K afterKey, int pageSize);
+
+    /**
+     * Добавляет строку из loadPage в индекс и возвращает её ключ
+     */
+    protected abstract K addRow(InvertedIndex<K> target, Object[] row);
+
+    /**
+     * Запись и чтение первичных ключей таблицы в снимке
+     */
+    protected abstract InvertedIndex.KeyCodec<K> keyCodec();
+
+    /**
+     * Вызывается для каждой строки полной загрузки (например, чтобы запомнить отметку времени)
+     */
+    protected void onRowLoaded(Object[] row) {
+    }
+
+    /**
+     * Состояние подкласса для снимка (например, отметка created_at)
+     */
+    protected long[] snapshotState() {
+        return new long[0];
+    }
+
+    /**
+     * Восстанавливает состояние подкласса из снимка
+     */
+    protected void restoreState(long[] state) {
+    }
+
+    public boolean isReady() {
+        return index != null;
+    }
+
+    public int size() {
+        InvertedIndex<K> current = index;
+        return current == null ? 0 : current.size();
+    }
+
+    /**
+     * Ключи строк, наиболее релевантных набору ключевых слов (BM25)
+     */
+    public List<InvertedIndex.Scored<K>> rank(Collection<String> keywords, int limit) {
+        InvertedIndex<K> current = index;
+        return current == null ? List.of() : current.rank(keywords, limit);
+    }
+
+    /**
+     * Плановое обновление: полная сборка при старте и по rebuild-interval,
+     * в остальное время - догрузка новых строк
+     */
+    @Scheduled(fixedDelayString = "${search.index.refresh-interval:60000}")
+    public synchronized void refresh() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (index == null || System.currentTimeMillis() - builtAt >= rebuildIntervalMs) {
+                rebuild();
+            } else if (appendNewRows(index) > 0 && System.currentTimeMillis() - savedAt >= snapshotIntervalMs) {
+                saveSnapshot();
+            }
+        } catch (Exception e) {
+            logger.warn("Не удалось обновить индекс ключевых слов {}: {}", table, e.getMessage());
+        }
+    }
+
+    /**
+     * Строит индекс заново и атомарно подменяет текущий
+     */
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        beforeRebuild();
+        InvertedIndex<K> fresh = new InvertedIndex<>();
+        K afterKey = null;
+        List<Object[]> page;
+        do {
+            page = loadPage(afterKey, pageSize);
+            for (Object[] row : page) {
+                afterKey = addRow(fresh, row);
+                onRowLoaded(row);
+            }
+        } while (page.size() == pageSize);
+
+        index = fresh;
+        lastKey = afterKey;
+        builtAt = System.currentTimeMillis();
+        logger.info("Индекс ключевых слов {} построен: {} строк, {} токенов за {} мс",
+                table, fresh.size(), fresh.termCount(), builtAt - start);
+        saveSnapshot();
+    }
+
+    /**
+     * Загружает снимок при старте; строки после снимка догрузит первое обновление
+     */
+    @PostConstruct
+    public synchronized void loadSnapshot() {
+        if (!enabled || snapshotFile == null || !Files.exists(snapshotFile)) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            Snapshots.read(snapshotFile, this::readSnapshot);
+            savedAt = System.currentTimeMillis();
+            logger.info("Индекс ключевых слов {} загружен из снимка: {} строк за {} мс",
+                    table, index.size(), savedAt - start);
+        } catch (Exception e) {
+            logger.warn("Не удалось загрузить снимок индекса {}: {}", table, e.getMessage());
+        }
+    }
+
+    /**
+     * Сохраняет снимок текущего индекса (ошибки записи не прерывают работу)
+     */
+    public synchronized void saveSnapshot() {
+        InvertedIndex<K> current = index;
+        if (snapshotFile == null || current == null) {
+            return;
+        }
+        try {
+            Snapshots.write(snapshotFile, out -> writeSnapshot(out, current));
+            savedAt = System.currentTimeMillis();
+        } catch (Exception e) {
+            logger.warn("Не удалось сохранить снимок индекса {}: {}", table, e.getMessage());
+        }
+    }
+
+    private void writeSnapshot(DataOutputStream out, InvertedIndex<K> current) throws IOException {
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeInt(SNAPSHOT_VERSION);
+        out.writeLong(builtAt);
+        out.writeBoolean(lastKey != null);
+        if (lastKey != null) {
+            keyCodec().write(out, lastKey);
+        }
+        long[] state = snapshotState();
+        out.writeInt(state.length);
+        for (long value : state) {
+            out.writeLong(value);
+        }
+        current.writeTo(out, keyCodec());
+    }
+
+    private Void readSnapshot(ByteBuffer in) throws IOException {
+        if (in.getInt() != SNAPSHOT_MAGIC || in.getInt() != SNAPSHOT_VERSION) {
+            throw new IOException("неизвестный формат");
+        }
+        long snapshotBuiltAt = in.getLong();
+        K snapshotLastKey = in.get() != 0 ? keyCodec().read(in) : null;
+        long[] state = Snapshots.readLongs(in, in.getInt());
+        InvertedIndex<K> loaded = InvertedIndex.readFrom(in, keyCodec());
+
+        restoreState(state);
+        lastKey = snapshotLastKey;
+        builtAt = snapshotBuiltAt;
+        index = loaded;
+        return null;
+    }
+
+    /**
+     * Вызывается перед полной загрузкой (сброс состояния подкласса)
+     */
+    protected void beforeRebuild() {
+    }
+
+    /**
+     * Догружает строки, появившиеся после последней загрузки
+     *
+     * @return количество добавленных строк
+     */
+    protected int appendNewRows(InvertedIndex<K> current) {
+        int added = 0;
+        List<Object[]> page;
+        do {
+            page = loadPage(lastKey, pageSize);
+            for (Object[] row : page) {
+                lastKey = addRow(current, row);
+                added++;
+            }
+        } while (page.size() == pageSize);
+        if (added > 0) {
+            logger.debug("Индекс ключевых слов {}: добавлено {} новых строк", table, added);
+        }
+        return added;
+    }
+}
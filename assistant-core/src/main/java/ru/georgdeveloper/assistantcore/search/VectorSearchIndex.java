@@ -0,0 +1,259 @@
+package ru.georgdeveloper.assistantcore.search;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.georgdeveloper.assistantcore.repository.EquipmentMaintenanceRepository;
+import ru.georgdeveloper.assistantcore.repository.SummaryOfSolutionsRepository;
+import ru.georgdeveloper.assistantcore.service.EmbeddingService;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.function.LongFunction;
+
+/**
+ * Векторный индекс (RAG) по Summary_of_solutions и equipment_maintenance_records.
+ *
+ * Поиск по ключевым словам не находит случаи, описанные другими словами
+ * ("не крутится вал" и "заклинил привод"). Индекс хранит эмбеддинги текста
+ * строк (EmbeddingService: модель Ollama или локальный векторизатор) в графах
+ * HNSW и отдаёт ближайшие к вопросу строки за единицы миллисекунд.
+ *
+ * Новые строки векторизуются пачками по search.vector.batch-size при каждом
+ * обновлении (по возрастанию id), поэтому первичное наполнение большой истории
+ * идёт постепенно и не блокирует старт. Графы сохраняются в search.vector.dir
+ * после каждой пачки, после перезапуска векторизация продолжается с места
+ * остановки. Если модель эмбеддингов сменилась, сохранённый граф
+ * отбрасывается и строится заново. Изменённые строки не перевекторизуются.
+ */
+@Component
+public class VectorSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(VectorSearchIndex.class);
+
+    // Длинные описания обрезаются: смысл записи обычно в начале
+    private static final int MAX_TEXT_LENGTH = 2000;
+
+    /** Таблицы векторного индекса */
+    public enum Table { SUMMARY, EQUIPMENT }
+
+    private final EmbeddingService embeddingService;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int m;
+    private final int efConstruction;
+    private final int efSearch;
+    private final double minSimilarity;
+
+    private final TableState summary;
+    private final TableState equipment;
+
+    /**
+     * Граф одной таблицы и способ загрузки её строк
+     */
+    private final class TableState {
+        final String name;
+        final Path file;
+        // Страница строк с id больше заданного: id, служебные колонки, затем текст с firstTextColumn
+        final LongFunction<List<Object[]>> loadPage;
+        final int firstTextColumn;
+        volatile HnswIndex index;
+        // Последний прочитанный id (null - взять из графа)
+        Long lastId;
+
+        TableState(String name, Path file, LongFunction<List<Object[]>> loadPage, int firstTextColumn) {
+            this.name = name;
+            this.file = file;
+            this.loadPage = loadPage;
+            this.firstTextColumn = firstTextColumn;
+        }
+
+        int size() {
+            HnswIndex current = index;
+            return current == null ? 0 : current.size();
+        }
+    }
+
+    public VectorSearchIndex(EmbeddingService embeddingService,
+                             SummaryOfSolutionsRepository summaryRepo,
+                             EquipmentMaintenanceRepository equipmentRepo,
+                             ObjectProvider<MeterRegistry> meterRegistry,
+                             @Value("${search.vector.enabled:true}") boolean enabled,
+                             @Value("${search.vector.dir:./data/vectors}") String dir,
+                             @Value("${search.vector.batch-size:200}") int batchSize,
+                             @Value("${search.vector.m:16}") int m,
+                             @Value("${search.vector.ef-construction:100}") int efConstruction,
+                             @Value("${search.vector.ef-search:64}") int efSearch,
+                             @Value("${search.vector.min-similarity:0.5}") double minSimilarity) {
+        this.embeddingService = embeddingService;
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.minSimilarity = minSimilarity;
+
+        Path base = Paths.get(dir);
+        this.summary = new TableState("summary_of_solutions", base.resolve("summary.hnsw"),
+                afterId -> summaryRepo.findIndexRowsAfterId(afterId, PageRequest.of(0, this.batchSize)), 1);
+        this.equipment = new TableState("equipment_maintenance_records", base.resolve("equipment.hnsw"),
+                afterId -> equipmentRepo.findIndexRowsAfterId(afterId, PageRequest.of(0, this.batchSize)), 3);
+
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            for (TableState table : List.of(summary, equipment)) {
+                Gauge.builder("assistant.search.vector.documents", table, TableState::size)
+                        .tag("table", table.name)
+                        .description("Строки в векторном индексе").register(registry);
+            }
+        }
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        for (TableState table : List.of(summary, equipment)) {
+            if (!Files.exists(table.file)) {
+                continue;
+            }
+            try {
+                table.index = HnswIndex.load(table.file);
+                logger.info("Векторный индекс {} загружен: {} векторов модели {}",
+                        table.name, table.index.size(), table.index.getModel());
+            } catch (Exception e) {
+                logger.warn("Не удалось загрузить векторный индекс {}: {}", table.name, e.getMessage());
+            }
+        }
+    }
+
+    public boolean isReady(Table table) {
+        return enabled && state(table).size() > 0;
+    }
+
+    /**
+     * Эмбеддинг вопроса для поиска
+     */
+    public EmbeddingService.Embedding embed(String text) {
+        return embeddingService.embed(text);
+    }
+
+    /**
+     * id строк, ближайших по смыслу к вопросу (не ниже search.vector.min-similarity), по убыванию сходства
+     */
+    public List<Long> search(Table table, EmbeddingService.Embedding query, int limit) {
+        HnswIndex index = state(table).index;
+        if (index == null || query == null || !index.getModel().equals(query.model())) {
+            return List.of();
+        }
+        return index.search(query.vector(), limit, efSearch).stream()
+                .filter(neighbor -> neighbor.similarity() >= minSimilarity)
+                .map(HnswIndex.Neighbor::id)
+                .toList();
+    }
+
+    /**
+     * Векторизует новые строки каждой таблицы пачками, сохраняя граф после каждой пачки
+     */
+    @Scheduled(fixedDelayString = "${search.vector.refresh-interval:60000}", initialDelayString = "${search.vector.initial-delay:30000}")
+    public synchronized void refresh() {
+        if (!enabled) {
+            return;
+        }
+        for (TableState table : List.of(summary, equipment)) {
+            try {
+                int total = 0;
+                int read;
+                do {
+                    int sizeBefore = table.size();
+                    read = indexBatch(table);
+                    if (table.size() != sizeBefore) {
+                        table.index.save(table.file);
+                        total += table.size() - sizeBefore;
+                    }
+                } while (read == batchSize);
+                if (total > 0) {
+                    logger.info("Векторный индекс {}: добавлено {}, всего {}", table.name, total, table.size());
+                }
+            } catch (Exception e) {
+                logger.warn("Не удалось обновить векторный индекс {}: {}", table.name, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Векторизует одну пачку строк таблицы
+     *
+     * @return количество прочитанных строк (меньше search.vector.batch-size - новых строк больше нет)
+     */
+    public synchronized int indexBatch(Table table) {
+        return indexBatch(state(table));
+    }
+
+    private int indexBatch(TableState table) {
+        HnswIndex index = table.index;
+        if (table.lastId == null) {
+            table.lastId = index == null || index.size() == 0 ? 0L : index.getMaxId();
+        }
+        List<Object[]> rows = table.loadPage.apply(table.lastId);
+        int read = 0;
+        for (Object[] row : rows) {
+            long id = ((Number) row[0]).longValue();
+            String text = text(row, table.firstTextColumn);
+            if (!text.isEmpty()) {
+                EmbeddingService.Embedding embedding = embeddingService.embed(text);
+                if (index == null) {
+                    index = new HnswIndex(embedding.model(), embedding.vector().length, m, efConstruction);
+                    table.index = index;
+                } else if (!index.getModel().equals(embedding.model())
+                        || index.getDimensions() != embedding.vector().length) {
+                    if (!isConfiguredModel(embedding.model())) {
+                        // Временный откат на другую модель (Ollama недоступна) - продолжим в следующий раз
+                        return 0;
+                    }
+                    // Сменилась модель эмбеддингов: старые векторы несравнимы с новыми
+                    logger.info("Модель эмбеддингов сменилась ({} -> {}), векторный индекс {} строится заново",
+                            index.getModel(), embedding.model(), table.name);
+                    table.index = null;
+                    table.lastId = 0L;
+                    return indexBatch(table);
+                }
+                index.add(id, embedding.vector());
+            }
+            table.lastId = id;
+            read++;
+        }
+        return read;
+    }
+
+    private boolean isConfiguredModel(String model) {
+        return model.equals(embeddingService.configuredModel());
+    }
+
+    private static String text(Object[] row, int firstTextColumn) {
+        StringBuilder text = new StringBuilder();
+        for (int i = firstTextColumn; i < row.length && text.length() < MAX_TEXT_LENGTH; i++) {
+            if (row[i] instanceof String value && !value.isBlank()) {
+                if (text.length() > 0) {
+                    text.append(". ");
+                }
+                text.append(value.trim());
+            }
+        }
+        return text.length() > MAX_TEXT_LENGTH ? text.substring(0, MAX_TEXT_LENGTH) : text.toString();
+    }
+
+    private TableState state(Table table) {
+        return table == Table.SUMMARY ? summary : equipment;
+    }
+}
@@ -1,5 +1,11 @@
 package ru.georgdeveloper.assistantcore.service;
 
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import ru.georgdeveloper.assistantcore.model.EquipmentMaintenanceRecord;
 import ru.georgdeveloper.assistantcore.model.SummaryOfSolutions;
@@ -7,18 +13,50 @@ import ru.georgdeveloper.assistantcore.model.BreakdownReport;
 import ru.georgdeveloper.assistantcore.repository.EquipmentMaintenanceRepository;
 import ru.georgdeveloper.assistantcore.repository.SummaryOfSolutionsRepository;
 import ru.georgdeveloper.assistantcore.repository.BreakdownReportRepository;
+import ru.georgdeveloper.assistantcore.repository.SearchQueryHints;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import ru.georgdeveloper.assistantcore.nlp.TfidfKeywordExtractorService;
+import ru.georgdeveloper.assistantcore.search.BreakdownSearchIndex;
+import ru.georgdeveloper.assistantcore.search.EquipmentSearchIndex;
+import ru.georgdeveloper.assistantcore.search.InvertedIndex;
+import ru.georgdeveloper.assistantcore.search.SummarySearchIndex;
+import ru.georgdeveloper.assistantcore.search.TableSearchIndex;
+import ru.georgdeveloper.assistantcore.search.VectorSearchIndex;
 
 @Service
 public class DatabaseSearchService {
     
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseSearchService.class);
+    // Константа сглаживания Reciprocal Rank Fusion
+    private static final int RRF_K = 60;
+    
     private final TfidfKeywordExtractorService tfidfKeywordExtractorService;
     private final EquipmentMaintenanceRepository equipmentRepo;
     private final SummaryOfSolutionsRepository summaryRepo;
     private final BreakdownReportRepository breakdownRepo;
+    // Индексы ключевых слов с ранжированием BM25 (могут быть null - тогда только LIKE)
+    private final EquipmentSearchIndex equipmentIndex;
+    private final SummarySearchIndex summaryIndex;
+    private final BreakdownSearchIndex breakdownIndex;
+    // Векторный индекс по смыслу (может быть null - тогда только ключевые слова)
+    private final VectorSearchIndex vectorIndex;
+    // Пул для параллельных запросов по ключевым словам
+    private final Executor searchExecutor;
+    // Общий срок на один поиск: медленная таблица не должна задерживать чат
+    private final long deadlineNanos;
+    // Строки с оценкой BM25 ниже этой доли от лучшей в выдачу не попадают
+    private final double minRelativeScore;
 
     /**
      * Конструктор сервиса поиска
@@ -27,49 +65,260 @@ public class DatabaseSearchService {
             TfidfKeywordExtractorService tfidfKeywordExtractorService,
             EquipmentMaintenanceRepository equipmentRepo,
             SummaryOfSolutionsRepository summaryRepo,
-            BreakdownReportRepository breakdownRepo
+            BreakdownReportRepository breakdownRepo,
+            EquipmentSearchIndex equipmentIndex,
+            SummarySearchIndex summaryIndex,
+            BreakdownSearchIndex breakdownIndex,
+            VectorSearchIndex vectorIndex,
+            @Qualifier("searchExecutor") Executor searchExecutor,
+            @Value("${search.deadline:3s}") Duration deadline,
+            @Value("${search.bm25.min-relative-score:0.3}") double minRelativeScore
     ) {
         this.tfidfKeywordExtractorService = tfidfKeywordExtractorService;
         this.equipmentRepo = equipmentRepo;
         this.summaryRepo = summaryRepo;
         this.breakdownRepo = breakdownRepo;
+        this.equipmentIndex = equipmentIndex;
+        this.summaryIndex = summaryIndex;
+        this.breakdownIndex = breakdownIndex;
+        this.vectorIndex = vectorIndex;
+        this.searchExecutor = searchExecutor;
+        this.deadlineNanos = deadline.toNanos();
+        this.minRelativeScore = minRelativeScore;
     }
 
     /**
-     * Универсальный поиск по всем ключевым таблицам на основе динамических ключевых слов из запроса пользователя
+     * Таймаут SQL поиска задан константой в аннотациях репозиториев -
+     * запуск с другим search.deadline останавливается здесь
+     */
+    @PostConstruct
+    void checkSqlTimeout() {
+        SearchQueryHints.requireMatchingDeadline(Duration.ofNanos(deadlineNanos));
+    }
+
+    /**
+     * Универсальный поиск по всем ключевым таблицам на основе динамических ключевых слов из запроса пользователя.
+     * 
+     * Если индекс таблицы построен, строки ранжируются по BM25 сразу по всем
+     * ключевым словам: выше те, где совпало больше слов и более редкие слова,
+     * а не просто самые свежие. Слабые совпадения (ниже search.bm25.min-relative-score
+     * от лучшей оценки) отбрасываются, поэтому в промпт попадает меньше строк.
+     * 
+     * Для Summary_of_solutions и equipment_maintenance_records параллельно ищутся
+     * ближайшие по смыслу строки в векторном индексе; два списка объединяются
+     * методом Reciprocal Rank Fusion, так что находятся и случаи, описанные
+     * другими словами.
+     * 
+     * Без индекса выполняются LIKE запросы (ключевое слово x таблица, до 21),
+     * параллельно на ограниченном пуле searchExecutor; результаты объединяются
+     * в порядке ключевых слов с удалением дублей по первичному ключу.
+     * Запросы, не успевшие за search.deadline, отбрасываются - ответ строится
+     * по тому, что найдено к этому моменту; сами LIKE запросы прерываются в БД
+     * таймаутом выполнения (SearchQueryHints). Если пул поиска переполнен,
+     * запрос не ставится и тоже считается не успевшим.
      */
     public SearchResult searchAll(String userQuery, int limit) {
         // 1. Извлекаем ключевые слова и фразы через TF-IDF
         List<String> keywords = tfidfKeywordExtractorService.extractKeywords(userQuery, 7);
-        List<SummaryOfSolutions> summaryResults = new ArrayList<>();
-        List<EquipmentMaintenanceRecord> equipmentResults = new ArrayList<>();
-        List<BreakdownReport> breakdownResults = new ArrayList<>();
-
-        // 2. Поиск по всем трем таблицам параллельно
-        if (summaryRepo != null && !keywords.isEmpty()) {
-            for (String keyword : keywords) {
-                List<SummaryOfSolutions> found = summaryRepo.searchByKeyword(keyword);
-                if (found != null) summaryResults.addAll(found);
+        if (keywords.isEmpty()) {
+            return new SearchResult(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        }
+
+        long deadline = System.nanoTime() + deadlineNanos;
+        // Эмбеддинг ждём не дольше этого срока: остаток уходит на загрузку строк по ключам
+        long vectorDeadline = deadline - deadlineNanos / 3;
+
+        // 2. Запускаем поиск по всем трем таблицам параллельно; эмбеддинг вопроса считается один раз
+        CompletableFuture<EmbeddingService.Embedding> queryVector = vectorIndex != null
+                && (vectorIndex.isReady(VectorSearchIndex.Table.SUMMARY) || vectorIndex.isReady(VectorSearchIndex.Table.EQUIPMENT))
+                ? async(() -> vectorIndex.embed(userQuery)) : null;
+        List<CompletableFuture<List<SummaryOfSolutions>>> summaryFutures = summaryRepo == null ? List.of()
+                : submit(summaryIndex, keywords, limit, summaryRepo::findAllById, SummaryOfSolutions::getId,
+                        vectorKeys(queryVector, VectorSearchIndex.Table.SUMMARY, limit, vectorDeadline),
+                        keyword -> () -> summaryRepo.searchByKeyword(keyword));
+        List<CompletableFuture<List<EquipmentMaintenanceRecord>>> equipmentFutures = equipmentRepo == null ? List.of()
+                : submit(equipmentIndex, keywords, limit, equipmentRepo::findAllById, EquipmentMaintenanceRecord::getId,
+                        vectorKeys(queryVector, VectorSearchIndex.Table.EQUIPMENT, limit, vectorDeadline),
+                        keyword -> () -> equipmentRepo.findByKeyword(keyword, PageRequest.of(0, limit)));
+        List<CompletableFuture<List<BreakdownReport>>> breakdownFutures = breakdownRepo == null ? List.of()
+                : submit(breakdownIndex, keywords, limit, breakdownRepo::findAllById, BreakdownReport::getIdCode,
+                        null,
+                        keyword -> () -> breakdownRepo.findByKeyword(keyword, PageRequest.of(0, limit)));
+
+        // 3. Собираем результаты до общего срока, убираем дубли и ограничиваем лимитом
+        List<SummaryOfSolutions> summaryResults = collect(summaryFutures, SummaryOfSolutions::getId, limit, deadline, "summary");
+        List<EquipmentMaintenanceRecord> equipmentResults = collect(equipmentFutures, EquipmentMaintenanceRecord::getId, limit, deadline, "equipment");
+        List<BreakdownReport> breakdownResults = collect(breakdownFutures, BreakdownReport::getIdCode, limit, deadline, "breakdown");
+
+        // 4. Группировка и возврат результатов
+        return new SearchResult(summaryResults, equipmentResults, breakdownResults);
+    }
+
+    /**
+     * Один запрос ранжирования по индексу, если он построен, иначе LIKE запросы по каждому ключевому слову.
+     * vectorKeys (может быть null) - ключи ближайших по смыслу строк
+     */
+    private <K extends Comparable<? super K>, T> List<CompletableFuture<List<T>>> submit(
+            TableSearchIndex<K> index, List<String> keywords, int limit,
+            Function<List<K>, List<T>> loadByKeys, Function<T, K> primaryKey,
+            Supplier<List<K>> vectorKeys,
+            Function<String, Supplier<List<T>>> likeQuery) {
+        if (index == null || !index.isReady()) {
+            List<CompletableFuture<List<T>>> futures = submitAll(keywords, likeQuery);
+            if (vectorKeys != null) {
+                futures.add(async(() -> load(vectorKeys.get(), loadByKeys, primaryKey)));
+            }
+            return futures;
+        }
+        return List.of(async(() -> ranked(index, keywords, limit, loadByKeys, primaryKey, vectorKeys)));
+    }
+
+    private <K extends Comparable<? super K>, T> List<T> ranked(TableSearchIndex<K> index, List<String> keywords,
+                                                                int limit, Function<List<K>, List<T>> loadByKeys,
+                                                                Function<T, K> primaryKey, Supplier<List<K>> vectorKeys) {
+        List<InvertedIndex.Scored<K>> scored = index.rank(keywords, limit);
+        List<K> keys = new ArrayList<>(scored.size());
+        if (!scored.isEmpty()) {
+            double threshold = scored.get(0).score() * minRelativeScore;
+            for (InvertedIndex.Scored<K> item : scored) {
+                if (item.score() >= threshold) {
+                    keys.add(item.key());
+                }
+            }
+        }
+        if (vectorKeys != null) {
+            keys = fuse(keys, vectorKeys.get(), limit);
+        }
+        return load(keys, loadByKeys, primaryKey);
+    }
+
+    /**
+     * Reciprocal Rank Fusion: score = сумма 1 / (RRF_K + позиция) по спискам.
+     * Строка, найденная и по словам, и по смыслу, поднимается выше; оценки BM25
+     * и косинусное сходство несопоставимы, поэтому учитываются только позиции
+     */
+    public static <K> List<K> fuse(List<K> keywordKeys, List<K> vectorKeys, int limit) {
+        if (vectorKeys.isEmpty()) {
+            return keywordKeys;
+        }
+        Map<K, Double> scores = new LinkedHashMap<>();
+        for (int i = 0; i < keywordKeys.size(); i++) {
+            scores.merge(keywordKeys.get(i), 1.0 / (RRF_K + i + 1), Double::sum);
+        }
+        for (int i = 0; i < vectorKeys.size(); i++) {
+            scores.merge(vectorKeys.get(i), 1.0 / (RRF_K + i + 1), Double::sum);
+        }
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<K, Double>comparingByValue().reversed())
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Загружает строки по ключам, сохраняя порядок ключей; удалённые после сборки индекса строки пропускаются
+     */
+    private <K, T> List<T> load(List<K> keys, Function<List<K>, List<T>> loadByKeys, Function<T, K> primaryKey) {
+        if (keys.isEmpty()) {
+            return List.of();
+        }
+        Map<K, T> byKey = new HashMap<>();
+        for (T row : loadByKeys.apply(keys)) {
+            byKey.put(primaryKey.apply(row), row);
+        }
+        List<T> rows = new ArrayList<>(keys.size());
+        for (K key : keys) {
+            T row = byKey.get(key);
+            if (row != null) {
+                rows.add(row);
             }
-            // Убираем дубли и ограничиваем лимитом
-            summaryResults = summaryResults.stream().distinct().limit(limit).collect(Collectors.toList());
         }
-        if (equipmentRepo != null && !keywords.isEmpty()) {
-            for (String keyword : keywords) {
-                List<EquipmentMaintenanceRecord> found = equipmentRepo.findByKeyword(keyword, org.springframework.data.domain.PageRequest.of(0, limit));
-                if (found != null) equipmentResults.addAll(found);
+        return rows;
+    }
+
+    /**
+     * Ключи ближайших по смыслу строк таблицы или null, если векторного поиска нет.
+     *
+     * Эмбеддинг ждётся не дольше vectorDeadline: Ollama ставит его в очередь
+     * за идущей генерацией, а холодная модель эмбеддингов грузится секунды.
+     * Не дождались - пустой список, и ранжирование BM25 возвращается без слияния,
+     * а не теряется вместе с векторным поиском.
+     */
+    @SuppressWarnings("unchecked")
+    private <K> Supplier<List<K>> vectorKeys(CompletableFuture<EmbeddingService.Embedding> queryVector,
+                                             VectorSearchIndex.Table table, int limit, long vectorDeadline) {
+        if (queryVector == null || !vectorIndex.isReady(table)) {
+            return null;
+        }
+        return () -> {
+            try {
+                EmbeddingService.Embedding vector =
+                        queryVector.get(Math.max(0, vectorDeadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                return (List<K>) vectorIndex.search(table, vector, limit);
+            } catch (TimeoutException e) {
+                logger.warn("Эмбеддинг запроса не готов к сроку, таблица {} - только по ключевым словам", table);
+            } catch (ExecutionException e) {
+                logger.warn("Ошибка эмбеддинга запроса: {}", e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
-            equipmentResults = equipmentResults.stream().distinct().limit(limit).collect(Collectors.toList());
+            return List.of();
+        };
+    }
+
+    private <T> List<CompletableFuture<List<T>>> submitAll(List<String> keywords,
+                                                           Function<String, Supplier<List<T>>> query) {
+        List<CompletableFuture<List<T>>> futures = new ArrayList<>(keywords.size());
+        for (String keyword : keywords) {
+            futures.add(async(query.apply(keyword)));
         }
-        if (breakdownRepo != null && !keywords.isEmpty()) {
-            for (String keyword : keywords) {
-                List<BreakdownReport> found = breakdownRepo.findByKeyword(keyword, org.springframework.data.domain.PageRequest.of(0, limit));
-                if (found != null) breakdownResults.addAll(found);
+        return futures;
+    }
+
+    /**
+     * Задача в пул поиска. Переполненный пул отклоняет её сразу (future с
+     * RejectedExecutionException), и collect считает её не успевшей к сроку
+     */
+    private <T> CompletableFuture<T> async(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, searchExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private <T> List<T> collect(List<CompletableFuture<List<T>>> futures, Function<T, ?> primaryKey,
+                                int limit, long deadline, String table) {
+        Map<Object, T> unique = new LinkedHashMap<>();
+        int timedOut = 0;
+        for (CompletableFuture<List<T>> future : futures) {
+            try {
+                List<T> found = future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (found != null) {
+                    for (T item : found) {
+                        Object key = primaryKey.apply(item);
+                        unique.putIfAbsent(key != null ? key : item, item);
+                    }
+                }
+            } catch (TimeoutException e) {
+                // Future только отбрасывается: запрос в БД прервёт таймаут выполнения (SearchQueryHints)
+                timedOut++;
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RejectedExecutionException) {
+                    timedOut++;
+                } else {
+                    logger.warn("Ошибка поиска по таблице {}: {}", table, e.getCause().getMessage());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
             }
-            breakdownResults = breakdownResults.stream().distinct().limit(limit).collect(Collectors.toList());
         }
-        // 3. Группировка и возврат результатов
-        return new SearchResult(summaryResults, equipmentResults, breakdownResults);
+        if (timedOut > 0) {
+            logger.warn("Поиск по таблице {}: {} запросов не успели за {} мс или не поместились в пул", table, timedOut,
+                    TimeUnit.NANOSECONDS.toMillis(deadlineNanos));
+        }
+        return unique.values().stream().limit(limit).collect(Collectors.toList());
     }
 
 
@@ -0,0 +1,132 @@
+package ru.georgdeveloper.assistantcore.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import ru.georgdeveloper.assistantcore.client.OllamaClient;
+import ru.georgdeveloper.assistantcore.config.AssistantProperties;
+
+/**
+ * Векторизация текста запросов для семантического поиска.
+ *
+ * Если в конфигурации задана ai.ollama.embedding-model, эмбеддинг считается
+ * моделью Ollama. Иначе (или если Ollama недоступна) используется локальный
+ * хеширующий векторизатор: слова, их префиксы (грубая замена стемминга для
+ * русских окончаний) и символьные триграммы раскладываются в вектор
+ * фиксированной размерности. Он хуже понимает синонимы, зато работает
+ * мгновенно и без сети.
+ *
+ * Векторы разных источников несравнимы, поэтому вместе с вектором
+ * возвращается имя модели - сравнивать можно только векторы одной модели.
+ */
+@Service
+public class EmbeddingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddingService.class);
+
+    /** Имя "модели" локального векторизатора */
+    public static final String LOCAL_MODEL = "local-hash-1024";
+
+    private static final int LOCAL_DIMENSIONS = 1024;
+    private static final int PREFIX_LENGTH = 5;
+    // После ошибки Ollama не пытаемся снова в течение этого времени
+    private static final long OLLAMA_RETRY_DELAY_MS = 5 * 60 * 1000L;
+
+    private final OllamaClient ollamaClient;
+    private final AssistantProperties properties;
+
+    private volatile long ollamaDisabledUntil = 0;
+
+    /**
+     * Вектор и модель, которой он получен
+     */
+    public record Embedding(String model, float[] vector) {}
+
+    public EmbeddingService(OllamaClient ollamaClient, AssistantProperties properties) {
+        this.ollamaClient = ollamaClient;
+        this.properties = properties;
+    }
+
+    /**
+     * Модель, которой должны считаться эмбеддинги по конфигурации (без учёта временного отката)
+     */
+    public String configuredModel() {
+        String model = properties.getOllama() != null ? properties.getOllama().getEmbeddingModel() : null;
+        return model != null && !model.isBlank() ? model : LOCAL_MODEL;
+    }
+
+    /**
+     * Эмбеддинг текста, нормированный по L2 (косинус = скалярное произведение)
+     */
+    public Embedding embed(String text) {
+        String model = configuredModel();
+        if (!LOCAL_MODEL.equals(model) && System.currentTimeMillis() >= ollamaDisabledUntil) {
+            try {
+                return new Embedding(model, normalize(ollamaClient.generateEmbedding(text, model)));
+            } catch (Exception e) {
+                ollamaDisabledUntil = System.currentTimeMillis() + OLLAMA_RETRY_DELAY_MS;
+                logger.warn("Эмбеддинги Ollama ({}) недоступны, используется локальный векторизатор: {}",
+                        model, e.getMessage());
+            }
+        }
+        return new Embedding(LOCAL_MODEL, localEmbedding(text));
+    }
+
+    /**
+     * Косинусное сходство нормированных векторов
+     */
+    public static double cosine(float[] a, float[] b) {
+        if (a.length != b.length) {
+            return 0;
+        }
+        double dot = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+        }
+        return dot;
+    }
+
+    /**
+     * Локальный хеширующий векторизатор (feature hashing)
+     */
+    static float[] localEmbedding(String text) {
+        float[] vector = new float[LOCAL_DIMENSIONS];
+        String normalized = ResponseCacheService.normalize(text);
+        if (normalized.isEmpty()) {
+            return vector;
+        }
+        for (String word : normalized.split(" ")) {
+            addFeature(vector, "w:" + word, 1.0f);
+            if (word.length() > PREFIX_LENGTH) {
+                addFeature(vector, "p:" + word.substring(0, PREFIX_LENGTH), 1.0f);
+            }
+            String padded = " " + word + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                addFeature(vector, padded.substring(i, i + 3), 0.5f);
+            }
+        }
+        return normalize(vector);
+    }
+
+    private static void addFeature(float[] vector, String feature, float weight) {
+        int hash = feature.hashCode();
+        int index = Math.floorMod(hash, vector.length);
+        // Знак из старшего бита уменьшает смещение от коллизий
+        vector[index] += (hash & 0x80000000) == 0 ? weight : -weight;
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        if (norm == 0) {
+            return vector;
+        }
+        float inv = (float) (1.0 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= inv;
+        }
+        return vector;
+    }
+}
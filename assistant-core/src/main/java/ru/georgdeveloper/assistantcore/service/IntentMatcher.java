@@ -0,0 +1,227 @@
+package ru.georgdeveloper.assistantcore.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import ru.georgdeveloper.assistantcore.config.ResourcePaths;
+import ru.georgdeveloper.assistantcore.nlp.AhoCorasick;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Маршрутизация запросов по фразам-триггерам из routing/intent_rules.json.
+ *
+ * Раньше каждый сервис приводил запрос к нижнему регистру и проверял его
+ * десятками contains/matches/replaceAll, компилируя регулярные выражения на
+ * каждый запрос. Теперь все фразы правил собраны в один автомат Ахо-Корасик,
+ * который строится при запуске и находит их за один проход по запросу:
+ * - intents - намерения: есть ли в запросе хотя бы одна фраза группы;
+ * - rules - упорядоченные списки правил (value, any, all): результатом
+ *   становится value первого выполненного правила, порядок задаёт приоритет;
+ * - normalization - замены фраз и удаление слов перед классификацией.
+ *
+ * Файл правил можно заменить свойством ai.routing.rules без пересборки.
+ */
+@Component
+public class IntentMatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(IntentMatcher.class);
+
+    // Намерения
+    public static final String GENERAL = "general";
+    public static final String REPAIR_PROBLEM = "repair-problem";
+    public static final String EQUIPMENT = "equipment";
+    public static final String INSTRUCTION = "instruction";
+
+    // Списки правил
+    public static final String SEARCH_KEYWORD = "search-keyword";
+    public static final String PROBLEM_TYPE = "problem-type";
+
+    /**
+     * Правило списка: выполнено, если в запросе есть все фразы all
+     * и хотя бы одна из any (пустой список не проверяется)
+     */
+    private record Rule(String value, int[] any, int[] all) {}
+
+    /**
+     * Замена фразы при нормализации; wholeWord - только целым словом
+     */
+    private record Rewrite(String replacement, boolean wholeWord) {}
+
+    private final AhoCorasick automaton;
+    private final Map<String, int[]> intents = new HashMap<>();
+    private final Map<String, List<Rule>> rules = new HashMap<>();
+    // Замена для фразы с данным номером, null - фраза не участвует в нормализации
+    private final Rewrite[] rewrites;
+
+    public IntentMatcher(@Value("${ai.routing.rules:classpath:" + ResourcePaths.INTENT_RULES_JSON + "}") Resource rulesFile) {
+        JsonNode root;
+        try (InputStream in = rulesFile.getInputStream()) {
+            root = new ObjectMapper().readTree(in);
+        } catch (Exception e) {
+            throw new IllegalStateException("Не удалось загрузить правила маршрутизации " + rulesFile, e);
+        }
+
+        Map<String, Integer> phraseIds = new LinkedHashMap<>();
+        for (Iterator<Map.Entry<String, JsonNode>> it = root.path("intents").fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> intent = it.next();
+            intents.put(intent.getKey(), phraseIds(intent.getValue(), phraseIds));
+        }
+        for (Iterator<Map.Entry<String, JsonNode>> it = root.path("rules").fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> list = it.next();
+            List<Rule> parsed = new ArrayList<>();
+            for (JsonNode rule : list.getValue()) {
+                String value = rule.path("value").asText();
+                int[] any = phraseIds(rule.path("any"), phraseIds);
+                int[] all = phraseIds(rule.path("all"), phraseIds);
+                if (any.length == 0 && all.length == 0) {
+                    // Правило без фраз срабатывает на само значение
+                    any = new int[] {phraseId(value, phraseIds)};
+                }
+                parsed.add(new Rule(value, any, all));
+            }
+            rules.put(list.getKey(), List.copyOf(parsed));
+        }
+
+        Map<Integer, Rewrite> rewriteById = new HashMap<>();
+        JsonNode normalization = root.path("normalization");
+        for (Iterator<Map.Entry<String, JsonNode>> it = normalization.path("replace").fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> replace = it.next();
+            rewriteById.put(phraseId(replace.getKey(), phraseIds), new Rewrite(replace.getValue().asText(), false));
+        }
+        for (JsonNode word : normalization.path("remove-words")) {
+            rewriteById.put(phraseId(word.asText(), phraseIds), new Rewrite("", true));
+        }
+
+        automaton = AhoCorasick.build(new ArrayList<>(phraseIds.keySet()));
+        rewrites = new Rewrite[phraseIds.size()];
+        rewriteById.forEach((id, rewrite) -> rewrites[id] = rewrite);
+        logger.info("Правила маршрутизации: {} фраз, намерений {}, списков правил {}",
+                phraseIds.size(), intents.size(), rules.size());
+    }
+
+    /**
+     * Находит все фразы правил в запросе за один проход
+     */
+    public Matches match(String request) {
+        BitSet found = new BitSet(automaton.size());
+        if (request != null) {
+            automaton.scan(request, (phrase, start, end) -> found.set(phrase));
+        }
+        return new Matches(found);
+    }
+
+    /**
+     * Нижний регистр, замены фраз и удаление слов из normalization
+     */
+    public String normalize(String request) {
+        String lower = request.toLowerCase();
+        List<int[]> candidates = new ArrayList<>();
+        automaton.scan(lower, (phrase, start, end) -> {
+            Rewrite rewrite = rewrites[phrase];
+            if (rewrite != null && (!rewrite.wholeWord() || isWholeWord(lower, start, end))) {
+                candidates.add(new int[] {phrase, start, end});
+            }
+        });
+        if (candidates.isEmpty()) {
+            return lower.trim();
+        }
+        // Непересекающиеся вхождения слева направо, из начинающихся в одной позиции - самое длинное
+        candidates.sort(Comparator.<int[]>comparingInt(c -> c[1]).thenComparingInt(c -> -c[2]));
+        StringBuilder result = new StringBuilder(lower.length());
+        int position = 0;
+        for (int[] candidate : candidates) {
+            if (candidate[1] < position) {
+                continue;
+            }
+            result.append(lower, position, candidate[1]).append(rewrites[candidate[0]].replacement());
+            position = candidate[2];
+        }
+        return result.append(lower, position, lower.length()).toString().trim();
+    }
+
+    /**
+     * Фразы правил, найденные в запросе
+     */
+    public final class Matches {
+
+        private final BitSet phrases;
+
+        private Matches(BitSet phrases) {
+            this.phrases = phrases;
+        }
+
+        /**
+         * Есть ли в запросе хотя бы одна фраза намерения (неизвестное намерение - нет)
+         */
+        public boolean has(String intent) {
+            return containsAny(intents.get(intent));
+        }
+
+        /**
+         * Значение первого выполненного правила списка или null
+         */
+        public String first(String ruleList) {
+            for (Rule rule : rules.getOrDefault(ruleList, List.of())) {
+                if (containsAll(rule.all()) && (rule.any().length == 0 || containsAny(rule.any()))) {
+                    return rule.value();
+                }
+            }
+            return null;
+        }
+
+        private boolean containsAny(int[] ids) {
+            if (ids != null) {
+                for (int id : ids) {
+                    if (phrases.get(id)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private boolean containsAll(int[] ids) {
+            for (int id : ids) {
+                if (!phrases.get(id)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static int[] phraseIds(JsonNode phrases, Map<String, Integer> phraseIds) {
+        int[] ids = new int[phrases.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = phraseId(phrases.get(i).asText(), phraseIds);
+        }
+        return ids;
+    }
+
+    private static int phraseId(String phrase, Map<String, Integer> phraseIds) {
+        return phraseIds.computeIfAbsent(phrase.toLowerCase(), p -> phraseIds.size());
+    }
+
+    // Граница слова как у \b в регулярных выражениях Java 17: буквы (включая кириллицу), цифры и _
+    private static boolean isWholeWord(String text, int start, int end) {
+        return (start == 0 || !isWordChar(text.charAt(start - 1)))
+                && (end == text.length() || !isWordChar(text.charAt(end)));
+    }
+
+    private static boolean isWordChar(char c) {
+        return c == '_' || Character.isLetterOrDigit(c);
+    }
+}
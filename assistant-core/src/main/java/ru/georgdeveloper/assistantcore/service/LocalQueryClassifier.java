@@ -0,0 +1,193 @@
+package ru.georgdeveloper.assistantcore.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+import ru.georgdeveloper.assistantcore.config.ResourcePaths;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Локальный классификатор запросов без обращения к LLM.
+ *
+ * Раньше тип запроса (статистика / инструкция / общий вопрос) определялся
+ * отдельным вызовом Ollama, что стоило несколько секунд на каждый вопрос.
+ * Классификатор решает задачу за микросекунды двумя способами:
+ * 1. Ближайший пример из training/query_training_data.jsonl (сходство по
+ *    векторизатору EmbeddingService). Если запрос почти совпадает с примером,
+ *    берётся его класс и готовый ответ SIMPLE_ANSWER. Параметры NEED_DATABASE
+ *    (машина, статус, лимит) берутся только при точном совпадении запроса:
+ *    у похожего запроса они свои ("станок GK300" - не GK270).
+ * 2. Ключевые слова каждого класса ("топ", "сколько", "как починить", "привет").
+ *
+ * Возвращается класс и уверенность; при низкой уверенности вызывающий
+ * откатывается на классификацию через LLM.
+ */
+@Component
+public class LocalQueryClassifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalQueryClassifier.class);
+
+    private static final String SIMPLE_ANSWER_PREFIX = "SIMPLE_ANSWER:";
+    private static final String NEED_DATABASE_PREFIX = "NEED_DATABASE:";
+
+    // Сходство, начиная с которого пример из обучающих данных считается тем же вопросом
+    private static final double EXAMPLE_MATCH_THRESHOLD = 0.8;
+
+    private static final String[] STATISTICS_KEYWORDS = {
+            "топ", "сколько", "количеств", "статистик", "посчитай", "подсчитай", "самые", "самых",
+            "продолжительн", "долгие", "простой", "простоев", "ремонты", "ремонтов", "статус",
+            "закрыт", "за неделю", "за месяц", "за день", "вчера", "сегодня", "январ", "феврал",
+            "март", "апрел", "май", "мая", "июн", "июл", "август", "сентябр", "октябр", "ноябр", "декабр"
+    };
+    private static final String[] INSTRUCTION_KEYWORDS = {
+            "инструкция по ремонту", "как починить", "как отремонтировать", "как устранить",
+            "как исправить", "что делать", "как заменить", "как настроить"
+    };
+    private static final String[] GENERAL_KEYWORDS = {
+            "кто ты", "что ты", "что умеешь", "что можешь", "привет", "как дела", "здравствуй", "спасибо"
+    };
+
+    /**
+     * Класс запроса
+     */
+    public enum QueryType { STATISTICS, INSTRUCTION, GENERAL }
+
+    /**
+     * Результат классификации.
+     * trainingOutput - разметка совпавшего обучающего примера без префикса (может быть null)
+     */
+    public record Classification(QueryType type, double confidence, String trainingOutput) {}
+
+    private record Example(String key, float[] vector, QueryType type, String output) {}
+
+    private final List<Example> examples = new ArrayList<>();
+
+    @PostConstruct
+    public void loadTrainingData() {
+        ClassPathResource resource = new ClassPathResource(ResourcePaths.QUERY_TRAINING_DATA_JSONL);
+        if (!resource.exists()) {
+            logger.info("{} не найден, локальный классификатор работает только по ключевым словам",
+                    ResourcePaths.QUERY_TRAINING_DATA_JSONL);
+            return;
+        }
+        ObjectMapper mapper = new ObjectMapper();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode node = mapper.readTree(line);
+                addExample(node.path("input").asText(""), node.path("output").asText(""));
+            }
+            logger.info("Локальный классификатор: загружено {} обучающих примеров", examples.size());
+        } catch (Exception e) {
+            logger.warn("Не удалось загрузить обучающие примеры классификатора: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Добавляет размеченный пример (input, output в формате query_training_data.jsonl)
+     */
+    void addExample(String input, String output) {
+        if (input.isBlank()) {
+            return;
+        }
+        if (output.startsWith(SIMPLE_ANSWER_PREFIX)) {
+            examples.add(new Example(exampleKey(input), EmbeddingService.localEmbedding(input), QueryType.GENERAL,
+                    output.substring(SIMPLE_ANSWER_PREFIX.length()).trim()));
+        } else if (output.startsWith(NEED_DATABASE_PREFIX)) {
+            examples.add(new Example(exampleKey(input), EmbeddingService.localEmbedding(input), QueryType.STATISTICS,
+                    output.substring(NEED_DATABASE_PREFIX.length()).trim()));
+        }
+    }
+
+    /**
+     * Классификация нормализованного (нижний регистр) запроса
+     */
+    public Classification classify(String request) {
+        Classification byExample = classifyByExample(request);
+        if (byExample != null) {
+            return byExample;
+        }
+        return classifyByKeywords(request);
+    }
+
+    private Classification classifyByExample(String request) {
+        float[] vector = EmbeddingService.localEmbedding(request);
+        Example best = null;
+        double bestScore = EXAMPLE_MATCH_THRESHOLD;
+        for (Example example : examples) {
+            double score = EmbeddingService.cosine(vector, example.vector());
+            if (score >= bestScore) {
+                bestScore = score;
+                best = example;
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+        boolean exact = best.key().equals(exampleKey(request));
+        String output = best.type() == QueryType.GENERAL || exact ? best.output() : null;
+        return new Classification(best.type(), bestScore, output);
+    }
+
+    /**
+     * Запрос для точного сравнения с примером: нижний регистр, только слова и числа
+     */
+    static String exampleKey(String text) {
+        StringBuilder key = new StringBuilder(text.length());
+        for (String word : text.toLowerCase(Locale.ROOT).replace('ё', 'е').split("[^\\p{L}\\p{Nd}]+")) {
+            if (!word.isEmpty()) {
+                if (key.length() > 0) {
+                    key.append(' ');
+                }
+                key.append(word);
+            }
+        }
+        return key.toString();
+    }
+
+    private Classification classifyByKeywords(String request) {
+        int statistics = countMatches(request, STATISTICS_KEYWORDS);
+        int instruction = countMatches(request, INSTRUCTION_KEYWORDS);
+        int general = countMatches(request, GENERAL_KEYWORDS);
+
+        int matchedClasses = (statistics > 0 ? 1 : 0) + (instruction > 0 ? 1 : 0) + (general > 0 ? 1 : 0);
+        if (matchedClasses == 0) {
+            return new Classification(QueryType.STATISTICS, 0.0, null);
+        }
+        // Ключевые слова одного класса - уверенно; нескольких - спорный случай для LLM
+        double confidence = matchedClasses == 1 ? 0.9 : 0.5;
+        QueryType type;
+        if (instruction >= statistics && instruction >= general) {
+            type = QueryType.INSTRUCTION;
+        } else if (general > statistics) {
+            type = QueryType.GENERAL;
+        } else {
+            type = QueryType.STATISTICS;
+        }
+        return new Classification(type, confidence, null);
+    }
+
+    private int countMatches(String request, String[] keywords) {
+        int count = 0;
+        for (String keyword : keywords) {
+            if (request.contains(keyword)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,163 @@
+package ru.georgdeveloper.assistantcore.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.georgdeveloper.assistantcore.client.OllamaClient;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Удержание модели Ollama в памяти.
+ *
+ * После простоя Ollama выгружает модель, и первый вопрос (утром, после
+ * пересменки) ждёт её загрузки - десятки секунд на CPU. Сервис:
+ * - прогревает модель после старта приложения (в фоне, старт не задерживается);
+ * - прогревает её перед пересменками (ai.ollama.warmup.cron, по умолчанию
+ *   07:50 и 19:50 по Москве - перед сменой в 08:00 и 20:00);
+ * - раз в ai.ollama.warmup.check-interval проверяет через /api/ps, загружена
+ *   ли модель (и при выключенном прогреве), и при reload-if-unloaded
+ *   загружает её снова.
+ *
+ * Каждый запрос генерации передаёт keep_alive (ai.ollama.keep-alive), поэтому
+ * в рабочее время модель не выгружается между вопросами.
+ * Состояние последней проверки отдаёт OllamaModelHealthIndicator (/actuator/health/ollama).
+ */
+@Service
+public class ModelWarmupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModelWarmupService.class);
+
+    private final OllamaClient ollamaClient;
+    private final boolean enabled;
+    private final boolean reloadIfUnloaded;
+    private final Timer warmupTimer;
+
+    private volatile Status status = new Status(false, false, null, null, "проверка не выполнялась");
+
+    /**
+     * Состояние модели по последней проверке
+     *
+     * @param reachable Ollama ответила
+     * @param loaded модель из ai.ollama.model загружена в память
+     * @param lastWarmupMs длительность последнего прогрева (null - не было)
+     * @param error последняя ошибка (null - нет)
+     */
+    public record Status(boolean reachable, boolean loaded, Instant checkedAt, Long lastWarmupMs, String error) {}
+
+    public ModelWarmupService(OllamaClient ollamaClient,
+                              ObjectProvider<MeterRegistry> meterRegistry,
+                              @Value("${ai.ollama.warmup.enabled:true}") boolean enabled,
+                              @Value("${ai.ollama.warmup.reload-if-unloaded:true}") boolean reloadIfUnloaded) {
+        this.ollamaClient = ollamaClient;
+        this.enabled = enabled;
+        this.reloadIfUnloaded = reloadIfUnloaded;
+
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            this.warmupTimer = Timer.builder("assistant.ollama.warmup")
+                    .description("Время загрузки модели в память Ollama").register(registry);
+            Gauge.builder("assistant.ollama.model.loaded", this, service -> service.status.loaded() ? 1 : 0)
+                    .description("Модель загружена в память Ollama").register(registry);
+        } else {
+            this.warmupTimer = null;
+        }
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Прогрев после старта - в отдельном потоке, чтобы не задерживать запуск
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        Thread thread = new Thread(() -> warmUp("старт"), "ollama-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Прогрев перед пересменкой
+     */
+    @Scheduled(cron = "${ai.ollama.warmup.cron:0 50 7,19 * * *}", zone = "${ai.ollama.warmup.zone:Europe/Moscow}")
+    public void warmUpBeforeShift() {
+        if (enabled) {
+            warmUp("пересменка");
+        }
+    }
+
+    /**
+     * Проверка, загружена ли модель; выгруженная модель загружается снова.
+     * Первая проверка - вскоре после старта: до неё состояние неизвестно
+     */
+    @Scheduled(fixedDelayString = "${ai.ollama.warmup.check-interval:300000}",
+            initialDelayString = "${ai.ollama.warmup.initial-check-delay:15000}")
+    public void checkModel() {
+        refreshStatus();
+        if (enabled && reloadIfUnloaded && status.reachable() && !status.loaded()) {
+            warmUp("модель выгружена");
+        }
+    }
+
+    /**
+     * Загружает модель и обновляет состояние
+     */
+    public synchronized Status warmUp(String reason) {
+        String model = ollamaClient.getModel();
+        long start = System.nanoTime();
+        try {
+            ollamaClient.loadModel(model);
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            if (warmupTimer != null) {
+                warmupTimer.record(elapsedMs, TimeUnit.MILLISECONDS);
+            }
+            logger.info("Модель {} загружена в Ollama за {} мс ({})", model, elapsedMs, reason);
+            status = new Status(true, true, Instant.now(), elapsedMs, null);
+        } catch (Exception e) {
+            logger.warn("Не удалось прогреть модель {} ({}): {}", model, reason, e.getMessage());
+            status = new Status(false, false, Instant.now(), status.lastWarmupMs(), e.getMessage());
+        }
+        return status;
+    }
+
+    /**
+     * Запрашивает у Ollama список загруженных моделей
+     */
+    public Status refreshStatus() {
+        String model = ollamaClient.getModel();
+        try {
+            List<String> loaded = ollamaClient.listLoadedModels();
+            boolean isLoaded = loaded.stream().anyMatch(name -> sameModel(name, model));
+            status = new Status(true, isLoaded, Instant.now(), status.lastWarmupMs(), null);
+        } catch (Exception e) {
+            status = new Status(false, false, Instant.now(), status.lastWarmupMs(), e.getMessage());
+        }
+        return status;
+    }
+
+    /**
+     * Имена моделей без тега означают тег latest ("mistral" = "mistral:latest")
+     */
+    static boolean sameModel(String a, String b) {
+        return a != null && b != null && withTag(a).equalsIgnoreCase(withTag(b));
+    }
+
+    private static String withTag(String model) {
+        return model.contains(":") ? model : model + ":latest";
+    }
+}
@@ -0,0 +1,57 @@
+package ru.georgdeveloper.assistantcore.service;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+import ru.georgdeveloper.assistantcore.client.OllamaClient;
+
+/**
+ * Готовность модели Ollama: /actuator/health (компонент ollamaModel) и
+ * группа /actuator/health/ollama. В readiness не входит: без Ollama core
+ * продолжает отвечать из БД и кэша.
+ *
+ * UP - модель из ai.ollama.model загружена в память и первый вопрос не будет
+ * ждать загрузки; NOT_LOADED - Ollama доступна, но модель не загружена
+ * (идёт прогрев); UNREACHABLE - Ollama недоступна; UNKNOWN - проверки ещё не было.
+ * Вместо DOWN и OUT_OF_SERVICE - свои статусы: management.endpoint.health.status.order
+ * ставит их ниже UP, поэтому общий /actuator/health из-за Ollama не становится
+ * DOWN, а группа ollama отдаёт по ним 503.
+ * Отдаётся состояние последней периодической проверки ModelWarmupService,
+ * поэтому обращение к эндпоинту не ходит в Ollama и не ждёт её таймаутов.
+ */
+@Component
+public class OllamaModelHealthIndicator implements HealthIndicator {
+
+    public static final Status NOT_LOADED = new Status("NOT_LOADED", "Модель не загружена в память Ollama");
+    public static final Status UNREACHABLE = new Status("UNREACHABLE", "Ollama недоступна");
+
+    private final ModelWarmupService warmupService;
+    private final OllamaClient ollamaClient;
+
+    public OllamaModelHealthIndicator(ModelWarmupService warmupService, OllamaClient ollamaClient) {
+        this.warmupService = warmupService;
+        this.ollamaClient = ollamaClient;
+    }
+
+    @Override
+    public Health health() {
+        ModelWarmupService.Status status = warmupService.getStatus();
+        Health.Builder builder = status.checkedAt() == null ? Health.unknown()
+                : !status.reachable() ? Health.status(UNREACHABLE)
+                : status.loaded() ? Health.up() : Health.status(NOT_LOADED);
+        builder.withDetail("model", ollamaClient.getModel())
+                .withDetail("reachable", status.reachable())
+                .withDetail("loaded", status.loaded());
+        if (status.checkedAt() != null) {
+            builder.withDetail("checkedAt", status.checkedAt().toString());
+        }
+        if (status.lastWarmupMs() != null) {
+            builder.withDetail("lastWarmupMs", status.lastWarmupMs());
+        }
+        if (status.error() != null) {
+            builder.withDetail("error", status.error());
+        }
+        return builder.build();
+    }
+}
@@ -1,37 +1,112 @@
 package ru.georgdeveloper.assistantcore.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.cache.annotation.Cacheable;
 import ru.georgdeveloper.assistantcore.client.OllamaClient;
+import ru.georgdeveloper.assistantcore.llm.LlmCircuitBreaker;
+import ru.georgdeveloper.assistantcore.llm.LlmDispatcher;
+import ru.georgdeveloper.assistantcore.llm.LlmOverloadedException;
+import ru.georgdeveloper.assistantcore.llm.LlmPriority;
+import ru.georgdeveloper.assistantcore.llm.LlmUnavailableException;
+import ru.georgdeveloper.assistantcore.llm.SingleFlight;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
 @Service
 public class OllamaService {
     
     private static final Logger logger = LoggerFactory.getLogger(OllamaService.class);
     
+    // Retry-After после единичной ошибки генерации (автомат защиты ещё замкнут)
+    private static final long FAILED_CALL_RETRY_AFTER_SECONDS = 1;
+    
     @Autowired
     private OllamaClient ollamaClient;
     
+    // Ограничение параллельных генераций и очередь с приоритетами
+    @Autowired
+    private LlmDispatcher llmDispatcher;
+    
+    // Быстрый отказ, пока Ollama недоступна
+    @Autowired
+    private LlmCircuitBreaker circuitBreaker;
+    
     @Value("${ai.ollama.temperature:0.7}")
     private double temperature;
     
+    // Одинаковые промпты, пришедшие одновременно, генерируются один раз
+    private final SingleFlight<String, String> inFlightPrompts = new SingleFlight<>("ollama-prompt");
+    
+    @Autowired
+    void bindMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        meterRegistry.ifAvailable(inFlightPrompts::bindTo);
+    }
+    
     @Cacheable(value = "ollama-responses", condition = "#prompt.length() < 500")
     public String generateResponse(String prompt) {
+        return generateResponse(prompt, LlmPriority.INTERACTIVE);
+    }
+    
+    /**
+     * Генерация с указанным приоритетом в очереди к модели.
+     * Отказ диспетчера (очередь переполнена) пробрасывается как LlmOverloadedException,
+     * отказ разомкнутого автомата защиты и ошибка самой генерации - как LlmUnavailableException,
+     * чтобы вызывающий мог вернуть пользователю понятную ошибку или ответ без модели.
+     */
+    public String generateResponse(String prompt, LlmPriority priority) {
         try {
             logger.debug("Генерация ответа для промпта длиной: {} символов", prompt.length());
-            String response = ollamaClient.generateResponse(prompt);
+            String response = inFlightPrompts.execute(prompt, () -> submit(priority,
+                    () -> ollamaClient.generateResponse(prompt), null));
             logger.debug("Получен ответ длиной: {} символов", response != null ? response.length() : 0);
             return response;
-        } catch (Exception e) {
+        } catch (LlmOverloadedException | LlmUnavailableException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            // Не текст ошибки вместо ответа: его закэшировали бы как ответ модели
             logger.error("Ошибка генерации ответа: {}", e.getMessage());
-            return "Извините, произошла ошибка при обработке запроса.";
+            throw new LlmUnavailableException("Ошибка генерации ответа: " + e.getMessage(), FAILED_CALL_RETRY_AFTER_SECONDS);
         }
     }
     
+    /**
+     * Потоковая генерация: видимые фрагменты ответа передаются в onToken по мере готовности.
+     * Ошибки пробрасываются - обработка остаётся за вызывающим (SSE эндпоинт).
+     */
+    public String generateResponseStream(String prompt, Consumer<String> onToken) {
+        return generateResponseStream(prompt, onToken, null);
+    }
+    
+    /**
+     * Потоковая генерация с уведомлением о позиции в очереди к модели
+     * @param onQueuePosition получает позицию в очереди, пока генерация ждёт слот (может быть null)
+     */
+    public String generateResponseStream(String prompt, Consumer<String> onToken, IntConsumer onQueuePosition) {
+        logger.debug("Потоковая генерация для промпта длиной: {} символов", prompt.length());
+        String response = submit(LlmPriority.INTERACTIVE,
+                () -> ollamaClient.generateResponseStream(prompt, onToken), onQueuePosition);
+        logger.debug("Потоковая генерация завершена, длина ответа: {} символов", response.length());
+        return response;
+    }
+    
+    /**
+     * Вызов модели через автомат защиты и диспетчер. Разомкнутый автомат
+     * отклоняет запрос до постановки в очередь; запрос, дождавшийся слота,
+     * проверяется повторно - за время ожидания автомат мог разомкнуться.
+     */
+    private String submit(LlmPriority priority, Supplier<String> call, IntConsumer onQueuePosition) {
+        circuitBreaker.ensureCallPermitted();
+        return llmDispatcher.submit(priority, () -> circuitBreaker.execute(call), onQueuePosition);
+    }
+    
     public String generateResponseWithContext(String prompt, String context) {
         String fullPrompt = context + "\n\nЗапрос: " + prompt + "\nОтвет:";
         return generateResponse(fullPrompt);
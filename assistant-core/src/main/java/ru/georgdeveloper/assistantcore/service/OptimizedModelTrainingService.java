@@ -3,6 +3,7 @@ package ru.georgdeveloper.assistantcore.service;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import ru.georgdeveloper.assistantcore.llm.LlmPriority;
 import org.springframework.data.domain.PageRequest;
 import ru.georgdeveloper.assistantcore.model.EquipmentMaintenanceRecord;
 import ru.georgdeveloper.assistantcore.repository.EquipmentMaintenanceRepository;
@@ -51,7 +52,7 @@ public class OptimizedModelTrainingService {
             
             // Обучение модели (упрощенная версия)
             String trainingPrompt = String.join("\n", examples);
-            ollamaService.generateResponse("Изучи эти примеры ремонтов:\n" + trainingPrompt);
+            ollamaService.generateResponse("Изучи эти примеры ремонтов:\n" + trainingPrompt, LlmPriority.BACKGROUND);
             
         } catch (Exception e) {
             logger.error("Ошибка обучения: {}", e.getMessage());
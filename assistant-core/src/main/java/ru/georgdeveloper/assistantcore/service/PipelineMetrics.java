@@ -0,0 +1,52 @@
+package ru.georgdeveloper.assistantcore.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * Замер длительности этапов обработки запроса.
+ *
+ * Метрика assistant.pipeline.stage (тег stage): classify-local, classify-llm,
+ * query-params, db-context, prompt, generate. Позволяет увидеть, сколько
+ * времени уходит на каждый этап и сколько экономит локальная классификация.
+ */
+@Component
+public class PipelineMetrics {
+
+    private final MeterRegistry registry;
+
+    public PipelineMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.registry = meterRegistry.getIfAvailable();
+    }
+
+    /**
+     * Выполняет этап и записывает его длительность
+     */
+    public <T> T time(String stage, Supplier<T> action) {
+        if (registry == null) {
+            return action.get();
+        }
+        Timer.Sample sample = Timer.start(registry);
+        try {
+            return action.get();
+        } finally {
+            sample.stop(Timer.builder("assistant.pipeline.stage")
+                    .tag("stage", stage)
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+    }
+
+    /**
+     * Счётчик решений классификатора (source=local|llm)
+     */
+    public void countClassification(String source) {
+        if (registry != null) {
+            registry.counter("assistant.classifier.decisions", "source", source).increment();
+        }
+    }
+}
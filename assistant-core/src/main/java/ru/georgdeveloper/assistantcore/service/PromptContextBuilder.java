@@ -0,0 +1,343 @@
+package ru.georgdeveloper.assistantcore.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import ru.georgdeveloper.assistantcommon.text.TokenEstimator;
+import ru.georgdeveloper.assistantcore.config.AssistantProperties;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Сборка контекста из БД для промпта в пределах бюджета токенов.
+ *
+ * Время генерации растёт с длиной промпта, а число и длина найденных строк
+ * сильно различаются от запроса к запросу. Сборщик оценивает число токенов
+ * каждой строки, берёт строки по убыванию ранга, пока они помещаются в бюджет
+ * модели (ai.context.budget-tokens, ai.context.model-budgets), и обрезает
+ * длинные поля (комментарии) по границе предложения или слова до
+ * ai.context.max-field-tokens. Строка, которая целиком не помещается, ещё
+ * может войти с укороченными длинными полями; остальные отбрасываются.
+ *
+ * Строки выводятся по разделам в порядке их объявления, внутри раздела - по рангу.
+ *
+ * Метрики: assistant.prompt.context.tokens и assistant.prompt.tokens (оценка
+ * токенов контекста и всего промпта, тег model), assistant.prompt.context.rows
+ * (тег outcome: included, truncated, dropped).
+ */
+@Component
+public class PromptContextBuilder {
+
+    // Укороченное поле меньше этого размера бесполезно для модели
+    private static final int MIN_FIELD_TOKENS = 20;
+    private static final String ELLIPSIS = "…";
+
+    private final AssistantProperties properties;
+    private final MeterRegistry registry;
+
+    public PromptContextBuilder(AssistantProperties properties, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.properties = properties;
+        this.registry = meterRegistry.getIfAvailable();
+    }
+
+    /**
+     * Оформление строк раздела
+     */
+    public enum Style {
+        /** "• Поле: значение", следующие поля с отступом, пустая строка после записи */
+        BULLET,
+        /** "Поле:значение | Поле:значение" в одну строку */
+        INLINE
+    }
+
+    /**
+     * Поле строки; длинные поля (truncatable) обрезаются, остальные выводятся целиком
+     */
+    public record Field(String label, String value, boolean truncatable) {}
+
+    public static Field field(String label, Object value) {
+        return new Field(label, value == null ? null : value.toString(), false);
+    }
+
+    public static Field longField(String label, String value) {
+        return new Field(label, value, true);
+    }
+
+    /**
+     * Собранный контекст
+     *
+     * @param tokens оценка числа токенов текста
+     * @param rows строк в контексте
+     * @param dropped строк, не поместившихся в бюджет
+     */
+    public record Packed(String text, int tokens, int rows, int dropped) {
+        public boolean isEmpty() {
+            return rows == 0;
+        }
+    }
+
+    /**
+     * Новый контекст с бюджетом текущей модели
+     */
+    public Context newContext() {
+        return newContext(budgetFor(currentModel()));
+    }
+
+    public Context newContext(int budgetTokens) {
+        return new Context(budgetTokens, Math.max(MIN_FIELD_TOKENS, properties.getContext().getMaxFieldTokens()));
+    }
+
+    public int budgetFor(String model) {
+        AssistantProperties.Context context = properties.getContext();
+        Integer budget = model == null ? null : context.getModelBudgets().get(model);
+        return budget != null ? budget : context.getBudgetTokens();
+    }
+
+    /**
+     * Записывает оценку токенов готового промпта и возвращает его без изменений
+     */
+    public String recordPrompt(String prompt) {
+        if (registry != null && prompt != null) {
+            summary("assistant.prompt.tokens", "Оценка токенов промпта").record(estimateTokens(prompt));
+        }
+        return prompt;
+    }
+
+    /**
+     * Оценка числа токенов (см. TokenEstimator)
+     */
+    public static int estimateTokens(CharSequence text) {
+        return TokenEstimator.estimate(text);
+    }
+
+    /**
+     * Обрезает текст до maxTokens: по концу последнего предложения, если он
+     * не слишком близко к началу, иначе по границе слова. Пробелы и переводы
+     * строк схлопываются в один пробел.
+     */
+    public static String truncate(String value, int maxTokens) {
+        if (value == null) {
+            return null;
+        }
+        String text = collapseWhitespace(value);
+        if (estimateTokens(text) <= maxTokens) {
+            return text;
+        }
+        double tokens = 0;
+        int end = 0;
+        while (end < text.length() && tokens + TokenEstimator.weight(text.charAt(end)) <= maxTokens) {
+            tokens += TokenEstimator.weight(text.charAt(end++));
+        }
+        int sentenceEnd = -1;
+        int wordEnd = -1;
+        for (int i = end - 1; i > 0 && sentenceEnd < 0; i--) {
+            char c = text.charAt(i);
+            if ((c == '.' || c == '!' || c == '?' || c == ';') && i + 1 < text.length() && text.charAt(i + 1) == ' ') {
+                sentenceEnd = i + 1;
+            } else if (c == ' ' && wordEnd < 0) {
+                wordEnd = i;
+            }
+        }
+        int cut = sentenceEnd >= end / 2 ? sentenceEnd : wordEnd > 0 ? wordEnd : end;
+        return text.substring(0, cut).trim() + ELLIPSIS;
+    }
+
+    private static String collapseWhitespace(String value) {
+        StringBuilder text = new StringBuilder(value.length());
+        boolean space = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = text.length() > 0;
+            } else {
+                if (space) {
+                    text.append(' ');
+                    space = false;
+                }
+                text.append(c);
+            }
+        }
+        return text.toString();
+    }
+
+    private String currentModel() {
+        return properties.getOllama() != null ? properties.getOllama().getModel() : null;
+    }
+
+    private DistributionSummary summary(String name, String description) {
+        return DistributionSummary.builder(name)
+                .tag("model", String.valueOf(currentModel()))
+                .description(description)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    /**
+     * Контекст одного промпта: разделы и строки с рангом
+     */
+    public final class Context {
+
+        private final int budgetTokens;
+        private final int maxFieldTokens;
+        private final List<Section> sections = new ArrayList<>();
+        private final List<Row> rows = new ArrayList<>();
+
+        private Context(int budgetTokens, int maxFieldTokens) {
+            this.budgetTokens = budgetTokens;
+            this.maxFieldTokens = maxFieldTokens;
+        }
+
+        /**
+         * Начинает раздел; {count} в заголовке заменяется числом вошедших строк.
+         * Раздел без строк не выводится
+         */
+        public Context section(String header, Style style) {
+            sections.add(new Section(header, style));
+            return this;
+        }
+
+        /**
+         * Добавляет строку в текущий раздел
+         *
+         * @param rank релевантность строки, больше - важнее (строки с меньшим рангом отбрасываются первыми)
+         */
+        public Context add(double rank, Field... fields) {
+            if (sections.isEmpty()) {
+                throw new IllegalStateException("Строка добавляется до объявления раздела");
+            }
+            rows.add(new Row(sections.get(sections.size() - 1), rank, rows.size(), fields));
+            return this;
+        }
+
+        public Packed build() {
+            List<Row> ranked = new ArrayList<>(rows);
+            ranked.sort(Comparator.comparingDouble(Row::rank).reversed().thenComparingInt(Row::order));
+            int remaining = budgetTokens;
+            int included = 0;
+            int truncated = 0;
+            int dropped = 0;
+            for (Row row : ranked) {
+                int headerCost = row.section.rows.isEmpty() ? row.section.headerTokens() : 0;
+                String text = row.format(maxFieldTokens);
+                int cost = headerCost + estimateTokens(text);
+                if (cost > remaining) {
+                    text = row.shrinkTo(remaining - headerCost);
+                    if (text == null) {
+                        dropped++;
+                        continue;
+                    }
+                    cost = headerCost + estimateTokens(text);
+                    truncated++;
+                }
+                row.section.rows.add(row);
+                row.text = text;
+                remaining -= cost;
+                included++;
+            }
+
+            StringBuilder out = new StringBuilder();
+            for (Section section : sections) {
+                if (section.rows.isEmpty()) {
+                    continue;
+                }
+                section.rows.sort(Comparator.comparingDouble(Row::rank).reversed().thenComparingInt(Row::order));
+                out.append(section.header.replace("{count}", String.valueOf(section.rows.size()))).append('\n');
+                for (Row row : section.rows) {
+                    out.append(row.text);
+                }
+                out.append('\n');
+            }
+            Packed packed = new Packed(out.toString(), estimateTokens(out), included, dropped);
+            if (registry != null) {
+                summary("assistant.prompt.context.tokens", "Оценка токенов контекста из БД").record(packed.tokens());
+                registry.counter("assistant.prompt.context.rows", "outcome", "included").increment(included - truncated);
+                registry.counter("assistant.prompt.context.rows", "outcome", "truncated").increment(truncated);
+                registry.counter("assistant.prompt.context.rows", "outcome", "dropped").increment(dropped);
+            }
+            return packed;
+        }
+    }
+
+    private static final class Section {
+        final String header;
+        final Style style;
+        final List<Row> rows = new ArrayList<>();
+
+        Section(String header, Style style) {
+            this.header = header;
+            this.style = style;
+        }
+
+        int headerTokens() {
+            // Число строк в заголовке - пара токенов
+            return estimateTokens(header) + 2;
+        }
+    }
+
+    private static final class Row {
+        final Section section;
+        final double rank;
+        final int order;
+        final Field[] fields;
+        String text;
+
+        Row(Section section, double rank, int order, Field[] fields) {
+            this.section = section;
+            this.rank = rank;
+            this.order = order;
+            this.fields = fields;
+        }
+
+        double rank() {
+            return rank;
+        }
+
+        int order() {
+            return order;
+        }
+
+        /**
+         * Текст строки с длинными полями не длиннее fieldTokens
+         */
+        String format(int fieldTokens) {
+            StringBuilder out = new StringBuilder();
+            for (int i = 0; i < fields.length; i++) {
+                Field field = fields[i];
+                String value = field.value() == null || field.value().isBlank() ? "-"
+                        : field.truncatable() ? truncate(field.value(), fieldTokens) : field.value();
+                if (section.style == Style.BULLET) {
+                    out.append(i == 0 ? "• " : "  ").append(field.label()).append(": ").append(value).append('\n');
+                } else {
+                    out.append(i == 0 ? "" : " | ").append(field.label()).append(':').append(value);
+                }
+            }
+            out.append('\n');
+            return out.toString();
+        }
+
+        /**
+         * Текст строки в пределах maxTokens за счёт длинных полей или null, если не помещается
+         */
+        String shrinkTo(int maxTokens) {
+            int longFields = 0;
+            for (Field field : fields) {
+                if (field.truncatable() && field.value() != null && !field.value().isBlank()) {
+                    longFields++;
+                }
+            }
+            if (longFields == 0) {
+                return null;
+            }
+            int fixed = estimateTokens(format(0));
+            int perField = (maxTokens - fixed) / longFields;
+            if (perField < MIN_FIELD_TOKENS) {
+                return null;
+            }
+            String text = format(perField);
+            return estimateTokens(text) <= maxTokens ? text : null;
+        }
+    }
+}
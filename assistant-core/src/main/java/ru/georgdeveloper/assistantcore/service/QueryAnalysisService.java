@@ -1,7 +1,14 @@
 package ru.georgdeveloper.assistantcore.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import ru.georgdeveloper.assistantcore.llm.LlmPriority;
+import ru.georgdeveloper.assistantcore.llm.LlmUnavailableException;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 
 /**
@@ -10,24 +17,77 @@ import org.springframework.stereotype.Service;
 @Service
 public class QueryAnalysisService {
     
+    // Код оборудования в запросе: латиница с цифрами (gk270, hfv2, vmi-3)
+    private static final Pattern MACHINE_CODE =
+            Pattern.compile("(?<![\\p{L}\\d])([a-z]{1,5}-?\\d{1,4}[a-z\\d]*)(?![\\p{L}\\d])");
+    // Явное число записей: "топ 10", "последние 50", "20 самых долгих"
+    private static final Pattern EXPLICIT_LIMIT =
+            Pattern.compile("(?:топ|последни[еймх]|первы[еймх])\\s*(\\d{1,4})|(\\d{1,4})\\s+(?:самых|последних)");
+    private static final int MAX_LIMIT = 1000;
+    
+    private static final String INSTRUCTION_ANSWER =
+            "Для получения инструкций по ремонту обратитесь к техническому руководству или специалисту.";
+    
     @Autowired
     private OllamaService ollamaService;
     
+    @Autowired
+    private LocalQueryClassifier localQueryClassifier;
+    
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+    
+    @Autowired
+    private IntentMatcher intentMatcher;
+    
+    // Минимальная уверенность локального классификатора, ниже - классификация через AI
+    @Value("${ai.classifier.confidence-threshold:0.75}")
+    private double confidenceThreshold;
+    
     /**
-     * Определяет тип запроса с использованием AI-классификации
+     * Определяет тип запроса: сначала локальным классификатором,
+     * и только при низкой уверенности - через AI (если модель доступна)
      */
     public AnalysisResult analyzeRequest(String request) {
         String normalized = normalizeRequest(request);
-        return classifyWithAI(normalized);
+        LocalQueryClassifier.Classification local =
+                pipelineMetrics.time("classify-local", () -> localQueryClassifier.classify(normalized));
+        if (local.confidence() >= confidenceThreshold) {
+            pipelineMetrics.countClassification("local");
+            return toAnalysisResult(local, normalized);
+        }
+        pipelineMetrics.countClassification("llm");
+        try {
+            return pipelineMetrics.time("classify-llm", () -> classifyWithAI(normalized));
+        } catch (LlmUnavailableException e) {
+            // Модель недоступна - остаётся локальная классификация
+            return toAnalysisResult(local, normalized);
+        }
     }
     
+    private AnalysisResult toAnalysisResult(LocalQueryClassifier.Classification classification, String request) {
+        switch (classification.type()) {
+            case GENERAL:
+                if (classification.trainingOutput() != null) {
+                    return new AnalysisResult(false, classification.trainingOutput(), null);
+                }
+                return handleGeneralQuery(request);
+            case INSTRUCTION:
+                return new AnalysisResult(false, INSTRUCTION_ANSWER, null);
+            default:
+                // Разметка NEED_DATABASE (только при точном совпадении с примером) содержит
+                // готовые параметры для generateQueryParams, иначе они выводятся из запроса
+                String dataNeeded = classification.trainingOutput() != null
+                        ? classification.trainingOutput() : "Требуется анализ данных о ремонтах";
+                return new AnalysisResult(true, null, dataNeeded);
+        }
+    }
+    
+    /**
+     * Замены фраз и удаление слов-паразитов - раздел normalization в routing/intent_rules.json
+     */
     private String normalizeRequest(String request) {
-        return request.toLowerCase()
-                .replace("сколько раз", "количество")
-                .replace("как починить", "инструкция по ремонту")
-                .replace("как отремонтировать", "инструкция по ремонту")
-                .replaceAll("\\b(пожалуйста|мне|нужно)\\b", "")
-                .trim();
+        return intentMatcher.normalize(request);
     }
     
     private AnalysisResult classifyWithAI(String request) {
@@ -39,12 +99,12 @@ public class QueryAnalysisService {
             "- 'кто ты' → general\n" +
             "Запрос: %s", request);
         
-        String classification = ollamaService.generateResponse(prompt).toLowerCase().trim();
+        String classification = ollamaService.generateResponse(prompt, LlmPriority.BACKGROUND).toLowerCase().trim();
         
         if (classification.contains("general")) {
             return handleGeneralQuery(request);
         } else if (classification.contains("instruction")) {
-            return new AnalysisResult(false, "Для получения инструкций по ремонту обратитесь к техническому руководству или специалисту.", null);
+            return new AnalysisResult(false, INSTRUCTION_ANSWER, null);
         }
         
         return new AnalysisResult(true, null, "Требуется анализ данных о ремонтах");
@@ -143,6 +203,21 @@ public class QueryAnalysisService {
             params.setLimit(100);
         }
         
+        // Число записей, названное в запросе, важнее значения по умолчанию для вида запроса
+        Matcher limit = EXPLICIT_LIMIT.matcher(lowerRequest);
+        if (limit.find()) {
+            String number = limit.group(1) != null ? limit.group(1) : limit.group(2);
+            params.setLimit(Math.min(Integer.parseInt(number), MAX_LIMIT));
+            if (!params.isOrderByDowntime() && lowerRequest.contains("последн")) {
+                params.setOrderByDate(true);
+            }
+        }
+        
+        Matcher machine = MACHINE_CODE.matcher(lowerRequest);
+        if (machine.find()) {
+            params.setMachineKeyword(machine.group(1).toUpperCase(Locale.ROOT));
+        }
+        
         return params;
     }
     
@@ -1,5 +1,7 @@
 package ru.georgdeveloper.assistantcore.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
 
 import ru.georgdeveloper.assistantcore.repository.EquipmentMaintenanceRepository;
@@ -11,6 +13,12 @@ import ru.georgdeveloper.assistantcore.repository.SummaryOfSolutionsRepository;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import ru.georgdeveloper.assistantcore.llm.LlmUnavailableException;
+import ru.georgdeveloper.assistantcore.llm.SingleFlight;
+import ru.georgdeveloper.assistantcore.llm.StreamingSingleFlight;
 
 /**
  * Основной сервис для обработки запросов по ремонту оборудования.
@@ -24,6 +32,9 @@ import java.util.List;
 @Service
 public class RepairAssistantService {
     
+    // Начало ответа без модели (автомат защиты разомкнут); такие ответы не кэшируются
+    public static final String FALLBACK_PREFIX = "AI-модель временно недоступна";
+    
     // Сервис для взаимодействия с Ollama AI (deepseek-coder:6.7b)
     private final OllamaService ollamaService;
     
@@ -37,6 +48,27 @@ public class RepairAssistantService {
     
     // Сервис поиска по БД
     private final DatabaseSearchService databaseSearchService;
+    
+    // Кэш готовых ответов на повторяющиеся вопросы
+    private final ResponseCacheService responseCacheService;
+    
+    // Кэш ответов на близкие по смыслу вопросы (перефразирования)
+    private final SemanticAnswerCache semanticAnswerCache;
+    
+    // Одновременные одинаковые вопросы обрабатываются одной генерацией
+    private final SingleFlight<String, String> inFlightRequests = new SingleFlight<>("repair-request");
+    
+    // То же для потокового чата: присоединившиеся получают фрагменты общей генерации
+    private final StreamingSingleFlight<String> inFlightStreams = new StreamingSingleFlight<>("repair-request-stream");
+    
+    // Замер длительности этапов обработки
+    private final PipelineMetrics pipelineMetrics;
+    
+    // Сборка контекста из БД в пределах бюджета токенов модели
+    private final PromptContextBuilder contextBuilder;
+    
+    // Фразы-триггеры маршрутизации запроса (routing/intent_rules.json)
+    private final IntentMatcher intentMatcher;
 
     /**
      * Конструктор сервиса
@@ -47,7 +79,13 @@ public class RepairAssistantService {
             BreakdownReportRepository breakdownReportRepository,
             SummaryOfSolutionsRepository summaryOfSolutionsRepository,
             QueryAnalysisService queryAnalysisService,
-            DatabaseSearchService databaseSearchService
+            DatabaseSearchService databaseSearchService,
+            ResponseCacheService responseCacheService,
+            SemanticAnswerCache semanticAnswerCache,
+            PipelineMetrics pipelineMetrics,
+            PromptContextBuilder contextBuilder,
+            IntentMatcher intentMatcher,
+            ObjectProvider<MeterRegistry> meterRegistry
     ) {
         this.ollamaService = ollamaService;
         this.equipmentMaintenanceRepository = equipmentMaintenanceRepository;
@@ -55,6 +93,13 @@ public class RepairAssistantService {
         this.summaryOfSolutionsRepository = summaryOfSolutionsRepository;
         this.queryAnalysisService = queryAnalysisService;
         this.databaseSearchService = databaseSearchService;
+        this.responseCacheService = responseCacheService;
+        this.semanticAnswerCache = semanticAnswerCache;
+        this.pipelineMetrics = pipelineMetrics;
+        this.contextBuilder = contextBuilder;
+        this.intentMatcher = intentMatcher;
+        meterRegistry.ifAvailable(inFlightRequests::bindTo);
+        meterRegistry.ifAvailable(inFlightStreams::bindTo);
     }
     
     /**
@@ -67,36 +112,146 @@ public class RepairAssistantService {
      * 4. Отправляет запрос в Ollama (deepseek-coder:6.7b)
      * 5. Возвращает обработанный ответ без технических размышлений
      * 
+     * Повторный вопрос при неизменных данных отдаётся из кэша без обращения к БД и AI,
+     * перефразированный - из семантического кэша. Одинаковые вопросы, пришедшие
+     * одновременно (до появления ответа в кэше), ждут одну общую генерацию.
+     * Пока модель недоступна, возвращаются найденные в БД записи без обращения к модели.
+     * 
      * @param request Запрос пользователя (например: "Посчитай ремонты со статусом временно закрыто")
      * @return Ответ AI на основе реальных данных из БД
      */
     public String processRepairRequest(String request) {
+        return responseCacheService.getOrCompute(request,
+                () -> inFlightRequests.execute(ResponseCacheService.normalize(request),
+                        () -> semanticAnswerCache.getOrCompute(request,
+                                () -> answerFromDatabase(request, ollamaService::generateResponse))));
+    }
+    
+    /**
+     * Потоковый вариант processRepairRequest: тот же промпт, но ответ модели
+     * передаётся в onToken по частям, как только Ollama их сгенерирует.
+     * Ответ из кэша передаётся одним фрагментом. Одинаковые вопросы, пришедшие
+     * во время генерации, не ищут в БД и не генерируют заново: они получают
+     * уже напечатанную часть ответа и дальше печатаются вместе с первым.
+     * 
+     * @param request Запрос пользователя
+     * @param onToken Получатель фрагментов ответа (например, SSE эмиттер)
+     * @return Полный ответ AI
+     */
+    public String processRepairRequestStream(String request, Consumer<String> onToken) {
+        return processRepairRequestStream(request, onToken, null);
+    }
+    
+    /**
+     * Потоковая обработка с уведомлением о позиции в очереди к модели
+     * 
+     * @param onQueuePosition получает позицию в очереди, пока генерация ждёт слот (может быть null)
+     */
+    public String processRepairRequestStream(String request, Consumer<String> onToken, IntConsumer onQueuePosition) {
+        var cached = responseCacheService.get(request);
+        if (cached.isPresent()) {
+            onToken.accept(cached.get());
+            return cached.get();
+        }
+        SemanticAnswerCache.Lookup lookup = semanticAnswerCache.lookup(request);
+        if (lookup.answer() != null) {
+            onToken.accept(lookup.answer());
+            responseCacheService.put(request, lookup.answer());
+            return lookup.answer();
+        }
+        return inFlightStreams.execute(ResponseCacheService.normalize(request), onToken, onQueuePosition,
+                (sink, positions) -> generateStream(request, lookup, sink, positions));
+    }
+    
+    /**
+     * Потоковая генерация по данным БД с записью ответа в кэши
+     */
+    private String generateStream(String request, SemanticAnswerCache.Lookup lookup,
+                                  Consumer<String> onToken, IntConsumer onQueuePosition) {
+        String answer = answerFromDatabase(request,
+                prompt -> ollamaService.generateResponseStream(prompt, onToken, onQueuePosition));
+        if (answer.startsWith(FALLBACK_PREFIX)) {
+            // Модель недоступна: отказ пришёл до первого фрагмента
+            onToken.accept(answer);
+            return answer;
+        }
+        semanticAnswerCache.store(lookup, answer);
+        responseCacheService.put(request, answer);
+        return answer;
+    }
+    
+    /**
+     * Ищет данные по запросу во всех таблицах и передаёт промпт с ними модели.
+     * Если модель недоступна (автомат защиты разомкнут), ответом становятся
+     * сами найденные записи - без ожидания таймаутов Ollama.
+     */
+    private String answerFromDatabase(String request, Function<String, String> generate) {
         // Универсальный анализ запроса и поиск по всем таблицам
         DatabaseSearchService.SearchResult result = databaseSearchService.searchAll(request, 10);
-        StringBuilder context = new StringBuilder();
-        if (!result.summary.isEmpty()) {
-            context.append("НАЙДЕННЫЕ РЕШЕНИЯ ИЗ БАЗЫ СЛОЖНЫХ РЕМОНТОВ:\n");
-            for (var s : result.summary) {
-                context.append(String.format("• Оборудование: %s\n  Узел: %s\n  Описание: %s\n  Меры: %s\n  Комментарии: %s\n\n",
-                    s.getEquipment(), s.getNode(), s.getNotes_on_the_operation_of_the_equipment(), s.getMeasures_taken(), s.getComments()));
-            }
+        PromptContextBuilder.Packed packed = packRepairContext(result);
+        try {
+            return generate.apply(buildRepairPrompt(request, packed));
+        } catch (LlmUnavailableException e) {
+            return fallbackAnswer(packed.text(), e);
         }
-        if (!result.equipment.isEmpty()) {
-            context.append("Реальные случаи ремонта из базы EquipmentMaintenanceRecord:\n");
-            for (var r : result.equipment) {
-                context.append(String.format("• Оборудование: %s\n  Узел: %s\n  Проблема: %s\n  Решение: %s\n  Статус: %s\n\n",
-                    r.getMachineName(), r.getMechanismNode(), r.getDescription(), r.getComments(), r.getStatus()));
-            }
+    }
+    
+    /**
+     * Ответ без модели из уже собранного контекста БД
+     */
+    static String fallbackAnswer(String dbContext, LlmUnavailableException e) {
+        String retry = " (повторите запрос через " + e.getRetryAfterSeconds() + " с)";
+        if (dbContext == null || dbContext.isBlank()) {
+            return FALLBACK_PREFIX + retry + ". В базе по запросу ничего не найдено.";
         }
-        if (!result.breakdowns.isEmpty()) {
-            context.append("Отчеты о поломках из базы BreakdownReport:\n");
-            for (var b : result.breakdowns) {
-                context.append(String.format("• Машина: %s\n  Узел: %s\n  Комментарий: %s\n  Статус: %s\n\n",
-                    b.getMachineName(), b.getAssembly(), b.getComment(), b.getWoStatusLocalDescr()));
-            }
+        return FALLBACK_PREFIX + retry + ". Найденные в базе записи:\n\n" + dbContext.trim();
+    }
+    
+    /**
+     * Контекст из БД для основного сценария обработки запроса.
+     * Найденные строки укладываются в бюджет токенов: при равной позиции в выдаче
+     * важнее решения из базы сложных ремонтов, затем случаи ремонта, затем отчёты
+     */
+    private PromptContextBuilder.Packed packRepairContext(DatabaseSearchService.SearchResult result) {
+        PromptContextBuilder.Context context = contextBuilder.newContext();
+        context.section("НАЙДЕННЫЕ РЕШЕНИЯ ИЗ БАЗЫ СЛОЖНЫХ РЕМОНТОВ:", PromptContextBuilder.Style.BULLET);
+        for (int i = 0; i < result.summary.size(); i++) {
+            var s = result.summary.get(i);
+            context.add(1.0 / (i + 1),
+                    PromptContextBuilder.field("Оборудование", s.getEquipment()),
+                    PromptContextBuilder.field("Узел", s.getNode()),
+                    PromptContextBuilder.longField("Описание", s.getNotes_on_the_operation_of_the_equipment()),
+                    PromptContextBuilder.longField("Меры", s.getMeasures_taken()),
+                    PromptContextBuilder.longField("Комментарии", s.getComments()));
+        }
+        context.section("Реальные случаи ремонта из базы EquipmentMaintenanceRecord:", PromptContextBuilder.Style.BULLET);
+        for (int i = 0; i < result.equipment.size(); i++) {
+            var r = result.equipment.get(i);
+            context.add(0.9 / (i + 1),
+                    PromptContextBuilder.field("Оборудование", r.getMachineName()),
+                    PromptContextBuilder.field("Узел", r.getMechanismNode()),
+                    PromptContextBuilder.longField("Проблема", r.getDescription()),
+                    PromptContextBuilder.longField("Решение", r.getComments()),
+                    PromptContextBuilder.field("Статус", r.getStatus()));
         }
+        context.section("Отчеты о поломках из базы BreakdownReport:", PromptContextBuilder.Style.BULLET);
+        for (int i = 0; i < result.breakdowns.size(); i++) {
+            var b = result.breakdowns.get(i);
+            context.add(0.8 / (i + 1),
+                    PromptContextBuilder.field("Машина", b.getMachineName()),
+                    PromptContextBuilder.field("Узел", b.getAssembly()),
+                    PromptContextBuilder.longField("Комментарий", b.getComment()),
+                    PromptContextBuilder.field("Статус", b.getWoStatusLocalDescr()));
+        }
+        return context.build();
+    }
+    
+    /**
+     * Формирует промпт с контекстом из БД для основного сценария обработки запроса
+     */
+    private String buildRepairPrompt(String request, PromptContextBuilder.Packed packed) {
         String prompt;
-        if (context.length() == 0) {
+        if (packed.isEmpty()) {
             // fallback: поиск по ключевым словам
             prompt = SmartPromptBuilder.buildKeywordFallbackPrompt(request, equipmentMaintenanceRepository);
         } else {
@@ -107,32 +262,38 @@ public class RepairAssistantService {
                 %s
                 Запрос пользователя: %s
                 Дай подробный ответ, строго основываясь на найденных данных. Если данных нет — сообщи об этом.
-                """, context, request);
+                """, packed.text(), request);
         }
-        return ollamaService.generateResponse(prompt);
+        return contextBuilder.recordPrompt(prompt);
     }
     
     /**
      * Обработка запроса с поддержкой индикатора прогресса
      */
     public String processRepairRequest(String request, Runnable progressCallback) {
+        // Все фразы маршрутизации ищутся одним проходом по запросу
+        IntentMatcher.Matches intents = intentMatcher.match(request);
+        
         // Проверяем общие запросы
-        if (isGeneralQuery(request)) {
+        if (intents.has(IntentMatcher.GENERAL)) {
             return handleGeneralQuery(request);
         }
         
         // Проверяем, является ли это запросом на инструкцию по ремонту
-        if (isRepairInstructionRequest(request)) {
+        if (isRepairInstructionRequest(request, intents)) {
             // Получаем данные из БД для контекста
-            String dbContext = buildRepairInstructionContext(request);
+            String dbContext = buildRepairInstructionContext(intents.first(IntentMatcher.SEARCH_KEYWORD));
             
             // Используем промпт с данными из БД
-            String prompt = buildRepairPromptWithData(request, dbContext);
-            String response = ollamaService.generateResponse(prompt);
-            return removeThinkTags(response);
+            String prompt = contextBuilder.recordPrompt(buildRepairPromptWithData(request, dbContext));
+            try {
+                return removeThinkTags(ollamaService.generateResponse(prompt));
+            } catch (LlmUnavailableException e) {
+                return fallbackAnswer(dbContext, e);
+            }
         }
         
-        // Этап 1: AI анализирует запрос и решает, нужны ли данные из БД
+        // Этап 1: классификация запроса (локально, при низкой уверенности - через AI)
         QueryAnalysisService.AnalysisResult analysis = queryAnalysisService.analyzeRequest(request);
         
         if (!analysis.needsDatabase()) {
@@ -140,16 +301,17 @@ public class RepairAssistantService {
             return analysis.getSimpleAnswer();
         }
         
-        // Этап 2: AI определяет параметры для поиска в БД
-        QueryAnalysisService.QueryParams params = queryAnalysisService.generateQueryParams(request, analysis.getDataNeeded());
+        // Этап 2: Определяем параметры для поиска в БД (разметка классификатора или правила)
+        QueryAnalysisService.QueryParams params = pipelineMetrics.time("query-params",
+                () -> queryAnalysisService.generateQueryParams(request, analysis.getDataNeeded()));
         
         // Обновляем индикатор прогресса
         if (progressCallback != null) {
             progressCallback.run();
         }
         
-        // Этап 3: Получаем данные из БД по AI-генерированным параметрам
-        buildDatabaseContextWithParams(params);
+        // Этап 3: Получаем данные из БД по сгенерированным параметрам
+        String dbContext = pipelineMetrics.time("db-context", () -> buildDatabaseContextWithParams(params));
         
         // Обновляем индикатор прогресса
         if (progressCallback != null) {
@@ -157,10 +319,14 @@ public class RepairAssistantService {
         }
         
         // Этап 4: AI анализирует полученные данные и дает ответ с умным промптом
-    String prompt = SmartPromptBuilder.buildStatisticsPrompt(request, params, databaseSearchService);
-        String response = ollamaService.generateResponse(prompt);
-        
-        return removeThinkTags(response);
+        String prompt = pipelineMetrics.time("prompt",
+                () -> SmartPromptBuilder.buildStatisticsPrompt(request, params, databaseSearchService));
+        try {
+            String response = pipelineMetrics.time("generate", () -> ollamaService.generateResponse(prompt));
+            return removeThinkTags(response);
+        } catch (LlmUnavailableException e) {
+            return fallbackAnswer(dbContext, e);
+        }
     }
     
     /**
@@ -170,7 +336,7 @@ public class RepairAssistantService {
      * @return Форматированный контекст с релевантными данными
      */
     private String buildDatabaseContextWithParams(QueryAnalysisService.QueryParams params) {
-        StringBuilder context = new StringBuilder();
+        PromptContextBuilder.Context context = contextBuilder.newContext();
         
         try {
             // Используем AI-генерированные параметры
@@ -181,25 +347,25 @@ public class RepairAssistantService {
              */
             if (equipmentMaintenanceRepository != null) {
                 List<EquipmentMaintenanceRecord> maintenanceRecords = getMaintenanceRecords(params, pageable);
-                if (!maintenanceRecords.isEmpty()) {
-                    context.append("Данные о ремонтах оборудования (найдено ").append(maintenanceRecords.size()).append(" записей):\n");
-                    for (EquipmentMaintenanceRecord record : maintenanceRecords) {
-                        context.append(String.format("ID:%d | Code:%s | Machine:%s | Node:%s | Problem:%s | Status:%s | Downtime:%s | TTR:%s | FailureType:%s | Area:%s | Date:%s | Maintainers:%s | Comments:%s\n", 
-                            record.getId() != null ? record.getId() : 0,
-                            record.getCode() != null ? record.getCode() : "BD" + String.format("%010d", record.getId() != null ? record.getId() : 0),
-                            record.getMachineName() != null ? record.getMachineName() : "Не указано",
-                            record.getMechanismNode() != null ? record.getMechanismNode() : "Не указан",
-                            record.getDescription() != null ? record.getDescription() : "Описание отсутствует",
-                            record.getStatus() != null ? record.getStatus() : "Не указан",
-                            record.getMachineDowntime() != null ? record.getMachineDowntime().toString() : "не указано",
-                            record.getTtr() != null ? record.getTtr().toString() : "не указано",
-                            record.getFailureType() != null ? record.getFailureType() : "Не указан",
-                            record.getArea() != null ? record.getArea() : "Не указана",
-                            record.getDate() != null ? record.getDate() : "не указана",
-                            record.getMaintainers() != null ? record.getMaintainers() : "Не указаны",
-                            record.getComments() != null ? record.getComments().substring(0, Math.min(100, record.getComments().length())) + "..." : "Нет комментариев"));
-                    }
-                    context.append("\n");
+                context.section("Данные о ремонтах оборудования (найдено {count} записей):", PromptContextBuilder.Style.INLINE);
+                // Записи уже отсортированы запросом: порядок и есть ранг
+                for (int i = 0; i < maintenanceRecords.size(); i++) {
+                    EquipmentMaintenanceRecord record = maintenanceRecords.get(i);
+                    long id = record.getId() != null ? record.getId() : 0;
+                    context.add(1.0 / (i + 1),
+                            PromptContextBuilder.field("ID", id),
+                            PromptContextBuilder.field("Code", record.getCode() != null ? record.getCode() : String.format("BD%010d", id)),
+                            PromptContextBuilder.field("Machine", record.getMachineName()),
+                            PromptContextBuilder.field("Node", record.getMechanismNode()),
+                            PromptContextBuilder.longField("Problem", record.getDescription()),
+                            PromptContextBuilder.field("Status", record.getStatus()),
+                            PromptContextBuilder.field("Downtime", record.getMachineDowntime()),
+                            PromptContextBuilder.field("TTR", record.getTtr()),
+                            PromptContextBuilder.field("FailureType", record.getFailureType()),
+                            PromptContextBuilder.field("Area", record.getArea()),
+                            PromptContextBuilder.field("Date", record.getDate()),
+                            PromptContextBuilder.field("Maintainers", record.getMaintainers()),
+                            PromptContextBuilder.longField("Comments", record.getComments()));
                 }
             }
             
@@ -208,18 +374,16 @@ public class RepairAssistantService {
              */
             if (breakdownReportRepository != null) {
                 List<BreakdownReport> breakdownReports = getBreakdownReports(params, pageable);
-                if (!breakdownReports.isEmpty()) {
-                    context.append("Отчеты о поломках (найдено ").append(breakdownReports.size()).append(" записей):\n");
-                    for (BreakdownReport report : breakdownReports) {
-                        context.append(String.format("Code:%s | Machine:%s | Assembly:%s | Comment:%s | Status:%s | Duration:%s min\n", 
-                            report.getIdCode() != null ? report.getIdCode() : "Не указан",
-                            report.getMachineName() != null ? report.getMachineName() : "Не указан",
-                            report.getAssembly() != null ? report.getAssembly() : "Не указана",
-                            report.getComment() != null ? report.getComment() : "Комментарий отсутствует",
-                            report.getWoStatusLocalDescr() != null ? report.getWoStatusLocalDescr() : "Не указан",
-                            report.getDuration() != null ? report.getDuration().toString() : "не указано"));
-                    }
-                    context.append("\n");
+                context.section("Отчеты о поломках (найдено {count} записей):", PromptContextBuilder.Style.INLINE);
+                for (int i = 0; i < breakdownReports.size(); i++) {
+                    BreakdownReport report = breakdownReports.get(i);
+                    context.add(0.9 / (i + 1),
+                            PromptContextBuilder.field("Code", report.getIdCode()),
+                            PromptContextBuilder.field("Machine", report.getMachineName()),
+                            PromptContextBuilder.field("Assembly", report.getAssembly()),
+                            PromptContextBuilder.longField("Comment", report.getComment()),
+                            PromptContextBuilder.field("Status", report.getWoStatusLocalDescr()),
+                            PromptContextBuilder.field("Duration, min", report.getDuration()));
                 }
             }
             
@@ -227,10 +391,10 @@ public class RepairAssistantService {
             
         } catch (Exception e) {
             // Логируем ошибки подключения к БД, но не прерываем работу
-            context.append("Ошибка загрузки данных из базы: ").append(e.getMessage()).append("\n");
+            return context.build().text() + "Ошибка загрузки данных из базы: " + e.getMessage() + "\n";
         }
         
-        return context.toString();
+        return context.build().text();
     }
     
     /**
@@ -297,32 +461,13 @@ public class RepairAssistantService {
     }
     
     /**
-     * Проверяет, является ли запрос общим
+     * Универсальное определение запросов на инструкции по ремонту:
+     * прямое описание проблемы, вопрос об оборудовании или запрос инструкции
      */
-    private boolean isGeneralQuery(String request) {
-        String lower = request.toLowerCase();
-        return lower.contains("кто ты") || lower.contains("что умеешь") || 
-               lower.contains("что можешь") || lower.contains("привет");
-    }
-    
-    /**
-     * Универсальное определение запросов на инструкции по ремонту
-     */
-    private boolean isRepairInstructionRequest(String request) {
-        String lower = request.toLowerCase();
-        
-        // Прямые указания на проблемы
-        if (lower.matches(".*(\u043d\u0435 \u0440\u0430\u0431\u043e\u0442\u0430\u0435\u0442|\u043d\u0435\u0438\u0441\u043f\u0440\u0430\u0432\u043d\u043e\u0441\u0442\u044c|\u043f\u043e\u043b\u043e\u043c\u043a\u0430|\u0447\u0442\u043e \u0434\u0435\u043b\u0430\u0442\u044c|\u043a\u0430\u043a \u0443\u0441\u0442\u0440\u0430\u043d\u0438\u0442\u044c|\u043a\u0430\u043a \u043f\u043e\u0447\u0438\u043d\u0438\u0442\u044c|\u0443\u0442\u0435\u0447\u043a\u0430|\u043d\u0435 \u043d\u0430\u043a\u043b\u0430\u0434\u044b\u0432\u0430\u0435\u0442\u0441\u044f|\u043d\u0435 \u043a\u0440\u0443\u0442\u0438\u0442\u0441\u044f|\u043d\u0435 \u0437\u0430\u043f\u0443\u0441\u043a\u0430\u0435\u0442\u0441\u044f).*")) {
-            return true;
-        }
-        
-        // В\u043e\u043f\u0440\u043e\u0441\u044b \u0441 \u043e\u043f\u0438\u0441\u0430\u043d\u0438\u0435\u043c \u043f\u0440\u043e\u0431\u043b\u0435\u043c\u044b
-        if (request.endsWith("?") && (lower.contains("о\u0431\u043e\u0440\u0443\u0434\u043e\u0432\u0430\u043d") || lower.contains("с\u0442\u0430\u043d\u043e\u043a") || lower.contains("м\u0430\u0448\u0438\u043d"))) {
-            return true;
-        }
-        
-        // \u0417\u0430\u043f\u0440\u043e\u0441\u044b \u043d\u0430 \u0438\u043d\u0441\u0442\u0440\u0443\u043a\u0446\u0438\u0438
-        return lower.contains("и\u043d\u0441\u0442\u0440\u0443\u043a\u0446\u0438\u0430") || lower.contains("п\u0440\u043e\u0431\u043b\u0435\u043c\u0430");
+    static boolean isRepairInstructionRequest(String request, IntentMatcher.Matches intents) {
+        return intents.has(IntentMatcher.REPAIR_PROBLEM)
+                || (request.endsWith("?") && intents.has(IntentMatcher.EQUIPMENT))
+                || intents.has(IntentMatcher.INSTRUCTION);
     }
     
     private String handleGeneralQuery(String request) {
@@ -341,24 +486,28 @@ public class RepairAssistantService {
     
     /**
      * Получает контекст из БД для инструкций по ремонту
+     *
+     * @param keyword ключевое слово поиска (список search-keyword правил маршрутизации), может быть null
      */
-    private String buildRepairInstructionContext(String request) {
-        StringBuilder context = new StringBuilder();
+    private String buildRepairInstructionContext(String keyword) {
         try {
-            String keyword = extractKeyword(request);
             if (keyword != null && summaryOfSolutionsRepository != null) {
                 List<SummaryOfSolutions> summaryMatches = summaryOfSolutionsRepository.searchByKeyword(keyword);
                 if (summaryMatches != null && !summaryMatches.isEmpty()) {
-                    context.append("НАЙДЕННЫЕ РЕШЕНИЯ ИЗ БАЗЫ СЛОЖНЫХ РЕМОНТОВ (цитируй эти меры и комментарии в ответе):\n");
-                    summaryMatches.stream().limit(5).forEach(s -> {
-                        context.append(String.format("• Оборудование: %s\n", s.getEquipment()));
-                        context.append(String.format("  Узел: %s\n", s.getNode()));
-                        context.append(String.format("  Описание: %s\n", s.getNotes_on_the_operation_of_the_equipment()));
-                        context.append(String.format("  Меры (цитировать!): %s\n", s.getMeasures_taken()));
-                        context.append(String.format("  Комментарии (цитировать!): %s\n\n", s.getComments()));
-                    });
-                    context.append("\nИспользуй найденные меры и комментарии из базы выше в ответе для пользователя. Не придумывай общих советов, а только цитируй найденные решения.\n");
-                    return context.toString();
+                    PromptContextBuilder.Context context = contextBuilder.newContext();
+                    context.section("НАЙДЕННЫЕ РЕШЕНИЯ ИЗ БАЗЫ СЛОЖНЫХ РЕМОНТОВ (цитируй эти меры и комментарии в ответе):",
+                            PromptContextBuilder.Style.BULLET);
+                    for (int i = 0; i < summaryMatches.size() && i < 5; i++) {
+                        SummaryOfSolutions s = summaryMatches.get(i);
+                        context.add(1.0 / (i + 1),
+                                PromptContextBuilder.field("Оборудование", s.getEquipment()),
+                                PromptContextBuilder.field("Узел", s.getNode()),
+                                PromptContextBuilder.longField("Описание", s.getNotes_on_the_operation_of_the_equipment()),
+                                PromptContextBuilder.longField("Меры (цитировать!)", s.getMeasures_taken()),
+                                PromptContextBuilder.longField("Комментарии (цитировать!)", s.getComments()));
+                    }
+                    return context.build().text()
+                            + "Используй найденные меры и комментарии из базы выше в ответе для пользователя. Не придумывай общих советов, а только цитируй найденные решения.\n";
                 }
             }
             // Если не найдено — ищем в EquipmentMaintenanceRecord
@@ -366,28 +515,24 @@ public class RepairAssistantService {
                 List<EquipmentMaintenanceRecord> records = equipmentMaintenanceRepository
                     .findByKeyword(keyword, PageRequest.of(0, 10));
                 if (!records.isEmpty()) {
-                    context.append("Реальные случаи ремонта из базы данных:\n");
-                    for (EquipmentMaintenanceRecord record : records) {
-                        context.append(String.format("• Оборудование: %s\n",
-                            record.getMachineName() != null ? record.getMachineName() : "Неуказано"));
-                        context.append(String.format("  Проблема: %s\n",
-                            record.getDescription() != null ? record.getDescription() : "Не указана"));
-                        context.append(String.format("  Решение: %s\n",
-                            record.getComments() != null ? record.getComments() : "Не указано"));
-                        context.append(String.format("  Статус: %s\n",
-                            record.getStatus() != null ? record.getStatus() : "Не указан"));
-                        context.append("\n");
+                    PromptContextBuilder.Context context = contextBuilder.newContext();
+                    context.section("Реальные случаи ремонта из базы данных:", PromptContextBuilder.Style.BULLET);
+                    for (int i = 0; i < records.size(); i++) {
+                        EquipmentMaintenanceRecord record = records.get(i);
+                        context.add(1.0 / (i + 1),
+                                PromptContextBuilder.field("Оборудование", record.getMachineName()),
+                                PromptContextBuilder.longField("Проблема", record.getDescription()),
+                                PromptContextBuilder.longField("Решение", record.getComments()),
+                                PromptContextBuilder.field("Статус", record.getStatus()));
                     }
-                } else {
-                    context.append("По ключевому слову '").append(keyword).append("' не найдено случаев ремонта в базе данных.\n");
+                    return context.build().text();
                 }
-            } else {
-                context.append("Не удалось определить ключевое слово для поиска в базе данных.\n");
+                return "По ключевому слову '" + keyword + "' не найдено случаев ремонта в базе данных.\n";
             }
+            return "Не удалось определить ключевое слово для поиска в базе данных.\n";
         } catch (Exception e) {
-            context.append("Ошибка подключения к базе данных: ").append(e.getMessage()).append("\n");
+            return "Ошибка подключения к базе данных: " + e.getMessage() + "\n";
         }
-        return context.toString();
     }
     
     /**
@@ -416,37 +561,10 @@ public class RepairAssistantService {
             """, dbContext, request);
     }
     
-    /**
-     * Извлекает ключевое слово для поиска в БД
-     */
-    private String extractKeyword(String request) {
-        String lower = request.toLowerCase();
-        
-        // Приоритет комбинациям слов
-        if (lower.contains("утечка") && lower.contains("азот")) return "азот";
-        if (lower.contains("утечка") && lower.contains("масл")) return "масл";
-        if (lower.contains("форматор")) return "форматор";
-        if (lower.contains("vmi")) return "vmi";
-        if (lower.contains("протектор")) return "протектор";
-        if (lower.contains("температур")) return "температур";
-        if (lower.contains("конус")) return "конус";
-        
-        // Отдельные ключевые слова
-        if (lower.contains("утечка")) return "утечка";
-        if (lower.contains("азот")) return "азот";
-        if (lower.contains("масл")) return "масл";
-        if (lower.contains("пар")) return "пар";
-        if (lower.contains("воздух")) return "воздух";
-        if (lower.contains("насос")) return "насос";
-        if (lower.contains("двигатель")) return "двигатель";
-        
-        return null;
-    }
-    
     /**
      * Удаляет теги размышлений из ответа AI
      */
-    private String removeThinkTags(String response) {
+    static String removeThinkTags(String response) {
         if (response == null) return null;
         
         // Удаляем все содержимое между <think> и </think>
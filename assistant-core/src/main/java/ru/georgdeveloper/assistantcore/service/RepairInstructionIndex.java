@@ -0,0 +1,138 @@
+package ru.georgdeveloper.assistantcore.service;
+
+import ru.georgdeveloper.assistantcommon.text.RussianStemmer;
+import ru.georgdeveloper.assistantcore.search.InvertedIndex;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Неизменяемые индексы по инструкциям из repair_instructions.json.
+ *
+ * Раньше каждый поиск проходил по всем инструкциям: contains по тексту
+ * проблемы и решения, а затем пересчитывал релевантность в компараторе
+ * сортировки. Теперь при загрузке строятся:
+ * - инвертированный индекс (участок, группа оборудования, узел, проблема,
+ *   решение) с ранжированием BM25: оценка считается один раз для документов,
+ *   где встретились ключевые слова, лучшие отбираются кучей размера limit;
+ * - отсортированный словарь групп оборудования для поиска по префиксу:
+ *   ключи - название группы и его окончания с начала каждого слова,
+ *   поэтому "hfv2" и "a16" находят "HFV2 A16".
+ */
+final class RepairInstructionIndex {
+
+    static final RepairInstructionIndex EMPTY = build(List.of());
+
+    // Ключевые слова короче не ищутся (как и раньше в matchesKeywords)
+    private static final int MIN_KEYWORD_LENGTH = 3;
+
+    private final List<RepairInstructionsService.RepairInstruction> instructions;
+    private final InvertedIndex<Integer> keywords;
+    private final TreeMap<String, int[]> equipmentGroups;
+
+    private RepairInstructionIndex(List<RepairInstructionsService.RepairInstruction> instructions,
+                                   InvertedIndex<Integer> keywords, TreeMap<String, int[]> equipmentGroups) {
+        this.instructions = instructions;
+        this.keywords = keywords;
+        this.equipmentGroups = equipmentGroups;
+    }
+
+    static RepairInstructionIndex build(List<RepairInstructionsService.RepairInstruction> source) {
+        List<RepairInstructionsService.RepairInstruction> instructions = List.copyOf(source);
+        InvertedIndex<Integer> keywords = new InvertedIndex<>();
+        Map<String, List<Integer>> groups = new HashMap<>();
+        for (int i = 0; i < instructions.size(); i++) {
+            RepairInstructionsService.RepairInstruction instruction = instructions.get(i);
+            // При равной оценке выше инструкция, стоящая в файле раньше
+            keywords.add(i, -i, instruction.getArea(), instruction.getEquipmentGroup(),
+                    instruction.getComponent(), instruction.getProblem(), instruction.getSolution());
+            if (instruction.getEquipmentGroup() != null) {
+                for (String key : groupKeys(instruction.getEquipmentGroup())) {
+                    groups.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+                }
+            }
+        }
+        TreeMap<String, int[]> equipmentGroups = new TreeMap<>();
+        groups.forEach((key, ordinals) -> equipmentGroups.put(key,
+                ordinals.stream().mapToInt(Integer::intValue).toArray()));
+        return new RepairInstructionIndex(instructions, keywords, equipmentGroups);
+    }
+
+    List<RepairInstructionsService.RepairInstruction> instructions() {
+        return instructions;
+    }
+
+    /**
+     * Лучшие по BM25 инструкции для слов запроса (слова короче трёх букв пропускаются)
+     */
+    List<RepairInstructionsService.RepairInstruction> find(String[] words, int limit) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (String word : words) {
+            if (word.length() >= MIN_KEYWORD_LENGTH) {
+                terms.add(term(word));
+            }
+        }
+        return toInstructions(keywords.rank(terms, limit));
+    }
+
+    /**
+     * Инструкции групп оборудования, название которых или одно из его слов
+     * начинается с name; в порядке файла
+     */
+    List<RepairInstructionsService.RepairInstruction> forEquipment(String name) {
+        String prefix = name.toLowerCase(Locale.ROOT).trim();
+        BitSet found = new BitSet(instructions.size());
+        for (int[] ordinals : equipmentGroups.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            for (int ordinal : ordinals) {
+                found.set(ordinal);
+            }
+        }
+        List<RepairInstructionsService.RepairInstruction> result = new ArrayList<>(found.cardinality());
+        for (int i = found.nextSetBit(0); i >= 0; i = found.nextSetBit(i + 1)) {
+            result.add(instructions.get(i));
+        }
+        return result;
+    }
+
+    private List<RepairInstructionsService.RepairInstruction> toInstructions(
+            Collection<InvertedIndex.Scored<Integer>> scored) {
+        List<RepairInstructionsService.RepairInstruction> result = new ArrayList<>(scored.size());
+        for (InvertedIndex.Scored<Integer> s : scored) {
+            result.add(instructions.get(s.key()));
+        }
+        return result;
+    }
+
+    /**
+     * Основа слова для поиска по префиксу токенов индекса ("утечку" -> "утечк");
+     * слишком короткая основа заменяется самим словом
+     */
+    private static String term(String word) {
+        String normalized = word.replace('ё', 'е');
+        String stem = RussianStemmer.stem(normalized);
+        return stem.length() >= MIN_KEYWORD_LENGTH ? stem : normalized;
+    }
+
+    /**
+     * Название группы и его окончания с начала каждого слова: "hfv2 a16", "a16"
+     */
+    private static Set<String> groupKeys(String equipmentGroup) {
+        String lower = equipmentGroup.toLowerCase(Locale.ROOT).trim();
+        Set<String> keys = new LinkedHashSet<>();
+        keys.add(lower);
+        for (int i = 1; i < lower.length(); i++) {
+            if (!Character.isLetterOrDigit(lower.charAt(i - 1)) && Character.isLetterOrDigit(lower.charAt(i))) {
+                keys.add(lower.substring(i));
+            }
+        }
+        return keys;
+    }
+}
@@ -1,100 +1,167 @@
 package ru.georgdeveloper.assistantcore.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.JsonNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import ru.georgdeveloper.assistantcommon.instructions.RepairInstructionsJson;
+import ru.georgdeveloper.assistantcommon.instructions.RepairInstructionsStore;
+import ru.georgdeveloper.assistantcommon.io.FileChangeWatcher;
 import ru.georgdeveloper.assistantcore.config.ResourcePaths;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
- * Сервис для работы с инструкциями по ремонту из repair_instructions.json
+ * Сервис для работы с инструкциями по ремонту из repair_instructions.json.
+ *
+ * Инструкции и индексы поиска хранятся одним неизменяемым снимком
+ * (RepairInstructionIndex). Загрузка и перезагрузка идут в отдельном потоке:
+ * файл читается потоковым парсером, по нему строятся индексы, и только
+ * готовый снимок подменяет прежний. Запросы во время перезагрузки работают
+ * с прежним снимком, неудачная перезагрузка его не затирает.
+ *
+ * Файл берётся из ai.instructions.file, если задан (изменения файла
+ * подхватываются автоматически при ai.instructions.watch), иначе из classpath.
+ * При заданном ai.instructions.store инструкции читаются из общего с
+ * assistant-ai двоичного хранилища (RepairInstructionsStore): оно
+ * пересобирается из JSON при его изменении, а если JSON в classpath нет,
+ * используется хранилище, собранное assistant-ai.
  */
 @Service
 public class RepairInstructionsService {
     
     private static final Logger logger = LoggerFactory.getLogger(RepairInstructionsService.class);
     
+    private static final Pattern NON_CYRILLIC = Pattern.compile("[^а-яё\\s]");
+    private static final Pattern STOPWORDS = Pattern.compile("\\b(что|как|где|когда|не|на|в|и|или|а|но|для|по|с|из|к|от)\\b");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    
+    // Инструкций в ответе findRelevantInstructions
+    private static final int RELEVANT_LIMIT = 5;
+    
+    // Пауза после последнего изменения файла перед перезагрузкой
+    private static final Duration WATCH_DEBOUNCE = Duration.ofSeconds(2);
+    
     @Autowired
     private OllamaService ollamaService;
     
     @Autowired
-    private ResourceValidationService resourceValidationService;
+    private IntentMatcher intentMatcher;
+    
+    // Внешний файл инструкций; пусто - training/repair_instructions.json из classpath
+    @Value("${ai.instructions.file:}")
+    private String instructionsFile;
+    
+    // Двоичное хранилище инструкций, общее с assistant-ai; пусто - только JSON
+    @Value("${ai.instructions.store:}")
+    private String instructionsStore;
     
-    private final ObjectMapper objectMapper = new ObjectMapper();
-    private List<RepairInstruction> repairInstructions = new ArrayList<>();
+    // Перезагружать при изменении внешнего файла (или хранилища, если файл не задан)
+    @Value("${ai.instructions.watch:true}")
+    private boolean watch;
+    
+    // Текущий снимок: инструкции и индексы поиска
+    private volatile RepairInstructionIndex index = RepairInstructionIndex.EMPTY;
+    
+    // Загрузки выполняются по одной, в порядке запросов
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "repair-instructions-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private FileChangeWatcher watcher;
     
     @PostConstruct
     public void init() {
-        loadRepairInstructions();
+        // Запуск не ждёт разбора файла: до первой загрузки поиск возвращает пустой результат
+        reload();
+        // Без внешнего JSON отслеживается хранилище: его пересобирает assistant-ai
+        String watched = !instructionsFile.isBlank() ? instructionsFile : instructionsStore;
+        if (!watched.isBlank() && watch) {
+            try {
+                Path file = Paths.get(watched).toAbsolutePath();
+                Files.createDirectories(file.getParent());
+                watcher = FileChangeWatcher.start(file, WATCH_DEBOUNCE, this::reload);
+            } catch (IOException e) {
+                logger.warn("Не удалось отслеживать изменения {}: {}", watched, e.getMessage());
+            }
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() throws IOException {
+        if (watcher != null) {
+            watcher.close();
+        }
+        loader.shutdownNow();
     }
     
     /**
-     * Загружает инструкции по ремонту из JSON файла
+     * Перечитывает инструкции в фоновом потоке и подменяет снимок целиком.
+     *
+     * @return число загруженных инструкций; при ошибке future завершается
+     *         исключением, прежний снимок остаётся в работе
      */
-    public void loadRepairInstructions() {
-        try {
-            if (!resourceValidationService.isResourceAvailable(ResourcePaths.REPAIR_INSTRUCTIONS_JSON)) {
-                logger.error("Файл {} не найден в classpath", ResourcePaths.REPAIR_INSTRUCTIONS_JSON);
-                repairInstructions = new ArrayList<>();
-                return;
-            }
-            
-            ClassPathResource resource = new ClassPathResource(ResourcePaths.REPAIR_INSTRUCTIONS_JSON);
-            
-            try (InputStream inputStream = resource.getInputStream()) {
-                JsonNode rootNode = objectMapper.readTree(inputStream);
-                
-                if (rootNode.isArray()) {
-                    for (JsonNode node : rootNode) {
-                        RepairInstruction instruction = parseInstruction(node);
-                        if (instruction != null) {
-                            repairInstructions.add(instruction);
-                        }
-                    }
-                }
-                
-                logger.info("Загружено {} инструкций по ремонту", repairInstructions.size());
-            }
-            
-        } catch (Exception e) {
-            logger.error("Ошибка загрузки инструкций по ремонту: {}", e.getMessage(), e);
-            repairInstructions = new ArrayList<>();
-        }
+    public CompletableFuture<Integer> reload() {
+        return CompletableFuture.supplyAsync(this::loadSnapshot, loader);
     }
     
-    private RepairInstruction parseInstruction(JsonNode node) {
+    private int loadSnapshot() {
+        long start = System.currentTimeMillis();
+        Resource source = instructionsFile.isBlank()
+                ? new ClassPathResource(ResourcePaths.REPAIR_INSTRUCTIONS_JSON)
+                : new FileSystemResource(instructionsFile);
         try {
-            String area = getNodeText(node, "Участок");
-            String equipmentGroup = getNodeText(node, "Группа оборудования");
-            String component = getNodeText(node, "Узел");
-            String problem = getNodeText(node, "Проблема");
-            String solution = getNodeText(node, "Решение");
-            
-            if (problem != null && solution != null) {
-                return new RepairInstruction(area, equipmentGroup, component, problem, solution);
+            List<RepairInstruction> instructions = new ArrayList<>();
+            RepairInstructionsJson.Handler handler = (area, equipmentGroup, component, problem, solution) -> {
+                if (problem != null && solution != null) {
+                    instructions.add(new RepairInstruction(area, equipmentGroup, component, problem, solution));
+                }
+            };
+            int read;
+            if (!instructionsStore.isBlank()) {
+                read = RepairInstructionsStore.load(source, Paths.get(instructionsStore), handler);
+            } else if (source.exists()) {
+                try (InputStream in = source.getInputStream()) {
+                    read = RepairInstructionsJson.read(in, handler);
+                }
+            } else {
+                logger.error("Файл {} не найден", source);
+                return index.instructions().size();
             }
-        } catch (Exception e) {
-            logger.warn("Ошибка парсинга инструкции: {}", e.getMessage());
+            index = RepairInstructionIndex.build(instructions);
+            logger.info("Загружено {} инструкций по ремонту (пропущено без проблемы или решения: {}) за {} мс",
+                    instructions.size(), read - instructions.size(), System.currentTimeMillis() - start);
+            return instructions.size();
+        } catch (IOException e) {
+            logger.error("Ошибка загрузки инструкций по ремонту: {}", e.getMessage(), e);
+            throw new UncheckedIOException(e);
         }
-        return null;
-    }
-    
-    private String getNodeText(JsonNode node, String fieldName) {
-        JsonNode field = node.get(fieldName);
-        return field != null && !field.isNull() ? field.asText().trim() : null;
     }
     
     /**
-     * Находит подходящие инструкции по описанию проблемы
+     * Находит подходящие инструкции по описанию проблемы: не более пяти
+     * лучших по индексу ключевых слов (участок, оборудование, узел, проблема, решение)
      */
     public List<RepairInstruction> findRelevantInstructions(String problemDescription) {
         if (problemDescription == null || problemDescription.trim().isEmpty()) {
@@ -102,37 +169,12 @@ public class RepairInstructionsService {
         }
         
         String normalizedProblem = problemDescription.toLowerCase(Locale.ROOT);
-        String[] keywords = extractKeywords(normalizedProblem);
-        
-        return repairInstructions.stream()
-            .filter(instruction -> matchesKeywords(instruction, keywords))
-            .sorted((a, b) -> calculateRelevance(b, keywords) - calculateRelevance(a, keywords))
-            .limit(5)
-            .collect(Collectors.toList());
+        return index.find(extractKeywords(normalizedProblem), RELEVANT_LIMIT);
     }
     
-    private String[] extractKeywords(String text) {
-        return text.replaceAll("[^а-яё\\s]", " ")
-                  .replaceAll("\\b(что|как|где|когда|не|на|в|и|или|а|но|для|по|с|из|к|от)\\b", "")
-                  .trim()
-                  .split("\\s+");
-    }
-    
-    private boolean matchesKeywords(RepairInstruction instruction, String[] keywords) {
-        String searchText = (instruction.getProblem() + " " + instruction.getSolution()).toLowerCase(Locale.ROOT);
-        
-        return Arrays.stream(keywords)
-            .filter(keyword -> keyword.length() > 2)
-            .anyMatch(searchText::contains);
-    }
-    
-    private int calculateRelevance(RepairInstruction instruction, String[] keywords) {
-        String searchText = (instruction.getProblem() + " " + instruction.getSolution()).toLowerCase(Locale.ROOT);
-        
-        return (int) Arrays.stream(keywords)
-            .filter(keyword -> keyword.length() > 2)
-            .mapToLong(keyword -> searchText.split(keyword, -1).length - 1)
-            .sum();
+    static String[] extractKeywords(String text) {
+        String words = NON_CYRILLIC.matcher(text).replaceAll(" ");
+        return WHITESPACE.split(STOPWORDS.matcher(words).replaceAll("").trim());
     }
     
     /**
@@ -181,25 +223,20 @@ public class RepairInstructionsService {
     }
     
     /**
-     * Получает все инструкции для конкретного оборудования
+     * Получает все инструкции для конкретного оборудования (поиск по префиксу группы)
      */
     public List<RepairInstruction> getInstructionsForEquipment(String equipmentName) {
         if (equipmentName == null) return Collections.emptyList();
         
-        String normalizedName = equipmentName.toLowerCase(Locale.ROOT);
-        
-        return repairInstructions.stream()
-            .filter(instruction -> 
-                instruction.getEquipmentGroup() != null && 
-                instruction.getEquipmentGroup().toLowerCase(Locale.ROOT).contains(normalizedName))
-            .collect(Collectors.toList());
+        // Название группы или одно из его слов начинается с equipmentName
+        return index.forEquipment(equipmentName);
     }
     
     /**
      * Получает статистику по типам проблем
      */
     public Map<String, Long> getProblemStatistics() {
-        return repairInstructions.stream()
+        return index.instructions().stream()
             .map(RepairInstruction::getProblem)
             .filter(Objects::nonNull)
             .collect(Collectors.groupingBy(
@@ -209,20 +246,13 @@ public class RepairInstructionsService {
     }
     
     private String extractProblemType(String problem) {
-        String lowerProblem = problem.toLowerCase(Locale.ROOT);
-        
-        if (lowerProblem.contains("утечка")) return "Утечки";
-        if (lowerProblem.contains("не работает") || lowerProblem.contains("неисправ")) return "Неисправности";
-        if (lowerProblem.contains("замена") || lowerProblem.contains("износ")) return "Замена деталей";
-        if (lowerProblem.contains("калибровка") || lowerProblem.contains("настройка")) return "Настройка";
-        if (lowerProblem.contains("датчик")) return "Датчики";
-        if (lowerProblem.contains("безопасность")) return "Безопасность";
-        
-        return "Прочие";
+        // Категории и их порядок - список problem-type в routing/intent_rules.json
+        String type = intentMatcher.match(problem).first(IntentMatcher.PROBLEM_TYPE);
+        return type != null ? type : "Прочие";
     }
     
     public List<RepairInstruction> getAllInstructions() {
-        return new ArrayList<>(repairInstructions);
+        return new ArrayList<>(index.instructions());
     }
     
     /**
@@ -0,0 +1,214 @@
+package ru.georgdeveloper.assistantcore.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.georgdeveloper.assistantcore.repository.EquipmentMaintenanceRepository;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Кэш готовых ответов ассистента.
+ *
+ * Одни и те же вопросы ("топ простоев за неделю") задают десятки человек
+ * за смену, и каждый раз выполняется извлечение ключевых слов, пачка LIKE
+ * запросов и полная генерация LLM. Кэш хранит ответ по нормализованному
+ * тексту запроса (регистр, ё/е, пунктуация и лишние пробелы не важны).
+ *
+ * Ключ дополнительно содержит версию данных equipment_maintenance_records
+ * (количество записей, максимальный id и created_at). Версия перечитывается
+ * из БД не чаще раза в cache.version-check-interval секунд; при её смене
+ * (синхронизация base_update) кэш очищается, чтобы не отдавать ответы
+ * по устаревшим данным.
+ *
+ * Ответы с ошибками не кэшируются.
+ */
+@Service
+public class ResponseCacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResponseCacheService.class);
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final EquipmentMaintenanceRepository equipmentMaintenanceRepository;
+    private final boolean enabled;
+    private final long versionCheckIntervalMs;
+    private final Cache<String, String> cache;
+
+    // Текущая версия данных и момент её последней проверки
+    private volatile String dataVersion = "";
+    private volatile long versionCheckedAt = 0;
+
+    public ResponseCacheService(EquipmentMaintenanceRepository equipmentMaintenanceRepository,
+                                ObjectProvider<MeterRegistry> meterRegistry,
+                                @Value("${cache.enabled:true}") boolean enabled,
+                                @Value("${cache.ttl:3600}") long ttlSeconds,
+                                @Value("${cache.max-size:1000}") long maxSize,
+                                @Value("${cache.version-check-interval:30}") long versionCheckIntervalSeconds) {
+        this.equipmentMaintenanceRepository = equipmentMaintenanceRepository;
+        this.enabled = enabled;
+        this.versionCheckIntervalMs = Duration.ofSeconds(versionCheckIntervalSeconds).toMillis();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            // cache.gets{result=hit|miss}, cache.size, cache.evictions с тегом cache=repair-answers
+            CaffeineCacheMetrics.monitor(registry, cache, "repair-answers");
+        }
+        logger.info("Кэш ответов: enabled={}, ttl={}s, max-size={}", enabled, ttlSeconds, maxSize);
+    }
+
+    /**
+     * Возвращает ответ из кэша или вычисляет его через loader.
+     * Ответ сохраняется, только если он не является сообщением об ошибке.
+     */
+    public String getOrCompute(String request, Supplier<String> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        String key = buildKey(request);
+        String cached = cache.getIfPresent(key);
+        if (cached != null) {
+            logger.debug("Ответ из кэша для запроса: {}", request);
+            return cached;
+        }
+        String answer = loader.get();
+        putByKey(key, answer);
+        return answer;
+    }
+
+    /**
+     * Поиск готового ответа без вычисления (для потокового режима)
+     */
+    public Optional<String> get(String request) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(cache.getIfPresent(buildKey(request)));
+    }
+
+    /**
+     * Сохранение ответа, полученного в обход getOrCompute (потоковый режим)
+     */
+    public void put(String request, String answer) {
+        if (enabled) {
+            putByKey(buildKey(request), answer);
+        }
+    }
+
+    /**
+     * Полная очистка кэша
+     * @return количество удалённых записей
+     */
+    public long purge() {
+        long size = cache.estimatedSize();
+        cache.invalidateAll();
+        logger.info("Кэш ответов очищен вручную, удалено записей: {}", size);
+        return size;
+    }
+
+    /**
+     * Статистика кэша для административного API
+     */
+    public Map<String, Object> stats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("size", cache.estimatedSize());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        result.put("dataVersion", dataVersion);
+        return result;
+    }
+
+    /**
+     * Нормализация текста запроса для ключа кэша
+     */
+    static String normalize(String request) {
+        if (request == null) {
+            return "";
+        }
+        String lower = request.toLowerCase(Locale.ROOT).replace('ё', 'е');
+        return NON_WORD.matcher(lower).replaceAll(" ").trim();
+    }
+
+    private void putByKey(String key, String answer) {
+        if (isCacheable(answer)) {
+            cache.put(key, answer);
+        }
+    }
+
+    /**
+     * Ответы без модели (FALLBACK_PREFIX) не кэшируются. Ошибки Ollama приходят
+     * исключениями, а не текстом, поэтому ответ модели, начинающийся со слова
+     * "Ошибка" (например, "Ошибка датчика давления..."), кэшируется как обычный
+     */
+    static boolean isCacheable(String answer) {
+        return answer != null && !answer.isBlank()
+                && !answer.startsWith(RepairAssistantService.FALLBACK_PREFIX);
+    }
+
+    private String buildKey(String request) {
+        return currentDataVersion() + "|" + normalize(request);
+    }
+
+    /**
+     * Версия данных с ограничением частоты запросов к БД
+     * (к ней привязан и SemanticAnswerCache); пустая, пока не прочитана
+     */
+    public String currentDataVersion() {
+        long now = System.currentTimeMillis();
+        if (now - versionCheckedAt < versionCheckIntervalMs) {
+            return dataVersion;
+        }
+        synchronized (this) {
+            if (now - versionCheckedAt < versionCheckIntervalMs) {
+                return dataVersion;
+            }
+            try {
+                String fresh = readDataVersion();
+                if (!fresh.equals(dataVersion)) {
+                    if (!dataVersion.isEmpty()) {
+                        logger.info("Версия данных изменилась ({} -> {}), кэш ответов очищен", dataVersion, fresh);
+                        cache.invalidateAll();
+                    }
+                    dataVersion = fresh;
+                }
+            } catch (Exception e) {
+                // БД недоступна - продолжаем с последней известной версией
+                logger.debug("Не удалось получить версию данных: {}", e.getMessage());
+            }
+            versionCheckedAt = now;
+            return dataVersion;
+        }
+    }
+
+    private String readDataVersion() {
+        List<Object[]> rows = equipmentMaintenanceRepository.getDataVersionStamp();
+        if (rows == null || rows.isEmpty() || rows.get(0) == null) {
+            return "empty";
+        }
+        Object[] row = rows.get(0);
+        return row[0] + ":" + row[1] + ":" + row[2];
+    }
+}
@@ -0,0 +1,355 @@
+package ru.georgdeveloper.assistantcore.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Семантический кэш ответов: отдаёт ответ на ранее заданный вопрос,
+ * если новый вопрос сформулирован иначе, но близок по смыслу
+ * ("течёт азот на VMI" ~ "утечка азота на VMI").
+ *
+ * Работает вторым уровнем после точного кэша ResponseCacheService.
+ * Вопросы хранятся в памяти вместе с эмбеддингами; поиск ближайшего -
+ * линейный проход по cache.semantic.max-size векторам, что для тысяч
+ * записей занимает доли миллисекунды. При переполнении вытесняется
+ * давно не использованная запись (LRU), записи старше cache.semantic.ttl
+ * считаются устаревшими.
+ *
+ * Содержимое сохраняется в файл cache.semantic.file (периодически и при
+ * остановке) и загружается при старте, чтобы перезапуск не обнулял кэш.
+ *
+ * Как и точный кэш, записи привязаны к версии данных ResponseCacheService:
+ * после синхронизации новых ремонтов ответы по старым данным удаляются
+ * (в том числе загруженные из файла). Близости по смыслу недостаточно,
+ * если в вопросах разные коды оборудования и числа: "утечка азота на VMI"
+ * и "... на VMI 2" векторизатор считает почти одинаковыми, но это разные
+ * машины, поэтому такие слова должны совпадать.
+ */
+@Service
+public class SemanticAnswerCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(SemanticAnswerCache.class);
+
+    private static final int FILE_MAGIC = 0x53454d43; // "SEMC"
+    private static final int FILE_VERSION = 2;
+
+    private final EmbeddingService embeddingService;
+    private final ResponseCacheService responseCacheService;
+    private final boolean enabled;
+    private final double threshold;
+    private final int maxSize;
+    private final long ttlMs;
+    private final Path file;
+
+    // Ключ - нормализованный вопрос; порядок доступа для LRU
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private volatile boolean dirty = false;
+    // Версия данных, к которой относятся записи (null - ещё не сверялась)
+    private String entriesVersion;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    /**
+     * Результат поиска: эмбеддинг запроса (чтобы не считать его повторно
+     * при сохранении) и найденный ответ, если он есть
+     */
+    public record Lookup(String request, EmbeddingService.Embedding embedding, String answer, String dataVersion) {
+        public Optional<String> found() {
+            return Optional.ofNullable(answer);
+        }
+    }
+
+    private record Entry(String question, String model, float[] vector, String answer, long createdAt,
+                         String dataVersion, Set<String> codes) {}
+
+    public SemanticAnswerCache(EmbeddingService embeddingService,
+                               ResponseCacheService responseCacheService,
+                               ObjectProvider<MeterRegistry> meterRegistry,
+                               @Value("${cache.semantic.enabled:true}") boolean enabled,
+                               @Value("${cache.semantic.threshold:0.9}") double threshold,
+                               @Value("${cache.semantic.max-size:2000}") int maxSize,
+                               @Value("${cache.semantic.ttl:21600}") long ttlSeconds,
+                               @Value("${cache.semantic.file:./data/semantic-cache.bin}") String file) {
+        this.embeddingService = embeddingService;
+        this.responseCacheService = responseCacheService;
+        this.enabled = enabled;
+        this.threshold = threshold;
+        this.maxSize = maxSize;
+        this.ttlMs = Duration.ofSeconds(ttlSeconds).toMillis();
+        this.file = Paths.get(file);
+
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            hits = Counter.builder("assistant.semantic.cache").tag("result", "hit").register(registry);
+            misses = Counter.builder("assistant.semantic.cache").tag("result", "miss").register(registry);
+            Gauge.builder("assistant.semantic.cache.size", this, SemanticAnswerCache::size).register(registry);
+        } else {
+            hits = null;
+            misses = null;
+        }
+    }
+
+    /**
+     * Возвращает ответ на близкий вопрос или вычисляет новый через loader
+     */
+    public String getOrCompute(String request, Supplier<String> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        Lookup lookup = lookup(request);
+        if (lookup.answer() != null) {
+            return lookup.answer();
+        }
+        String answer = loader.get();
+        store(lookup, answer);
+        return answer;
+    }
+
+    /**
+     * Поиск ближайшего ранее отвеченного вопроса выше порога сходства
+     */
+    public Lookup lookup(String request) {
+        if (!enabled) {
+            return new Lookup(request, null, null, null);
+        }
+        EmbeddingService.Embedding embedding = embeddingService.embed(request);
+        String dataVersion = responseCacheService.currentDataVersion();
+        Set<String> codes = codes(request);
+        long now = System.currentTimeMillis();
+        String bestKey = null;
+        double bestScore = threshold;
+
+        synchronized (entries) {
+            dropOtherVersions(dataVersion);
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                Entry entry = e.getValue();
+                if (!entry.model().equals(embedding.model()) || now - entry.createdAt() > ttlMs
+                        || !entry.codes().equals(codes)) {
+                    continue;
+                }
+                double score = EmbeddingService.cosine(embedding.vector(), entry.vector());
+                if (score >= bestScore) {
+                    bestScore = score;
+                    bestKey = e.getKey();
+                }
+            }
+            if (bestKey != null) {
+                // get() обновляет порядок доступа LRU
+                Entry best = entries.get(bestKey);
+                increment(hits);
+                logger.debug("Семантический кэш: '{}' ~ '{}' (сходство {})", request, best.question(), bestScore);
+                return new Lookup(request, embedding, best.answer(), dataVersion);
+            }
+        }
+        increment(misses);
+        return new Lookup(request, embedding, null, dataVersion);
+    }
+
+    /**
+     * Сохранение ответа для запроса, по которому был выполнен lookup
+     */
+    public void store(Lookup lookup, String answer) {
+        if (!enabled || lookup.embedding() == null || !ResponseCacheService.isCacheable(answer)) {
+            return;
+        }
+        Entry entry = new Entry(lookup.request(), lookup.embedding().model(), lookup.embedding().vector(),
+                answer, System.currentTimeMillis(), lookup.dataVersion(), codes(lookup.request()));
+        synchronized (entries) {
+            // Ответ, посчитанный по данным до смены версии, не сохраняется
+            if (entriesVersion != null && !entriesVersion.equals(lookup.dataVersion())) {
+                return;
+            }
+            entries.put(ResponseCacheService.normalize(lookup.request()), entry);
+            evictOverflow();
+        }
+        dirty = true;
+    }
+
+    /**
+     * Полная очистка кэша
+     * @return количество удалённых записей
+     */
+    public int purge() {
+        synchronized (entries) {
+            int size = entries.size();
+            entries.clear();
+            dirty = true;
+            return size;
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!enabled || !Files.exists(file)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+                logger.warn("Файл семантического кэша {} имеет неизвестный формат, пропускаем", file);
+                return;
+            }
+            int count = in.readInt();
+            synchronized (entries) {
+                for (int i = 0; i < count; i++) {
+                    String question = readString(in);
+                    String model = readString(in);
+                    float[] vector = new float[in.readInt()];
+                    for (int j = 0; j < vector.length; j++) {
+                        vector[j] = in.readFloat();
+                    }
+                    String answer = readString(in);
+                    long createdAt = in.readLong();
+                    String dataVersion = readString(in);
+                    if (now - createdAt <= ttlMs) {
+                        entries.put(ResponseCacheService.normalize(question),
+                                new Entry(question, model, vector, answer, createdAt, dataVersion, codes(question)));
+                    }
+                }
+                evictOverflow();
+            }
+            logger.info("Семантический кэш загружен из {}: {} записей", file, size());
+        } catch (IOException e) {
+            logger.warn("Не удалось загрузить семантический кэш из {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Периодическое сохранение изменений на диск
+     */
+    @Scheduled(fixedDelayString = "${cache.semantic.save-interval:300000}")
+    public void saveIfDirty() {
+        if (dirty) {
+            save();
+        }
+    }
+
+    @PreDestroy
+    public void save() {
+        if (!enabled) {
+            return;
+        }
+        Entry[] snapshot;
+        synchronized (entries) {
+            snapshot = entries.values().toArray(new Entry[0]);
+            dirty = false;
+        }
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            // Пишем во временный файл и атомарно подменяем, чтобы сбой не испортил кэш
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(FILE_VERSION);
+                out.writeInt(snapshot.length);
+                for (Entry entry : snapshot) {
+                    writeString(out, entry.question());
+                    writeString(out, entry.model());
+                    out.writeInt(entry.vector().length);
+                    for (float v : entry.vector()) {
+                        out.writeFloat(v);
+                    }
+                    writeString(out, entry.answer());
+                    out.writeLong(entry.createdAt());
+                    writeString(out, entry.dataVersion());
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.debug("Семантический кэш сохранён в {}: {} записей", file, snapshot.length);
+        } catch (IOException e) {
+            dirty = true;
+            logger.warn("Не удалось сохранить семантический кэш в {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Удаляет записи другой версии данных при первом запросе после её смены
+     */
+    private void dropOtherVersions(String dataVersion) {
+        if (dataVersion.equals(entriesVersion)) {
+            return;
+        }
+        int before = entries.size();
+        entries.values().removeIf(entry -> !dataVersion.equals(entry.dataVersion()));
+        if (entries.size() != before) {
+            logger.info("Версия данных изменилась, из семантического кэша удалено {} записей", before - entries.size());
+            dirty = true;
+        }
+        entriesVersion = dataVersion;
+    }
+
+    /**
+     * Слова вопроса, которые должны совпадать у близких вопросов:
+     * с цифрами (номера, "2", "gk270") и латиницей (коды оборудования "vmi", "tcr")
+     */
+    static Set<String> codes(String question) {
+        Set<String> codes = new HashSet<>();
+        for (String word : ResponseCacheService.normalize(question).split(" ")) {
+            for (int i = 0; i < word.length(); i++) {
+                char c = word.charAt(i);
+                if (Character.isDigit(c) || (c >= 'a' && c <= 'z')) {
+                    codes.add(word);
+                    break;
+                }
+            }
+        }
+        return codes;
+    }
+
+    private void evictOverflow() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (entries.size() > maxSize && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private void increment(Counter counter) {
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    // writeUTF ограничен 64 КБ, ответы модели могут быть длиннее
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,153 @@
+package ru.georgdeveloper.assistantcore.client;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH сравнение прежней сериализации запросов Ollama (String.replace +
+ * конкатенация) и разбора ответа (indexOf) с потоковыми OllamaJson на
+ * промптах 8-16 КБ, как после сборки контекста из БД.
+ *
+ * Запуск: mvn test -Dtest=OllamaJsonBenchmarkTest -Dbenchmark=true
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OllamaJsonBenchmarkTest {
+
+    private static final String RECORD = """
+            • Оборудование: VMI APEX 2 "Форматор"
+              Узел: Барабан сборки \\ привод
+              Проблема: Утечка азота из-под уплотнения клапана, давление падает до 0.3 МПа
+              Решение: Заменили уплотнение; проверили затяжку фланца; запустили линию.
+
+            """;
+
+    @Param({"8192", "16384"})
+    public int promptSize;
+
+    private String prompt;
+    private byte[] responseBytes;
+    private byte[] chatResponseBytes;
+    private final OllamaJson.Options options = new OllamaJson.Options(0.7, 4096, "30m");
+
+    @Setup
+    public void setUp() throws Exception {
+        StringBuilder text = new StringBuilder("Ты — Kvant AI, эксперт по ремонту оборудования.\nДАННЫЕ ИЗ БАЗЫ:\n");
+        while (text.length() < promptSize) {
+            text.append(RECORD);
+        }
+        prompt = text.append("Запрос пользователя: как устранить утечку азота на VMI?").toString();
+
+        // Ответ /api/generate: текст ~3 КБ и массив context на каждый токен промпта и ответа
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        String answer = RECORD.repeat(12).replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        StringBuilder body = new StringBuilder("{\"model\":\"mistral:latest\",\"created_at\":\"2025-01-01T00:00:00Z\",")
+                .append("\"response\":\"").append(answer).append("\",\"done\":true,\"context\":[");
+        for (int i = 0; i < promptSize / 3; i++) {
+            body.append(i == 0 ? "" : ",").append(1000 + i % 30000);
+        }
+        body.append("],\"total_duration\":123456789,\"prompt_eval_count\":2048,\"eval_count\":512}");
+        response.write(body.toString().getBytes(StandardCharsets.UTF_8));
+        responseBytes = response.toByteArray();
+
+        // Ответ /api/chat: тот же текст без массива context
+        chatResponseBytes = ("{\"model\":\"mistral:latest\",\"created_at\":\"2025-01-01T00:00:00Z\","
+                + "\"message\":{\"role\":\"assistant\",\"content\":\"" + answer + "\"},\"done\":true,"
+                + "\"total_duration\":123456789,\"prompt_eval_count\":2048,\"eval_count\":512}")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] legacyRequest() {
+        return legacyRequestBody(prompt).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public int streamingRequest() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(prompt.length() * 2);
+        OllamaJson.writeChat(out, "mistral:latest", prompt, false, options);
+        return out.size();
+    }
+
+    @Benchmark
+    public String legacyResponse() {
+        return legacyParse(new String(responseBytes, StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public void streamingResponse(Blackhole blackhole) throws Exception {
+        StringBuilder answer = new StringBuilder();
+        OllamaJson.readText(new ByteArrayInputStream(responseBytes), answer::append);
+        blackhole.consume(answer.toString());
+    }
+
+    @Benchmark
+    public void streamingChatResponse(Blackhole blackhole) throws Exception {
+        StringBuilder answer = new StringBuilder();
+        OllamaJson.readText(new ByteArrayInputStream(chatResponseBytes), answer::append);
+        blackhole.consume(answer.toString());
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void runBenchmarks() throws Exception {
+        Options options = new OptionsBuilder()
+                .include(OllamaJsonBenchmarkTest.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+    /**
+     * Прежний OllamaClient.buildRequestBody
+     */
+    private static String legacyRequestBody(String prompt) {
+        String escapedPrompt = prompt.replace("\\", "\\\\")
+                                    .replace("\"", "\\\"")
+                                    .replace("\n", "\\n")
+                                    .replace("\r", "\\r")
+                                    .replace("\t", "\\t");
+        return "{" +
+            "\"model\": \"mistral:latest\"," +
+            "\"prompt\": \"" + escapedPrompt + "\"," +
+            "\"stream\": false," +
+            "\"options\": {\"temperature\": 0.7}" +
+            "}";
+    }
+
+    /**
+     * Прежний разбор ответа в OllamaClient.generateResponse
+     */
+    private static String legacyParse(String response) {
+        int responseStart = response.indexOf("\"response\":") + 11;
+        while (responseStart < response.length()
+                && (response.charAt(responseStart) == ' ' || response.charAt(responseStart) == '"')) {
+            responseStart++;
+        }
+        int responseEnd = response.indexOf("\",\"", responseStart);
+        if (responseEnd == -1) {
+            responseEnd = response.lastIndexOf('"');
+        }
+        return response.substring(responseStart, responseEnd)
+                .replace("\\\"", "\"")
+                .replace("\\n", "\n")
+                .replace("\\r", "\r")
+                .replace("\\t", "\t")
+                .replace("\\\\", "\\")
+                .replaceAll("<think>.*?</think>", "")
+                .trim();
+    }
+}
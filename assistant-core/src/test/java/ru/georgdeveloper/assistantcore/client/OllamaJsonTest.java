@@ -0,0 +1,81 @@
+package ru.georgdeveloper.assistantcore.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты записи запросов и разбора ответов Ollama
+ */
+class OllamaJsonTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testChatRequest() throws Exception {
+        String prompt = "Строка 1\nКавычки \"VMI\" и \\ обратная косая\tтаб";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        OllamaJson.writeChat(out, "mistral:latest", prompt, true, new OllamaJson.Options(0.7, 4096, "30m"));
+
+        JsonNode body = objectMapper.readTree(out.toByteArray());
+        assertEquals("mistral:latest", body.path("model").asText());
+        assertEquals("user", body.path("messages").get(0).path("role").asText());
+        assertEquals(prompt, body.path("messages").get(0).path("content").asText());
+        assertTrue(body.path("stream").asBoolean());
+        assertEquals("30m", body.path("keep_alive").asText());
+        assertEquals(4096, body.path("options").path("num_ctx").asInt());
+        assertEquals(0.7, body.path("options").path("temperature").asDouble(), 1e-9);
+    }
+
+    @Test
+    void testGenerateRequestWithoutOptionalFields() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        OllamaJson.writeGenerate(out, "llama3", "вопрос", false, new OllamaJson.Options(0.2, null, null));
+
+        JsonNode body = objectMapper.readTree(out.toByteArray());
+        assertEquals("вопрос", body.path("prompt").asText());
+        assertFalse(body.path("stream").asBoolean());
+        assertFalse(body.has("keep_alive"));
+        assertFalse(body.path("options").has("num_ctx"));
+    }
+
+    @Test
+    void testGenerateResponseWithEscapedQuotes() throws Exception {
+        // Прежний разбор по indexOf("\",\"") обрезал ответ на экранированной кавычке
+        String response = "{\"model\":\"llama3\",\"response\":\"Проверьте клапан \\\"A\\\",\\\"B\\\".\\nГотово\","
+                + "\"done\":true,\"context\":[1,2,3,4],\"total_duration\":123}";
+        assertEquals(List.of("Проверьте клапан \"A\",\"B\".\nГотово"), read(response));
+    }
+
+    @Test
+    void testChatStream() throws Exception {
+        String stream = """
+                {"model":"m","message":{"role":"assistant","content":"Заме"},"done":false}
+                {"model":"m","message":{"role":"assistant","content":"ните"},"done":false}
+                {"model":"m","message":{"role":"assistant","content":""},"done":true,"eval_count":2}
+                {"model":"m","message":{"role":"assistant","content":"лишнее"},"done":false}
+                """;
+        assertEquals(List.of("Заме", "ните"), read(stream));
+    }
+
+    @Test
+    void testErrorIsThrown() {
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+                () -> read("{\"error\":\"model 'x' not found\"}"));
+        assertEquals("Ollama: model 'x' not found", error.getMessage());
+    }
+
+    private static List<String> read(String body) throws Exception {
+        List<String> chunks = new ArrayList<>();
+        OllamaJson.readText(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), chunks::add);
+        return chunks;
+    }
+}
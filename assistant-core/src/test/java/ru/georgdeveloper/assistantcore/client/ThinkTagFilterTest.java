@@ -0,0 +1,48 @@
+package ru.georgdeveloper.assistantcore.client;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты потокового фильтра тегов размышлений
+ */
+class ThinkTagFilterTest {
+
+    private String feed(ThinkTagFilter filter, String... chunks) {
+        StringBuilder out = new StringBuilder();
+        for (String chunk : chunks) {
+            out.append(filter.accept(chunk));
+        }
+        out.append(filter.flush());
+        return out.toString();
+    }
+
+    @Test
+    void testPlainTextPassesThrough() {
+        assertEquals("Проверьте датчик давления.", feed(new ThinkTagFilter(), "Проверьте ", "датчик ", "давления."));
+    }
+
+    @Test
+    void testThinkBlockRemoved() {
+        assertEquals("Ответ", feed(new ThinkTagFilter(), "<think>рассуждения\nмодели</think>\n\nОтвет"));
+    }
+
+    @Test
+    void testTagSplitAcrossChunks() {
+        assertEquals("Замените уплотнение",
+                feed(new ThinkTagFilter(), "<thi", "nk>скрыто</th", "ink>Замените ", "уплотнение"));
+    }
+
+    @Test
+    void testLessThanSignIsNotSwallowed() {
+        ThinkTagFilter filter = new ThinkTagFilter();
+        assertEquals("давление ", filter.accept("давление <"));
+        assertEquals("< 5 бар", filter.accept(" 5 бар") + filter.flush());
+    }
+
+    @Test
+    void testUnclosedThinkBlockDropped() {
+        assertEquals("Текст", feed(new ThinkTagFilter(), "Текст<think>не закончено"));
+    }
+}
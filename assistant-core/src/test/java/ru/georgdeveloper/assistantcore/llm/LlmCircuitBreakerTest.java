@@ -0,0 +1,158 @@
+package ru.georgdeveloper.assistantcore.llm;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты автомата защиты: размыкание по доле ошибок, быстрый отказ и пробный вызов
+ */
+class LlmCircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final LlmCircuitBreaker breaker = new LlmCircuitBreaker(registry, true, 10, 4, 50,
+            Duration.ofSeconds(30), 1, now::get);
+
+    @Test
+    void testOpensAtFailureRateAndFailsFast() {
+        succeed();
+        fail();
+        succeed();
+        assertEquals(LlmCircuitBreaker.State.CLOSED, breaker.getState());
+        fail();
+        assertEquals(LlmCircuitBreaker.State.OPEN, breaker.getState());
+
+        AtomicInteger calls = new AtomicInteger();
+        LlmUnavailableException rejected = assertThrows(LlmUnavailableException.class,
+                () -> breaker.execute(calls::incrementAndGet));
+        assertEquals(0, calls.get());
+        assertEquals(30, rejected.getRetryAfterSeconds());
+        assertThrows(LlmUnavailableException.class, breaker::ensureCallPermitted);
+        assertEquals(2.0, registry.get("assistant.llm.circuit.state").gauge().value());
+        assertEquals(2.0, registry.get("assistant.llm.circuit.rejected").counter().count());
+    }
+
+    @Test
+    void testHalfOpenProbeClosesOnSuccess() {
+        openCircuit();
+        now.addAndGet(Duration.ofSeconds(31).toNanos());
+        breaker.ensureCallPermitted();
+
+        assertEquals("ok", breaker.execute(() -> "ok"));
+        assertEquals(LlmCircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(1.0, registry.get("assistant.llm.circuit.transitions")
+                .tag("from", "half_open").tag("to", "closed").counter().count());
+    }
+
+    @Test
+    void testHalfOpenProbeReopensOnFailure() {
+        openCircuit();
+        now.addAndGet(Duration.ofSeconds(31).toNanos());
+        fail();
+        assertEquals(LlmCircuitBreaker.State.OPEN, breaker.getState());
+        assertThrows(LlmUnavailableException.class, () -> breaker.execute(() -> "ok"));
+    }
+
+    @Test
+    void testCallsDuringProbeRetrySoon() {
+        openCircuit();
+        now.addAndGet(Duration.ofSeconds(31).toNanos());
+
+        // Пока пробный вызов идёт, остальные отклоняются с коротким Retry-After
+        LlmUnavailableException rejected = breaker.execute(() ->
+                assertThrows(LlmUnavailableException.class, () -> breaker.execute(() -> "ok")));
+        assertEquals(1, rejected.getRetryAfterSeconds());
+        assertEquals(LlmCircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void testOldOutcomesLeaveWindow() {
+        fail();
+        fail();
+        for (int i = 0; i < 8; i++) {
+            succeed();
+        }
+        // Окно из 10 вызовов: ранние ошибки вытесняются успехами
+        fail();
+        fail();
+        fail();
+        assertEquals(LlmCircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void testClientDisconnectIsNotFailure() {
+        // Браузер закрыл вкладку: SSE получатель бросает из onToken
+        for (int i = 0; i < 6; i++) {
+            assertThrows(UncheckedIOException.class, () -> breaker.execute(() -> {
+                throw new UncheckedIOException(new IOException("Broken pipe"));
+            }));
+        }
+        assertThrows(HttpClientErrorException.class, () -> breaker.execute(() -> {
+            throw new HttpClientErrorException(HttpStatus.BAD_REQUEST);
+        }));
+        assertEquals(LlmCircuitBreaker.State.CLOSED, breaker.getState());
+        succeed();
+        fail();
+        succeed();
+        fail();
+        // В окне только вызовы, дошедшие до ответа модели: 2 ошибки из 4
+        assertEquals(LlmCircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void testClientDisconnectReleasesHalfOpenProbe() {
+        openCircuit();
+        now.addAndGet(Duration.ofSeconds(31).toNanos());
+        assertThrows(UncheckedIOException.class, () -> breaker.execute(() -> {
+            throw new UncheckedIOException(new IOException("Broken pipe"));
+        }));
+        assertEquals(LlmCircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        // Место пробного вызова освобождено: следующий запрос проверяет модель
+        assertEquals("ok", breaker.execute(() -> "ok"));
+        assertEquals(LlmCircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void testServerErrorsAndOllamaErrorAreFailures() {
+        for (int i = 0; i < 2; i++) {
+            assertThrows(HttpServerErrorException.class, () -> breaker.execute(() -> {
+                throw new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE);
+            }));
+            assertThrows(LlmBackendException.class, () -> breaker.execute(() -> {
+                throw new LlmBackendException("Ollama: model requires more system memory");
+            }));
+        }
+        assertEquals(LlmCircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    private void openCircuit() {
+        for (int i = 0; i < 4; i++) {
+            fail();
+        }
+        assertEquals(LlmCircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    private void succeed() {
+        breaker.execute(() -> "ok");
+    }
+
+    private void fail() {
+        assertThrows(ResourceAccessException.class, () -> breaker.execute(() -> {
+            throw new ResourceAccessException("Connection refused");
+        }));
+    }
+}
@@ -0,0 +1,135 @@
+package ru.georgdeveloper.assistantcore.llm;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Тесты диспетчера генераций: приоритеты, позиция в очереди и отказ
+ */
+class LlmDispatcherTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @SuppressWarnings("unchecked")
+    private LlmDispatcher createDispatcher(int queueCapacity, Duration maxWait) {
+        return new LlmDispatcher(mock(ObjectProvider.class), 1, queueCapacity, maxWait);
+    }
+
+    @Test
+    void testInteractiveServedBeforeBackground() throws Exception {
+        LlmDispatcher dispatcher = createDispatcher(10, Duration.ofSeconds(10));
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        Future<?> running = executor.submit(() -> dispatcher.submit(LlmPriority.INTERACTIVE, () -> await(release)));
+        waitFor(() -> dispatcher.getActiveCount() == 1);
+
+        Future<?> background = executor.submit(() -> dispatcher.submit(LlmPriority.BACKGROUND, () -> order.add("background")));
+        waitFor(() -> dispatcher.getQueueDepth() == 1);
+        BlockingQueue<Integer> positions = new LinkedBlockingQueue<>();
+        Future<?> interactive = executor.submit(() -> dispatcher.submit(LlmPriority.INTERACTIVE,
+                () -> order.add("interactive"), positions::add));
+        waitFor(() -> dispatcher.getQueueDepth() == 2);
+
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        background.get(5, TimeUnit.SECONDS);
+        interactive.get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of("interactive", "background"), order);
+        // Интерактивный запрос встал в очередь первым, несмотря на более поздний приход
+        assertEquals(1, positions.poll());
+    }
+
+    @Test
+    void testRejectsWhenQueueFull() throws Exception {
+        LlmDispatcher dispatcher = createDispatcher(0, Duration.ofSeconds(10));
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> running = executor.submit(() -> dispatcher.submit(LlmPriority.INTERACTIVE, () -> await(release)));
+        waitFor(() -> dispatcher.getActiveCount() == 1);
+
+        LlmOverloadedException e = assertThrows(LlmOverloadedException.class,
+                () -> dispatcher.submit(LlmPriority.INTERACTIVE, () -> "ответ"));
+        // Времени генерации ещё не знаем - повторить через max-wait
+        assertEquals(10, e.getRetryAfterSeconds());
+        assertEquals(10, dispatcher.getRetryAfterSeconds());
+
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        assertEquals("ответ", dispatcher.submit(LlmPriority.INTERACTIVE, () -> "ответ"));
+    }
+
+    @Test
+    void testRetryAfterFollowsGenerationTime() throws Exception {
+        LlmDispatcher dispatcher = createDispatcher(0, Duration.ofSeconds(60));
+        dispatcher.submit(LlmPriority.INTERACTIVE, () -> sleep(1200));
+
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> running = executor.submit(() -> dispatcher.submit(LlmPriority.INTERACTIVE, () -> await(release)));
+        waitFor(() -> dispatcher.getActiveCount() == 1);
+
+        LlmOverloadedException e = assertThrows(LlmOverloadedException.class,
+                () -> dispatcher.submit(LlmPriority.INTERACTIVE, () -> "ответ"));
+        // Одна генерация впереди, в среднем ~1.2 с
+        assertEquals(2, e.getRetryAfterSeconds());
+
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testRejectsAfterMaxWait() throws Exception {
+        LlmDispatcher dispatcher = createDispatcher(5, Duration.ofMillis(100));
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> running = executor.submit(() -> dispatcher.submit(LlmPriority.INTERACTIVE, () -> await(release)));
+        waitFor(() -> dispatcher.getActiveCount() == 1);
+
+        assertThrows(LlmOverloadedException.class, () -> dispatcher.submit(LlmPriority.BACKGROUND, () -> "ответ"));
+        assertEquals(0, dispatcher.getQueueDepth());
+
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        assertEquals(0, dispatcher.getActiveCount());
+    }
+
+    private static Object sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    private static Object await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    private static void waitFor(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Условие не выполнено за 5 секунд");
+            }
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package ru.georgdeveloper.assistantcore.llm;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты объединения одновременных вычислений
+ */
+class SingleFlightTest {
+
+    @Test
+    void testConcurrentCallsShareOneExecution() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>("test");
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Callable<String> call = () -> singleFlight.execute("утечка азота", () -> {
+                executions.incrementAndGet();
+                started.countDown();
+                await(release);
+                return "ответ";
+            });
+            List<Future<String>> futures = new ArrayList<>();
+            futures.add(executor.submit(call));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 3; i++) {
+                futures.add(executor.submit(call));
+            }
+            // Ждём, пока остальные присоединятся к идущему вычислению
+            long deadline = System.currentTimeMillis() + 5000;
+            while (singleFlight.getCoalescedCount() < 3 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            for (Future<String> future : futures) {
+                assertEquals("ответ", future.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, executions.get());
+            assertEquals(3, singleFlight.getCoalescedCount());
+            assertEquals(0, singleFlight.getInFlightCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testFailureIsNotRemembered() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>("test");
+        assertThrows(IllegalStateException.class,
+                () -> singleFlight.execute("k", () -> { throw new IllegalStateException("Ollama недоступна"); }));
+        assertEquals("ok", singleFlight.execute("k", () -> "ok"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
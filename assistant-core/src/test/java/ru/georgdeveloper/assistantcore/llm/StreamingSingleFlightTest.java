@@ -0,0 +1,148 @@
+package ru.georgdeveloper.assistantcore.llm;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты объединения одновременных потоковых генераций
+ */
+class StreamingSingleFlightTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testFollowerReplaysPrefixAndReceivesNewTokens() throws Exception {
+        StreamingSingleFlight<String> flight = new StreamingSingleFlight<>("test");
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch prefixSent = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        StreamingSingleFlight.StreamingCall call = (onToken, onQueuePosition) -> {
+            executions.incrementAndGet();
+            onToken.accept("Проверить ");
+            prefixSent.countDown();
+            await(release);
+            onToken.accept("уплотнения");
+            return "Проверить уплотнения";
+        };
+
+        List<String> leaderTokens = new CopyOnWriteArrayList<>();
+        Future<String> leader = executor.submit(() -> flight.execute("утечка азота", leaderTokens::add, null, call));
+        assertTrue(prefixSent.await(5, TimeUnit.SECONDS));
+
+        List<String> followerTokens = new CopyOnWriteArrayList<>();
+        Future<String> follower = executor.submit(() -> flight.execute("утечка азота", followerTokens::add, null, call));
+        waitFor(() -> flight.getCoalescedCount() == 1 && followerTokens.size() == 1);
+        release.countDown();
+
+        assertEquals("Проверить уплотнения", leader.get(5, TimeUnit.SECONDS));
+        assertEquals("Проверить уплотнения", follower.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of("Проверить ", "уплотнения"), leaderTokens);
+        assertEquals(List.of("Проверить ", "уплотнения"), followerTokens);
+        assertEquals(1, executions.get());
+        assertEquals(0, flight.getInFlightCount());
+    }
+
+    @Test
+    void testFollowerReceivesQueuePositionAndFailure() throws Exception {
+        StreamingSingleFlight<String> flight = new StreamingSingleFlight<>("test");
+        CountDownLatch queued = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        StreamingSingleFlight.StreamingCall call = (onToken, onQueuePosition) -> {
+            onQueuePosition.accept(3);
+            queued.countDown();
+            await(release);
+            throw new LlmOverloadedException("Сервер AI перегружен", 3, 10);
+        };
+
+        Future<String> leader = executor.submit(() -> flight.execute("k", token -> { }, null, call));
+        assertTrue(queued.await(5, TimeUnit.SECONDS));
+        BlockingQueue<Integer> positions = new LinkedBlockingQueue<>();
+        Future<String> follower = executor.submit(() -> flight.execute("k", token -> { }, positions::add, call));
+        assertEquals(3, positions.poll(5, TimeUnit.SECONDS));
+        release.countDown();
+
+        ExecutionException leaderError = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+        ExecutionException followerError = assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(LlmOverloadedException.class, leaderError.getCause());
+        assertSame(leaderError.getCause(), followerError.getCause());
+    }
+
+    @Test
+    void testLeaderDisconnectKeepsGeneratingForFollowers() throws Exception {
+        StreamingSingleFlight<String> flight = new StreamingSingleFlight<>("test");
+        CountDownLatch prefixSent = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        StreamingSingleFlight.StreamingCall call = (onToken, onQueuePosition) -> {
+            onToken.accept("a");
+            prefixSent.countDown();
+            await(release);
+            onToken.accept("b");
+            onToken.accept("c");
+            return "abc";
+        };
+        Future<String> leader = executor.submit(() -> flight.execute("k", token -> {
+            if (!token.equals("a")) {
+                throw new UncheckedIOException(new IOException("Broken pipe"));
+            }
+        }, null, call));
+        assertTrue(prefixSent.await(5, TimeUnit.SECONDS));
+        List<String> followerTokens = new CopyOnWriteArrayList<>();
+        Future<String> follower = executor.submit(() -> flight.execute("k", followerTokens::add, null, call));
+        waitFor(() -> followerTokens.size() == 1);
+        release.countDown();
+
+        assertEquals("abc", follower.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of("a", "b", "c"), followerTokens);
+        ExecutionException leaderError = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(UncheckedIOException.class, leaderError.getCause());
+    }
+
+    @Test
+    void testLeaderDisconnectWithoutFollowersStopsGeneration() {
+        StreamingSingleFlight<String> flight = new StreamingSingleFlight<>("test");
+        AtomicInteger generated = new AtomicInteger();
+        StreamingSingleFlight.StreamingCall call = (onToken, onQueuePosition) -> {
+            for (int i = 0; i < 5; i++) {
+                generated.incrementAndGet();
+                onToken.accept("t" + i);
+            }
+            return "done";
+        };
+        assertThrows(UncheckedIOException.class, () -> flight.execute("k", token -> {
+            throw new UncheckedIOException(new IOException("Broken pipe"));
+        }, null, call));
+        assertEquals(1, generated.get());
+        assertEquals("done", flight.execute("k", token -> { }, null, call));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitFor(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Условие не выполнено за 5 секунд");
+            }
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package ru.georgdeveloper.assistantcore.nlp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты автомата Ахо-Корасик: пересекающиеся фразы, суффиксные ссылки, регистр
+ */
+class AhoCorasickTest {
+
+    @Test
+    void testFindsOverlappingAndNestedPhrases() {
+        AhoCorasick automaton = AhoCorasick.build(List.of("he", "she", "his", "hers"));
+
+        assertEquals(List.of("he@2", "she@1", "hers@2"), matches(automaton, List.of("he", "she", "his", "hers"), "ushers"));
+    }
+
+    @Test
+    void testIgnoresCaseOfTextAndPhrases() {
+        List<String> phrases = List.of("утечка", "Азот", "VMI");
+        AhoCorasick automaton = AhoCorasick.build(phrases);
+
+        assertEquals(List.of("утечка@0", "Азот@7", "VMI@16"),
+                matches(automaton, phrases, "Утечка азота на vmi"));
+        assertTrue(matches(automaton, phrases, "обрыв ремня").isEmpty());
+    }
+
+    @Test
+    void testRepeatedPhraseReportedUnderEachIndexAndEmptyIgnored() {
+        List<String> phrases = List.of("масл", "", "масл");
+        AhoCorasick automaton = AhoCorasick.build(phrases);
+
+        assertEquals(3, automaton.size());
+        List<Integer> found = new ArrayList<>();
+        automaton.scan("течь масла", (phrase, start, end) -> found.add(phrase));
+        assertEquals(List.of(0, 2), found.stream().sorted().toList());
+    }
+
+    private static List<String> matches(AhoCorasick automaton, List<String> phrases, String text) {
+        List<String> found = new ArrayList<>();
+        automaton.scan(text, (phrase, start, end) -> {
+            assertEquals(phrases.get(phrase).length(), end - start);
+            found.add(phrases.get(phrase) + "@" + start);
+        });
+        return found;
+    }
+}
@@ -0,0 +1,78 @@
+package ru.georgdeveloper.assistantcore.nlp;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.georgdeveloper.assistantcommon.text.RussianStemmer;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты стеммера, IDF модели и извлечения ключевых слов
+ */
+class TfidfKeywordExtractorServiceTest {
+
+    @Test
+    void testStemmerMergesWordForms() {
+        assertEquals("утечк", RussianStemmer.stem("утечка"));
+        assertEquals("утечк", RussianStemmer.stem("утечки"));
+        assertEquals("утечк", RussianStemmer.stem("утечку"));
+        assertEquals("подшипник", RussianStemmer.stem("подшипника"));
+        assertEquals("подшипник", RussianStemmer.stem("подшипников"));
+        assertEquals("важн", RussianStemmer.stem("важнейшими"));
+        assertEquals("vmi", RussianStemmer.stem("vmi"));
+        assertEquals("12", RussianStemmer.stem("12"));
+    }
+
+    @Test
+    void testWordFormsGiveOneKeyword() {
+        TfidfKeywordExtractorService extractor = new TfidfKeywordExtractorService(false);
+        List<String> keywords = extractor.extractKeywords("Утечки азота на VMI, утечка у клапана, как устранить утечку?", 10);
+
+        assertEquals("утечк", keywords.get(0));
+        assertEquals(1, keywords.stream().filter(k -> k.startsWith("утеч")).count());
+        // Основы остаются префиксами слов, поэтому поиск по подстроке и префиксу их находит
+        assertTrue(keywords.containsAll(List.of("азот", "vmi", "клапа")));
+    }
+
+    @Test
+    void testIdfPrefersRareTerms() {
+        TfidfKeywordExtractorService extractor = new TfidfKeywordExtractorService(false);
+        IdfModel.Builder builder = new IdfModel.Builder();
+        for (int i = 0; i < 50; i++) {
+            builder.addDocument(extractor.analyze("Замена узла после ремонта"));
+        }
+        builder.addDocument(extractor.analyze("Замена гидромотора"));
+        extractor.setIdfModel(builder.build());
+
+        assertEquals(List.of("гидромотор", "зам"), extractor.extractKeywords("замена гидромотора", 2));
+    }
+
+    @Test
+    void testBigrams() {
+        TfidfKeywordExtractorService extractor = new TfidfKeywordExtractorService(true);
+        List<String> keywords = extractor.extractKeywords("утечка азота на VMI", 10);
+
+        assertEquals("утечк азот", keywords.get(0));
+        // Стоп-слово разрывает фразу
+        assertFalse(keywords.contains("азот vmi"));
+    }
+
+    @Test
+    void testIdfModelRoundTrip(@TempDir Path dir) throws Exception {
+        IdfModel model = new IdfModel.Builder()
+                .addDocument(List.of("утечк", "азот"))
+                .addDocument(List.of("утечк"))
+                .build();
+        Path file = dir.resolve("idf.bin");
+        model.save(file);
+
+        IdfModel loaded = IdfModel.load(file);
+        assertEquals(2, loaded.getDocumentCount());
+        assertEquals(model.idf("утечк"), loaded.idf("утечк"), 1e-9);
+        assertTrue(loaded.idf("азот") > loaded.idf("утечк"));
+        assertTrue(loaded.idf("неизвестн") > loaded.idf("азот"));
+    }
+}
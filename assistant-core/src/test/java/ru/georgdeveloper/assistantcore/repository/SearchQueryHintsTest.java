@@ -0,0 +1,22 @@
+package ru.georgdeveloper.assistantcore.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты сверки таймаута SQL поиска со сроком поиска
+ */
+class SearchQueryHintsTest {
+
+    @Test
+    void testDeadlineMustMatchSqlTimeout() {
+        assertDoesNotThrow(() -> SearchQueryHints.requireMatchingDeadline(Duration.ofSeconds(3)));
+
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+                () -> SearchQueryHints.requireMatchingDeadline(Duration.ofSeconds(5)));
+        assertTrue(error.getMessage().contains("search.deadline = 5000"));
+    }
+}
@@ -0,0 +1,129 @@
+package ru.georgdeveloper.assistantcore.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.georgdeveloper.assistantcore.service.DatabaseSearchService;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты графа HNSW: полнота поиска относительно полного перебора, сохранение и загрузка
+ */
+class HnswIndexTest {
+
+    private static final int DIMENSIONS = 64;
+    private static final int COUNT = 5000;
+
+    @Test
+    void testRecallAgainstBruteForce() {
+        Random random = new Random(1);
+        List<float[]> vectors = new ArrayList<>();
+        HnswIndex index = new HnswIndex("test", DIMENSIONS, 16, 100);
+        for (int i = 0; i < COUNT; i++) {
+            float[] vector = randomUnitVector(random);
+            vectors.add(vector);
+            index.add(i + 1, vector);
+        }
+        assertEquals(COUNT, index.size());
+        assertEquals(COUNT, index.getMaxId());
+
+        int queries = 100;
+        int k = 10;
+        int found = 0;
+        long searchNanos = 0;
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomUnitVector(random);
+            Set<Long> expected = bruteForce(vectors, query, k);
+            long start = System.nanoTime();
+            List<HnswIndex.Neighbor> neighbors = index.search(query, k, 128);
+            searchNanos += System.nanoTime() - start;
+            for (HnswIndex.Neighbor neighbor : neighbors) {
+                if (expected.contains(neighbor.id())) {
+                    found++;
+                }
+            }
+        }
+        double elapsedMs = searchNanos / 1e6 / queries;
+        double recall = (double) found / (queries * k);
+        System.out.printf("HNSW: %d векторов, полнота %.3f, %.3f мс на запрос%n", COUNT, recall, elapsedMs);
+        assertTrue(recall >= 0.9, "полнота " + recall);
+    }
+
+    @Test
+    void testExactVectorIsNearest() {
+        Random random = new Random(2);
+        HnswIndex index = new HnswIndex("test", DIMENSIONS, 8, 50);
+        float[] target = null;
+        for (int i = 0; i < 500; i++) {
+            float[] vector = randomUnitVector(random);
+            index.add(i + 1, vector);
+            if (i == 250) {
+                target = vector;
+            }
+        }
+        List<HnswIndex.Neighbor> result = index.search(target, 3, 32);
+        assertEquals(251L, result.get(0).id());
+        assertEquals(1.0, result.get(0).similarity(), 1e-5);
+    }
+
+    @Test
+    void testSaveLoadRoundTrip(@TempDir Path dir) throws Exception {
+        Random random = new Random(3);
+        HnswIndex index = new HnswIndex("nomic-embed-text", DIMENSIONS, 8, 50);
+        for (int i = 0; i < 300; i++) {
+            index.add(i + 10, randomUnitVector(random));
+        }
+        Path file = dir.resolve("summary.hnsw");
+        index.save(file);
+
+        HnswIndex loaded = HnswIndex.load(file);
+        assertEquals("nomic-embed-text", loaded.getModel());
+        assertEquals(DIMENSIONS, loaded.getDimensions());
+        assertEquals(300, loaded.size());
+        assertEquals(309, loaded.getMaxId());
+        float[] query = randomUnitVector(random);
+        assertEquals(index.search(query, 5, 32), loaded.search(query, 5, 32));
+    }
+
+    @Test
+    void testReciprocalRankFusion() {
+        // Строка из обоих списков поднимается выше строк из одного
+        assertEquals(List.of(2L, 1L, 5L, 3L),
+                DatabaseSearchService.fuse(List.of(1L, 2L, 3L), List.of(5L, 2L), 4));
+        assertEquals(List.of(1L, 2L), DatabaseSearchService.fuse(List.of(1L, 2L), List.of(), 10));
+    }
+
+    private static Set<Long> bruteForce(List<float[]> vectors, float[] query, int k) {
+        Map<Long, Double> similarity = new HashMap<>();
+        for (int i = 0; i < vectors.size(); i++) {
+            double dot = 0;
+            for (int d = 0; d < DIMENSIONS; d++) {
+                dot += vectors.get(i)[d] * query[d];
+            }
+            similarity.put((long) i + 1, dot);
+        }
+        return similarity.entrySet().stream()
+                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed())
+                .limit(k)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+    }
+
+    private static float[] randomUnitVector(Random random) {
+        float[] vector = new float[DIMENSIONS];
+        double norm = 0;
+        for (int d = 0; d < DIMENSIONS; d++) {
+            vector[d] = (float) random.nextGaussian();
+            norm += vector[d] * vector[d];
+        }
+        norm = Math.sqrt(norm);
+        for (int d = 0; d < DIMENSIONS; d++) {
+            vector[d] /= norm;
+        }
+        return vector;
+    }
+}
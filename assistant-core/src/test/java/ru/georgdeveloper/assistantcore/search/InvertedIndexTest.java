@@ -0,0 +1,120 @@
+package ru.georgdeveloper.assistantcore.search;
+
+import ru.georgdeveloper.assistantcommon.text.TextTokenizer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты инвертированного индекса: токенизация, поиск по префиксу и ранжирование BM25
+ */
+class InvertedIndexTest {
+
+    @Test
+    void testTokenizerNormalizesCaseAndYo() {
+        assertEquals(List.of("замена", "щетки", "на", "vmi", "apex", "12"),
+                TextTokenizer.tokenize("Замена ЩЁТКИ на VMI-APEX №12"));
+    }
+
+    @Test
+    void testPrefixMatchWithRecencyTieBreak() {
+        InvertedIndex<Long> index = new InvertedIndex<>();
+        index.add(1L, 100, "Перегрев подшипника", null);
+        index.add(2L, 300, "Замена подшипников", null);
+        index.add(3L, 200, "Обрыв ремня");
+
+        // Одинаковые документы по BM25 - выше более поздний
+        assertEquals(List.of(2L, 1L), keys(index.rank(List.of("подшипник"), 10)));
+        assertEquals(List.of(2L), keys(index.rank(List.of("Подшипник"), 1)));
+        assertTrue(index.rank(List.of("клапан"), 10).isEmpty());
+    }
+
+    @Test
+    void testMoreMatchedKeywordsRankHigher() {
+        InvertedIndex<Long> index = new InvertedIndex<>();
+        index.add(1L, 400, "VMI APEX", "утечка масла");
+        index.add(2L, 100, "VMI APEX", "утечка азота, замена клапана");
+        index.add(3L, 300, "Trafo", "утечка азота");
+        index.add(4L, 200, "Bandera", "замена ремня");
+
+        List<Long> ranked = keys(index.rank(List.of("утечка", "азота", "apex"), 10));
+        assertEquals(2L, ranked.get(0));
+        assertEquals(List.of(1L, 2L, 3L), ranked.stream().sorted().toList());
+    }
+
+    @Test
+    void testRareKeywordOutweighsCommonOne() {
+        InvertedIndex<Long> index = new InvertedIndex<>();
+        for (long id = 1; id <= 20; id++) {
+            index.add(id, id, "замена узла");
+        }
+        index.add(100L, 0, "замена", "гидромотор");
+        index.add(101L, 0, "гидромотор");
+
+        // Редкое слово весит больше частого: оба документа с "гидромотор" выше двадцати "замена узла"
+        List<Long> ranked = keys(index.rank(List.of("замена", "гидромотор"), 3));
+        assertEquals(List.of(100L, 101L), ranked.subList(0, 2).stream().sorted().toList());
+    }
+
+    @Test
+    void testMultiTokenKeywordRequiresAllTokens() {
+        InvertedIndex<String> index = new InvertedIndex<>();
+        index.add("BD1", 1, "VMI APEX 3", "утечка азота");
+        index.add("BD2", 2, "VMI Trafo", "утечка масла");
+
+        assertEquals(List.of("BD1"), keys(index.rank(List.of("vmi-apex"), 10)));
+        assertEquals(List.of("BD2", "BD1"), keys(index.rank(List.of("vmi"), 10)));
+    }
+
+    @Test
+    void testShortKeywordMatchesExactly() {
+        InvertedIndex<Long> index = new InvertedIndex<>();
+        index.add(1L, 1, "на линии");
+        index.add(2L, 2, "насос");
+
+        assertEquals(List.of(1L), keys(index.rank(List.of("на"), 10)));
+    }
+
+    @Test
+    void testContains() {
+        InvertedIndex<Long> index = new InvertedIndex<>();
+        index.add(5L, 1, "a1");
+        index.add(7L, 1, "b2");
+        assertTrue(index.contains(7L));
+        assertFalse(index.contains(6L));
+
+        // После вставки ключа не по возрастанию поиск по ключу остаётся корректным
+        index.add(6L, 1, "c3");
+        assertTrue(index.contains(6L));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void testSnapshotRoundTrip(@TempDir Path dir) throws Exception {
+        InvertedIndex<String> index = new InvertedIndex<>();
+        index.add("BD1", 10, "VMI APEX", "утечка азота");
+        index.add("BD2", 20, "Trafo", "обрыв ремня");
+        index.add("BD3", 30, "VMI", "замена клапана азота");
+        Path file = dir.resolve("breakdown_report.idx");
+        Snapshots.write(file, out -> index.writeTo(out, InvertedIndex.KeyCodec.STRING));
+
+        InvertedIndex<String> loaded = Snapshots.read(file, in -> InvertedIndex.readFrom(in, InvertedIndex.KeyCodec.STRING));
+        assertEquals(index.size(), loaded.size());
+        assertEquals(index.termCount(), loaded.termCount());
+        assertEquals(index.rank(List.of("азот", "vmi"), 10), loaded.rank(List.of("азот", "vmi"), 10));
+        assertTrue(loaded.contains("BD2"));
+
+        // Восстановленный индекс продолжает пополняться
+        loaded.add("BD4", 40, "обрыв цепи");
+        assertEquals(List.of("BD4", "BD2"), keys(loaded.rank(List.of("обрыв"), 10)));
+    }
+
+    private static <K> List<K> keys(List<InvertedIndex.Scored<K>> scored) {
+        return scored.stream().map(InvertedIndex.Scored::key).toList();
+    }
+}
@@ -0,0 +1,82 @@
+package ru.georgdeveloper.assistantcore.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Pageable;
+import ru.georgdeveloper.assistantcore.repository.SummaryOfSolutionsRepository;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Тесты снимков индекса таблицы: загрузка при старте и догрузка строк после снимка
+ */
+class TableSearchIndexTest {
+
+    private static final int ROWS = 50_000;
+
+    @Test
+    void testStartFromSnapshotReplaysOnlyNewRows(@TempDir Path dir) {
+        SummaryOfSolutionsRepository repository = mock(SummaryOfSolutionsRepository.class);
+        List<Object[]> rows = new ArrayList<>();
+        for (long id = 1; id <= ROWS; id++) {
+            rows.add(new Object[] {id, "VMI APEX " + (id % 50), "узел " + (id % 7),
+                    "утечка азота у клапана " + id, "замена уплотнения", null});
+        }
+        when(repository.findIndexRowsAfterId(anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            Pageable page = invocation.getArgument(1);
+            return rows.stream().filter(row -> (Long) row[0] > afterId).limit(page.getPageSize()).toList();
+        });
+
+        SummarySearchIndex first = newIndex(repository, dir);
+        long start = System.currentTimeMillis();
+        first.refresh();
+        long buildMs = System.currentTimeMillis() - start;
+        assertTrue(Files.exists(dir.resolve("summary_of_solutions.idx")));
+
+        // Строка, добавленная после снимка
+        rows.add(new Object[] {ROWS + 1L, "Trafo", "привод", "обрыв ремня", null, null});
+        clearInvocations(repository);
+
+        SummarySearchIndex restarted = newIndex(repository, dir);
+        start = System.currentTimeMillis();
+        restarted.loadSnapshot();
+        long loadMs = System.currentTimeMillis() - start;
+        System.out.printf("Индекс %d строк: сборка %d мс, загрузка снимка %d мс%n", ROWS, buildMs, loadMs);
+
+        assertTrue(restarted.isReady());
+        assertEquals(ROWS, restarted.size());
+        verifyNoInteractions(repository);
+        assertEquals(first.rank(List.of("азот", "vmi"), 5), restarted.rank(List.of("азот", "vmi"), 5));
+
+        restarted.refresh();
+        verify(repository).findIndexRowsAfterId(eq((long) ROWS), any(Pageable.class));
+        assertEquals(ROWS + 1, restarted.size());
+        assertEquals(ROWS + 1L, restarted.rank(List.of("ремня"), 5).get(0).key());
+    }
+
+    @Test
+    void testCorruptedSnapshotIsIgnored(@TempDir Path dir) throws Exception {
+        Files.write(dir.resolve("summary_of_solutions.idx"), new byte[] {0x54, 0x53, 0x49});
+        SummarySearchIndex index = newIndex(mock(SummaryOfSolutionsRepository.class), dir);
+        index.loadSnapshot();
+        assertFalse(index.isReady());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SummarySearchIndex newIndex(SummaryOfSolutionsRepository repository, Path dir) {
+        return new SummarySearchIndex(repository, mock(ObjectProvider.class), true, 5000, Duration.ofDays(1),
+                dir.toString(), Duration.ofHours(1));
+    }
+}
@@ -0,0 +1,202 @@
+package ru.georgdeveloper.assistantcore.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.georgdeveloper.assistantcore.model.BreakdownReport;
+import ru.georgdeveloper.assistantcore.model.EquipmentMaintenanceRecord;
+import ru.georgdeveloper.assistantcore.model.SummaryOfSolutions;
+import ru.georgdeveloper.assistantcore.nlp.TfidfKeywordExtractorService;
+import ru.georgdeveloper.assistantcore.repository.BreakdownReportRepository;
+import ru.georgdeveloper.assistantcore.repository.EquipmentMaintenanceRepository;
+import ru.georgdeveloper.assistantcore.repository.SummaryOfSolutionsRepository;
+import ru.georgdeveloper.assistantcore.search.BreakdownSearchIndex;
+import ru.georgdeveloper.assistantcore.search.EquipmentSearchIndex;
+import ru.georgdeveloper.assistantcore.search.SummarySearchIndex;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Бенчмарк DatabaseSearchService.searchAll на H2 в режиме совместимости с MySQL:
+ * последовательные LIKE запросы, параллельные LIKE запросы и поиск записей
+ * с ранжированием BM25 по индексам ключевых слов.
+ *
+ * Запуск: mvn test -Dtest=DatabaseSearchServiceBenchmarkTest -Dbenchmark=true
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:search-bench;MODE=MySQL;DB_CLOSE_DELAY=-1;NON_KEYWORDS=DATE,VALUE,SHIFT,CODE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.hikari.maximum-pool-size=10",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "data-sync.sql_server.url=jdbc:h2:mem:unused",
+        "data-sync.sql_server.username=sa",
+        "data-sync.sql_server.password=",
+        "data-sync.sql_server.driver=org.h2.Driver"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(TfidfKeywordExtractorService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class DatabaseSearchServiceBenchmarkTest {
+
+    private static final int EQUIPMENT_ROWS = 20_000;
+    private static final int BREAKDOWN_ROWS = 10_000;
+    private static final int SUMMARY_ROWS = 2_000;
+    private static final int ITERATIONS = 5;
+
+    private static final String[] MACHINES = {"VMI APEX", "Trafo", "Bandera", "Duplex", "Extruder", "Calender"};
+    private static final String[] NODES = {"насос", "редуктор", "привод", "клапан", "датчик", "барабан"};
+    private static final String[] PROBLEMS = {"утечка азота", "перегрев подшипника", "обрыв ремня",
+            "ошибка датчика давления", "заклинивание вала", "износ уплотнения"};
+    private static final String[] QUERIES = {
+            "утечка азота на VMI APEX насос",
+            "перегрев подшипника редуктор Trafo",
+            "ошибка датчика давления клапан Duplex",
+            "износ уплотнения барабан Calender привод"
+    };
+
+    @Autowired
+    private TfidfKeywordExtractorService keywordExtractor;
+    @Autowired
+    private EquipmentMaintenanceRepository equipmentRepo;
+    @Autowired
+    private SummaryOfSolutionsRepository summaryRepo;
+    @Autowired
+    private BreakdownReportRepository breakdownRepo;
+
+    @Test
+    void compareSequentialAndParallel() {
+        seed();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            DatabaseSearchService sequential = new DatabaseSearchService(keywordExtractor, equipmentRepo,
+                    summaryRepo, breakdownRepo, null, null, null, null, Runnable::run, Duration.ofMinutes(1), 0.3);
+            DatabaseSearchService parallel = new DatabaseSearchService(keywordExtractor, equipmentRepo,
+                    summaryRepo, breakdownRepo, null, null, null, null, pool, Duration.ofMinutes(1), 0.3);
+            EquipmentSearchIndex equipmentIndex = new EquipmentSearchIndex(equipmentRepo, emptyProvider(), true,
+                    5000, Duration.ofDays(1), null, Duration.ofHours(1));
+            SummarySearchIndex summaryIndex = new SummarySearchIndex(summaryRepo, emptyProvider(), true,
+                    5000, Duration.ofDays(1), null, Duration.ofHours(1));
+            BreakdownSearchIndex breakdownIndex = new BreakdownSearchIndex(breakdownRepo, emptyProvider(), true,
+                    5000, Duration.ofDays(1), null, Duration.ofHours(1));
+            equipmentIndex.rebuild();
+            summaryIndex.rebuild();
+            breakdownIndex.rebuild();
+            DatabaseSearchService indexed = new DatabaseSearchService(keywordExtractor, equipmentRepo,
+                    summaryRepo, breakdownRepo, equipmentIndex, summaryIndex, breakdownIndex, null, pool,
+                    Duration.ofMinutes(1), 0.3);
+
+            // LIKE запросы дают одинаковый результат; BM25 - свой порядок, но не пустой
+            for (String query : QUERIES) {
+                List<Object> expected = ids(sequential.searchAll(query, 10));
+                assertEquals(expected, ids(parallel.searchAll(query, 10)));
+                List<Object> ranked = ids(indexed.searchAll(query, 10));
+                assertFalse(ranked.isEmpty());
+                System.out.printf("'%s': LIKE %d строк, BM25 %d строк%n", query, expected.size(), ranked.size());
+            }
+
+            run(sequential, 3);
+            run(parallel, 3);
+            run(indexed, 3);
+            long sequentialNanos = run(sequential, ITERATIONS);
+            long parallelNanos = run(parallel, ITERATIONS);
+            long indexedNanos = run(indexed, ITERATIONS);
+
+            System.out.printf("searchAll x%d: последовательно %d мс, параллельно %d мс (ускорение %.1fx), "
+                            + "BM25 по индексам %d мс (ускорение %.1fx)%n",
+                    ITERATIONS * QUERIES.length, sequentialNanos / 1_000_000, parallelNanos / 1_000_000,
+                    (double) sequentialNanos / parallelNanos, indexedNanos / 1_000_000,
+                    (double) sequentialNanos / indexedNanos);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ObjectProvider<MeterRegistry> emptyProvider() {
+        return mock(ObjectProvider.class);
+    }
+
+    private long run(DatabaseSearchService service, int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (String query : QUERIES) {
+                service.searchAll(query, 10);
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private List<Object> ids(DatabaseSearchService.SearchResult result) {
+        List<Object> ids = new ArrayList<>();
+        result.summary.forEach(s -> ids.add(s.getId()));
+        result.equipment.forEach(e -> ids.add(e.getId()));
+        result.breakdowns.forEach(b -> ids.add(b.getIdCode()));
+        return ids;
+    }
+
+    private void seed() {
+        if (equipmentRepo.count() > 0) {
+            return;
+        }
+        // Уникальные значения полей сортировки, чтобы LIMIT давал детерминированный результат
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 8, 0);
+        List<EquipmentMaintenanceRecord> equipment = new ArrayList<>();
+        for (int i = 0; i < EQUIPMENT_ROWS; i++) {
+            EquipmentMaintenanceRecord r = new EquipmentMaintenanceRecord();
+            r.setMachineName(MACHINES[i % MACHINES.length] + " " + (i % 40));
+            r.setMechanismNode(NODES[i % NODES.length]);
+            r.setDescription(PROBLEMS[i % PROBLEMS.length] + ", запись " + i);
+            r.setComments("Выполнен ремонт узла " + NODES[(i / 7) % NODES.length]);
+            r.setCause(PROBLEMS[(i / 3) % PROBLEMS.length]);
+            r.setStatus(i % 5 == 0 ? "Временно закрыто" : "Закрыто");
+            r.setStartBdT1(start.plusMinutes(i));
+            equipment.add(r);
+        }
+        equipmentRepo.saveAll(equipment);
+
+        List<BreakdownReport> breakdowns = new ArrayList<>();
+        for (int i = 0; i < BREAKDOWN_ROWS; i++) {
+            BreakdownReport b = new BreakdownReport();
+            b.setIdCode("BD" + String.format("%010d", i));
+            b.setMachineName(MACHINES[i % MACHINES.length]);
+            b.setAssembly(NODES[(i / 2) % NODES.length]);
+            b.setComment(PROBLEMS[(i / 5) % PROBLEMS.length]);
+            b.setWoStatusLocalDescr("Закрыто");
+            b.setDuration(i);
+            breakdowns.add(b);
+        }
+        breakdownRepo.saveAll(breakdowns);
+
+        List<SummaryOfSolutions> summaries = new ArrayList<>();
+        for (int i = 0; i < SUMMARY_ROWS; i++) {
+            SummaryOfSolutions s = new SummaryOfSolutions();
+            s.setEquipment(MACHINES[i % MACHINES.length]);
+            s.setNode(NODES[i % NODES.length]);
+            s.setNotes_on_the_operation_of_the_equipment(PROBLEMS[i % PROBLEMS.length]);
+            s.setMeasures_taken("Замена узла " + NODES[(i / 3) % NODES.length]);
+            s.setComments("Сложный ремонт " + i);
+            summaries.add(s);
+        }
+        summaryRepo.saveAll(summaries);
+    }
+}
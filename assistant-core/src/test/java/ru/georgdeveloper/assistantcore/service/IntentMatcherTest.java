@@ -0,0 +1,77 @@
+package ru.georgdeveloper.assistantcore.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import ru.georgdeveloper.assistantcore.config.ResourcePaths;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты маршрутизации по правилам routing/intent_rules.json
+ */
+class IntentMatcherTest {
+
+    private final IntentMatcher matcher = new IntentMatcher(new ClassPathResource(ResourcePaths.INTENT_RULES_JSON));
+
+    @Test
+    void testIntents() {
+        assertTrue(matcher.match("Привет! Кто ты?").has(IntentMatcher.GENERAL));
+        assertFalse(matcher.match("Топ 5 самых долгих ремонтов").has(IntentMatcher.GENERAL));
+
+        assertTrue(isRepairInstruction("Не крутится барабан сборки"));
+        assertTrue(isRepairInstruction("Перегрев двигателя, станок остановился?"));
+        assertFalse(isRepairInstruction("Перегрев двигателя, станок остановился"));
+        assertTrue(isRepairInstruction("Нужна инструкция по замене ремня"));
+        assertFalse(isRepairInstruction("Сколько ремонтов было вчера"));
+        assertFalse(matcher.match("кто ты").has("unknown"));
+    }
+
+    @Test
+    void testRulesApplyInOrder() {
+        // Сочетание утечка + азот важнее отдельных слов
+        assertEquals("азот", keyword("Утечка азота на VMI"));
+        assertEquals("vmi", keyword("Ошибка датчика на VMI APEX"));
+        assertEquals("утечка", keyword("Утечка из-под фланца"));
+        assertEquals("пар", keyword("Падение давления пара"));
+        assertNull(keyword("Обрыв ремня"));
+
+        assertEquals("Утечки", matcher.match("Утечка масла, не работает насос").first(IntentMatcher.PROBLEM_TYPE));
+        assertEquals("Неисправности", matcher.match("Неисправен датчик").first(IntentMatcher.PROBLEM_TYPE));
+        assertNull(matcher.match("Обрыв ремня").first(IntentMatcher.PROBLEM_TYPE));
+        assertNull(matcher.match("Обрыв ремня").first("unknown"));
+    }
+
+    @Test
+    void testNormalize() {
+        assertEquals("количество ремонтов пресса", matcher.normalize("Сколько раз ремонтов пресса"));
+        assertEquals("инструкция по ремонту насоса", matcher.normalize("Как починить насоса"));
+        // Слова удаляются только целиком, как \b(пожалуйста|мне|нужно)\b
+        assertEquals("покажи, ,  ремонты", matcher.normalize("Покажи, пожалуйста, мне ремонты"));
+        assertEquals("мнение оператора", matcher.normalize("Мнение оператора"));
+        assertEquals("топ 5 ремонтов", matcher.normalize("  Топ 5 ремонтов "));
+    }
+
+    @Test
+    void testRulesFromConfiguration() {
+        String json = """
+                {"intents": {"general": ["здравствуй"]},
+                 "rules": {"search-keyword": [{"value": "клапан", "any": ["клапан", "вентил"]}]}}
+                """;
+        IntentMatcher custom = new IntentMatcher(new ByteArrayResource(json.getBytes(StandardCharsets.UTF_8)));
+
+        assertTrue(custom.match("Здравствуйте").has(IntentMatcher.GENERAL));
+        assertEquals("клапан", custom.match("Течёт вентиль").first(IntentMatcher.SEARCH_KEYWORD));
+        assertEquals("без изменений", custom.normalize("Без изменений"));
+    }
+
+    private boolean isRepairInstruction(String request) {
+        return RepairAssistantService.isRepairInstructionRequest(request, matcher.match(request));
+    }
+
+    private String keyword(String request) {
+        return matcher.match(request).first(IntentMatcher.SEARCH_KEYWORD);
+    }
+}
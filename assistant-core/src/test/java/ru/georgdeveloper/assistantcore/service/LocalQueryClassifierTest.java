@@ -0,0 +1,70 @@
+package ru.georgdeveloper.assistantcore.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты локального классификатора запросов
+ */
+class LocalQueryClassifierTest {
+
+    @Test
+    void testTrainingExampleMatch() {
+        LocalQueryClassifier classifier = new LocalQueryClassifier();
+        classifier.addExample("топ 5 самых продолжительных ремонтов",
+                "NEED_DATABASE: STATUS=NONE|MACHINE=NONE|LIMIT=5|ORDER_BY_DOWNTIME=true");
+
+        LocalQueryClassifier.Classification result = classifier.classify("топ 5 самых продолжительных ремонтов?");
+
+        assertEquals(LocalQueryClassifier.QueryType.STATISTICS, result.type());
+        assertTrue(result.confidence() >= 0.8);
+        assertEquals("STATUS=NONE|MACHINE=NONE|LIMIT=5|ORDER_BY_DOWNTIME=true", result.trainingOutput());
+    }
+
+    @Test
+    void testNearExampleGivesClassButNotParameters() {
+        LocalQueryClassifier classifier = new LocalQueryClassifier();
+        classifier.addExample("информация по станку GK270",
+                "NEED_DATABASE: STATUS=NONE|MACHINE=GK270|LIMIT=50|ORDER_BY_DATE=true");
+        classifier.addExample("ремонты со статусом временно закрыто",
+                "NEED_DATABASE: STATUS=Временно закрыто|MACHINE=NONE|LIMIT=100|ORDER_BY_DATE=true");
+        classifier.addExample("топ 5 самых продолжительных ремонтов",
+                "NEED_DATABASE: STATUS=NONE|MACHINE=NONE|LIMIT=5|ORDER_BY_TTR=true");
+        classifier.addExample("последние 10 ремонтов",
+                "NEED_DATABASE: STATUS=NONE|MACHINE=NONE|LIMIT=10|ORDER_BY_DATE=true");
+        QueryAnalysisService analysis = new QueryAnalysisService();
+
+        QueryAnalysisService.QueryParams machine = paramsFor(classifier, analysis, "информация по станку gk300");
+        assertEquals("GK300", machine.getMachineKeyword());
+        assertEquals("Закрыто", paramsFor(classifier, analysis, "ремонты со статусом закрыто").getStatus());
+        assertEquals(10, paramsFor(classifier, analysis, "топ 10 самых продолжительных ремонтов").getLimit());
+        QueryAnalysisService.QueryParams latest = paramsFor(classifier, analysis, "последние 50 ремонтов");
+        assertEquals(50, latest.getLimit());
+        assertTrue(latest.isOrderByDate());
+
+        // Тот же запрос с точностью до регистра и знаков - параметры из примера
+        assertEquals("GK270", paramsFor(classifier, analysis, "Информация по станку GK270!").getMachineKeyword());
+    }
+
+    private static QueryAnalysisService.QueryParams paramsFor(LocalQueryClassifier classifier,
+                                                             QueryAnalysisService analysis, String request) {
+        LocalQueryClassifier.Classification result = classifier.classify(request.toLowerCase());
+        assertEquals(LocalQueryClassifier.QueryType.STATISTICS, result.type());
+        return analysis.generateQueryParams(request.toLowerCase(), result.trainingOutput());
+    }
+
+    @Test
+    void testKeywordClasses() {
+        LocalQueryClassifier classifier = new LocalQueryClassifier();
+        assertEquals(LocalQueryClassifier.QueryType.STATISTICS, classifier.classify("сколько ремонтов за неделю").type());
+        assertEquals(LocalQueryClassifier.QueryType.INSTRUCTION, classifier.classify("как починить насос").type());
+        assertEquals(LocalQueryClassifier.QueryType.GENERAL, classifier.classify("привет").type());
+    }
+
+    @Test
+    void testUnknownRequestHasNoConfidence() {
+        LocalQueryClassifier classifier = new LocalQueryClassifier();
+        assertEquals(0.0, classifier.classify("расскажи про азот").confidence());
+    }
+}
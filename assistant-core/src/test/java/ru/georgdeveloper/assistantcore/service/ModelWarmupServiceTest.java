@@ -0,0 +1,102 @@
+package ru.georgdeveloper.assistantcore.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.SimpleStatusAggregator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.actuate.health.StatusAggregator;
+import org.springframework.web.client.ResourceAccessException;
+import ru.georgdeveloper.assistantcore.client.OllamaClient;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Тесты прогрева модели и готовности Ollama
+ */
+class ModelWarmupServiceTest {
+
+    private OllamaClient ollamaClient;
+    private ModelWarmupService service;
+    private OllamaModelHealthIndicator healthIndicator;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ollamaClient = mock(OllamaClient.class);
+        when(ollamaClient.getModel()).thenReturn("mistral");
+        service = new ModelWarmupService(ollamaClient, mock(ObjectProvider.class), true, true);
+        healthIndicator = new OllamaModelHealthIndicator(service, ollamaClient);
+    }
+
+    @Test
+    void testLoadedModelIsReady() {
+        when(ollamaClient.listLoadedModels()).thenReturn(List.of("nomic-embed-text:latest", "mistral:latest"));
+
+        service.checkModel();
+        assertEquals(Status.UP, healthIndicator.health().getStatus());
+        verify(ollamaClient, never()).loadModel(anyString());
+    }
+
+    @Test
+    void testUnloadedModelIsReloaded() {
+        when(ollamaClient.listLoadedModels()).thenReturn(List.of());
+
+        service.refreshStatus();
+        assertEquals(OllamaModelHealthIndicator.NOT_LOADED, healthIndicator.health().getStatus());
+        service.checkModel();
+        verify(ollamaClient).loadModel("mistral");
+        assertTrue(service.getStatus().loaded());
+        assertEquals(Status.UP, healthIndicator.health().getStatus());
+        assertNotNull(service.getStatus().lastWarmupMs());
+    }
+
+    @Test
+    void testUnreachableOllamaDoesNotMakeRootHealthDown() {
+        when(ollamaClient.listLoadedModels()).thenThrow(new ResourceAccessException("Connection refused"));
+
+        service.checkModel();
+        Health health = healthIndicator.health();
+        assertEquals(OllamaModelHealthIndicator.UNREACHABLE, health.getStatus());
+        assertEquals(false, health.getDetails().get("reachable"));
+
+        // Порядок статусов общего /actuator/health из application.yml
+        StatusAggregator root = new SimpleStatusAggregator("DOWN", "OUT_OF_SERVICE", "UP", "NOT_LOADED", "UNREACHABLE", "UNKNOWN");
+        assertEquals(Status.UP, root.getAggregateStatus(Status.UP, health.getStatus()));
+        verify(ollamaClient, never()).loadModel(anyString());
+    }
+
+    @Test
+    void testHealthReturnsLastCheckWithoutCallingOllama() {
+        assertEquals(Status.UNKNOWN, healthIndicator.health().getStatus());
+
+        when(ollamaClient.listLoadedModels()).thenReturn(List.of("mistral:latest"));
+        service.checkModel();
+        for (int i = 0; i < 3; i++) {
+            assertEquals(Status.UP, healthIndicator.health().getStatus());
+        }
+        verify(ollamaClient, times(1)).listLoadedModels();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testStatusIsCheckedWhenWarmupDisabled() {
+        ModelWarmupService disabled = new ModelWarmupService(ollamaClient, mock(ObjectProvider.class), false, true);
+        when(ollamaClient.listLoadedModels()).thenReturn(List.of());
+
+        disabled.checkModel();
+        assertEquals(OllamaModelHealthIndicator.NOT_LOADED, new OllamaModelHealthIndicator(disabled, ollamaClient).health().getStatus());
+        verify(ollamaClient, never()).loadModel(anyString());
+    }
+
+    @Test
+    void testModelNameWithoutTag() {
+        assertTrue(ModelWarmupService.sameModel("mistral", "mistral:latest"));
+        assertFalse(ModelWarmupService.sameModel("mistral:7b", "mistral:latest"));
+    }
+}
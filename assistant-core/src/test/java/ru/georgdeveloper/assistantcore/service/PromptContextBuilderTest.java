@@ -0,0 +1,83 @@
+package ru.georgdeveloper.assistantcore.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ru.georgdeveloper.assistantcore.config.AssistantProperties;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тесты сборки контекста в пределах бюджета токенов
+ */
+class PromptContextBuilderTest {
+
+    private static final String LONG_COMMENT = "Заменили уплотнение клапана азота. Проверили давление в линии. "
+            + "Утечка устранена, оборудование запущено. ".repeat(30);
+
+    @Test
+    void testTokenEstimate() {
+        assertEquals(0, PromptContextBuilder.estimateTokens(""));
+        assertEquals(1, PromptContextBuilder.estimateTokens("VMI1"));
+        assertEquals(2, PromptContextBuilder.estimateTokens("азот"));
+        assertTrue(PromptContextBuilder.estimateTokens(LONG_COMMENT) > 300);
+    }
+
+    @Test
+    void testTruncateAtSentenceBoundary() {
+        String truncated = PromptContextBuilder.truncate(LONG_COMMENT, 40);
+        assertTrue(PromptContextBuilder.estimateTokens(truncated) <= 41);
+        assertTrue(truncated.endsWith(".…"), truncated);
+        assertEquals("короткий комментарий", PromptContextBuilder.truncate("короткий\n\n  комментарий", 40));
+    }
+
+    @Test
+    void testRowsPackedByRankWithinBudget() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PromptContextBuilder builder = new PromptContextBuilder(properties(), provider(registry));
+        PromptContextBuilder.Context context = builder.newContext(300);
+        context.section("Решения:", PromptContextBuilder.Style.BULLET);
+        for (int i = 0; i < 20; i++) {
+            context.add(1.0 / (i + 1),
+                    PromptContextBuilder.field("Оборудование", "VMI APEX " + i),
+                    PromptContextBuilder.longField("Комментарии", LONG_COMMENT));
+        }
+        context.section("Отчеты:", PromptContextBuilder.Style.INLINE);
+        context.add(0.95, PromptContextBuilder.field("Code", "BD1"), PromptContextBuilder.field("Status", null));
+
+        PromptContextBuilder.Packed packed = context.build();
+        assertTrue(packed.tokens() <= 300, "токенов " + packed.tokens());
+        assertTrue(packed.rows() >= 2);
+        assertEquals(21, packed.rows() + packed.dropped());
+        // Старшие по рангу строки вошли, раздел выведен после первого
+        assertTrue(packed.text().startsWith("Решения:\n• Оборудование: VMI APEX 0\n"));
+        assertTrue(packed.text().contains("Отчеты:\nCode:BD1 | Status:-\n"));
+        assertFalse(packed.text().contains("VMI APEX 19"));
+        assertEquals(1, registry.get("assistant.prompt.context.tokens").summary().count());
+    }
+
+    @Test
+    void testModelBudget() {
+        AssistantProperties properties = properties();
+        properties.getContext().getModelBudgets().put("mistral:latest", 4000);
+        PromptContextBuilder builder = new PromptContextBuilder(properties, provider(null));
+        assertEquals(4000, builder.budgetFor("mistral:latest"));
+        assertEquals(1500, builder.budgetFor("llama3"));
+    }
+
+    private static AssistantProperties properties() {
+        AssistantProperties properties = new AssistantProperties();
+        properties.getOllama().setModel("mistral:latest");
+        return properties;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ObjectProvider<MeterRegistry> provider(MeterRegistry registry) {
+        ObjectProvider<MeterRegistry> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(registry);
+        return provider;
+    }
+}
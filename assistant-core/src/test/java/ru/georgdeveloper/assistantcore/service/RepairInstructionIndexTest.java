@@ -0,0 +1,49 @@
+package ru.georgdeveloper.assistantcore.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты индексов инструкций: ранжирование по ключевым словам и поиск группы по префиксу
+ */
+class RepairInstructionIndexTest {
+
+    private final RepairInstructionIndex index = RepairInstructionIndex.build(List.of(
+            instruction("HFV2 A16", "Правая сторона", "Утечка азота из-под уплотнения", "Заменили уплотнение"),
+            instruction("HFV2 B03", "Левая сторона", "Утечка пара", "Подтянули фланец"),
+            instruction("VMI APEX 2", "Барабан", "Не работает датчик давления", "Откалибровали датчик, утечка азота устранена"),
+            instruction("Trafo", "Нож", "Износ ножа", "Заменили нож")));
+
+    @Test
+    void testFindRanksByKeywordsWithStems() {
+        String[] words = RepairInstructionsService.extractKeywords("утечку азота на форматоре");
+
+        List<String> problems = index.find(words, 5).stream()
+                .map(RepairInstructionsService.RepairInstruction::getProblem).toList();
+        // Оба слова - в проблеме первой инструкции; "утечку" находит "утечка" по основе
+        assertEquals("Утечка азота из-под уплотнения", problems.get(0));
+        assertEquals(3, problems.size());
+        assertFalse(problems.contains("Износ ножа"));
+
+        assertEquals(1, index.find(words, 1).size());
+        assertTrue(index.find(new String[] {"на", ""}, 5).isEmpty());
+    }
+
+    @Test
+    void testForEquipmentMatchesGroupAndWordPrefixes() {
+        assertEquals(2, index.forEquipment("HFV2").size());
+        assertEquals("HFV2 A16", index.forEquipment("a16").get(0).getEquipmentGroup());
+        assertEquals("VMI APEX 2", index.forEquipment("apex").get(0).getEquipmentGroup());
+        assertEquals(4, index.forEquipment("").size());
+        assertTrue(index.forEquipment("HFV3").isEmpty());
+        assertTrue(RepairInstructionIndex.EMPTY.forEquipment("HFV2").isEmpty());
+    }
+
+    private static RepairInstructionsService.RepairInstruction instruction(String group, String component,
+                                                                         String problem, String solution) {
+        return new RepairInstructionsService.RepairInstruction("CuringArea", group, component, problem, solution);
+    }
+}
@@ -0,0 +1,94 @@
+package ru.georgdeveloper.assistantcore.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Перезагрузка инструкций из внешнего файла: снимок подменяется целиком,
+ * ошибка чтения оставляет прежний; чтение через двоичное хранилище
+ */
+class RepairInstructionsReloadTest {
+
+    @TempDir
+    Path dir;
+
+    private final RepairInstructionsService service = new RepairInstructionsService();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        service.shutdown();
+    }
+
+    @Test
+    void testReloadSwapsSnapshot() throws Exception {
+        Path file = dir.resolve("repair_instructions.json");
+        ReflectionTestUtils.setField(service, "instructionsFile", file.toString());
+        ReflectionTestUtils.setField(service, "instructionsStore", "");
+        ReflectionTestUtils.setField(service, "watch", false);
+
+        write(file, """
+                [{"Участок": "CuringArea", "Группа оборудования": "HFV2 A16", "Узел": "Правая сторона",
+                  "Проблема": " Утечка азота ", "Решение": "Заменили уплотнение", "Дата": {"год": 2024}},
+                 {"Участок": "CuringArea", "Группа оборудования": "HFV2 B03", "Проблема": "Без решения"}]
+                """);
+        assertEquals(1, service.reload().join());
+        assertEquals("Утечка азота", service.getAllInstructions().get(0).getProblem());
+        assertEquals(1, service.findRelevantInstructions("утечка азота").size());
+
+        // Повторная загрузка заменяет список, а не дописывает в него
+        write(file, """
+                [{"Группа оборудования": "VMI APEX", "Проблема": "Обрыв ремня", "Решение": "Заменили ремень"},
+                 {"Группа оборудования": "VMI APEX", "Проблема": "Износ ножа", "Решение": "Заменили нож"}]
+                """);
+        assertEquals(2, service.reload().join());
+        assertTrue(service.findRelevantInstructions("утечка азота").isEmpty());
+        assertEquals(2, service.getInstructionsForEquipment("vmi").size());
+
+        write(file, "[{\"Проблема\": ");
+        assertThrows(CompletionException.class, () -> service.reload().join());
+        assertEquals(2, service.getAllInstructions().size());
+    }
+
+    @Test
+    void testStoreBuiltFromJsonAndReadWithoutIt() throws Exception {
+        Path file = dir.resolve("repair_instructions.json");
+        Path store = dir.resolve("data/repair_instructions.bin");
+        ReflectionTestUtils.setField(service, "instructionsFile", file.toString());
+        ReflectionTestUtils.setField(service, "instructionsStore", store.toString());
+        ReflectionTestUtils.setField(service, "watch", false);
+
+        write(file, """
+                [{"Участок": "CuringArea", "Группа оборудования": "HFV2 A16", "Проблема": "Утечка азота", "Решение": "Заменили уплотнение"},
+                 {"Участок": "CuringArea", "Группа оборудования": "HFV2 A16", "Проблема": "Утечка масла", "Решение": "Заменили уплотнение"}]
+                """);
+        assertEquals(2, service.reload().join());
+        assertTrue(Files.exists(store));
+
+        // Без JSON (как в assistant-core) инструкции читаются из хранилища
+        ReflectionTestUtils.setField(service, "instructionsFile", dir.resolve("missing.json").toString());
+        assertEquals(2, service.reload().join());
+        List<RepairInstructionsService.RepairInstruction> instructions = service.getAllInstructions();
+        assertEquals("Утечка масла", instructions.get(1).getProblem());
+        // Повторяющиеся значения - один экземпляр строки
+        assertSame(instructions.get(0).getEquipmentGroup(), instructions.get(1).getEquipmentGroup());
+        assertSame(instructions.get(0).getSolution(), instructions.get(1).getSolution());
+
+        Files.write(store, new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+        assertThrows(CompletionException.class, () -> service.reload().join());
+        assertEquals(2, service.getAllInstructions().size());
+    }
+
+    private static void write(Path file, String json) throws Exception {
+        Files.writeString(file, json, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,68 @@
+package ru.georgdeveloper.assistantcore.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import ru.georgdeveloper.assistantcore.repository.EquipmentMaintenanceRepository;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Тесты кэша ответов без поднятия Spring контекста
+ */
+class ResponseCacheServiceTest {
+
+    @SuppressWarnings("unchecked")
+    private ResponseCacheService createCache(EquipmentMaintenanceRepository repository, long versionCheckSeconds) {
+        return new ResponseCacheService(repository, mock(ObjectProvider.class), true, 3600, 100, versionCheckSeconds);
+    }
+
+    private EquipmentMaintenanceRepository repositoryWithVersion(long count) {
+        EquipmentMaintenanceRepository repository = mock(EquipmentMaintenanceRepository.class);
+        when(repository.getDataVersionStamp()).thenReturn(List.<Object[]>of(new Object[]{count, count, null}));
+        return repository;
+    }
+
+    @Test
+    void testNormalizedQueriesShareEntry() {
+        ResponseCacheService cache = createCache(repositoryWithVersion(10), 30);
+        AtomicInteger calls = new AtomicInteger();
+
+        cache.getOrCompute("Топ простоев за неделю?", () -> "ответ " + calls.incrementAndGet());
+        String second = cache.getOrCompute("  топ   ПРОСТОЕВ за неделю ", () -> "ответ " + calls.incrementAndGet());
+
+        assertEquals("ответ 1", second);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void testFallbackAnswersAreNotCached() {
+        ResponseCacheService cache = createCache(repositoryWithVersion(10), 30);
+        cache.getOrCompute("утечка азота", () -> RepairAssistantService.FALLBACK_PREFIX + " (повторите запрос через 30 с)");
+        assertTrue(cache.get("утечка азота").isEmpty());
+
+        // Ответ модели о неисправности - обычный ответ, хоть и начинается со слова "Ошибка"
+        cache.getOrCompute("что значит E42", () -> "Ошибка датчика давления: проверить разъём");
+        assertEquals("Ошибка датчика давления: проверить разъём", cache.get("что значит E42").orElseThrow());
+    }
+
+    @Test
+    void testDataVersionChangeInvalidates() {
+        EquipmentMaintenanceRepository repository = repositoryWithVersion(10);
+        ResponseCacheService cache = createCache(repository, 0);
+        cache.put("утечка азота на VMI", "проверить уплотнения");
+        assertTrue(cache.get("утечка азота на VMI").isPresent());
+
+        when(repository.getDataVersionStamp()).thenReturn(List.<Object[]>of(new Object[]{11L, 11L, null}));
+        assertTrue(cache.get("утечка азота на VMI").isEmpty());
+    }
+
+    @Test
+    void testNormalize() {
+        assertEquals("утечка азота на vmi", ResponseCacheService.normalize("Утечка азота на VMI!!"));
+        assertEquals("еще", ResponseCacheService.normalize("Ещё"));
+    }
+}
@@ -0,0 +1,82 @@
+package ru.georgdeveloper.assistantcore.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import ru.georgdeveloper.assistantcore.config.AssistantProperties;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тесты семантического кэша на локальном векторизаторе
+ */
+class SemanticAnswerCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ResponseCacheService responseCacheService = mock(ResponseCacheService.class);
+
+    @SuppressWarnings("unchecked")
+    private SemanticAnswerCache createCache(Path file, double threshold) {
+        when(responseCacheService.currentDataVersion()).thenReturn("1:100:2024-01-01");
+        EmbeddingService embeddingService = new EmbeddingService(null, new AssistantProperties());
+        return new SemanticAnswerCache(embeddingService, responseCacheService, mock(ObjectProvider.class),
+                true, threshold, 100, 3600, file.toString());
+    }
+
+    @Test
+    void testParaphraseHitsAndUnrelatedMisses() {
+        SemanticAnswerCache cache = createCache(tempDir.resolve("cache.bin"), 0.6);
+        cache.getOrCompute("утечка азота на VMI", () -> "проверить уплотнения");
+
+        assertEquals("проверить уплотнения", cache.lookup("утечки азота на vmi?").answer());
+        assertNull(cache.lookup("топ простоев за неделю").answer());
+    }
+
+    @Test
+    void testPersistenceAcrossRestarts() {
+        Path file = tempDir.resolve("cache.bin");
+        SemanticAnswerCache cache = createCache(file, 0.9);
+        cache.getOrCompute("утечка азота на VMI", () -> "проверить уплотнения");
+        cache.save();
+
+        SemanticAnswerCache restored = createCache(file, 0.9);
+        restored.load();
+        assertEquals(1, restored.size());
+        assertEquals("проверить уплотнения", restored.lookup("Утечка азота на VMI").answer());
+    }
+
+    @Test
+    void testOtherEquipmentCodeMisses() {
+        SemanticAnswerCache cache = createCache(tempDir.resolve("cache.bin"), 0.9);
+        cache.getOrCompute("утечка азота на VMI", () -> "проверить уплотнения");
+
+        assertNull(cache.lookup("утечка азота на VMI 2").answer());
+        assertNull(cache.lookup("утечка азота на TCR").answer());
+        assertEquals("проверить уплотнения", cache.lookup("Утечка азота на vmi").answer());
+    }
+
+    @Test
+    void testDataVersionChangeDropsEntries() {
+        Path file = tempDir.resolve("cache.bin");
+        SemanticAnswerCache cache = createCache(file, 0.9);
+        cache.getOrCompute("утечка азота на VMI", () -> "проверить уплотнения");
+        cache.save();
+
+        when(responseCacheService.currentDataVersion()).thenReturn("2:101:2024-01-02");
+        assertNull(cache.lookup("утечка азота на VMI").answer());
+        assertEquals(0, cache.size());
+
+        // Записи из файла со старой версией тоже не отдаются
+        SemanticAnswerCache restored = createCache(file, 0.9);
+        restored.load();
+        when(responseCacheService.currentDataVersion()).thenReturn("2:101:2024-01-02");
+        assertNull(restored.lookup("утечка азота на VMI").answer());
+        assertEquals(0, restored.size());
+    }
+}
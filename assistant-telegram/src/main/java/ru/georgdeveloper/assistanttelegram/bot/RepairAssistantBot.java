@@ -9,11 +9,17 @@ import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMa
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
 import java.util.Base64;
 import java.nio.charset.StandardCharsets;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import org.springframework.beans.factory.ObjectProvider;
 import org.telegram.telegrambots.meta.api.methods.send.SendChatAction;
 import org.telegram.telegrambots.meta.api.methods.ActionType;
 import org.telegram.telegrambots.meta.api.objects.Update;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import ru.georgdeveloper.assistantcommon.feedback.FeedbackJournal;
+import ru.georgdeveloper.assistantcommon.feedback.FeedbackJournalProperties;
 import ru.georgdeveloper.assistanttelegram.config.BotProperties;
 import ru.georgdeveloper.assistanttelegram.handler.CommandHandler;
 import ru.georgdeveloper.assistanttelegram.handler.MessageHandler;
@@ -45,12 +51,41 @@ public class RepairAssistantBot extends TelegramLongPollingBot {
     private final BotProperties botProperties;
     private final CommandHandler commandHandler;
     private final MessageHandler messageHandler;
+    // Журнал показанных ответов: кнопки оценки работают и после перезапуска; null - журнала нет
+    private final FeedbackJournal feedbackJournal;
     
-    public RepairAssistantBot(BotProperties botProperties, CommandHandler commandHandler, MessageHandler messageHandler) {
+    public RepairAssistantBot(BotProperties botProperties, CommandHandler commandHandler, MessageHandler messageHandler,
+                              ObjectProvider<FeedbackJournal> feedbackJournal,
+                              FeedbackJournalProperties feedbackJournalProperties) {
         super(botProperties.getToken());
         this.botProperties = botProperties;
         this.commandHandler = commandHandler;
         this.messageHandler = messageHandler;
+        this.feedbackJournal = feedbackJournal.getIfAvailable();
+        restoreOffered(feedbackJournalProperties);
+    }
+
+    /**
+     * Восстанавливает соответствия feedbackId -> запрос/ответ из журнала
+     * (последние OFFERED_CACHE_SIZE ответов не старше offered-retention)
+     */
+    private void restoreOffered(FeedbackJournalProperties properties) {
+        if (feedbackJournal == null) {
+            return;
+        }
+        long since = System.currentTimeMillis() - properties.getOfferedRetention().toMillis();
+        try {
+            FeedbackJournal.replay(feedbackJournal.directory(), 0, record -> {
+                if (FeedbackJournal.OFFERED.equals(record.kind()) && record.timestamp() >= since
+                        && record.request() != null && record.response() != null) {
+                    offered.put(shortHash(record.request() + "::" + record.response()),
+                            new FeedbackPair(record.request(), record.response()));
+                }
+            });
+            logger.info("Восстановлено {} ответов с кнопками оценки из журнала", offered.size());
+        } catch (IOException e) {
+            logger.warn("Не удалось восстановить ответы из журнала обратной связи: {}", e.getMessage());
+        }
     }
     
     /**
@@ -123,8 +158,11 @@ public class RepairAssistantBot extends TelegramLongPollingBot {
             java.util.Arrays.asList(btnRetry, btnNew)
         ));
         message.setReplyMarkup(markup);
-        // Сохраняем временно в памяти соответствие feedbackId -> запрос/ответ
-        FeedbackMemory.put(feedbackId, new FeedbackPair(userQuery, answer));
+        // Соответствие feedbackId -> запрос/ответ: в памяти и в журнале (без ожидания диска)
+        offered.put(feedbackId, new FeedbackPair(userQuery, answer));
+        if (feedbackJournal != null) {
+            feedbackJournal.append(FeedbackJournal.OFFERED, userQuery, answer);
+        }
         try {
             execute(message);
         } catch (TelegramApiException e) {
@@ -140,7 +178,7 @@ public class RepairAssistantBot extends TelegramLongPollingBot {
         Long chatId = callbackQuery.getMessage().getChatId();
         if (data.startsWith("feedback_correct::")) {
             String feedbackId = data.substring("feedback_correct::".length());
-            FeedbackPair pair = FeedbackMemory.get(feedbackId);
+            FeedbackPair pair = offered.get(feedbackId);
             if (pair != null) {
                 // Сохраняем пару запрос-ответ через CoreServiceClient
                 try {
@@ -154,7 +192,7 @@ public class RepairAssistantBot extends TelegramLongPollingBot {
             }
         } else if (data.startsWith("feedback_retry::")) {
             String feedbackId = data.substring("feedback_retry::".length());
-            FeedbackPair pair = FeedbackMemory.get(feedbackId);
+            FeedbackPair pair = offered.get(feedbackId);
             if (pair != null) {
                 sendTypingAction(chatId);
                 String newAnswer = messageHandler.processMessage(pair.userQuery, chatId, () -> sendTypingAction(chatId));
@@ -167,8 +205,15 @@ public class RepairAssistantBot extends TelegramLongPollingBot {
         }
     }
 
-    // Временное хранилище соответствий feedbackId -> запрос/ответ
-    private static final Map<String, FeedbackPair> FeedbackMemory = new java.util.concurrent.ConcurrentHashMap<>();
+    // Последние показанные ответы: feedbackId -> запрос/ответ (LRU, чтобы память не росла)
+    private static final int OFFERED_CACHE_SIZE = 1000;
+    private final Map<String, FeedbackPair> offered = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, FeedbackPair> eldest) {
+                    return size() > OFFERED_CACHE_SIZE;
+                }
+            });
     private static class FeedbackPair {
         final String userQuery;
         final String answer;
@@ -1,21 +1,62 @@
 package ru.georgdeveloper.assistanttelegram.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.http.converter.StringHttpMessageConverter;
+import ru.georgdeveloper.assistantcommon.feedback.FeedbackJournal;
+import ru.georgdeveloper.assistantcommon.feedback.FeedbackJournalProperties;
+import ru.georgdeveloper.assistantcommon.http.HttpClientProperties;
+import ru.georgdeveloper.assistantcommon.http.PooledHttpClientFactory;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 
 @Configuration
 @EnableConfigurationProperties(BotProperties.class)
 public class TelegramConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(TelegramConfig.class);
     
     @Bean
-    public RestTemplate restTemplate() {
-        RestTemplate restTemplate = new RestTemplate();
+    @ConfigurationProperties(prefix = "http.client")
+    public HttpClientProperties httpClientProperties() {
+        return new HttpClientProperties();
+    }
+
+    @Bean
+    public RestTemplate restTemplate(HttpClientProperties httpClientProperties,
+                                     ObjectProvider<MeterRegistry> meterRegistry) {
+        RestTemplate restTemplate = PooledHttpClientFactory.createRestTemplate("telegram-core",
+                httpClientProperties, meterRegistry.getIfAvailable());
         restTemplate.getMessageConverters()
                 .add(0, new StringHttpMessageConverter(StandardCharsets.UTF_8));
         return restTemplate;
     }
-}
\ No newline at end of file
+
+    @Bean
+    @ConfigurationProperties(prefix = "feedback.journal")
+    public FeedbackJournalProperties feedbackJournalProperties() {
+        return new FeedbackJournalProperties();
+    }
+
+    // Показанные ответы с кнопками оценки; null - журнал выключен или недоступен
+    @Bean(destroyMethod = "close")
+    public FeedbackJournal feedbackJournal(FeedbackJournalProperties feedbackJournalProperties,
+                                           ObjectProvider<MeterRegistry> meterRegistry) {
+        if (!feedbackJournalProperties.isEnabled()) {
+            return null;
+        }
+        try {
+            return FeedbackJournal.open(feedbackJournalProperties, "telegram", meterRegistry.getIfAvailable());
+        } catch (IOException e) {
+            logger.error("Журнал обратной связи недоступен: {}", e.getMessage(), e);
+            return null;
+        }
+    }
+}
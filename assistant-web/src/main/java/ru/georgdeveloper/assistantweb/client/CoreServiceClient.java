@@ -27,6 +27,41 @@ public class CoreServiceClient {
         return restTemplate.postForObject(coreServiceUrl + "/api/analyze", entity, String.class);
     }
 
+    /**
+     * Проксирует потоковый ответ ядра (Server-Sent Events) в выходной поток клиента.
+     * Байты пересылаются без разбора и сбрасываются сразу, чтобы токены
+     * доходили до браузера по мере генерации. Отказ ядра (503: очередь к AI
+     * или потоки ответов заняты) передаётся событием error с текстом ядра.
+     */
+    public void streamRepairRequest(String request, java.io.OutputStream out) throws java.io.IOException {
+        byte[] body = request.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        try {
+            streamFromCore(body, out);
+        } catch (org.springframework.web.client.HttpServerErrorException.ServiceUnavailable e) {
+            String event = "event:error\ndata:" + new com.fasterxml.jackson.databind.ObjectMapper().writeValueAsString(
+                    java.util.Map.of("message", e.getResponseBodyAsString(java.nio.charset.StandardCharsets.UTF_8))) + "\n\n";
+            out.write(event.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+            out.flush();
+        }
+    }
+
+    private void streamFromCore(byte[] body, java.io.OutputStream out) {
+        restTemplate.execute(coreServiceUrl + "/api/analyze/stream", org.springframework.http.HttpMethod.POST, coreRequest -> {
+            coreRequest.getHeaders().setContentType(new org.springframework.http.MediaType("application", "json", java.nio.charset.StandardCharsets.UTF_8));
+            coreRequest.getHeaders().setAccept(java.util.List.of(org.springframework.http.MediaType.TEXT_EVENT_STREAM));
+            coreRequest.getBody().write(body);
+        }, coreResponse -> {
+            java.io.InputStream in = coreResponse.getBody();
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                out.flush();
+            }
+            return null;
+        });
+    }
+
     public String sendFeedback(Object feedback) {
         return restTemplate.postForObject(coreServiceUrl + "/api/feedback", feedback, String.class);
     }
@@ -1,14 +1,31 @@
 package ru.georgdeveloper.assistantweb.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.client.RestTemplate;
+import ru.georgdeveloper.assistantcommon.http.HttpClientProperties;
+import ru.georgdeveloper.assistantcommon.http.PooledHttpClientFactory;
 
 @Configuration
 public class RestTemplateConfig {
 
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    @ConfigurationProperties(prefix = "http.client")
+    public HttpClientProperties httpClientProperties() {
+        return new HttpClientProperties();
     }
-}
\ No newline at end of file
+
+    /**
+     * Клиент для проксирования запросов дашбордов и чата в core.
+     * Keep-alive пул вместо нового TCP соединения на каждый вызов.
+     */
+    @Bean
+    public RestTemplate restTemplate(HttpClientProperties httpClientProperties,
+                                     ObjectProvider<MeterRegistry> meterRegistry) {
+        return PooledHttpClientFactory.createRestTemplate("web-core", httpClientProperties,
+                meterRegistry.getIfAvailable());
+    }
+}
@@ -1,11 +1,18 @@
 package ru.georgdeveloper.assistantweb.controller;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.georgdeveloper.assistantweb.client.CoreServiceClient;
 
+import java.nio.charset.StandardCharsets;
+
 @Controller
 public class AssistantController {
 
@@ -111,7 +118,28 @@ public class AssistantController {
         if (!aiEnabled) {
             return "AI is disabled";
         }
-        return coreServiceClient.analyzeRepairRequest(message);
+        try {
+            return coreServiceClient.analyzeRepairRequest(message);
+        } catch (HttpServerErrorException.ServiceUnavailable e) {
+            // Очередь к AI переполнена - показываем пользователю текст ошибки ядра
+            return e.getResponseBodyAsString(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Потоковый чат: ответ ядра пересылается в браузер как Server-Sent Events
+     */
+    @PostMapping(value = "/api/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> processChatStream(@RequestBody String message) {
+        if (!aiEnabled) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        StreamingResponseBody body = out -> coreServiceClient.streamRepairRequest(message, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .header("Cache-Control", "no-cache")
+                .header("X-Accel-Buffering", "no")
+                .body(body);
     }
 
     @PostMapping("/api/chat/feedback")
@@ -12,6 +12,22 @@ function sendMessage() {
     addMessage('user', message);
     input.value = '';
     
+    requestAnswer(message);
+}
+
+// Запрашивает ответ потоком (SSE), при недоступности потока - обычным запросом
+function requestAnswer(message) {
+    if (!window.ReadableStream || !window.TextDecoder) {
+        requestAnswerPlain(message);
+        return;
+    }
+    streamAnswer(message).catch(error => {
+        console.warn('Потоковый ответ недоступен, обычный запрос:', error);
+        requestAnswerPlain(message);
+    });
+}
+
+function requestAnswerPlain(message) {
     fetch('/api/chat', {
         method: 'POST',
         headers: {
@@ -29,6 +45,81 @@ function sendMessage() {
     });
 }
 
+// Читает события queue/token/done/error и дописывает текст в сообщение по мере генерации.
+// Промис отклоняется только если поток не удалось открыть - тогда работает fallback.
+async function streamAnswer(message) {
+    const response = await fetch('/api/chat/stream', {
+        method: 'POST',
+        headers: {
+            'Content-Type': 'application/json',
+            'Accept': 'text/event-stream'
+        },
+        body: JSON.stringify(message)
+    });
+    if (!response.ok || !response.body) {
+        throw new Error('HTTP ' + response.status);
+    }
+
+    const messageDiv = addMessage('assistant', '');
+    const reader = response.body.getReader();
+    const decoder = new TextDecoder('utf-8');
+    let buffer = '';
+    let answer = '';
+    let finished = false;
+
+    const handleEvent = (rawEvent) => {
+        let eventName = 'message';
+        let data = '';
+        rawEvent.split('\n').forEach(line => {
+            if (line.startsWith('event:')) {
+                eventName = line.substring(6).trim();
+            } else if (line.startsWith('data:')) {
+                data += line.substring(5);
+            }
+        });
+        if (!data) return;
+        const payload = JSON.parse(data);
+        if (eventName === 'queue') {
+            if (!answer) {
+                updateMessage(messageDiv, 'assistant', 'Запрос в очереди к AI, позиция: ' + payload.position);
+            }
+        } else if (eventName === 'token') {
+            answer += payload.t;
+            updateMessage(messageDiv, 'assistant', answer);
+        } else if (eventName === 'done') {
+            finished = true;
+            answer = payload.response || answer;
+            updateMessage(messageDiv, 'assistant', answer);
+            showFeedbackButtons(message, answer);
+        } else if (eventName === 'error') {
+            finished = true;
+            updateMessage(messageDiv, 'assistant', (answer ? answer + '\n' : '') + 'Ошибка: ' + payload.message);
+        }
+    };
+
+    try {
+        while (true) {
+            const { value, done } = await reader.read();
+            if (done) break;
+            buffer += decoder.decode(value, { stream: true }).replace(/\r\n/g, '\n');
+            let separator;
+            while ((separator = buffer.indexOf('\n\n')) !== -1) {
+                handleEvent(buffer.substring(0, separator));
+                buffer = buffer.substring(separator + 2);
+            }
+        }
+        if (buffer.trim()) {
+            handleEvent(buffer);
+        }
+    } catch (error) {
+        updateMessage(messageDiv, 'assistant', (answer ? answer + '\n' : '') + 'Ошибка: ' + error.message);
+        return;
+    }
+    if (!finished) {
+        updateMessage(messageDiv, 'assistant', (answer ? answer + '\n' : '') + 'Ошибка: соединение прервано');
+    }
+}
+
 function addMessage(sender, text) {
     const messages = document.getElementById('messages');
     const messageDiv = document.createElement('div');
@@ -45,6 +136,13 @@ function addMessage(sender, text) {
 
     messages.appendChild(messageDiv);
     messages.scrollTop = messages.scrollHeight;
+    return messageDiv;
+}
+
+function updateMessage(messageDiv, sender, text) {
+    messageDiv.textContent = `${sender === 'user' ? 'Вы' : 'Ассистент'}: ${text}`;
+    const messages = document.getElementById('messages');
+    messages.scrollTop = messages.scrollHeight;
 }
 
 function showFeedbackButtons(request, response) {
@@ -90,19 +188,7 @@ function sendFeedback(type) {
 
 function sendMessageAgain(message) {
     addMessage('user', message);
-    fetch('/api/chat', {
-        method: 'POST',
-        headers: { 'Content-Type': 'application/json' },
-        body: JSON.stringify(message)
-    })
-    .then(response => response.text())
-    .then(data => {
-        addMessage('assistant', data);
-        showFeedbackButtons(message, data);
-    })
-    .catch(error => {
-        addMessage('assistant', 'Ошибка: ' + error.message);
-    });
+    requestAnswer(message);
 }
 
 // Add event listener for Enter key
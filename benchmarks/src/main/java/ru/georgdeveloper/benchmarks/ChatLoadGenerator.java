@@ -0,0 +1,107 @@
+package ru.georgdeveloper.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * Нагрузка на POST /api/analyze: clients потоков отправляют вопросы подряд,
+ * без пауз (закрытая модель нагрузки), пока не будет отправлено requests запросов.
+ * Задержка - от отправки запроса до получения всего ответа.
+ */
+public class ChatLoadGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatLoadGenerator.class);
+
+    private final URI analyzeUri;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public ChatLoadGenerator(String coreBaseUrl) {
+        this.analyzeUri = URI.create(coreBaseUrl + "/api/analyze");
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    /**
+     * @param questions вопрос по номеру запроса
+     */
+    public LoadReport run(int clients, int requests, IntFunction<String> questions) throws Exception {
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        try {
+            long start = System.nanoTime();
+            List<Future<long[]>> workers = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                workers.add(pool.submit(() -> {
+                    long[] latencies = new long[requests];
+                    int count = 0;
+                    int index;
+                    while ((index = next.getAndIncrement()) < requests) {
+                        long sent = System.nanoTime();
+                        if (send(questions.apply(index))) {
+                            latencies[count++] = System.nanoTime() - sent;
+                        } else {
+                            errors.incrementAndGet();
+                        }
+                    }
+                    return Arrays.copyOf(latencies, count);
+                }));
+            }
+            List<long[]> perClient = new ArrayList<>();
+            for (Future<long[]> worker : workers) {
+                perClient.add(worker.get());
+            }
+            long wall = System.nanoTime() - start;
+
+            long[] all = new long[perClient.stream().mapToInt(l -> l.length).sum()];
+            int offset = 0;
+            for (long[] latencies : perClient) {
+                System.arraycopy(latencies, 0, all, offset, latencies.length);
+                offset += latencies.length;
+            }
+            return LoadReport.of(clients, errors.get(), wall, all);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private boolean send(String question) {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(analyzeUri)
+                    .timeout(Duration.ofMinutes(5))
+                    .header("Content-Type", "application/json;charset=UTF-8")
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(question)))
+                    .build();
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                logger.warn("/api/analyze вернул {}: {}", response.statusCode(), response.body());
+                return false;
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            logger.warn("/api/analyze: {}", e.getMessage());
+            return false;
+        }
+    }
+}
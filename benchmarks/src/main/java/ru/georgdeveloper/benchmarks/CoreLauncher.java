@@ -0,0 +1,73 @@
+package ru.georgdeveloper.benchmarks;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.georgdeveloper.assistantcore.AssistantCoreApplication;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Запуск assistant-core для бенчмарка: встроенная H2 вместо MySQL, стаб
+ * вместо Ollama, файлы индексов во временном каталоге.
+ *
+ * Остальная конфигурация берётся из корневого application.yml, как при
+ * обычном запуске, поэтому бенчмарк проверяет рабочие настройки поиска и
+ * сборки промпта. Кэши ответов отключены: каждый запрос проходит весь конвейер.
+ */
+public final class CoreLauncher {
+
+    private CoreLauncher() {
+    }
+
+    /**
+     * @param ollamaUrl адрес стаба Ollama
+     * @param workDir каталог для снимков индексов, IDF модели и кэша
+     * @param llmSlots одновременных генераций (ai.dispatcher.max-concurrent)
+     * @param overrides дополнительные свойства, перекрывают значения по умолчанию
+     */
+    public static ConfigurableApplicationContext start(String ollamaUrl, Path workDir, int llmSlots,
+                                                       Map<String, String> overrides) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("server.port", "0");
+        properties.put("spring.datasource.url",
+                "jdbc:h2:mem:chat-bench;MODE=MySQL;DB_CLOSE_DELAY=-1;NON_KEYWORDS=DATE,VALUE,SHIFT,CODE");
+        properties.put("spring.datasource.driver-class-name", "org.h2.Driver");
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        properties.put("spring.jpa.hibernate.ddl-auto", "create-drop");
+        properties.put("spring.jpa.properties.hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        properties.put("data-sync.sql_server.url", "jdbc:h2:mem:unused");
+        properties.put("data-sync.sql_server.username", "sa");
+        properties.put("data-sync.sql_server.password", "");
+        properties.put("data-sync.sql_server.driver", "org.h2.Driver");
+
+        properties.put("ai.ollama.url", ollamaUrl);
+        properties.put("ai.ollama.warmup.enabled", "false");
+        properties.put("ai.dispatcher.max-concurrent", String.valueOf(llmSlots));
+        properties.put("ai.dispatcher.queue-capacity", "1000");
+        properties.put("http.client.max-per-route", String.valueOf(Math.max(20, llmSlots * 2)));
+        properties.put("http.client.max-total", String.valueOf(Math.max(50, llmSlots * 2)));
+
+        properties.put("cache.enabled", "false");
+        properties.put("cache.semantic.enabled", "false");
+        properties.put("cache.semantic.file", workDir.resolve("semantic-cache.bin").toString());
+        properties.put("search.index.dir", workDir.resolve("index").toString());
+        properties.put("search.vector.dir", workDir.resolve("vector").toString());
+        properties.put("nlp.idf.file", workDir.resolve("idf.bin").toString());
+        // Индексы строятся явно после заполнения таблиц (SyntheticRepairData.buildIndexes)
+        properties.put("search.vector.initial-delay", "3600000");
+        properties.put("nlp.idf.initial-delay", "3600000");
+        properties.put("search.index.refresh-interval", "3600000");
+        properties.put("logging.level.ru.georgdeveloper.assistantcore", "INFO");
+        properties.putAll(overrides);
+
+        // Аргументы командной строки перекрывают application.yml
+        List<String> args = new ArrayList<>();
+        properties.forEach((key, value) -> args.add("--" + key + "=" + value));
+        return new SpringApplicationBuilder(AssistantCoreApplication.class).run(args.toArray(String[]::new));
+    }
+}
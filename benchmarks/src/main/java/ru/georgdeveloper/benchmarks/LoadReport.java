@@ -0,0 +1,44 @@
+package ru.georgdeveloper.benchmarks;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Итог нагрузочного прогона: задержки по процентилям и пропускная способность
+ *
+ * @param latenciesNanos задержки успешных запросов, отсортированы по возрастанию
+ */
+public record LoadReport(int clients, int requests, int errors, long wallNanos, long[] latenciesNanos) {
+
+    public static LoadReport of(int clients, int errors, long wallNanos, long[] latenciesNanos) {
+        long[] sorted = latenciesNanos.clone();
+        Arrays.sort(sorted);
+        return new LoadReport(clients, sorted.length + errors, errors, wallNanos, sorted);
+    }
+
+    /**
+     * Задержка процентиля p (0-100) в миллисекундах, метод ближайшего ранга
+     */
+    public double percentileMillis(double p) {
+        if (latenciesNanos.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(p / 100.0 * latenciesNanos.length);
+        int index = Math.min(latenciesNanos.length - 1, Math.max(0, rank - 1));
+        return latenciesNanos[index] / 1_000_000.0;
+    }
+
+    /**
+     * Успешных запросов в секунду
+     */
+    public double throughput() {
+        return wallNanos == 0 ? 0 : latenciesNanos.length / (wallNanos / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+
+    public String format() {
+        return String.format("клиентов %d, запросов %d, ошибок %d, %.1f с: %.2f запр/с; "
+                        + "p50 %.1f мс, p95 %.1f мс, p99 %.1f мс, max %.1f мс",
+                clients, requests, errors, wallNanos / 1e9, throughput(),
+                percentileMillis(50), percentileMillis(95), percentileMillis(99), percentileMillis(100));
+    }
+}
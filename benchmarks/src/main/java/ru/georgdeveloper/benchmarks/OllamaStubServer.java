@@ -0,0 +1,248 @@
+package ru.georgdeveloper.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * HTTP сервер, отвечающий как Ollama, но без модели.
+ *
+ * Обслуживает /api/generate и /api/chat (разовый ответ и NDJSON поток),
+ * /api/ps и /api/embeddings. Ответ генерируется с заданной задержкой до
+ * первого токена и скоростью печати, поэтому время ответа стаба близко к
+ * реальной модели, а всё остальное время запроса - это работа assistant-core:
+ * поиск по БД, сборка промпта, кэши, очередь к модели.
+ */
+public class OllamaStubServer implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(OllamaStubServer.class);
+
+    private static final String[] ANSWER_WORDS = ("Проверьте уплотнение клапана и затяжку фланца. "
+            + "Если давление азота падает ниже 0.3 МПа, замените уплотнение, проверьте датчик давления "
+            + "и запустите линию на холостом ходу. По данным базы похожая неисправность устранялась "
+            + "заменой уплотнения за 40 минут.").split(" ");
+
+    private final Settings settings;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final AtomicLong generations = new AtomicLong();
+    private final AtomicLong promptChars = new AtomicLong();
+    private volatile String loadedModel = "mistral:latest";
+
+    /**
+     * Параметры ответа стаба
+     *
+     * @param firstTokenMillis задержка до первого токена (обработка промпта моделью)
+     * @param tokensPerSecond скорость печати ответа
+     * @param answerTokens длина ответа в токенах (словах)
+     */
+    public record Settings(long firstTokenMillis, double tokensPerSecond, int answerTokens) {
+
+        /**
+         * Параметры из системных свойств ollama.stub.first-token-ms,
+         * ollama.stub.tokens-per-second и ollama.stub.answer-tokens
+         */
+        public static Settings fromSystemProperties() {
+            return new Settings(
+                    Long.getLong("ollama.stub.first-token-ms", 300),
+                    Double.parseDouble(System.getProperty("ollama.stub.tokens-per-second", "200")),
+                    Integer.getInteger("ollama.stub.answer-tokens", 60));
+        }
+
+        long tokenIntervalNanos() {
+            return tokensPerSecond <= 0 ? 0 : (long) (TimeUnit.SECONDS.toNanos(1) / tokensPerSecond);
+        }
+    }
+
+    private OllamaStubServer(Settings settings, int threads) throws IOException {
+        this.settings = settings;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.createContext("/api/generate", exchange -> handle(exchange, this::generate));
+        server.createContext("/api/chat", exchange -> handle(exchange, this::generate));
+        server.createContext("/api/ps", exchange -> handle(exchange, this::ps));
+        server.createContext("/api/embeddings", exchange -> handle(exchange, this::embeddings));
+    }
+
+    /**
+     * Запускает стаб на свободном порту
+     *
+     * @param threads одновременно обслуживаемых запросов
+     */
+    public static OllamaStubServer start(Settings settings, int threads) throws IOException {
+        OllamaStubServer stub = new OllamaStubServer(settings, threads);
+        stub.server.start();
+        logger.info("Стаб Ollama запущен на {}: первый токен {} мс, {} токенов/с, ответ {} токенов",
+                stub.baseUrl(), settings.firstTokenMillis(), settings.tokensPerSecond(), settings.answerTokens());
+        return stub;
+    }
+
+    /**
+     * Адрес API для ai.ollama.url
+     */
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/api";
+    }
+
+    /**
+     * Выполненных генераций (без запросов загрузки модели)
+     */
+    public long generationCount() {
+        return generations.get();
+    }
+
+    /**
+     * Суммарная длина полученных промптов в символах
+     */
+    public long promptChars() {
+        return promptChars.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private interface Handler {
+        void handle(HttpExchange exchange, JsonNode body) throws Exception;
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) throws IOException {
+        try (exchange) {
+            JsonNode body;
+            try (InputStream in = exchange.getRequestBody()) {
+                byte[] bytes = in.readAllBytes();
+                body = bytes.length == 0 ? objectMapper.createObjectNode() : objectMapper.readTree(bytes);
+            }
+            handler.handle(exchange, body);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.warn("Стаб Ollama: ошибка обработки {}: {}", exchange.getRequestURI(), e.getMessage());
+        }
+    }
+
+    private void generate(HttpExchange exchange, JsonNode body) throws Exception {
+        boolean chat = exchange.getRequestURI().getPath().endsWith("/chat");
+        String model = body.path("model").asText(loadedModel);
+        loadedModel = model;
+        String prompt = chat ? lastMessage(body) : body.path("prompt").asText("");
+        // Как в Ollama: по умолчанию ответ потоковый
+        boolean stream = body.path("stream").asBoolean(true);
+
+        if (prompt.isEmpty()) {
+            // Запрос без промпта только загружает модель
+            writeJson(exchange, chunk(chat, model, "", true));
+            return;
+        }
+        generations.incrementAndGet();
+        promptChars.addAndGet(prompt.length());
+
+        sleepNanos(TimeUnit.MILLISECONDS.toNanos(settings.firstTokenMillis()));
+        if (!stream) {
+            sleepNanos(settings.tokenIntervalNanos() * settings.answerTokens());
+            StringBuilder answer = new StringBuilder();
+            for (int i = 0; i < settings.answerTokens(); i++) {
+                answer.append(token(i));
+            }
+            Map<String, Object> response = chunk(chat, model, answer.toString(), true);
+            response.put("prompt_eval_count", prompt.length() / 4);
+            response.put("eval_count", settings.answerTokens());
+            writeJson(exchange, response);
+            return;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        for (int i = 0; i < settings.answerTokens(); i++) {
+            if (i > 0) {
+                sleepNanos(settings.tokenIntervalNanos());
+            }
+            writeLine(out, chunk(chat, model, token(i), false));
+        }
+        Map<String, Object> done = chunk(chat, model, "", true);
+        done.put("prompt_eval_count", prompt.length() / 4);
+        done.put("eval_count", settings.answerTokens());
+        writeLine(out, done);
+    }
+
+    private void ps(HttpExchange exchange, JsonNode body) throws IOException {
+        writeJson(exchange, Map.of("models", List.of(Map.of("name", loadedModel, "model", loadedModel))));
+    }
+
+    /**
+     * Детерминированный вектор по хэшам символьных триграмм
+     */
+    private void embeddings(HttpExchange exchange, JsonNode body) throws IOException {
+        String text = body.path("prompt").asText("");
+        double[] vector = new double[64];
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            vector[Math.floorMod(text.substring(i, i + 3).hashCode(), vector.length)] += 1;
+        }
+        vector[0] += 1e-3;
+        writeJson(exchange, Map.of("embedding", vector));
+    }
+
+    private static String lastMessage(JsonNode body) {
+        JsonNode messages = body.path("messages");
+        return messages.isArray() && !messages.isEmpty()
+                ? messages.get(messages.size() - 1).path("content").asText("") : "";
+    }
+
+    private static String token(int index) {
+        return ANSWER_WORDS[index % ANSWER_WORDS.length] + " ";
+    }
+
+    private static Map<String, Object> chunk(boolean chat, String model, String text, boolean done) {
+        Map<String, Object> chunk = new LinkedHashMap<>();
+        chunk.put("model", model);
+        chunk.put("created_at", "2025-01-01T00:00:00Z");
+        if (chat) {
+            chunk.put("message", Map.of("role", "assistant", "content", text));
+        } else {
+            chunk.put("response", text);
+        }
+        chunk.put("done", done);
+        return chunk;
+    }
+
+    private void writeJson(HttpExchange exchange, Object value) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(value);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private void writeLine(OutputStream out, Object value) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(value));
+        out.write('\n');
+        out.flush();
+    }
+
+    private static void sleepNanos(long nanos) throws InterruptedException {
+        if (nanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        }
+    }
+}
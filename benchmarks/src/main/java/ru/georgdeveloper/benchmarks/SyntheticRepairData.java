@@ -0,0 +1,155 @@
+package ru.georgdeveloper.benchmarks;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationContext;
+import ru.georgdeveloper.assistantcore.model.BreakdownReport;
+import ru.georgdeveloper.assistantcore.model.EquipmentMaintenanceRecord;
+import ru.georgdeveloper.assistantcore.model.SummaryOfSolutions;
+import ru.georgdeveloper.assistantcore.nlp.IdfCorpusService;
+import ru.georgdeveloper.assistantcore.repository.BreakdownReportRepository;
+import ru.georgdeveloper.assistantcore.repository.EquipmentMaintenanceRepository;
+import ru.georgdeveloper.assistantcore.repository.SummaryOfSolutionsRepository;
+import ru.georgdeveloper.assistantcore.search.TableSearchIndex;
+import ru.georgdeveloper.assistantcore.search.VectorSearchIndex;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Синтетические записи о ремонтах и вопросы к ним.
+ *
+ * Словарь - оборудование, узлы и неисправности завода; значения
+ * перемешаны с фиксированным seed, поэтому два запуска бенчмарка
+ * работают на одинаковых данных.
+ */
+public final class SyntheticRepairData {
+
+    private static final Logger logger = LoggerFactory.getLogger(SyntheticRepairData.class);
+
+    private static final String[] MACHINES = {"VMI APEX", "Trafo", "Bandera", "Duplex", "Extruder", "Calender",
+            "Форматор", "Вулканизатор", "Станок резки", "Пресс"};
+    private static final String[] NODES = {"насос", "редуктор", "привод", "клапан", "датчик", "барабан",
+            "подшипник", "гидроцилиндр", "муфта", "конвейер"};
+    private static final String[] PROBLEMS = {"утечка азота", "перегрев подшипника", "обрыв ремня",
+            "ошибка датчика давления", "заклинивание вала", "износ уплотнения", "вибрация редуктора",
+            "течь масла", "не срабатывает концевик", "падение давления в гидросистеме"};
+    private static final String[] FIXES = {"Заменили уплотнение", "Подтянули фланец", "Заменили подшипник",
+            "Откалибровали датчик", "Заменили ремень", "Долили масло и устранили течь",
+            "Заменили концевой выключатель", "Отрегулировали зазор"};
+    private static final String[] QUESTION_TEMPLATES = {
+            "%s на %s %s, как устранить?",
+            "Что делать, если %s на %s (%s)?",
+            "Как починить %s, %s, узел %s",
+            "Похожие случаи: %s на %s, %s"
+    };
+
+    private static final int BATCH_SIZE = 1000;
+
+    private SyntheticRepairData() {
+    }
+
+    /**
+     * Заполняет таблицы equipment_maintenance_records, summary_of_solutions
+     * и breakdown_reports
+     */
+    public static void seed(ApplicationContext context, int equipmentRows, int summaryRows, int breakdownRows) {
+        long start = System.currentTimeMillis();
+        Random random = new Random(42);
+        LocalDateTime firstDate = LocalDateTime.of(2024, 1, 1, 8, 0);
+
+        EquipmentMaintenanceRepository equipmentRepo = context.getBean(EquipmentMaintenanceRepository.class);
+        List<EquipmentMaintenanceRecord> equipment = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < equipmentRows; i++) {
+            EquipmentMaintenanceRecord r = new EquipmentMaintenanceRecord();
+            r.setMachineName(pick(MACHINES, random) + " " + random.nextInt(40));
+            r.setMechanismNode(pick(NODES, random));
+            r.setDescription(pick(PROBLEMS, random) + ", " + pick(NODES, random) + " - остановка линии");
+            r.setComments(pick(FIXES, random) + ", проверили работу " + pick(NODES, random));
+            r.setCause(pick(PROBLEMS, random));
+            r.setStatus(random.nextInt(5) == 0 ? "Временно закрыто" : "Закрыто");
+            r.setStartBdT1(firstDate.plusMinutes(i * 7L));
+            equipment.add(r);
+            if (equipment.size() == BATCH_SIZE) {
+                equipmentRepo.saveAll(equipment);
+                equipment.clear();
+            }
+        }
+        equipmentRepo.saveAll(equipment);
+
+        SummaryOfSolutionsRepository summaryRepo = context.getBean(SummaryOfSolutionsRepository.class);
+        List<SummaryOfSolutions> summaries = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < summaryRows; i++) {
+            SummaryOfSolutions s = new SummaryOfSolutions();
+            s.setEquipment(pick(MACHINES, random));
+            s.setNode(pick(NODES, random));
+            s.setNotes_on_the_operation_of_the_equipment(pick(PROBLEMS, random) + " при выходе на режим");
+            s.setMeasures_taken(pick(FIXES, random) + "; " + pick(FIXES, random).toLowerCase());
+            s.setComments("Сложный ремонт, бригада " + (1 + random.nextInt(4)));
+            summaries.add(s);
+            if (summaries.size() == BATCH_SIZE) {
+                summaryRepo.saveAll(summaries);
+                summaries.clear();
+            }
+        }
+        summaryRepo.saveAll(summaries);
+
+        BreakdownReportRepository breakdownRepo = context.getBean(BreakdownReportRepository.class);
+        List<BreakdownReport> breakdowns = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < breakdownRows; i++) {
+            BreakdownReport b = new BreakdownReport();
+            b.setIdCode("BD" + String.format("%010d", i));
+            b.setMachineName(pick(MACHINES, random));
+            b.setAssembly(pick(NODES, random));
+            b.setComment(pick(PROBLEMS, random));
+            b.setWoStatusLocalDescr("Закрыто");
+            b.setDuration(5 + random.nextInt(240));
+            breakdowns.add(b);
+            if (breakdowns.size() == BATCH_SIZE) {
+                breakdownRepo.saveAll(breakdowns);
+                breakdowns.clear();
+            }
+        }
+        breakdownRepo.saveAll(breakdowns);
+
+        logger.info("Синтетические данные: {} ремонтов, {} сложных ремонтов, {} отчётов за {} мс",
+                equipmentRows, summaryRows, breakdownRows, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Строит по засеянным данным IDF модель, индексы ключевых слов и векторный
+     * индекс, чтобы нагрузка шла по тем же путям поиска, что и в работе
+     */
+    @SuppressWarnings("rawtypes")
+    public static void buildIndexes(ApplicationContext context) throws Exception {
+        long start = System.currentTimeMillis();
+        context.getBeanProvider(IdfCorpusService.class).ifAvailable(idf -> {
+            try {
+                idf.rebuild();
+            } catch (Exception e) {
+                throw new IllegalStateException("Не удалось построить IDF модель", e);
+            }
+        });
+        for (TableSearchIndex index : context.getBeansOfType(TableSearchIndex.class).values()) {
+            index.rebuild();
+        }
+        context.getBeanProvider(VectorSearchIndex.class).ifAvailable(VectorSearchIndex::refresh);
+        logger.info("Индексы поиска построены за {} мс", System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Вопрос пользователя номер index: разные формулировки, чтобы кэши ответов не срабатывали
+     */
+    public static String question(int index) {
+        Random random = new Random(index * 31L + 7);
+        String template = QUESTION_TEMPLATES[index % QUESTION_TEMPLATES.length];
+        return String.format(template, pick(PROBLEMS, random), pick(MACHINES, random), pick(NODES, random))
+                + " #" + index;
+    }
+
+    private static String pick(String[] values, Random random) {
+        return values[random.nextInt(values.length)];
+    }
+}
@@ -0,0 +1,179 @@
+package ru.georgdeveloper.assistantcore.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.georgdeveloper.assistantcommon.instructions.RepairInstructionsJson;
+import ru.georgdeveloper.assistantcommon.instructions.RepairInstructionsStore;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * JMH сравнение прежнего поиска инструкций (проход по всем инструкциям,
+ * релевантность в компараторе сортировки, contains по группе оборудования)
+ * с индексами RepairInstructionIndex на repair_instructions.json из assistant-ai,
+ * и загрузки файла через дерево JsonNode, потоковым RepairInstructionsJson
+ * и из двоичного хранилища RepairInstructionsStore.
+ * Профилировщик GC показывает выделенную память на операцию (gc.alloc.rate.norm).
+ *
+ * Запуск (из корня проекта):
+ * mvn -pl benchmarks -am test -Dtest=RepairInstructionsBenchmarkTest -Dsurefire.failIfNoSpecifiedTests=false -Dbenchmark=true
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepairInstructionsBenchmarkTest {
+
+    static final Path INSTRUCTIONS_JSON =
+            Path.of("../assistant-ai/src/main/resources/training/repair_instructions.json");
+
+    private static final String[] PROBLEMS = {
+            "Утечка азота из-под уплотнения, что делать?",
+            "Сорвало болты TCR на правой стороне",
+            "Не работает датчик температуры пресс-формы",
+            "Течь масла из гидроцилиндра загрузчика",
+            "Не закрывается пресс, ошибка концевика",
+            "Износ ножа, рез неровный"
+    };
+
+    private static final String[] EQUIPMENT = {"HFV2", "HFV2 A16", "VMI", "Trafo"};
+
+    private List<RepairInstructionsService.RepairInstruction> instructions;
+    private RepairInstructionIndex index;
+    private Path store;
+
+    @Setup
+    public void setUp() throws Exception {
+        instructions = readInstructions();
+        index = RepairInstructionIndex.build(instructions);
+        store = Files.createTempFile("repair_instructions", ".bin");
+        try (InputStream in = Files.newInputStream(INSTRUCTIONS_JSON)) {
+            RepairInstructionsStore.write(in, store, Files.size(INSTRUCTIONS_JSON), 0);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(store);
+    }
+
+    @Benchmark
+    public void legacyFindRelevant(Blackhole blackhole) {
+        for (String problem : PROBLEMS) {
+            blackhole.consume(legacyFindRelevant(instructions, problem));
+        }
+    }
+
+    @Benchmark
+    public void indexFindRelevant(Blackhole blackhole) {
+        for (String problem : PROBLEMS) {
+            blackhole.consume(index.find(RepairInstructionsService.extractKeywords(problem.toLowerCase(Locale.ROOT)), 5));
+        }
+    }
+
+    @Benchmark
+    public void legacyForEquipment(Blackhole blackhole) {
+        for (String name : EQUIPMENT) {
+            String normalizedName = name.toLowerCase(Locale.ROOT);
+            blackhole.consume(instructions.stream()
+                    .filter(instruction -> instruction.getEquipmentGroup() != null
+                            && instruction.getEquipmentGroup().toLowerCase(Locale.ROOT).contains(normalizedName))
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    @Benchmark
+    public void indexForEquipment(Blackhole blackhole) {
+        for (String name : EQUIPMENT) {
+            blackhole.consume(index.forEquipment(name));
+        }
+    }
+
+    @Benchmark
+    public List<RepairInstructionsService.RepairInstruction> domLoad() throws Exception {
+        return readInstructions();
+    }
+
+    @Benchmark
+    public List<RepairInstructionsService.RepairInstruction> streamingLoad() throws Exception {
+        List<RepairInstructionsService.RepairInstruction> result = new ArrayList<>();
+        try (InputStream in = Files.newInputStream(INSTRUCTIONS_JSON)) {
+            RepairInstructionsJson.read(in, (area, equipmentGroup, component, problem, solution) ->
+                    result.add(new RepairInstructionsService.RepairInstruction(area, equipmentGroup, component, problem, solution)));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<RepairInstructionsService.RepairInstruction> storeLoad() throws Exception {
+        List<RepairInstructionsService.RepairInstruction> result = new ArrayList<>();
+        RepairInstructionsStore.read(store, (area, equipmentGroup, component, problem, solution) ->
+                result.add(new RepairInstructionsService.RepairInstruction(area, equipmentGroup, component, problem, solution)));
+        return result;
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void runBenchmarks() throws Exception {
+        Options options = new OptionsBuilder()
+                .include(RepairInstructionsBenchmarkTest.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+
+    /**
+     * Чтение через дерево JsonNode, как прежний RepairInstructionsService.loadRepairInstructions
+     */
+    static List<RepairInstructionsService.RepairInstruction> readInstructions() throws Exception {
+        List<RepairInstructionsService.RepairInstruction> result = new ArrayList<>();
+        for (JsonNode node : new ObjectMapper().readTree(INSTRUCTIONS_JSON.toFile())) {
+            result.add(new RepairInstructionsService.RepairInstruction(node.path("Участок").asText(null),
+                    node.path("Группа оборудования").asText(null), node.path("Узел").asText(null),
+                    node.path("Проблема").asText(null), node.path("Решение").asText(null)));
+        }
+        return result;
+    }
+
+    /**
+     * Прежний RepairInstructionsService.findRelevantInstructions
+     */
+    private static List<RepairInstructionsService.RepairInstruction> legacyFindRelevant(
+            List<RepairInstructionsService.RepairInstruction> instructions, String problemDescription) {
+        String[] keywords = RepairInstructionsService.extractKeywords(problemDescription.toLowerCase(Locale.ROOT));
+        return instructions.stream()
+                .filter(instruction -> {
+                    String searchText = (instruction.getProblem() + " " + instruction.getSolution()).toLowerCase(Locale.ROOT);
+                    return Arrays.stream(keywords).filter(keyword -> keyword.length() > 2).anyMatch(searchText::contains);
+                })
+                .sorted((a, b) -> legacyRelevance(b, keywords) - legacyRelevance(a, keywords))
+                .limit(5)
+                .collect(Collectors.toList());
+    }
+
+    private static int legacyRelevance(RepairInstructionsService.RepairInstruction instruction, String[] keywords) {
+        String searchText = (instruction.getProblem() + " " + instruction.getSolution()).toLowerCase(Locale.ROOT);
+        return (int) Arrays.stream(keywords)
+                .filter(keyword -> keyword.length() > 2)
+                .mapToLong(keyword -> searchText.split(keyword, -1).length - 1)
+                .sum();
+    }
+}
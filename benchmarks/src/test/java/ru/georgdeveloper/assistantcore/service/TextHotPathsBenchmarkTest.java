@@ -0,0 +1,216 @@
+package ru.georgdeveloper.assistantcore.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.io.ClassPathResource;
+import ru.georgdeveloper.assistantcore.config.ResourcePaths;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH замер строковой обработки на пути запроса: классификация и ключевое
+ * слово RepairAssistantService, очистка ответа от размышлений модели,
+ * разбор периода дат и ключевые слова поиска инструкций.
+ *
+ * Вопросы - типичные формулировки операторов (ремонт, статистика, общие),
+ * ответы - 1-3 КБ текста модели с блоком think и без. Время операции - на
+ * весь набор, поэтому результаты разных методов сравнимы между собой.
+ *
+ * Классификация и ключевое слово замеряются в двух вариантах: прежние
+ * цепочки contains/matches (legacy*) и один проход IntentMatcher по правилам
+ * routing/intent_rules.json.
+ *
+ * Класс лежит в пакете service, чтобы вызывать package-private методы.
+ *
+ * Запуск (из корня проекта):
+ * mvn -pl benchmarks -am test -Dtest=TextHotPathsBenchmarkTest -Dsurefire.failIfNoSpecifiedTests=false -Dbenchmark=true
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextHotPathsBenchmarkTest {
+
+    private static final String[] QUESTIONS = {
+            "Утечка азота на VMI APEX 2, что делать?",
+            "Не крутится барабан сборки на форматоре, как устранить?",
+            "Какие были поломки пресса 12 за последний месяц",
+            "Топ 5 самых долгих ремонтов вулканизаторов",
+            "Привет! Что умеешь?",
+            "Сколько простоев было на линии Trafo с 01.03.2025 по 15.03.2025",
+            "Течь масла из гидроцилиндра, давление падает до 0.3 МПа. Подскажи по шагам, как починить",
+            "Не запускается экструдер после замены датчика температуры протектора",
+            "Покажи статистику отказов оборудования за январь-март",
+            "Перегрев подшипника двигателя конвейера, станок остановился?",
+            "Ошибка датчика давления пара на вулканизаторе, проблема повторяется каждую смену",
+            "Найди похожие случаи: не накладывается брекер на барабан, конус сбивается"
+    };
+
+    private static final String[] DATE_QUERIES = {
+            "ремонты с 01.03.2025 - 15.03.2025",
+            "простои за период январь-март",
+            "отчёт 2024-01-01 — 2024-03-31 по линии Trafo",
+            "что ломалось 12/05/2025",
+            "сколько было поломок в мае",
+            "Топ 5 самых долгих ремонтов вулканизаторов"
+    };
+
+    private static final String ANSWER = """
+            1. Остановите линию и сбросьте давление азота в контуре до нуля.
+            2. Проверьте уплотнение клапана и затяжку фланца: по базе в 7 случаях из 10 причина - износ уплотнения.
+            3. Замените уплотнение (комплект РТИ из ЗИП), затяните фланец моментом по паспорту узла.
+            4. Запустите линию, проконтролируйте давление 0.6 МПа в течение смены.
+            Похожий случай: VMI APEX 2, барабан сборки - заменили уплотнение, подтянули фланец, простой 45 мин.
+            """;
+
+    private static final String THINK = """
+            <think>
+            Пользователь спрашивает про утечку азота. В данных из базы есть несколько похожих случаев
+            на VMI APEX, во всех меняли уплотнение клапана. Нужно ответить по шагам и сослаться на базу,
+            не придумывая общих советов. Давление в контуре по документации 0.6 МПа.
+            </think>
+            """;
+
+    private String[] answers;
+    private IntentMatcher intentMatcher;
+
+    @Setup
+    public void setUp() {
+        intentMatcher = new IntentMatcher(new ClassPathResource(ResourcePaths.INTENT_RULES_JSON));
+        answers = new String[] {
+                ANSWER,
+                THINK + ANSWER,
+                THINK + ANSWER.repeat(4),
+                ANSWER.repeat(3)
+        };
+    }
+
+    @Benchmark
+    public void legacyRouting(Blackhole blackhole) {
+        for (String question : QUESTIONS) {
+            blackhole.consume(legacyIsGeneralQuery(question));
+            blackhole.consume(legacyIsRepairInstructionRequest(question));
+            blackhole.consume(legacyExtractKeyword(question));
+        }
+    }
+
+    @Benchmark
+    public void intentMatcherRouting(Blackhole blackhole) {
+        for (String question : QUESTIONS) {
+            IntentMatcher.Matches intents = intentMatcher.match(question);
+            blackhole.consume(intents.has(IntentMatcher.GENERAL));
+            blackhole.consume(RepairAssistantService.isRepairInstructionRequest(question, intents));
+            blackhole.consume(intents.first(IntentMatcher.SEARCH_KEYWORD));
+        }
+    }
+
+    @Benchmark
+    public void legacyNormalizeRequest(Blackhole blackhole) {
+        for (String question : QUESTIONS) {
+            blackhole.consume(legacyNormalizeRequest(question));
+        }
+    }
+
+    @Benchmark
+    public void intentMatcherNormalize(Blackhole blackhole) {
+        for (String question : QUESTIONS) {
+            blackhole.consume(intentMatcher.normalize(question));
+        }
+    }
+
+    @Benchmark
+    public void removeThinkTags(Blackhole blackhole) {
+        for (String answer : answers) {
+            blackhole.consume(RepairAssistantService.removeThinkTags(answer));
+        }
+    }
+
+    @Benchmark
+    public void extractDateRange(Blackhole blackhole) {
+        for (String query : DATE_QUERIES) {
+            blackhole.consume(DateParsingUtils.extractDateRange(query));
+        }
+    }
+
+    @Benchmark
+    public void extractInstructionKeywords(Blackhole blackhole) {
+        for (String question : QUESTIONS) {
+            // findRelevantInstructions передаёт текст в нижнем регистре
+            blackhole.consume(RepairInstructionsService.extractKeywords(question.toLowerCase(Locale.ROOT)));
+        }
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void runBenchmarks() throws Exception {
+        Options options = new OptionsBuilder()
+                .include(TextHotPathsBenchmarkTest.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+    /**
+     * Прежний RepairAssistantService.isGeneralQuery
+     */
+    private static boolean legacyIsGeneralQuery(String request) {
+        String lower = request.toLowerCase();
+        return lower.contains("кто ты") || lower.contains("что умеешь") ||
+               lower.contains("что можешь") || lower.contains("привет");
+    }
+
+    /**
+     * Прежний RepairAssistantService.isRepairInstructionRequest
+     */
+    private static boolean legacyIsRepairInstructionRequest(String request) {
+        String lower = request.toLowerCase();
+        if (lower.matches(".*(не работает|неисправность|поломка|что делать|как устранить|как починить|утечка|не накладывается|не крутится|не запускается).*")) {
+            return true;
+        }
+        if (request.endsWith("?") && (lower.contains("оборудован") || lower.contains("станок") || lower.contains("машин"))) {
+            return true;
+        }
+        return lower.contains("инструкциа") || lower.contains("проблема");
+    }
+
+    /**
+     * Прежний RepairAssistantService.extractKeyword
+     */
+    private static String legacyExtractKeyword(String request) {
+        String lower = request.toLowerCase();
+        if (lower.contains("утечка") && lower.contains("азот")) return "азот";
+        if (lower.contains("утечка") && lower.contains("масл")) return "масл";
+        if (lower.contains("форматор")) return "форматор";
+        if (lower.contains("vmi")) return "vmi";
+        if (lower.contains("протектор")) return "протектор";
+        if (lower.contains("температур")) return "температур";
+        if (lower.contains("конус")) return "конус";
+        if (lower.contains("утечка")) return "утечка";
+        if (lower.contains("азот")) return "азот";
+        if (lower.contains("масл")) return "масл";
+        if (lower.contains("пар")) return "пар";
+        if (lower.contains("воздух")) return "воздух";
+        if (lower.contains("насос")) return "насос";
+        if (lower.contains("двигатель")) return "двигатель";
+        return null;
+    }
+
+    /**
+     * Прежний QueryAnalysisService.normalizeRequest
+     */
+    private static String legacyNormalizeRequest(String request) {
+        return request.toLowerCase()
+                .replace("сколько раз", "количество")
+                .replace("как починить", "инструкция по ремонту")
+                .replace("как отремонтировать", "инструкция по ремонту")
+                .replaceAll("\\b(пожалуйста|мне|нужно)\\b", "")
+                .trim();
+    }
+}
@@ -0,0 +1,79 @@
+package ru.georgdeveloper.benchmarks;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Сквозной бенчмарк POST /api/analyze: assistant-core на H2 с синтетическими
+ * данными и стабом Ollama под параллельной нагрузкой.
+ *
+ * Запуск (из корня проекта):
+ * mvn -pl benchmarks -am test -Dtest=ChatPipelineBenchmarkTest -Dsurefire.failIfNoSpecifiedTests=false -Dbenchmark=true
+ *
+ * Параметры (системные свойства):
+ * - benchmark.clients (8), benchmark.requests (400), benchmark.warmup-requests (50);
+ * - benchmark.llm-slots - одновременных генераций, по умолчанию равно числу клиентов,
+ *   чтобы очередь к модели не скрывала время поиска и сборки промпта; 1 - как в работе;
+ * - benchmark.equipment-rows (20000), benchmark.summary-rows (2000), benchmark.breakdown-rows (10000);
+ * - benchmark.ollama-api - generate или chat (по умолчанию ai.ollama.api из application.yml);
+ * - ollama.stub.first-token-ms (300), ollama.stub.tokens-per-second (200), ollama.stub.answer-tokens (60).
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ChatPipelineBenchmarkTest {
+
+    @TempDir
+    Path workDir;
+
+    @Test
+    void analyzeUnderConcurrentLoad() throws Exception {
+        int clients = Integer.getInteger("benchmark.clients", 8);
+        int requests = Integer.getInteger("benchmark.requests", 400);
+        int warmupRequests = Integer.getInteger("benchmark.warmup-requests", 50);
+        int llmSlots = Integer.getInteger("benchmark.llm-slots", clients);
+
+        Map<String, String> overrides = new LinkedHashMap<>();
+        String api = System.getProperty("benchmark.ollama-api");
+        if (api != null) {
+            overrides.put("ai.ollama.api", api);
+        }
+
+        try (OllamaStubServer ollama = OllamaStubServer.start(OllamaStubServer.Settings.fromSystemProperties(),
+                     Math.max(clients, llmSlots) + 2);
+             ConfigurableApplicationContext core = CoreLauncher.start(ollama.baseUrl(), workDir, llmSlots, overrides)) {
+
+            SyntheticRepairData.seed(core,
+                    Integer.getInteger("benchmark.equipment-rows", 20_000),
+                    Integer.getInteger("benchmark.summary-rows", 2_000),
+                    Integer.getInteger("benchmark.breakdown-rows", 10_000));
+            SyntheticRepairData.buildIndexes(core);
+
+            String port = core.getEnvironment().getProperty("local.server.port");
+            ChatLoadGenerator load = new ChatLoadGenerator("http://127.0.0.1:" + port);
+
+            // Прогрев JIT и пулов; вопросы прогрева не повторяются в замере
+            load.run(clients, warmupRequests, index -> SyntheticRepairData.question(1_000_000 + index));
+            long generationsBefore = ollama.generationCount();
+            long promptCharsBefore = ollama.promptChars();
+
+            LoadReport report = load.run(clients, requests, SyntheticRepairData::question);
+            long generations = ollama.generationCount() - generationsBefore;
+
+            System.out.println("/api/analyze: " + report.format());
+            System.out.printf("Генераций %d, средний промпт %d символов%n",
+                    generations, generations == 0 ? 0 : (ollama.promptChars() - promptCharsBefore) / generations);
+
+            assertEquals(0, report.errors());
+            // Кэши отключены: каждый вопрос доходит до модели
+            assertTrue(generations >= requests, "генераций " + generations + " из " + requests);
+        }
+    }
+}